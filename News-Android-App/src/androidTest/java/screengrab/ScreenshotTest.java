@@ -133,7 +133,7 @@ public class ScreenshotTest {
 
         mActivity.runOnUiThread(() -> {
             RssItemViewHolder vh = (RssItemViewHolder) nrdf.getRecyclerView().getChildViewHolder(nrdf.getRecyclerView().getLayoutManager().findViewByPosition(0));
-            PodcastItem podcastItem = DatabaseConnectionOrm.ParsePodcastItemFromRssItem(mActivity, vh.getRssItem());
+            PodcastItem podcastItem = DatabaseConnectionOrm.ParsePodcastItemFromRssItem(mActivity, new DatabaseConnectionOrm(mActivity).getRssItemById(vh.getRssItem().getId()));
             mActivity.openMediaItem(podcastItem);
         });
 
@@ -178,7 +178,7 @@ public class ScreenshotTest {
 
         mActivity.runOnUiThread(() -> {
             RssItemViewHolder vh = (RssItemViewHolder) nrdf.getRecyclerView().getChildViewHolder(nrdf.getRecyclerView().getLayoutManager().findViewByPosition(1));
-            PodcastItem podcastItem = DatabaseConnectionOrm.ParsePodcastItemFromRssItem(mActivity, vh.getRssItem());
+            PodcastItem podcastItem = DatabaseConnectionOrm.ParsePodcastItemFromRssItem(mActivity, new DatabaseConnectionOrm(mActivity).getRssItemById(vh.getRssItem().getId()));
             mActivity.openMediaItem(podcastItem);
         });
 
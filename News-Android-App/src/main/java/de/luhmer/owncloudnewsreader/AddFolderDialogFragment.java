@@ -22,8 +22,8 @@ import javax.inject.Inject;
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
 import de.luhmer.owncloudnewsreader.databinding.FragmentDialogAddFolderBinding;
 import de.luhmer.owncloudnewsreader.di.ApiProvider;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.SyncSchedulers;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 
 
 public class AddFolderDialogFragment extends DialogFragment {
@@ -90,7 +90,7 @@ public class AddFolderDialogFragment extends DialogFragment {
             Map<String, Object> paramMap = new HashMap<>(0);
             paramMap.put("name", name);
             mApi.getNewsAPI().createFolderObservable(paramMap)
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(SyncSchedulers.network())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(folders -> {
                         dbConn.insertNewFolders(folders);
@@ -26,11 +26,11 @@ import de.luhmer.owncloudnewsreader.database.model.Feed;
 import de.luhmer.owncloudnewsreader.databinding.FragmentDialogFolderoptionsBinding;
 import de.luhmer.owncloudnewsreader.di.ApiProvider;
 import de.luhmer.owncloudnewsreader.reader.nextcloud.NewsAPI;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.SyncSchedulers;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.annotations.NonNull;
 import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Observable;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 
 
 public class FolderOptionsDialogFragment extends DialogFragment {
@@ -152,7 +152,7 @@ public class FolderOptionsDialogFragment extends DialogFragment {
             Map<String, String> paramMap = new LinkedHashMap<>();
             paramMap.put("name", binding.renamefolderFoldername.getText().toString());
             mApi.getNewsAPI().renameFolder(folderId, paramMap)
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(SyncSchedulers.network())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(() -> {
                         DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(getContext());
@@ -186,7 +186,7 @@ public class FolderOptionsDialogFragment extends DialogFragment {
 
             NewsAPI newsApi = mApi.getNewsAPI();
             Observable<Feed> deleteFeedsTask = newsApi.feeds()
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(SyncSchedulers.network())
                     .flatMap(feedList -> Observable.fromIterable(feedList)
                             .filter(feed -> folderId == feed.getFolderId())
                     )
@@ -204,7 +204,7 @@ public class FolderOptionsDialogFragment extends DialogFragment {
                         }
                     });
             Completable.fromObservable(deleteFeedsTask)
-                    .observeOn(Schedulers.newThread())
+                    .observeOn(SyncSchedulers.network())
                     .andThen(newsApi.deleteFolder(folderId))
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(() -> {
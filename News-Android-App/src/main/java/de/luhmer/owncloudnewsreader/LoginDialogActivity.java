@@ -67,13 +67,13 @@ import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
 import de.luhmer.owncloudnewsreader.databinding.ActivityLoginDialogBinding;
 import de.luhmer.owncloudnewsreader.di.ApiProvider;
 import de.luhmer.owncloudnewsreader.model.NextcloudNewsVersion;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.SyncSchedulers;
 import de.luhmer.owncloudnewsreader.ssl.MemorizingTrustManager;
 import de.luhmer.owncloudnewsreader.ssl.OkHttpSSLClient;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.annotations.NonNull;
 import io.reactivex.rxjava3.core.Observer;
 import io.reactivex.rxjava3.disposables.Disposable;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 
 /**
  * Activity which displays a login screen to the user, offering registration as
@@ -355,7 +355,7 @@ public class LoginDialogActivity extends AppCompatActivity {
 
     private void finishLogin(final ProgressDialog dialogLogin) {
         mApi.getNewsAPI().version()
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(SyncSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<>() {
                     boolean loginSuccessful = false;
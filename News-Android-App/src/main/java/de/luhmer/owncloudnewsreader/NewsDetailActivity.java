@@ -51,12 +51,15 @@ import androidx.viewpager.widget.ViewPager;
 
 import java.io.File;
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.inject.Inject;
 
 import de.greenrobot.dao.query.LazyList;
+import de.luhmer.owncloudnewsreader.async_tasks.RssItemHtmlCache;
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
 import de.luhmer.owncloudnewsreader.database.model.RssItem;
 import de.luhmer.owncloudnewsreader.databinding.ActivityNewsDetailBinding;
@@ -67,12 +70,18 @@ import de.luhmer.owncloudnewsreader.model.TTSItem;
 import de.luhmer.owncloudnewsreader.services.PodcastDownloadService;
 import de.luhmer.owncloudnewsreader.view.PodcastSlidingUpPanelLayout;
 import de.luhmer.owncloudnewsreader.widget.WidgetProvider;
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 
 
 public class NewsDetailActivity extends PodcastFragmentActivity {
 
 	private static final String TAG = NewsDetailActivity.class.getCanonicalName();
 	public static final String INCOGNITO_MODE_ENABLED = "INCOGNITO_MODE_ENABLED";
+	// amount of pages before and after the current one which are rendered in the background
+	private static final int PRERENDER_DISTANCE = 2;
 
 	/**
 	 * The {@link PagerAdapter} that will provide
@@ -98,6 +107,7 @@ public class NewsDetailActivity extends PodcastFragmentActivity {
 	private MenuItem menuItem_Incognito;
 
 	private DatabaseConnectionOrm dbConn;
+	private Disposable loadAllItemsDisposable;
 	protected ActivityNewsDetailBinding binding;
 
 	protected @Inject
@@ -160,31 +170,29 @@ public class NewsDetailActivity extends PodcastFragmentActivity {
 
 		requireNonNull(getSupportActionBar()).setDisplayHomeAsUpEnabled(true);
 
-		rssItems = dbConn.getAllRssItems();
+		// The list view writes the read/starred state directly into the database (without
+		// touching the cached entities) - make sure we don't show stale items here
+		dbConn.clearSessionCache();
+		// only the pages shown in the list so far - the remaining items are loaded in the background
+		rssItems = dbConn.getLoadedRssItems();
 
-        // If the Activity gets started from the Widget, read the item id and get the selected index in the cursor.
+		// If the Activity gets started from the Widget, read the item id and get the selected index in the cursor.
+		long widgetRssItemId = -1;
 		if (intent.hasExtra(WidgetProvider.RSS_ITEM_ID)) {
-            boolean foundArticle = false;
-            long rssItemId = intent.getExtras().getLong(WidgetProvider.RSS_ITEM_ID);
+			long rssItemId = intent.getExtras().getLong(WidgetProvider.RSS_ITEM_ID);
 
-            if (Constants.debugModeWidget) {
-                Log.d(TAG, "Activity launched with RSS Item ID: " + rssItemId);
-            }
+			if (Constants.debugModeWidget) {
+				Log.d(TAG, "Activity launched with RSS Item ID: " + rssItemId);
+			}
 
-			for (RssItem rssItem : rssItems) {
-                if (rssItemId == rssItem.getId()) {
-					getSupportActionBar().setTitle(rssItem.getTitle());
-					foundArticle = true;
-					break;
-				} else {
-					item_id++;
-				}
+			item_id = indexOfRssItem(rssItemId);
+			if (item_id >= 0) {
+				getSupportActionBar().setTitle(rssItems.get(item_id).getTitle());
+			} else {
+				// not loaded yet - shown as soon as all items are available
+				item_id = 0;
+				widgetRssItemId = rssItemId;
 			}
-			// if article can't be found for whatever reason just use index 0 and prevent app from crashing
-            if (!foundArticle) {
-                item_id = 0;
-                Log.e(TAG, "RSS Item with ID " + rssItemId + " cannot be found");
-            }
 		}
 
 		// Create the adapter that will return a fragment for each of the three
@@ -209,6 +217,7 @@ public class NewsDetailActivity extends PodcastFragmentActivity {
 		}
 
 		mViewPager.addOnPageChangeListener(onPageChangeListener);
+		loadAllItems(widgetRssItemId);
 		// mBtnDisableIncognito.setOnClickListener(v -> {
 		// 	toggleIncognitoMode();
 		// });
@@ -291,9 +300,55 @@ public class NewsDetailActivity extends PodcastFragmentActivity {
 	}
 	*/
 
+	/**
+	 * Loads the items of the list which haven't been loaded by the list yet and adds them to
+	 * the pager (the loaded items stay at their position).
+	 *
+	 * @param rssItemIdToShow id of the item which should be shown afterwards or -1
+	 */
+	private void loadAllItems(long rssItemIdToShow) {
+		loadAllItemsDisposable = Single.fromCallable(dbConn::getAllRssItems)
+				.subscribeOn(Schedulers.io())
+				.observeOn(AndroidSchedulers.mainThread())
+				.subscribe(allItems -> {
+					LazyList<RssItem> loadedItems = rssItems;
+					rssItems = allItems;
+					loadedItems.close();
+					if (allItems.size() != loadedItems.size()) {
+						mSectionsPagerAdapter.notifyDataSetChanged();
+						binding.progressIndicator.setMax(mSectionsPagerAdapter.getCount());
+					}
+
+					if (rssItemIdToShow != -1) {
+						int position = indexOfRssItem(rssItemIdToShow);
+						if (position >= 0) {
+							mViewPager.setCurrentItem(position, false);
+						} else {
+							// if article can't be found for whatever reason just stay at index 0
+							Log.e(TAG, "RSS Item with ID " + rssItemIdToShow + " cannot be found");
+						}
+					}
+				}, throwable -> Log.e(TAG, "Failed to load the items of the list", throwable));
+	}
+
+	/**
+	 * @return position of the item in the pager or -1 if it isn't loaded
+	 */
+	private int indexOfRssItem(long rssItemId) {
+		for (int i = 0; i < rssItems.size(); i++) {
+			if (rssItemId == rssItems.get(i).getId()) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
 	@Override
 	protected void onDestroy() {
 		super.onDestroy();
+		if (loadAllItemsDisposable != null) {
+			loadAllItemsDisposable.dispose();
+		}
 		rssItems.close();
 	}
 
@@ -372,6 +427,24 @@ public class NewsDetailActivity extends PodcastFragmentActivity {
 			Log.v("PAGE CHANGED", "PAGE: " + position + " - IDFEED: " + rssItems.get(position).getId());
 		}
 		updateActionBarIcons();
+		prerenderAdjacentPages(position);
+	}
+
+	/**
+	 * Renders the pages next to the current one in the background (nearest first), so they can be
+	 * shown immediately when swiping.
+	 */
+	private void prerenderAdjacentPages(int position) {
+		List<RssItem> items = new ArrayList<>();
+		for (int distance = 1; distance <= PRERENDER_DISTANCE; distance++) {
+			if (position + distance < rssItems.size()) {
+				items.add(rssItems.get(position + distance));
+			}
+			if (position - distance >= 0) {
+				items.add(rssItems.get(position - distance));
+			}
+		}
+		RssItemHtmlCache.getInstance().prerender(this, items, mPrefs);
 	}
 
 
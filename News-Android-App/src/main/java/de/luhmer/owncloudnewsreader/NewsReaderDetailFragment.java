@@ -76,14 +76,14 @@ import de.luhmer.owncloudnewsreader.adapter.NewsListRecyclerAdapter;
 import de.luhmer.owncloudnewsreader.adapter.RssItemViewHolder;
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm.SORT_DIRECTION;
-import de.luhmer.owncloudnewsreader.database.model.RssItem;
-import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
 import de.luhmer.owncloudnewsreader.databinding.FragmentNewsreaderDetailBinding;
 import de.luhmer.owncloudnewsreader.helper.AsyncTaskHelper;
 import de.luhmer.owncloudnewsreader.helper.DatabaseUtilsKt;
 import de.luhmer.owncloudnewsreader.helper.PostDelayHandler;
 import de.luhmer.owncloudnewsreader.helper.Search;
 import de.luhmer.owncloudnewsreader.helper.StopWatch;
+import de.luhmer.owncloudnewsreader.model.RssItemListEntry;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.ItemBodyProcessor;
 import io.reactivex.rxjava3.observers.DisposableObserver;
 import io.reactivex.rxjava3.subjects.PublishSubject;
 
@@ -143,9 +143,9 @@ public class NewsReaderDetailFragment extends Fragment {
         super.onDetach();
     }
 
-    protected DisposableObserver<List<RssItem>> searchResultObserver = new DisposableObserver<List<RssItem>>() {
+    protected DisposableObserver<List<RssItemListEntry>> searchResultObserver = new DisposableObserver<List<RssItemListEntry>>() {
         @Override
-        public void onNext(@NonNull List<RssItem> rssItems) {
+        public void onNext(@NonNull List<RssItemListEntry> rssItems) {
             loadRssItemsIntoView(rssItems);
         }
 
@@ -289,7 +289,7 @@ public class NewsReaderDetailFragment extends Fragment {
         return (LinearLayoutManager) binding.list.getLayoutManager();
     }
 
-    protected List<RssItem> performSearch(String searchString) {
+    protected List<RssItemListEntry> performSearch(String searchString) {
         Handler mainHandler = new Handler(mActivity.getMainLooper());
 
         Runnable myRunnable = () -> {
@@ -301,7 +301,7 @@ public class NewsReaderDetailFragment extends Fragment {
         return Search.PerformSearch(mActivity, idFolder, idFeed, searchString, mPrefs);
     }
 
-    void loadRssItemsIntoView(List<RssItem> rssItems) {
+    void loadRssItemsIntoView(List<RssItemListEntry> rssItems) {
         previousFirstVisibleItem = -1;
         try {
             NewsListRecyclerAdapter nra = ((NewsListRecyclerAdapter) binding.list.getAdapter());
@@ -508,7 +508,7 @@ public class NewsReaderDetailFragment extends Fragment {
         return layoutManager.findFirstVisibleItemPosition();
     }
 
-    private class UpdateCurrentRssViewTask extends AsyncTask<Void, Void, List<RssItem>> {
+    private class UpdateCurrentRssViewTask extends AsyncTask<Void, Void, List<RssItemListEntry>> {
 
         @Override
         protected void onPreExecute() {
@@ -518,36 +518,33 @@ public class NewsReaderDetailFragment extends Fragment {
         }
 
         @Override
-        protected List<RssItem> doInBackground(Void... voids) {
+        protected List<RssItemListEntry> doInBackground(Void... voids) {
             DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(NewsReaderDetailFragment.this.getContext());
+            // continue processing pending bodies (of an interrupted sync or of the items of an upgraded database)
+            ItemBodyProcessor.getInstance().process(dbConn);
             SORT_DIRECTION sortDirection = getSortDirection(mPrefs);
             boolean onlyUnreadItems = mPrefs.getBoolean(SettingsActivity.CB_SHOWONLYUNREAD_STRING, false);
             boolean onlyStarredItems = idFolder != null && idFolder == ALL_STARRED_ITEMS.getValue();
 
-            String sqlSelectStatement = null;
+            String condition = null;
             if (idFeed != null) {
                 if (idFolder != null && idFolder == ALL_UNREAD_ITEMS.getValue()) {
                     onlyUnreadItems = true;
                 }
-                sqlSelectStatement = dbConn.getAllItemsIdsForFeedSQL(idFeed, onlyUnreadItems, onlyStarredItems, sortDirection);
+                condition = dbConn.getAllItemsConditionForFeed(idFeed, onlyUnreadItems, onlyStarredItems);
             } else if (idFolder != null) {
                 if (idFolder == ALL_STARRED_ITEMS.getValue() || idFolder == ALL_DOWNLOADED_PODCASTS.getValue())
                     onlyUnreadItems = false;
-                sqlSelectStatement = dbConn.getAllItemsIdsForFolderSQL(idFolder, onlyUnreadItems, sortDirection, mActivity);
+                condition = dbConn.getAllItemsConditionForFolder(idFolder, onlyUnreadItems, mActivity);
             }
-            if (sqlSelectStatement != null) {
-                int index = sqlSelectStatement.indexOf("ORDER BY");
-                if (index == -1) {
-                    index = sqlSelectStatement.length();
-                }
-                sqlSelectStatement = new StringBuilder(sqlSelectStatement).insert(index, " GROUP BY " + RssItemDao.Properties.Fingerprint.columnName + " ").toString();
-                dbConn.insertIntoRssCurrentViewTable(sqlSelectStatement);
+            if (condition != null) {
+                dbConn.setCurrentRssItemView(condition, sortDirection);
             }
 
             StopWatch sw = new StopWatch();
             sw.start();
 
-            List<RssItem> items = dbConn.getCurrentRssItemView(0);
+            List<RssItemListEntry> items = dbConn.getCurrentRssItemView(0, NewsListRecyclerAdapter.isBodyRequired(mPrefs));
 
             if (idFolder == ALL_DOWNLOADED_PODCASTS.getValue()) {
                 items = items.stream().filter((rss) -> {
@@ -563,7 +560,7 @@ public class NewsReaderDetailFragment extends Fragment {
         }
 
         @Override
-        protected void onPostExecute(List<RssItem> rssItem) {
+        protected void onPostExecute(List<RssItemListEntry> rssItem) {
             loadRssItemsIntoView(rssItem);
 
             if (rssItem.size() < 10) { // Less than 10 items in the list (usually 3-5 items fit on one screen)
@@ -673,7 +670,7 @@ public class NewsReaderDetailFragment extends Fragment {
                     adapter.toggleReadStateOfItem((RssItemViewHolder) viewHolder);
                     break;
                 case "3": // Share
-                    RssItem rssItem = ((RssItemViewHolder) viewHolder).getRssItem();
+                    RssItemListEntry rssItem = ((RssItemViewHolder) viewHolder).getRssItem();
                     String title = rssItem.getTitle();
                     String content = rssItem.getLink();
 
@@ -87,8 +87,10 @@ import com.sothree.slidinguppanel.SlidingUpPanelLayout;
 import org.greenrobot.eventbus.Subscribe;
 import org.greenrobot.eventbus.ThreadMode;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -108,12 +110,16 @@ import de.luhmer.owncloudnewsreader.database.model.Folder;
 import de.luhmer.owncloudnewsreader.database.model.RssItem;
 import de.luhmer.owncloudnewsreader.databinding.ActivityNewsreaderBinding;
 import de.luhmer.owncloudnewsreader.helper.DatabaseUtilsKt;
+import de.luhmer.owncloudnewsreader.helper.SyncReportStore;
 import de.luhmer.owncloudnewsreader.helper.ThemeChooser;
 import de.luhmer.owncloudnewsreader.model.OcsUser;
+import de.luhmer.owncloudnewsreader.model.RssItemListEntry;
 import de.luhmer.owncloudnewsreader.reader.nextcloud.RssItemObservable;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.SyncSchedulers;
 import de.luhmer.owncloudnewsreader.services.DownloadImagesService;
 import de.luhmer.owncloudnewsreader.services.DownloadWebPageService;
 import de.luhmer.owncloudnewsreader.services.OwnCloudSyncService;
+import de.luhmer.owncloudnewsreader.services.events.ItemBodiesProcessedEvent;
 import de.luhmer.owncloudnewsreader.services.events.SyncFailedEvent;
 import de.luhmer.owncloudnewsreader.services.events.SyncFinishedEvent;
 import de.luhmer.owncloudnewsreader.services.events.SyncStartedEvent;
@@ -121,7 +127,7 @@ import de.luhmer.owncloudnewsreader.ssl.OkHttpSSLClient;
 import de.luhmer.owncloudnewsreader.view.PodcastSlidingUpPanelLayout;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.core.Completable;
-import io.reactivex.rxjava3.functions.Action;
+import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.observers.DisposableObserver;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import io.reactivex.rxjava3.subjects.PublishSubject;
@@ -493,6 +499,16 @@ public class NewsReaderListActivity extends PodcastFragmentActivity implements
 		syncFinishedHandler();
 	}
 
+    @Subscribe(threadMode = ThreadMode.MAIN)
+	public void onEventMainThread(ItemBodiesProcessedEvent event) {
+		Log.d(TAG, "onEventMainThread - ItemBodiesProcessedEvent");
+		NewsReaderDetailFragment ndf = getNewsReaderDetailFragment();
+		if (ndf != null) {
+			// excerpts and thumbnails of the synced items are available now
+			ndf.refreshCurrentRssView();
+		}
+	}
+
 	@Override
 	protected void onCreate(Bundle savedInstanceState) {
 		((NewsReaderApplication) getApplication()).getAppComponent().injectActivity(this);
@@ -1005,6 +1021,20 @@ public class NewsReaderListActivity extends PodcastFragmentActivity implements
 					.setMessage("Created dump at: " + DatabaseUtilsKt.getPath(this))
 					.setNeutralButton(getString(android.R.string.ok), null)
 					.show();
+		} else if (itemId == R.id.menu_ExportSyncReport) {
+			SyncReportStore syncReportStore = new SyncReportStore(mPrefs);
+			String message;
+			try {
+				message = "Exported sync reports to: " + syncReportStore.export(this) + "\n\n" + syncReportStore.getSummary();
+			} catch (IOException e) {
+				Log.e(TAG, "Failed to export sync reports", e);
+				message = e.toString();
+			}
+
+			new AlertDialog.Builder(this)
+					.setMessage(message)
+					.setNeutralButton(getString(android.R.string.ok), null)
+					.show();
 		} else if (itemId == R.id.menu_markAllAsRead) {
 			NewsReaderDetailFragment ndf = getNewsReaderDetailFragment();
 			if (ndf != null) {
@@ -1107,22 +1137,22 @@ public class NewsReaderListActivity extends PodcastFragmentActivity implements
 
 	@SuppressLint("CheckResult")
 	private void downloadMoreItemsForFeed(final Long feedId) {
-		Completable.fromAction(new Action() {
-			@Override
-			public void run() throws Exception {
-				DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(NewsReaderListActivity.this);
-				RssItem rssItem = dbConn.getLowestRssItemIdByFeed(feedId);
-				long offset = Long.MAX_VALUE;
-				if(rssItem != null) {
-					offset = rssItem.getId();
-				}
-				int type = 0; // the type of the query (Feed: 0, Folder: 1, Starred: 2, All: 3)
-
-				List<RssItem> buffer = mApi.getNewsAPI().items(100, offset, type, feedId, true, false).execute().body();
-				RssItemObservable.performDatabaseBatchInsert(dbConn, buffer);
+		final DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(NewsReaderListActivity.this);
+		Single.fromCallable(() -> {
+			RssItem rssItem = dbConn.getLowestRssItemIdByFeed(feedId);
+			long offset = Long.MAX_VALUE;
+			if(rssItem != null) {
+				offset = rssItem.getId();
 			}
+			int type = 0; // the type of the query (Feed: 0, Folder: 1, Starred: 2, All: 3)
+
+			List<RssItem> buffer = mApi.getNewsAPI().items(100, offset, type, feedId, true, false).execute().body();
+			return buffer != null ? buffer : Collections.<RssItem>emptyList();
 		})
-				.subscribeOn(Schedulers.newThread())
+				.subscribeOn(SyncSchedulers.network())
+				// written by the database lane like the items of the sync
+				.observeOn(SyncSchedulers.database())
+				.flatMapCompletable(buffer -> Completable.fromAction(() -> RssItemObservable.performDatabaseBatchInsert(dbConn, buffer)))
 				.observeOn(AndroidSchedulers.mainThread())
 				.subscribe(() -> {
 					updateCurrentRssView();
@@ -1250,7 +1280,9 @@ public class NewsReaderListActivity extends PodcastFragmentActivity implements
 	}
 
 	private void updateListView() {
-		getNewsReaderDetailFragment().notifyDataSetChangedOnAdapter();
+		// the list holds its own (lightweight) copies of the items - reload them to pick up
+		// the read/starred states which have been changed in the detail view
+		getNewsReaderDetailFragment().refreshCurrentRssView();
 	}
 
 	@Override
@@ -1297,7 +1329,16 @@ public class NewsReaderListActivity extends PodcastFragmentActivity implements
 
 		intentNewsDetailAct.putExtra(NewsReaderListActivity.ITEM_ID, position);
 		intentNewsDetailAct.putExtra(NewsReaderListActivity.TITLE, getNewsReaderDetailFragment().getTitle());
-		startActivityForResult(intentNewsDetailAct, Activity.RESULT_CANCELED);
+
+		// the detail view reads the items on the main thread - write the queued read/starred states first
+		DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(getApplicationContext());
+		Completable.fromAction(dbConn::flushPendingItemStates)
+				.subscribeOn(Schedulers.io())
+				.observeOn(AndroidSchedulers.mainThread())
+				.subscribe(() -> startActivityForResult(intentNewsDetailAct, Activity.RESULT_CANCELED), throwable -> {
+					Log.e(TAG, "Failed to write the state of the items", throwable);
+					startActivityForResult(intentNewsDetailAct, Activity.RESULT_CANCELED);
+				});
 	}
 
 	private void openRssItemInCustomTab(Uri currentUrl) {
@@ -1351,7 +1392,7 @@ public class NewsReaderListActivity extends PodcastFragmentActivity implements
 
 	@Override
 	public boolean onLongClick(RssItemViewHolder vh, int position) {
-		RssItem rssItem = vh.getRssItem();
+		RssItemListEntry rssItem = vh.getRssItem();
 		DialogFragment newFragment =
 				NewsDetailImageDialogFragment.newInstanceUrl(rssItem.getTitle(), rssItem.getLink());
 		FragmentTransaction ft = getSupportFragmentManager().beginTransaction();
@@ -29,9 +29,9 @@ import de.luhmer.owncloudnewsreader.database.model.Folder;
 import de.luhmer.owncloudnewsreader.databinding.FragmentDialogFeedoptionsBinding;
 import de.luhmer.owncloudnewsreader.di.ApiProvider;
 import de.luhmer.owncloudnewsreader.helper.FavIconHandler;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.SyncSchedulers;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.annotations.NonNull;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 
 
 public class NewsReaderListDialogFragment extends DialogFragment {
@@ -180,7 +180,7 @@ public class NewsReaderListDialogFragment extends DialogFragment {
                 Map<String, String> paramMap = new LinkedHashMap<>();
                 paramMap.put("feedTitle", binding.renamefeedFeedname.getText().toString());
                 mApi.getNewsAPI().renameFeed(feedId, paramMap)
-                        .subscribeOn(Schedulers.newThread())
+                        .subscribeOn(SyncSchedulers.network())
                         .observeOn(AndroidSchedulers.mainThread())
                         .subscribe(() -> {
                             DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(getContext());
@@ -212,7 +212,7 @@ public class NewsReaderListDialogFragment extends DialogFragment {
 
 
             mApi.getNewsAPI().deleteFeed(feedId)
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(SyncSchedulers.network())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(() -> {
                         DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(getContext());
@@ -265,7 +265,7 @@ public class NewsReaderListDialogFragment extends DialogFragment {
             Map<String, Long> paramMap = new LinkedHashMap<>();
             paramMap.put("folderId", folder.getId());
             mApi.getNewsAPI().moveFeed(mFeedId, paramMap)
-                    .subscribeOn(Schedulers.newThread())
+                    .subscribeOn(SyncSchedulers.network())
                     .observeOn(AndroidSchedulers.mainThread())
                     .subscribe(() -> {
                         DatabaseConnectionOrm dbConn1 = new DatabaseConnectionOrm(getContext());
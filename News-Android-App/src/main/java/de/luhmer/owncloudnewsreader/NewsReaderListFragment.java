@@ -64,10 +64,10 @@ import de.luhmer.owncloudnewsreader.model.AbstractItem;
 import de.luhmer.owncloudnewsreader.model.ConcreteFeedItem;
 import de.luhmer.owncloudnewsreader.model.OcsUser;
 import de.luhmer.owncloudnewsreader.reader.nextcloud.OcsAPI;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.SyncSchedulers;
 import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers;
 import io.reactivex.rxjava3.core.Observer;
 import io.reactivex.rxjava3.disposables.Disposable;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 
 /**
  * A list fragment representing a list of NewsReader. This fragment also
@@ -305,7 +305,7 @@ public class NewsReaderListFragment extends Fragment implements OnCreateContextM
         }
 
         mApi.getServerAPI().user()
-                .subscribeOn(Schedulers.newThread())
+                .subscribeOn(SyncSchedulers.network())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new Observer<>() {
                     @Override
@@ -292,10 +292,12 @@ public abstract class PodcastFragmentActivity extends AppCompatActivity implemen
         }
     }
 
-    @Override
     public void openPodcast(final RssItem rssItem) {
-        final PodcastItem podcastItem = DatabaseConnectionOrm.ParsePodcastItemFromRssItem(this, rssItem);
+        openPodcast(DatabaseConnectionOrm.ParsePodcastItemFromRssItem(this, rssItem));
+    }
 
+    @Override
+    public void openPodcast(final PodcastItem podcastItem) {
         File file = new File(PodcastDownloadService.getUrlToPodcastFile(this, podcastItem.fingerprint, podcastItem.link, false));
         if(file.exists()) {
             podcastItem.link = file.getAbsolutePath();
@@ -25,7 +25,6 @@ import de.luhmer.owncloudnewsreader.LazyLoadingLinearLayoutManager;
 import de.luhmer.owncloudnewsreader.NewsReaderListActivity;
 import de.luhmer.owncloudnewsreader.SettingsActivity;
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
-import de.luhmer.owncloudnewsreader.database.model.RssItem;
 import de.luhmer.owncloudnewsreader.databinding.ProgressbarItemBinding;
 import de.luhmer.owncloudnewsreader.databinding.SubscriptionDetailListItemCardViewBinding;
 import de.luhmer.owncloudnewsreader.databinding.SubscriptionDetailListItemHeadlineBinding;
@@ -40,6 +39,7 @@ import de.luhmer.owncloudnewsreader.helper.PostDelayHandler;
 import de.luhmer.owncloudnewsreader.helper.StopWatch;
 import de.luhmer.owncloudnewsreader.interfaces.IPlayPausePodcastClicked;
 import de.luhmer.owncloudnewsreader.model.CurrentRssViewDataHolder;
+import de.luhmer.owncloudnewsreader.model.RssItemListEntry;
 
 public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
     private static final String TAG = "NewsListRecyclerAdapter";
@@ -52,7 +52,7 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
 
     private long idOfCurrentlyPlayedPodcast = -1;
 
-    private List<RssItem> lazyList;
+    private List<RssItemListEntry> lazyList;
     private final DatabaseConnectionOrm dbConn;
     private final PostDelayHandler pDelayHandler;
     private final FragmentActivity activity;
@@ -124,6 +124,16 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
         }
     }
 
+    /**
+     * @return true if the currently selected list layout displays the whole body of the items
+     * (all other layouts only show the precalculated excerpt)
+     */
+    public static boolean isBodyRequired(SharedPreferences prefs) {
+        // text only and full text layout
+        int layout = Integer.parseInt(prefs.getString(SettingsActivity.SP_FEED_LIST_LAYOUT, "0"));
+        return layout == 1 || layout == 3;
+    }
+
     public int getTotalItemCount() {
         if (this.layoutManager != null) {
             return this.layoutManager.getTotalItemCount();
@@ -254,7 +264,7 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
                 if (finalViewHolder.isPlaying()) {
                     playPausePodcastClicked.pausePodcast();
                 } else {
-                    playPausePodcastClicked.openPodcast(finalViewHolder.getRssItem());
+                    playPausePodcastClicked.openPodcast(DatabaseConnectionOrm.ParsePodcastItemFromRssItem(activity, finalViewHolder.getRssItem()));
                 }
             });
             viewHolder.setClickListener((RecyclerItemClickListener) activity);
@@ -282,7 +292,7 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
             ((ProgressViewHolder) viewHolder).getBinding().progressBar.setIndeterminate(true);
         } else {
             final RssItemViewHolder holder = (RssItemViewHolder) viewHolder;
-            RssItem item = lazyList.get(position);
+            RssItemListEntry item = lazyList.get(position);
             holder.bind(item);
             holder.setStayUnread(NewsReaderListActivity.stayUnreadItems.contains(item.getId()));
 
@@ -314,7 +324,7 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
     }
 
     public void changeReadStateOfItem(RssItemViewHolder viewHolder, boolean isChecked) {
-        RssItem rssItem = viewHolder.getRssItem();
+        RssItemListEntry rssItem = viewHolder.getRssItem();
         if (rssItem.getRead_temp() != isChecked) { // Only perform database operations if really needed
             rssItem.setRead_temp(isChecked);
             dbConn.updateRssItem(rssItem);
@@ -329,13 +339,13 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
     }
 
     public void toggleReadStateOfItem(RssItemViewHolder viewHolder) {
-        RssItem rssItem = viewHolder.getRssItem();
+        RssItemListEntry rssItem = viewHolder.getRssItem();
         boolean isRead = !rssItem.getRead_temp();
         changeReadStateOfItem(viewHolder, isRead);
     }
 
     public void toggleStarredStateOfItem(RssItemViewHolder viewHolder) {
-        RssItem rssItem = viewHolder.getRssItem();
+        RssItemListEntry rssItem = viewHolder.getRssItem();
         boolean isStarred = !rssItem.getStarred_temp();
         rssItem.setStarred_temp(isStarred);
 
@@ -362,7 +372,7 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
     @Override
     public long getItemId(int position) {
         if (lazyList != null) {
-            RssItem item = lazyList.get(position);
+            RssItemListEntry item = lazyList.get(position);
             return item != null ? item.getId() : 0;
         }
         return 0;
@@ -370,18 +380,18 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
 
 
 
-    private List<RssItem> refreshAdapterData() {
-        List<RssItem> rssItems = new ArrayList<>();
+    private List<RssItemListEntry> refreshAdapterData() {
+        List<RssItemListEntry> rssItems = new ArrayList<>();
         DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(activity);
         for(int i = 0; i < cachedPages; i++) {
-            rssItems.addAll(dbConn.getCurrentRssItemView(i));
+            rssItems.addAll(dbConn.getCurrentRssItemView(i, isBodyRequired(mPrefs)));
         }
         return rssItems;
     }
 
 
 
-    public void updateAdapterData(List<RssItem> rssItems) {
+    public void updateAdapterData(List<RssItemListEntry> rssItems) {
         NewsReaderListActivity.stayUnreadItems.clear();
 
         cachedPages = 1;
@@ -407,7 +417,7 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
         AsyncTaskHelper.StartAsyncTask(new RefreshDataAsyncTask(listener));
     }
 
-    private class RefreshDataAsyncTask extends AsyncTask<Void, Void, List<RssItem>> {
+    private class RefreshDataAsyncTask extends AsyncTask<Void, Void, List<RssItemListEntry>> {
 
         private final IOnRefreshFinished listener;
 
@@ -423,11 +433,11 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
         }
 
         @Override
-        protected List<RssItem> doInBackground(Void... params) {
+        protected List<RssItemListEntry> doInBackground(Void... params) {
             StopWatch sw = new StopWatch();
             sw.start();
 
-            List<RssItem> rssItems = refreshAdapterData();
+            List<RssItemListEntry> rssItems = refreshAdapterData();
 
             sw.stop();
             Log.v(TAG, "Time needed (refreshing adapter): " + sw);
@@ -436,7 +446,7 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
         }
 
         @Override
-        protected void onPostExecute(List<RssItem> rssItems) {
+        protected void onPostExecute(List<RssItemListEntry> rssItems) {
             lazyList = rssItems;
             notifyDataSetChanged();
 
@@ -449,14 +459,14 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
     }
 
 
-    private class LoadMoreItemsAsyncTask extends AsyncTask<Void, Void, List<RssItem>> {
+    private class LoadMoreItemsAsyncTask extends AsyncTask<Void, Void, List<RssItemListEntry>> {
         @Override
-        protected List<RssItem> doInBackground(Void... params) {
+        protected List<RssItemListEntry> doInBackground(Void... params) {
             StopWatch sw = new StopWatch();
             sw.start();
 
             DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(activity);
-            List<RssItem> items = dbConn.getCurrentRssItemView(cachedPages++);
+            List<RssItemListEntry> items = dbConn.getCurrentRssItemView(cachedPages++, isBodyRequired(mPrefs));
 
             sw.stop();
             Log.v(TAG, "Time needed (loading more): " + sw);
@@ -464,12 +474,17 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
         }
 
         @Override
-        protected void onPostExecute(List<RssItem> rssItems) {
+        protected void onPostExecute(List<RssItemListEntry> rssItems) {
             int prevSize = lazyList.size();
             Log.d(TAG, "prevSize=" + prevSize);
             lazyList.remove(prevSize - 1);
             lazyList.addAll(rssItems);
 
+            if (rssItems.isEmpty()) {
+                // the total count is only an estimation (duplicated items are removed while loading)
+                setTotalItemCount(lazyList.size());
+            }
+
             notifyItemRangeInserted(prevSize, rssItems.size());
 
             loading = false;
@@ -485,7 +500,7 @@ public class NewsListRecyclerAdapter extends RecyclerView.Adapter<RecyclerView.V
             StopWatch sw = new StopWatch();
             sw.start();
 
-            List<RssItem> list = dbConn.getCurrentRssItemView(0);
+            List<RssItemListEntry> list = dbConn.getCurrentRssItemView(0, isBodyRequired(mPrefs));
 
             CurrentRssViewDataHolder holder = new CurrentRssViewDataHolder();
             holder.maxCount = dbConn.getCurrentRssItemViewCount();
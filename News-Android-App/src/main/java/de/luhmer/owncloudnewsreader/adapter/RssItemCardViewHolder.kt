@@ -8,9 +8,9 @@ import android.widget.ProgressBar
 import android.widget.TextView
 import androidx.annotation.CallSuper
 import com.bumptech.glide.RequestManager
-import de.luhmer.owncloudnewsreader.database.model.RssItem
 import de.luhmer.owncloudnewsreader.databinding.SubscriptionDetailListItemCardViewBinding
 import de.luhmer.owncloudnewsreader.helper.FavIconHandler
+import de.luhmer.owncloudnewsreader.model.RssItemListEntry
 
 class RssItemCardViewHolder internal constructor(
     binding: SubscriptionDetailListItemCardViewBinding,
@@ -44,7 +44,7 @@ class RssItemCardViewHolder internal constructor(
     override fun getPodcastDownloadProgress(): ProgressBar = binding.podcastWrapper.podcastDownloadProgress
 
     @CallSuper
-    override fun bind(rssItem: RssItem) {
+    override fun bind(rssItem: RssItemListEntry) {
         super.bind(rssItem)
     }
 }
@@ -15,9 +15,9 @@ import com.bumptech.glide.load.resource.bitmap.CenterCrop
 import com.bumptech.glide.load.resource.bitmap.RoundedCorners
 import de.luhmer.owncloudnewsreader.R
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm
-import de.luhmer.owncloudnewsreader.database.model.RssItem
 import de.luhmer.owncloudnewsreader.databinding.SubscriptionDetailListItemHeadlineThumbnailBinding
 import de.luhmer.owncloudnewsreader.helper.FavIconHandler
+import de.luhmer.owncloudnewsreader.model.RssItemListEntry
 
 private const val RADIUS_IN_DP = 60
 
@@ -55,7 +55,7 @@ class RssItemHeadlineThumbnailViewHolder internal constructor(
     override fun getPodcastDownloadProgress(): ProgressBar = binding.podcastWrapper.podcastDownloadProgress
 
     @CallSuper
-    override fun bind(rssItem: RssItem) {
+    override fun bind(rssItem: RssItemListEntry) {
         super.bind(rssItem)
         binding.starImageview.visibility = if (rssItem.starred_temp) View.VISIBLE else View.GONE
         binding.imgViewThumbnail.colorFilter = null
@@ -9,9 +9,9 @@ import android.widget.TextView
 import androidx.annotation.CallSuper
 import androidx.viewbinding.ViewBinding
 import com.bumptech.glide.RequestManager
-import de.luhmer.owncloudnewsreader.database.model.RssItem
 import de.luhmer.owncloudnewsreader.databinding.SubscriptionDetailListItemHeadlineBinding
 import de.luhmer.owncloudnewsreader.helper.FavIconHandler
+import de.luhmer.owncloudnewsreader.model.RssItemListEntry
 
 class RssItemHeadlineViewHolder internal constructor(
     binding: ViewBinding,
@@ -45,7 +45,7 @@ class RssItemHeadlineViewHolder internal constructor(
     override fun getPodcastDownloadProgress(): ProgressBar = binding.podcastWrapper.podcastDownloadProgress
 
     @CallSuper
-    override fun bind(rssItem: RssItem) {
+    override fun bind(rssItem: RssItemListEntry) {
         super.bind(rssItem)
     }
 }
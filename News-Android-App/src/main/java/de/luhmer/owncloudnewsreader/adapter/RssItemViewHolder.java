@@ -1,14 +1,10 @@
 package de.luhmer.owncloudnewsreader.adapter;
 
-import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.res.TypedArray;
 import android.graphics.Color;
 import android.graphics.Typeface;
 import android.text.Html;
-import android.text.Spannable;
-import android.text.SpannableString;
-import android.text.style.ForegroundColorSpan;
 import android.util.Log;
 import android.util.SparseIntArray;
 import android.util.TypedValue;
@@ -20,7 +16,6 @@ import android.widget.TextView;
 
 import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
-import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 import androidx.viewbinding.ViewBinding;
 
@@ -29,14 +24,13 @@ import com.bumptech.glide.RequestManager;
 
 import org.greenrobot.eventbus.Subscribe;
 
-import java.util.regex.Pattern;
-
 import de.luhmer.owncloudnewsreader.R;
 import de.luhmer.owncloudnewsreader.SettingsActivity;
-import de.luhmer.owncloudnewsreader.database.model.RssItem;
 import de.luhmer.owncloudnewsreader.helper.ColorHelper;
 import de.luhmer.owncloudnewsreader.helper.DateTimeFormatter;
+import de.luhmer.owncloudnewsreader.helper.ExcerptHelper;
 import de.luhmer.owncloudnewsreader.helper.FavIconHandler;
+import de.luhmer.owncloudnewsreader.model.RssItemListEntry;
 import de.luhmer.owncloudnewsreader.services.PodcastDownloadService;
 
 public abstract class RssItemViewHolder<T extends ViewBinding> extends RecyclerView.ViewHolder implements View.OnClickListener, View.OnLongClickListener {
@@ -46,11 +40,8 @@ public abstract class RssItemViewHolder<T extends ViewBinding> extends RecyclerV
     private static final SparseIntArray downloadProgressList = new SparseIntArray();
     private final FavIconHandler favIconHandler;
     protected final SharedPreferences mPrefs;
-    @SuppressWarnings("FieldCanBeLocal")
-    private final int LengthBody = 400;
-    private final ForegroundColorSpan bodyForegroundColor;
     private RecyclerItemClickListener clickListener;
-    private RssItem rssItem;
+    private RssItemListEntry rssItem;
     private boolean stayUnread = false;
     private boolean playing;
     private int starColor;
@@ -69,9 +60,6 @@ public abstract class RssItemViewHolder<T extends ViewBinding> extends RecyclerV
         this.binding = (T) binding;
         this.mPrefs = sharedPreferences;
 
-        Context context = itemView.getContext();
-        bodyForegroundColor = new ForegroundColorSpan(ContextCompat.getColor(context, android.R.color.secondary_text_dark));
-
         mGlide = glide;
 
         this.favIconHandler = favIconHandler;
@@ -151,7 +139,7 @@ public abstract class RssItemViewHolder<T extends ViewBinding> extends RecyclerV
     abstract protected ProgressBar getPodcastDownloadProgress();
 
     @CallSuper
-    public void bind(@NonNull RssItem rssItem) {
+    public void bind(@NonNull RssItemListEntry rssItem) {
         this.rssItem = rssItem;
 
         if(getStar() != null) {
@@ -230,27 +218,24 @@ public abstract class RssItemViewHolder<T extends ViewBinding> extends RecyclerV
         if (textViewBody != null) {
             int textSizeBody = initalFontSizes.get(textViewBody.getId());
 
-            String body = rssItem.getMediaDescription();
-            if (body == null || body.isEmpty()) {
-                body = rssItem.getBody();
-            }
-
-            boolean limitLength = true;
-            // Strip html from String
-            if (this instanceof RssItemFullTextViewHolder) {
-                textViewBody.setMaxLines(200);
-                limitLength = false;
-            } else if (this instanceof RssItemTextViewHolder) {
-                textViewBody.setMaxLines(scaleTextLines(mPrefs));
-                limitLength = false;
+            if (this instanceof RssItemFullTextViewHolder || this instanceof RssItemTextViewHolder) {
+                if (this instanceof RssItemFullTextViewHolder) {
+                    textViewBody.setMaxLines(200);
+                } else {
+                    textViewBody.setMaxLines(scaleTextLines(mPrefs));
+                }
+
+                // the text layouts show the whole article (limited by the max. lines only)
+                String body = rssItem.getMediaDescription();
+                if (body == null || body.isEmpty()) {
+                    body = rssItem.getBody();
+                }
+                // Strip html from String
+                textViewBody.setText(body != null ? Html.fromHtml(ExcerptHelper.getBodyText(body, 0)) : rssItem.getExcerpt());
+            } else {
+                // plain text excerpt is calculated while syncing (see InsertRssItemIntoDatabase)
+                textViewBody.setText(rssItem.getExcerpt());
             }
-
-            // long startTime = System.nanoTime();
-            body = getBodyText(body, limitLength); // This is a bottleneck
-            // long difference = System.nanoTime() - startTime;
-            // Log.d(TAG, "Duration: " + difference / 1000 / 1000 + "ms");
-
-            textViewBody.setText(Html.fromHtml(body));
             scaleTextSize(textViewBody, textSizeBody, false, mPrefs);
         }
     }
@@ -281,7 +266,7 @@ public abstract class RssItemViewHolder<T extends ViewBinding> extends RecyclerV
         }
     }
 
-    public RssItem getRssItem() {
+    public RssItemListEntry getRssItem() {
         return rssItem;
     }
 
@@ -294,28 +279,6 @@ public abstract class RssItemViewHolder<T extends ViewBinding> extends RecyclerV
         this.stayUnread = shouldStayUnread;
     }
 
-    private String getBodyText(String body, boolean limitLength) {
-        if (body.startsWith("<![CDATA[")) {
-            body = body.replaceFirst(Pattern.quote("<![CDATA["), "");
-            body = body.replaceFirst("]]>", "");
-        }
-
-        body = body.replaceAll("<img[^>]*>", "");
-        body = body.replaceAll("<video[^>]*>", "");
-
-        SpannableString bodyStringSpannable = new SpannableString(Html.fromHtml(body));
-        bodyStringSpannable.setSpan(bodyForegroundColor, 0, bodyStringSpannable.length(), Spannable.SPAN_INCLUSIVE_INCLUSIVE);
-
-        String bodyString = bodyStringSpannable.toString().trim();
-
-
-        if (limitLength && bodyString.length() > LengthBody) {
-            bodyString = bodyString.substring(0, LengthBody) + "...";
-        }
-
-        return bodyString;
-    }
-
     private void setFeedColor(int color) {
         if (getColorFeed() != null) {
             getColorFeed().setBackgroundColor(color);
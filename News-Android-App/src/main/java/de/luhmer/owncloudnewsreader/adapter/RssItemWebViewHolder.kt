@@ -1,6 +1,7 @@
 package de.luhmer.owncloudnewsreader.adapter
 
 import android.content.SharedPreferences
+import android.util.Log
 import android.widget.FrameLayout
 import android.widget.ImageView
 import android.widget.ProgressBar
@@ -9,9 +10,14 @@ import androidx.annotation.CallSuper
 import androidx.viewbinding.ViewBinding
 import com.bumptech.glide.RequestManager
 import de.luhmer.owncloudnewsreader.async_tasks.RssItemToHtmlTask
-import de.luhmer.owncloudnewsreader.database.model.RssItem
+import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm
 import de.luhmer.owncloudnewsreader.databinding.SubscriptionDetailListItemWebLayoutBinding
 import de.luhmer.owncloudnewsreader.helper.FavIconHandler
+import de.luhmer.owncloudnewsreader.model.RssItemListEntry
+import io.reactivex.rxjava3.android.schedulers.AndroidSchedulers
+import io.reactivex.rxjava3.core.Single
+import io.reactivex.rxjava3.disposables.Disposable
+import io.reactivex.rxjava3.schedulers.Schedulers
 
 class RssItemWebViewHolder(
     binding: ViewBinding,
@@ -46,23 +52,46 @@ class RssItemWebViewHolder(
     override fun getPodcastDownloadProgress(): ProgressBar =
         binding.layoutThumbnail.podcastWrapper.podcastDownloadProgress
 
+    private var htmlPageDisposable: Disposable? = null
+
     @CallSuper
-    override fun bind(rssItem: RssItem) {
+    override fun bind(rssItem: RssItemListEntry) {
         super.bind(rssItem)
-        val htmlPage: String =
-            RssItemToHtmlTask.getHtmlPage(
-                mGlide,
-                rssItem,
-                false,
-                mPrefs,
-                itemView.context,
-            )
-        binding.webViewBody.loadDataWithBaseURL(
-            "file:///android_asset/",
-            htmlPage,
-            "text/html",
-            "UTF-8",
-            "",
-        )
+        htmlPageDisposable?.dispose()
+        // don't show the page of the previously bound item until the new one has been rendered
+        binding.webViewBody.loadUrl("about:blank")
+
+        // the list entries only contain an excerpt of the body - the web layout needs the whole item
+        // (loaded and rendered in the background - rendering waits for the lookups in the image cache)
+        val context = itemView.context
+        htmlPageDisposable =
+            Single
+                .fromCallable {
+                    val fullRssItem = DatabaseConnectionOrm(context).getRssItemById(rssItem.id)
+                    RssItemToHtmlTask.getHtmlPage(
+                        mGlide,
+                        fullRssItem,
+                        false,
+                        mPrefs,
+                        context,
+                    )
+                }.subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(
+                    { htmlPage ->
+                        binding.webViewBody.loadDataWithBaseURL(
+                            "file:///android_asset/",
+                            htmlPage,
+                            "text/html",
+                            "UTF-8",
+                            "",
+                        )
+                    },
+                    { e -> Log.e(TAG, "Failed to render item " + rssItem.id, e) },
+                )
+    }
+
+    companion object {
+        private val TAG = RssItemWebViewHolder::class.java.canonicalName
     }
 }
@@ -0,0 +1,190 @@
+package de.luhmer.owncloudnewsreader.async_tasks;
+
+import static de.luhmer.owncloudnewsreader.NewsDetailActivity.INCOGNITO_MODE_ENABLED;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestManager;
+
+import org.greenrobot.eventbus.EventBus;
+import org.greenrobot.eventbus.Subscribe;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.luhmer.owncloudnewsreader.R;
+import de.luhmer.owncloudnewsreader.SettingsActivity;
+import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.helper.ThemeChooser;
+import de.luhmer.owncloudnewsreader.services.events.ImageCacheChangedEvent;
+import de.luhmer.owncloudnewsreader.services.events.ItemBodiesProcessedEvent;
+
+/**
+ * Cache of the rendered HTML pages of items (see {@link RssItemToHtmlTask}). The key contains
+ * everything the page depends on (item, theme, incognito mode and the display settings), so a
+ * cached page is never shown with outdated settings. The pages next to the one which is shown are
+ * rendered in the background (see {@link #prerender(Context, List, SharedPreferences)}), so they
+ * can be shown immediately when swiping.
+ * <p>
+ * The pages reference the cached images. The cache is invalidated when bodies have been processed
+ * ({@link ItemBodiesProcessedEvent}) or the image cache has changed ({@link ImageCacheChangedEvent})
+ * - the key contains a generation which is incremented then, so a page which is rendered while
+ * the event is posted is never used afterwards. A page is dropped as well if one of the images it
+ * references has been evicted from the disk cache of Glide.
+ */
+public class RssItemHtmlCache {
+
+    private static final String TAG = RssItemHtmlCache.class.getCanonicalName();
+
+    // pages are measured in chars (~2 bytes each)
+    static final int MAX_SIZE_CHARS = 2 * 1024 * 1024;
+
+    private static RssItemHtmlCache instance;
+
+    private static final Pattern PATTERN_CACHED_FILE = Pattern.compile("\"file://([^\"]+)\"");
+
+    private final LruCache<String, Page> cache;
+    private final ExecutorService executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private volatile int generation;
+
+    public static synchronized RssItemHtmlCache getInstance() {
+        if (instance == null) {
+            instance = new RssItemHtmlCache(MAX_SIZE_CHARS);
+            EventBus.getDefault().register(instance);
+        }
+        return instance;
+    }
+
+    @VisibleForTesting
+    public RssItemHtmlCache(int maxSizeChars) {
+        this.cache = new LruCache<>(maxSizeChars) {
+            @Override
+            protected int sizeOf(String key, Page page) {
+                return page.html.length();
+            }
+        };
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "RssItemHtmlCache");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * @return key of the page of the item with the current settings and the current state of the
+     * processed bodies and the image cache
+     */
+    @VisibleForTesting
+    public String getKey(RssItem rssItem, SharedPreferences prefs, boolean isRightToLeft) {
+        // the font size is applied by the web view (text zoom), it isn't part of the page
+        return rssItem.getId() +
+                "|" + (rssItem.getLastModified() != null ? rssItem.getLastModified().getTime() : 0) +
+                "|" + ThemeChooser.getSelectedTheme() +
+                "|" + prefs.getBoolean(INCOGNITO_MODE_ENABLED, false) +
+                "|" + prefs.getBoolean(SettingsActivity.CB_DETAILED_VIEW_ZOOM, true) +
+                "|" + isRightToLeft +
+                "|" + generation;
+    }
+
+    /**
+     * @return the cached page - null if there is none or one of the cached images it references
+     * doesn't exist anymore
+     */
+    public String get(String key) {
+        Page page = cache.get(key);
+        if (page == null) {
+            return null;
+        }
+        for (File file : page.cachedFiles) {
+            if (!file.exists()) {
+                Log.d(TAG, "Cached image of page has been evicted: " + file);
+                cache.remove(key);
+                return null;
+            }
+        }
+        return page.html;
+    }
+
+    public void put(String key, String html) {
+        cache.put(key, new Page(html));
+    }
+
+    /**
+     * Removes all pages - pages which are rendered at the moment are never used either.
+     */
+    public synchronized void clear() {
+        generation++;
+        cache.evictAll();
+    }
+
+    @Subscribe
+    public void onEvent(ItemBodiesProcessedEvent event) {
+        clear();
+    }
+
+    @Subscribe
+    public void onEvent(ImageCacheChangedEvent event) {
+        clear();
+    }
+
+    /**
+     * Renders the pages of the items in the background (in the given order) unless they are
+     * cached already. Returns immediately.
+     */
+    public void prerender(Context context, List<RssItem> items, SharedPreferences prefs) {
+        Context appContext = context.getApplicationContext();
+        boolean isRightToLeft = appContext.getResources().getBoolean(R.bool.is_right_to_left);
+        RequestManager glide = Glide.with(appContext);
+        DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(appContext);
+
+        for (RssItem rssItem : items) {
+            String key = getKey(rssItem, prefs, isRightToLeft);
+            if (get(key) != null || !pending.add(key)) {
+                continue;
+            }
+            executor.execute(() -> {
+                try {
+                    if (get(key) == null) {
+                        RssItemToHtmlTask.getCachedHtmlPage(glide, dbConn, rssItem, prefs, isRightToLeft);
+                    }
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Failed to render item " + rssItem.getId(), e);
+                } finally {
+                    pending.remove(key);
+                }
+            });
+        }
+    }
+
+    private static class Page {
+
+        private final String html;
+        // images and favicon of the page which were taken from the disk cache
+        private final List<File> cachedFiles = new ArrayList<>();
+
+        Page(String html) {
+            this.html = html;
+            Matcher matcher = PATTERN_CACHED_FILE.matcher(html);
+            while (matcher.find()) {
+                cachedFiles.add(new File(matcher.group(1)));
+            }
+        }
+    }
+}
@@ -24,13 +24,19 @@ import com.bumptech.glide.request.target.Target;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import de.luhmer.owncloudnewsreader.R;
 import de.luhmer.owncloudnewsreader.SettingsActivity;
+import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
 import de.luhmer.owncloudnewsreader.database.model.Feed;
 import de.luhmer.owncloudnewsreader.database.model.RssItem;
 import de.luhmer.owncloudnewsreader.helper.ImageHandler;
@@ -56,6 +62,7 @@ public class RssItemToHtmlTask extends AsyncTask<Void, Void, String> {
     private final SharedPreferences mPrefs;
     private final boolean isRightToLeft;
     private final RequestManager mGlide;
+    private final DatabaseConnectionOrm mDbConn;
 
     public interface Listener {
         /**
@@ -71,13 +78,14 @@ public class RssItemToHtmlTask extends AsyncTask<Void, Void, String> {
         this.mListener = listener;
         this.mPrefs = prefs;
         this.mGlide = Glide.with(context);
+        this.mDbConn = new DatabaseConnectionOrm(context);
 
         this.isRightToLeft = context.getResources().getBoolean(R.bool.is_right_to_left);
     }
 
     @Override
     protected String doInBackground(Void... params) {
-        return getHtmlPage(this.mGlide, mRssItem, true, mPrefs, isRightToLeft);
+        return getCachedHtmlPage(this.mGlide, mDbConn, mRssItem, mPrefs, isRightToLeft);
     }
 
     @Override
@@ -86,16 +94,44 @@ public class RssItemToHtmlTask extends AsyncTask<Void, Void, String> {
         super.onPostExecute(htmlPage);
     }
 
+    /**
+     * @return the HTML page of the item with header - taken from the {@link RssItemHtmlCache} if it
+     * has been rendered with the current settings before. Pages of items whose body hasn't been
+     * processed yet are not cached (the images of the body might not be downloaded yet).
+     */
+    static String getCachedHtmlPage(RequestManager glide, DatabaseConnectionOrm dbConn, RssItem rssItem, SharedPreferences mPrefs, boolean isRightToLeft) {
+        RssItemHtmlCache cache = RssItemHtmlCache.getInstance();
+        String key = cache.getKey(rssItem, mPrefs, isRightToLeft);
+        String htmlPage = cache.get(key);
+        if (htmlPage == null) {
+            List<String> imageLinks = dbConn.getImageLinks(rssItem.getId());
+            htmlPage = getHtmlPage(glide, rssItem, true, mPrefs, isRightToLeft, imageLinks);
+            if (imageLinks != null) {
+                cache.put(key, htmlPage);
+            }
+        } else {
+            Log.v(TAG, "Using cached page of item " + rssItem.getId());
+        }
+        return htmlPage;
+    }
+
     public static String getHtmlPage(RequestManager glide, RssItem rssItem, boolean showHeader, SharedPreferences mPrefs, Context context) {
-        return getHtmlPage(glide, rssItem, showHeader, mPrefs, context.getResources().getBoolean(R.bool.is_right_to_left));
+        List<String> imageLinks = new DatabaseConnectionOrm(context).getImageLinks(rssItem.getId());
+        return getHtmlPage(glide, rssItem, showHeader, mPrefs, context.getResources().getBoolean(R.bool.is_right_to_left), imageLinks);
+    }
+
+    public static String getHtmlPage(RequestManager glide, RssItem rssItem, boolean showHeader, SharedPreferences mPrefs, boolean isRightToLeft) {
+        return getHtmlPage(glide, rssItem, showHeader, mPrefs, isRightToLeft, null);
     }
 
     /**
      * @param rssItem       item to parse
      * @param showHeader    true if a header with item title, feed title, etc. should be included
+     * @param imageLinks    links of the images in the body of the item (see
+     *                      {@link DatabaseConnectionOrm#getImageLinks(long)}) - null to search the body
      * @return given RSS item as full HTML page
      */
-    public static String getHtmlPage(RequestManager glide, RssItem rssItem, boolean showHeader, SharedPreferences mPrefs, boolean isRightToLeft) {
+    public static String getHtmlPage(RequestManager glide, RssItem rssItem, boolean showHeader, SharedPreferences mPrefs, boolean isRightToLeft, @Nullable List<String> imageLinks) {
         boolean incognitoMode = mPrefs.getBoolean(INCOGNITO_MODE_ENABLED, false);
 
         String favIconUrl = null;
@@ -147,11 +183,12 @@ public class RssItemToHtmlTask extends AsyncTask<Void, Void, String> {
         else if(rssItem.getMediaDescription() != null) {
             // in case the rss body is empty, fallback to the media description (e.g. youtube / ted talks)
             description = rssItem.getMediaDescription();
+            imageLinks = null; // the stored links belong to the body
         }
 
         if(!incognitoMode) {
             // If incognito mode is disabled, try getting images from cache
-            description = getDescriptionWithCachedImages(glide, rssItem.getLink(), description).trim();
+            description = getDescriptionWithCachedImages(glide, rssItem.getLink(), description, imageLinks).trim();
         } else {
             // When incognito is on, we need to provide some error handling
             //description = description.replaceAll("<img", "<img onerror=\"this.style='width: 40px !important; height: 40px !important'\" ");
@@ -299,35 +336,94 @@ public class RssItemToHtmlTask extends AsyncTask<Void, Void, String> {
     }
     */
 
-    private static String getDescriptionWithCachedImages(RequestManager glide, String articleUrl, String text) {
-        List<String> links = ImageHandler.getImageLinksFromText(articleUrl, text);
+    private static String getDescriptionWithCachedImages(RequestManager glide, String articleUrl, String text, @Nullable List<String> imageLinks) {
+        List<String> links = imageLinks != null ? imageLinks : ImageHandler.getImageLinksFromText(articleUrl, text);
+
+        return replaceCachedImages(link -> glide
+                .asFile()
+                .diskCacheStrategy(DiskCacheStrategy.DATA)
+                .onlyRetrieveFromCache(true)
+                // .listener(rl)
+                .load(link)
+                .submit(), links, text);
+    }
 
-        for(String link : links) {
+    @VisibleForTesting
+    public interface ImageCacheLookup {
+        /**
+         * Starts looking up the image in the disk cache (must not block) - the future fails if the
+         * image isn't cached.
+         */
+        Future<File> submit(String link);
+    }
+
+    /**
+     * Replaces the links of all cached images in the text with the cached files. The lookups of all
+     * images are started at once and the text is copied only once (instead of once per image).
+     */
+    @VisibleForTesting
+    public static String replaceCachedImages(ImageCacheLookup cache, List<String> links, String text) {
+        Map<String, Future<File>> lookups = new LinkedHashMap<>();
+        for (String link : links) {
             link = link.trim();
+            if (!link.isEmpty() && !lookups.containsKey(link)) {
+                lookups.put(link, cache.submit(link));
+            }
+        }
+
+        Map<String, String> cachedFiles = new HashMap<>();
+        for (Map.Entry<String, Future<File>> lookup : lookups.entrySet()) {
             try {
-                File file = null;
-                try {
-                    file = glide
-                            .asFile()
-                            .diskCacheStrategy(DiskCacheStrategy.DATA)
-                            .onlyRetrieveFromCache(true)
-                            // .listener(rl)
-                            .load(link)
-                            .submit()
-                            .get();
-                    Log.d(TAG, "image is cached");
-                } catch (Exception e) {
-                    Log.w(TAG, "image is not cached");
+                File file = lookup.getValue().get();
+                if (file != null) {
+                    cachedFiles.put(lookup.getKey(), "file://" + file.getAbsolutePath());
                 }
-                if(file != null) {
-                    text = text.replace(link, "file://" + file.getAbsolutePath());
-                }
-            } catch(Exception ex) {
-                ex.printStackTrace();
+            } catch (ExecutionException e) {
+                // image is not cached
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        Log.d(TAG, cachedFiles.size() + " of " + lookups.size() + " images are cached");
+
+        return replaceAll(text, cachedFiles);
+    }
+
+    /**
+     * Replaces all occurrences of the keys in a single pass over the text (if a key starts with
+     * another key the longer one is replaced).
+     */
+    private static String replaceAll(String text, Map<String, String> replacements) {
+        if (replacements.isEmpty()) {
+            return text;
+        }
+
+        List<String> keys = new ArrayList<>(replacements.keySet());
+        keys.sort((a, b) -> Integer.compare(b.length(), a.length()));
+        StringBuilder regex = new StringBuilder();
+        for (String key : keys) {
+            if (regex.length() > 0) {
+                regex.append('|');
             }
+            regex.append(Pattern.quote(key));
         }
 
-        return text;
+        Matcher matcher = Pattern.compile(regex.toString()).matcher(text);
+        StringBuilder sb = null;
+        int copied = 0;
+        while (matcher.find()) {
+            if (sb == null) {
+                sb = new StringBuilder(text.length() + replacements.size() * 64);
+            }
+            sb.append(text, copied, matcher.start()).append(replacements.get(matcher.group()));
+            copied = matcher.end();
+        }
+
+        if (sb == null) {
+            return text;
+        }
+        return sb.append(text, copied, text.length()).toString();
     }
 
     private static final RequestListener<File> rl = new RequestListener<>() {
@@ -19,22 +19,28 @@ import org.reactivestreams.Publisher;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 
 import de.luhmer.owncloudnewsreader.Constants;
 import de.luhmer.owncloudnewsreader.NewsReaderApplication;
 import de.luhmer.owncloudnewsreader.R;
+import de.luhmer.owncloudnewsreader.SettingsActivity;
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
 import de.luhmer.owncloudnewsreader.database.model.Feed;
 import de.luhmer.owncloudnewsreader.database.model.Folder;
 import de.luhmer.owncloudnewsreader.di.ApiProvider;
 import de.luhmer.owncloudnewsreader.helper.ForegroundListener;
 import de.luhmer.owncloudnewsreader.helper.StopWatch;
+import de.luhmer.owncloudnewsreader.helper.SyncReport;
+import de.luhmer.owncloudnewsreader.helper.SyncReportStore;
 import de.luhmer.owncloudnewsreader.notification.NextcloudNotificationManager;
 import de.luhmer.owncloudnewsreader.reader.InsertIntoDatabase;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.ConditionalResponse;
 import de.luhmer.owncloudnewsreader.reader.nextcloud.ItemStateSync;
 import de.luhmer.owncloudnewsreader.reader.nextcloud.RssItemObservable;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.SyncSchedulers;
 import de.luhmer.owncloudnewsreader.services.DownloadImagesService;
 import de.luhmer.owncloudnewsreader.services.events.SyncFailedEvent;
 import de.luhmer.owncloudnewsreader.services.events.SyncFinishedEvent;
@@ -44,8 +50,8 @@ import de.luhmer.owncloudnewsreader.widget.WidgetProvider;
 import io.reactivex.rxjava3.annotations.NonNull;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Observer;
+import io.reactivex.rxjava3.core.Single;
 import io.reactivex.rxjava3.disposables.Disposable;
-import io.reactivex.rxjava3.schedulers.Schedulers;
 
 public class OwnCloudSyncAdapter extends AbstractThreadedSyncAdapter {
 
@@ -70,19 +76,25 @@ public class OwnCloudSyncAdapter extends AbstractThreadedSyncAdapter {
         StopWatch syncStopWatch = new StopWatch();
         syncStopWatch.start();
 
+        SyncReport report = new SyncReport();
+
         // Send sync started event
         syncRunning = true;
         EventBus.getDefault().post(new SyncStartedEvent());
 
         // run actual sync
-        sync();
+        sync(report);
 
         // Update Widget / Notification
+        long start = System.nanoTime();
         WidgetProvider.UpdateWidget(getContext());
         updateNotification();
+        report.record(SyncReport.Phase.WIDGET_NOTIFICATION, System.nanoTime() - start, 0, 0, 0);
 
         // Download Favicons for feeds
+        start = System.nanoTime();
         startFaviconDownload();
+        report.record(SyncReport.Phase.FAVICON_PREFETCH, System.nanoTime() - start, 0, 0, 0);
 
 
         // Send sync finished event
@@ -90,15 +102,18 @@ public class OwnCloudSyncAdapter extends AbstractThreadedSyncAdapter {
         EventBus.getDefault().post(new SyncFinishedEvent());
 
         syncStopWatch.stop();
+        report.finish();
+        new SyncReportStore(mPrefs).add(report);
         Log.v(TAG, "Finished sync - time needed (synchronization): " + syncStopWatch);
+        Log.d(TAG, report.toString());
     }
 
     private static class NextcloudSyncResult {
-        private final List<Folder> folders;
-        private final List<Feed>   feeds;
-        private final boolean      stateSyncSuccessful;
+        private final ConditionalResponse<List<Folder>> folders;
+        private final ConditionalResponse<List<Feed>>   feeds;
+        private final boolean                           stateSyncSuccessful;
 
-        NextcloudSyncResult(List<Folder> folders, List<Feed> feeds, Boolean stateSyncSuccessful) {
+        NextcloudSyncResult(ConditionalResponse<List<Folder>> folders, ConditionalResponse<List<Feed>> feeds, Boolean stateSyncSuccessful) {
             this.folders = folders;
             this.feeds = feeds;
             this.stateSyncSuccessful = stateSyncSuccessful;
@@ -106,9 +121,9 @@ public class OwnCloudSyncAdapter extends AbstractThreadedSyncAdapter {
     }
 
     // Start sync
-    private void sync() {
+    private void sync(final SyncReport report) {
         if(mApi.getNewsAPI() == null) {
-            throwException(new IllegalStateException("API is NOT initialized"));
+            throwException(new IllegalStateException("API is NOT initialized"), report);
             Log.e(TAG, "API is NOT initialized..");
             return;
         } else {
@@ -121,36 +136,28 @@ public class OwnCloudSyncAdapter extends AbstractThreadedSyncAdapter {
                 (Publisher<Boolean>) s -> {
                     Log.v(TAG, "(rssStateSync) subscribe() called with: s = [" + s + "] [" + Thread.currentThread().getName() + "]");
                     try {
-                        ItemStateSync.PerformItemStateSync(mApi.getNewsAPI(), dbConn);
+                        ItemStateSync.PerformItemStateSync(mApi.getNewsAPI(), dbConn, report);
                         s.onNext(true);
                         s.onComplete();
                     } catch(Exception ex) {
                         s.onError(ex);
                     }
-                }).subscribeOn(Schedulers.newThread());
+                }).subscribeOn(SyncSchedulers.network());
 
         // First sync Feeds and Folders and rss item states (in parallel)
-        Observable<ArrayList<Folder>> folderObservable = mApi
-                .getNewsAPI()
-                .folders()
-                .map(folders -> {
-                    // If the folders is more than one, returns the most new.
-                    HashMap<String, Folder> uniqueLabelFolders = new HashMap<>();
-                    for (Folder folder : folders) {
-                        String label = folder.getLabel();
-                        Folder uniqueFolder = uniqueLabelFolders.get(label);
-                        if (uniqueFolder == null || uniqueFolder.getId() < folder.getId()) {
-                            uniqueLabelFolders.put(label, folder);
-                        }
-                    }
-                    return new ArrayList<>(uniqueLabelFolders.values());
-                })
-                .subscribeOn(Schedulers.newThread());
-
-        Observable<List<Feed>> feedsObservable = mApi
-                .getNewsAPI()
-                .feeds()
-                .subscribeOn(Schedulers.newThread());
+        final long fetchStart = System.nanoTime();
+        final AtomicLong fetchEnd = new AtomicLong(fetchStart);
+        // folders and feeds are only parsed and written if they have changed since the last sync
+        final boolean useSso = mPrefs.getBoolean(SettingsActivity.SW_USE_SINGLE_SIGN_ON, false);
+        Observable<ConditionalResponse<List<Folder>>> folderObservable = ConditionalResponse
+                .folders(mApi.getNewsAPI(), useSso, dbConn.getResponseValidators(ConditionalResponse.ENDPOINT_FOLDERS))
+                .doOnNext(folders -> fetchEnd.accumulateAndGet(System.nanoTime(), Math::max))
+                .subscribeOn(SyncSchedulers.network());
+
+        Observable<ConditionalResponse<List<Feed>>> feedsObservable = ConditionalResponse
+                .feeds(mApi.getNewsAPI(), useSso, dbConn.getResponseValidators(ConditionalResponse.ENDPOINT_FEEDS))
+                .doOnNext(feeds -> fetchEnd.accumulateAndGet(System.nanoTime(), Math::max))
+                .subscribeOn(SyncSchedulers.network());
 
         // Wait for results
         Observable<NextcloudSyncResult> combined = Observable.zip(folderObservable, feedsObservable, rssStateSync, (folders, feeds, mRes) -> {
@@ -163,31 +170,64 @@ public class OwnCloudSyncAdapter extends AbstractThreadedSyncAdapter {
 
         try {
             NextcloudSyncResult syncResult = combined.blockingFirst();
+            final List<Folder> folders = syncResult.folders.isModified() ? getUniqueLabelFolders(syncResult.folders.getData()) : null;
+            final List<Feed> feeds = syncResult.feeds.getData();
+            int receivedCount = (folders != null ? folders.size() : 0) + (feeds != null ? feeds.size() : 0);
+            report.record(SyncReport.Phase.FOLDERS_FEEDS_FETCH, fetchEnd.get() - fetchStart,
+                    receivedCount, syncResult.folders.getByteCount() + syncResult.feeds.getByteCount(), 0);
+
+            if (folders != null || feeds != null) {
+                // Delete cached entities to keep entity relationships up to date for observers and readers,
+                // for example, relationship of RSS items with feeds that have changed (name changed, etc).
+                // The presence of old data in the cache can affect the obtaining of up-to-date information.
+                dbConn.clearSessionCache();
+            } else {
+                Log.v(TAG, "Folders and feeds have not been modified");
+            }
 
-            // Delete cached entities to keep entity relationships up to date for observers and readers,
-            // for example, relationship of RSS items with feeds that have changed (name changed, etc).
-            // The presence of old data in the cache can affect the obtaining of up-to-date information.
-            dbConn.clearSessionCache();
-
-            InsertIntoDatabase.InsertFoldersIntoDatabase(syncResult.folders, dbConn);
-            InsertIntoDatabase.InsertFeedsIntoDatabase(syncResult.feeds, dbConn);
+            long upsertStart = System.nanoTime();
+            int writtenCount = Single.fromCallable(() -> {
+                int count = folders != null || feeds != null ? InsertIntoDatabase.InsertFoldersAndFeedsIntoDatabase(folders, feeds, dbConn) : 0;
+                // stored after the folders / feeds have been written - the next sync only writes them again if they have changed
+                dbConn.saveResponseValidators(ConditionalResponse.ENDPOINT_FOLDERS, syncResult.folders.getValidators());
+                dbConn.saveResponseValidators(ConditionalResponse.ENDPOINT_FEEDS, syncResult.feeds.getValidators());
+                return count;
+            })
+                    .subscribeOn(SyncSchedulers.database())
+                    .blockingGet();
+            report.record(SyncReport.Phase.DB_UPSERT, System.nanoTime() - upsertStart, receivedCount, 0, writtenCount);
             Log.v(TAG, "State sync successful: " + syncResult.stateSyncSuccessful);
 
             // Start the sync (Rss Items)
-            syncRssItems(dbConn);
+            syncRssItems(dbConn, report);
         } catch(Exception ex) {
             //Log.e(TAG, "throwException: ", ex);
-            throwException(ex);
+            throwException(ex, report);
+        }
+    }
+
+    /**
+     * If there is more than one folder with the same label, returns the newest one.
+     */
+    private static List<Folder> getUniqueLabelFolders(List<Folder> folders) {
+        HashMap<String, Folder> uniqueLabelFolders = new HashMap<>();
+        for (Folder folder : folders) {
+            String label = folder.getLabel();
+            Folder uniqueFolder = uniqueLabelFolders.get(label);
+            if (uniqueFolder == null || uniqueFolder.getId() < folder.getId()) {
+                uniqueLabelFolders.put(label, folder);
+            }
         }
+        return new ArrayList<>(uniqueLabelFolders.values());
     }
 
-    private void syncRssItems(final DatabaseConnectionOrm dbConn) {
+    private void syncRssItems(final DatabaseConnectionOrm dbConn, final SyncReport report) {
         Log.v(TAG, "syncRssItems() called with: dbConn = [" + dbConn + "] [" + Thread.currentThread().getName() + "]");
 
         // .observeOn(AndroidSchedulers.mainThread())
 
-        Observable.fromPublisher(new RssItemObservable(dbConn, mApi.getNewsAPI(), mPrefs))
-                .subscribeOn(Schedulers.newThread())
+        Observable.fromPublisher(new RssItemObservable(dbConn, mApi.getNewsAPI(), mPrefs, report))
+                .subscribeOn(SyncSchedulers.network())
                 .blockingSubscribe(new Observer<>() {
                     @Override
                     public void onSubscribe(@NonNull Disposable d) {
@@ -208,7 +248,7 @@ public class OwnCloudSyncAdapter extends AbstractThreadedSyncAdapter {
                     @Override
                     public void onError(@NonNull Throwable e) {
                         Log.v(TAG, "[syncRssItems] - onError() called with: throwable = [" + e + "]");
-                        throwException(e);
+                        throwException(e, report);
                     }
 
                     @Override
@@ -219,8 +259,9 @@ public class OwnCloudSyncAdapter extends AbstractThreadedSyncAdapter {
     }
 
 
-    private void throwException(Throwable ex) {
+    private void throwException(Throwable ex, SyncReport report) {
         Log.e(TAG, "throwException() called [" + Thread.currentThread().getName() + "]", ex);
+        report.setError(ex);
         syncRunning = false;
         if(ex instanceof Exception) {
             EventBus.getDefault().post(new SyncFailedEvent(OkHttpSSLClient.HandleExceptions((Exception) ex)));
@@ -8,23 +8,31 @@ import static de.luhmer.owncloudnewsreader.ListView.SubscriptionExpandableListAd
 
 import android.content.Context;
 import android.database.Cursor;
-import android.os.AsyncTask;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import de.greenrobot.dao.Property;
 import de.greenrobot.dao.query.LazyList;
 import de.greenrobot.dao.query.QueryBuilder;
 import de.greenrobot.dao.query.WhereCondition;
@@ -38,11 +46,12 @@ import de.luhmer.owncloudnewsreader.database.model.Folder;
 import de.luhmer.owncloudnewsreader.database.model.FolderDao;
 import de.luhmer.owncloudnewsreader.database.model.RssItem;
 import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
-import de.luhmer.owncloudnewsreader.helper.AsyncTaskHelper;
 import de.luhmer.owncloudnewsreader.helper.NewsFileUtils;
 import de.luhmer.owncloudnewsreader.helper.StopWatch;
+import de.luhmer.owncloudnewsreader.model.ItemGuidHash;
 import de.luhmer.owncloudnewsreader.model.PodcastFeedItem;
 import de.luhmer.owncloudnewsreader.model.PodcastItem;
+import de.luhmer.owncloudnewsreader.model.RssItemListEntry;
 import de.luhmer.owncloudnewsreader.services.PodcastDownloadService;
 
 public class DatabaseConnectionOrm {
@@ -67,18 +76,34 @@ public class DatabaseConnectionOrm {
     public enum SORT_DIRECTION { asc, desc }
 
     private final DaoSession daoSession;
+    private final RssItemStateWriter stateWriter;
 
     private final static int PageSize = 25;
 
+    // Pager of the list which is currently shown - null if CURRENT_RSS_ITEM_VIEW already contains
+    // the complete list (search results) or it hasn't been restored yet after the process was restarted
+    private static RssItemKeysetPager currentViewPager = null;
+    private static final Object CURRENT_VIEW_LOCK = new Object();
+
+    // SQLITE_MAX_VARIABLE_NUMBER defaults to 999 on older Android versions
+    final static int MAX_SQL_VARIABLES_PER_STATEMENT = 500;
+
     private final Context context;
 
     protected @Inject @Named("databaseFileName") String databasePath;
 
     public void resetDatabase() {
+        flushPendingItemStates();
         daoSession.getRssItemDao().deleteAll();
         daoSession.getFeedDao().deleteAll();
         daoSession.getFolderDao().deleteAll();
-        daoSession.getCurrentRssItemViewDao().deleteAll();
+        synchronized (CURRENT_VIEW_LOCK) {
+            daoSession.getCurrentRssItemViewDao().deleteAll();
+            RssItemKeysetPager.clear(daoSession.getDatabase());
+            currentViewPager = null;
+        }
+        clearSyncCheckpoint();
+        ResponseValidators.clear(daoSession.getDatabase());
     }
 
     public DatabaseConnectionOrm(Context context) {
@@ -87,20 +112,22 @@ public class DatabaseConnectionOrm {
             ((NewsReaderApplication) context.getApplicationContext()).getAppComponent().injectDatabaseConnection(this);
         }
         daoSession = DatabaseHelperOrm.getDaoSession(context, databasePath);
+        stateWriter = DatabaseHelperOrm.getStateWriter(context, databasePath);
     }
 
-    public void deleteOldAndInsertNewFolders (final Folder... folder) {
-        daoSession.runInTx(() -> {
-            daoSession.getFolderDao().deleteAll();
-            daoSession.getFolderDao().insertInTx(folder);
-        });
+    @VisibleForTesting
+    public DatabaseConnectionOrm(Context context, DaoSession daoSession) {
+        this(context, daoSession, new RssItemStateWriter(daoSession));
     }
 
-    public void deleteOldAndInsertNewFolders (final Iterable<Folder> folder) {
-        daoSession.runInTx(() -> {
-            daoSession.getFolderDao().deleteAll();
-            daoSession.getFolderDao().insertInTx(folder);
-        });
+    /**
+     * @param stateWriter the writer of the session (all connections to the session need to share it)
+     */
+    @VisibleForTesting
+    DatabaseConnectionOrm(Context context, DaoSession daoSession, RssItemStateWriter stateWriter) {
+        this.context = context;
+        this.daoSession = daoSession;
+        this.stateWriter = stateWriter;
     }
 
     public void insertNewFolders(final Iterable<Folder> folder) {
@@ -111,8 +138,152 @@ public class DatabaseConnectionOrm {
         daoSession.getFeedDao().insertOrReplaceInTx(feeds);
     }
 
+    /**
+     * Applies the changes of the folders and feeds of a sync in one transaction. The items of
+     * removed feeds are deleted as well.
+     */
+    public void applySubscriptionChanges(EntityDiff<Folder> folders, EntityDiff<Feed> feeds) {
+        if (folders.isEmpty() && feeds.isEmpty()) {
+            return;
+        }
+
+        daoSession.runInTx(() -> {
+            FolderDao folderDao = daoSession.getFolderDao();
+            folderDao.insertInTx(folders.getAdded());
+            folderDao.updateInTx(folders.getChanged());
+            folderDao.deleteByKeyInTx(folders.getRemovedIds());
+
+            FeedDao feedDao = daoSession.getFeedDao();
+            feedDao.insertInTx(feeds.getAdded());
+            feedDao.updateInTx(feeds.getChanged());
+            deleteFeedsInTx(feeds.getRemovedIds());
+        });
+
+        if (!feeds.getRemovedIds().isEmpty()) {
+            // cached items of the removed feeds
+            clearSessionCache();
+        }
+    }
+
     public void insertNewItems(Iterable<RssItem> items) {
-        daoSession.getRssItemDao().insertOrReplaceInTx(items);
+        daoSession.runInTx(() -> {
+            daoSession.getRssItemDao().insertOrReplaceInTx(items);
+            RssItemSearchIndex.insert(daoSession.getDatabase(), items);
+            RssItemImages.insert(daoSession.getDatabase(), items);
+        });
+    }
+
+    /**
+     * Inserts items whose body hasn't been processed yet (links, excerpt and thumbnail) - the
+     * items are marked as pending and processed later by
+     * {@link de.luhmer.owncloudnewsreader.reader.nextcloud.ItemBodyProcessor}.
+     */
+    public void insertNewItemsWithRawBody(Iterable<RssItem> items) {
+        daoSession.runInTx(() -> {
+            daoSession.getRssItemDao().insertOrReplaceInTx(items);
+            SQLiteDatabase db = daoSession.getDatabase();
+            RssItemSearchIndex.insert(db, items, false);
+            PendingItemBodies.add(db, items);
+        });
+    }
+
+    /**
+     * Same as {@link #insertNewItemsWithRawBody(Iterable)} - the checkpoint of the first sync is
+     * stored in the same transaction, so it never points behind the inserted items.
+     */
+    public void insertNewItemsWithRawBody(Iterable<RssItem> items, SyncCheckpoint checkpoint) {
+        daoSession.runInTx(() -> {
+            insertNewItemsWithRawBody(items);
+            SyncCheckpoint.save(daoSession.getDatabase(), checkpoint);
+        });
+    }
+
+    /**
+     * @return the progress of an interrupted first sync or null if no first sync is in progress
+     */
+    public SyncCheckpoint getSyncCheckpoint() {
+        return SyncCheckpoint.load(daoSession.getDatabase());
+    }
+
+    public void saveSyncCheckpoint(SyncCheckpoint checkpoint) {
+        SyncCheckpoint.save(daoSession.getDatabase(), checkpoint);
+    }
+
+    public void clearSyncCheckpoint() {
+        SyncCheckpoint.clear(daoSession.getDatabase());
+    }
+
+    /**
+     * @return the validators of the last response of the endpoint which has been written to the
+     * database or null if there is none
+     */
+    public ResponseValidators getResponseValidators(String endpoint) {
+        return ResponseValidators.load(daoSession.getDatabase(), endpoint);
+    }
+
+    public void saveResponseValidators(String endpoint, ResponseValidators validators) {
+        ResponseValidators.save(daoSession.getDatabase(), endpoint, validators);
+    }
+
+    /**
+     * @return up to {@code limit} items with a body which hasn't been processed yet (newest first).
+     * Only id, title, link, body, media description and media thumbnail are loaded.
+     */
+    public List<RssItem> getItemsWithPendingBody(int limit) {
+        return PendingItemBodies.load(daoSession.getDatabase(), limit);
+    }
+
+    /**
+     * Stores the processed bodies. Items whose body has been changed since they were loaded
+     * (e.g. by a sync) are skipped and processed again.
+     *
+     * @param rawBodies the bodies as they were returned by {@link #getItemsWithPendingBody(int)}
+     * @return amount of updated items
+     */
+    public int updateProcessedBodies(List<RssItem> items, List<String> rawBodies) {
+        final int[] updated = new int[1];
+        daoSession.runInTx(() -> updated[0] = PendingItemBodies.update(daoSession.getDatabase(), items, rawBodies));
+        if (updated[0] > 0) {
+            // cached entities still contain the raw body
+            clearSessionCache();
+        }
+        return updated[0];
+    }
+
+    public long getPendingItemBodyCount() {
+        return PendingItemBodies.count(daoSession.getDatabase());
+    }
+
+    /**
+     * @return the image links in the body of the item (in the order they appear) or null if the
+     * body hasn't been processed yet
+     */
+    public List<String> getImageLinks(long itemId) {
+        SQLiteDatabase db = daoSession.getDatabase();
+        if (PendingItemBodies.contains(db, itemId)) {
+            return null;
+        }
+        return RssItemImages.load(db, itemId);
+    }
+
+    /**
+     * @return the unique image links of the items with an id >= {@code id} in the order they
+     * should be downloaded for offline reading (unread items first, then the newest), at most
+     * {@code limit} links. Only items whose body has been processed are included.
+     */
+    public List<String> getImageLinksForPrefetch(long id, int limit) {
+        return RssItemImages.loadForPrefetch(daoSession.getDatabase(), id, limit);
+    }
+
+    /**
+     * @param byteSizes size of each checked image, -1 if it isn't in the disk cache
+     */
+    public void updateCachedImages(Map<String, Long> byteSizes) {
+        daoSession.runInTx(() -> RssItemImages.updateCached(daoSession.getDatabase(), byteSizes));
+    }
+
+    public RssItemImages.Stats getImageStats(long id) {
+        return RssItemImages.loadStats(daoSession.getDatabase(), id);
     }
 
     public List<Folder> getListOfFolders() {
@@ -168,7 +339,7 @@ public class DatabaseConnectionOrm {
     public List<Feed> getListOfFeedsWithoutFolders(boolean onlyWithUnreadRssItems) {
         if(onlyWithUnreadRssItems) {
             return daoSession.getFeedDao().queryBuilder().orderAsc(FeedDao.Properties.FeedTitle).where(FeedDao.Properties.FolderId.eq(0L),
-                    new WhereCondition.StringCondition(FeedDao.Properties.Id.columnName + " IN " + "(SELECT " + RssItemDao.Properties.FeedId.columnName + " FROM " + RssItemDao.TABLENAME + " WHERE " + RssItemDao.Properties.Read_temp.columnName + " != 1)")).list();
+                    new WhereCondition.StringCondition(FeedDao.Properties.Id.columnName + " IN " + "(SELECT " + RssItemDao.Properties.FeedId.columnName + " FROM " + RssItemDao.TABLENAME + " WHERE " + DatabaseHelperOrm.CONDITION_UNREAD + ")")).list();
         } else {
             return daoSession.getFeedDao().queryBuilder().orderAsc(FeedDao.Properties.FeedTitle).where(FeedDao.Properties.FolderId.eq(0L)).list();
         }
@@ -177,7 +348,7 @@ public class DatabaseConnectionOrm {
     public List<Feed> getAllFeedsWithUnreadRssItems() {
         return daoSession.getFeedDao().queryRaw(", " + RssItemDao.TABLENAME + " R " +
                 " WHERE R." + RssItemDao.Properties.FeedId.columnName + " = T._id " +
-                " AND " + RssItemDao.Properties.Read_temp.columnName + " != 1 GROUP BY T._id");
+                " AND " + DatabaseHelperOrm.CONDITION_UNREAD + " GROUP BY T._id");
     }
 
     public List<Feed> getAllFeedsWithUnreadRssItemsForFolder(long folderId) {
@@ -186,7 +357,7 @@ public class DatabaseConnectionOrm {
 
     public List<Feed> getAllFeedsWithStarredRssItems() {
         return daoSession.getFeedDao().queryBuilder().orderAsc(FeedDao.Properties.FeedTitle).where(
-                new WhereCondition.StringCondition(FeedDao.Properties.Id.columnName + " IN " + "(SELECT " + RssItemDao.Properties.FeedId.columnName + " FROM " + RssItemDao.TABLENAME + " WHERE " + RssItemDao.Properties.Starred_temp.columnName + " = 1)")).list();
+                new WhereCondition.StringCondition(FeedDao.Properties.Id.columnName + " IN " + "(SELECT " + RssItemDao.Properties.FeedId.columnName + " FROM " + RssItemDao.TABLENAME + " WHERE " + DatabaseHelperOrm.CONDITION_STARRED + ")")).list();
     }
 
     public List<Feed> getAllFeedsWithDownloadedPodcasts(Context context) {
@@ -227,8 +398,10 @@ public class DatabaseConnectionOrm {
     }
 
     public boolean areThereAnyUnsavedChangesInDatabase() {
-        long countUnreadRead = daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Read_temp.notEq(RssItemDao.Properties.Read)).count();
-        long countStarredUnstarred = daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Starred_temp.notEq(RssItemDao.Properties.Starred)).count();
+        flushPendingItemStates();
+
+        long countUnreadRead = getLongValueBySQL(getRssItemCountSQL(DatabaseHelperOrm.CONDITION_READ_CHANGED));
+        long countStarredUnstarred = getLongValueBySQL(getRssItemCountSQL(DatabaseHelperOrm.CONDITION_STARRED_CHANGED));
 
         return (countUnreadRead + countStarredUnstarred) > 0;
     }
@@ -240,7 +413,7 @@ public class DatabaseConnectionOrm {
 
 
     public long getLowestRssItemIdUnread() {
-        RssItem rssItem = daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Read_temp.eq(false)).orderAsc(RssItemDao.Properties.Id).limit(1).unique();
+        RssItem rssItem = daoSession.getRssItemDao().queryBuilder().where(new WhereCondition.StringCondition(DatabaseHelperOrm.CONDITION_UNREAD)).orderAsc(RssItemDao.Properties.Id).limit(1).unique();
         if(rssItem != null)
             return rssItem.getId();
         else
@@ -255,29 +428,109 @@ public class DatabaseConnectionOrm {
         return daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Id.eq(rssItemId)).unique();
     }
 
+    /**
+     * Loads only id, feedId and guidHash of the given items (without hydrating the whole RssItem
+     * including its body). Unknown ids are skipped.
+     */
+    public List<ItemGuidHash> getGuidHashesOfItems(List<String> itemIds) {
+        List<ItemGuidHash> result = new ArrayList<>(itemIds.size());
+
+        String sqlPrefix = "SELECT " + RssItemDao.Properties.Id.columnName + ", " +
+                RssItemDao.Properties.FeedId.columnName + ", " +
+                RssItemDao.Properties.GuidHash.columnName +
+                " FROM " + RssItemDao.TABLENAME +
+                " WHERE " + RssItemDao.Properties.Id.columnName + " IN (";
+
+        for (int start = 0; start < itemIds.size(); start += MAX_SQL_VARIABLES_PER_STATEMENT) {
+            List<String> chunk = itemIds.subList(start, Math.min(start + MAX_SQL_VARIABLES_PER_STATEMENT, itemIds.size()));
+            String[] args = chunk.toArray(new String[0]);
+
+            try (Cursor cursor = daoSession.getDatabase().rawQuery(sqlPrefix + getSqlPlaceholders(args.length) + ")", args)) {
+                while (cursor.moveToNext()) {
+                    result.add(new ItemGuidHash(cursor.getLong(0), cursor.getLong(1), cursor.getString(2)));
+                }
+            }
+        }
+
+        return result;
+    }
+
 
     /**
      * Changes the read unread state of the item. This is NOT the temp value!!!
+     * All items are updated within a single transaction (see {@link #commitItemState}).
      * @param itemIds
      * @param markAsRead
      */
     public void change_readUnreadStateOfItem(List<String> itemIds, boolean markAsRead)
     {
-        if(itemIds != null)
-            for(String idItem : itemIds)
-                updateIsReadOfRssItem(idItem, markAsRead);
+        commitItemState(itemIds, RssItemDao.Properties.Read, RssItemDao.Properties.Read_temp, markAsRead);
     }
 
     /**
      * Changes the starred unstarred state of the item. This is NOT the temp value!!!
+     * All items are updated within a single transaction (see {@link #commitItemState}).
      * @param itemIds
      * @param markAsStarred
      */
     public void changeStarrUnstarrStateOfItem(List<String> itemIds, boolean markAsStarred)
     {
-        if(itemIds != null)
-            for(String idItem : itemIds)
-                updateIsStarredOfRssItem(idItem, markAsStarred);
+        commitItemState(itemIds, RssItemDao.Properties.Starred, RssItemDao.Properties.Starred_temp, markAsStarred);
+    }
+
+    /**
+     * Sets the synced state (and its temp value) of all given items using set-based
+     * "UPDATE ... WHERE _id IN (?, ?, ...)" statements which are executed in one transaction.
+     * Afterwards the session cache is cleared, otherwise greenDAO would keep returning the
+     * cached (outdated) RssItem entities for subsequent queries.
+     */
+    private void commitItemState(List<String> itemIds, Property stateProperty, Property tempProperty, boolean value) {
+        if(itemIds == null || itemIds.isEmpty()) {
+            return;
+        }
+
+        StopWatch sw = new StopWatch();
+        sw.start();
+
+        String sqlPrefix = "UPDATE " + RssItemDao.TABLENAME +
+                " SET " + stateProperty.columnName + " = ?, " + tempProperty.columnName + " = ?" +
+                " WHERE " + RssItemDao.Properties.Id.columnName + " IN (";
+        final long stateValue = value ? 1 : 0;
+
+        daoSession.runInTx(() -> {
+            SQLiteDatabase db = daoSession.getDatabase();
+            for (int start = 0; start < itemIds.size(); start += MAX_SQL_VARIABLES_PER_STATEMENT) {
+                List<String> chunk = itemIds.subList(start, Math.min(start + MAX_SQL_VARIABLES_PER_STATEMENT, itemIds.size()));
+
+                try (SQLiteStatement stmt = db.compileStatement(sqlPrefix + getSqlPlaceholders(chunk.size()) + ")")) {
+                    stmt.bindLong(1, stateValue);
+                    stmt.bindLong(2, stateValue);
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.bindLong(i + 3, Long.parseLong(chunk.get(i)));
+                    }
+                    stmt.executeUpdateDelete();
+                }
+            }
+        });
+
+        clearSessionCache();
+
+        sw.stop();
+        Log.v(TAG, "Time needed for committing state of " + itemIds.size() + " items (" + stateProperty.columnName + "=" + value + "): " + sw);
+    }
+
+    /**
+     * @return comma separated list of "?" placeholders which can be used for IN (...) clauses
+     */
+    static String getSqlPlaceholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('?');
+        }
+        return sb.toString();
     }
 
     public void updateIsReadOfRssItem(String ITEM_ID, Boolean isRead) {
@@ -305,12 +558,15 @@ public class DatabaseConnectionOrm {
         daoSession.getDatabase().execSQL(sql);
         */
 
+        flushPendingItemStates();
+        completeCurrentRssItemView();
+
         // 100 causes android.database.sqlite.SQLiteBlobTooBigException on some devices
         final int itemsPerIteration = 25;
 
         WhereCondition whereCondition = new WhereCondition.StringCondition(RssItemDao.Properties.Id.columnName + " IN " +
                 "(SELECT " + CurrentRssItemViewDao.Properties.RssItemId.columnName + " FROM " + CurrentRssItemViewDao.TABLENAME + ") AND " +
-                RssItemDao.Properties.Read_temp.columnName + "= 0");
+                DatabaseHelperOrm.CONDITION_UNREAD);
 
         int iterationCount = 0;
         List<RssItem> rssItemList;
@@ -343,23 +599,23 @@ public class DatabaseConnectionOrm {
     }
 
     public List<RssItem> getAllNewReadRssItems() {
-        return daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Read.eq(false), RssItemDao.Properties.Read_temp.eq(true)).list();
+        return daoSession.getRssItemDao().queryBuilder().where(new WhereCondition.StringCondition(DatabaseHelperOrm.CONDITION_READ_CHANGED), RssItemDao.Properties.Read_temp.eq(true)).list();
     }
 
     public List<RssItem> getAllNewUnreadRssItems() {
-        return daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Read.eq(true), RssItemDao.Properties.Read_temp.eq(false)).list();
+        return daoSession.getRssItemDao().queryBuilder().where(new WhereCondition.StringCondition(DatabaseHelperOrm.CONDITION_READ_CHANGED), RssItemDao.Properties.Read_temp.eq(false)).list();
     }
 
     public List<RssItem> getAllNewStarredRssItems() {
-        return daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Starred.eq(false), RssItemDao.Properties.Starred_temp.eq(true)).list();
+        return daoSession.getRssItemDao().queryBuilder().where(new WhereCondition.StringCondition(DatabaseHelperOrm.CONDITION_STARRED_CHANGED), RssItemDao.Properties.Starred_temp.eq(true)).list();
     }
 
     public List<RssItem> getAllNewUnstarredRssItems() {
-        return daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Starred.eq(true), RssItemDao.Properties.Starred_temp.eq(false)).list();
+        return daoSession.getRssItemDao().queryBuilder().where(new WhereCondition.StringCondition(DatabaseHelperOrm.CONDITION_STARRED_CHANGED), RssItemDao.Properties.Starred_temp.eq(false)).list();
     }
 
     public LazyList<RssItem> getAllUnreadRssItemsForWidget() {
-        return daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Read_temp.eq(false)).limit(100).orderDesc(RssItemDao.Properties.PubDate).listLazy();
+        return daoSession.getRssItemDao().queryBuilder().where(new WhereCondition.StringCondition(DatabaseHelperOrm.CONDITION_UNREAD)).limit(100).orderDesc(RssItemDao.Properties.PubDate).listLazy();
     }
 
     public Set<String> getNotificationGroups() {
@@ -374,7 +630,7 @@ public class DatabaseConnectionOrm {
 
     public QueryBuilder<RssItem> getAllUnreadRssItemsForNotificationGroup(SORT_DIRECTION sortDirection, String notificationGroup) {
         QueryBuilder<RssItem> qb = daoSession.getRssItemDao().queryBuilder()
-                .where(RssItemDao.Properties.Read_temp.eq(false));
+                .where(new WhereCondition.StringCondition(DatabaseHelperOrm.CONDITION_UNREAD));
 
         // filter for notification group
         qb.join(RssItemDao.Properties.FeedId, Feed.class, FeedDao.Properties.Id)
@@ -393,7 +649,9 @@ public class DatabaseConnectionOrm {
         StopWatch sw = new StopWatch();
         sw.start();
 
-        String sql = "UPDATE " + RssItemDao.TABLENAME + " SET " + RssItemDao.Properties.Read_temp.columnName + " = 1 WHERE " + RssItemDao.Properties.Read_temp.columnName + " = 0";
+        flushPendingItemStates();
+
+        String sql = "UPDATE " + RssItemDao.TABLENAME + " SET " + RssItemDao.Properties.Read_temp.columnName + " = 1 WHERE " + DatabaseHelperOrm.CONDITION_UNREAD;
         daoSession.getDatabase().execSQL(sql);
 
         sw.stop();
@@ -401,97 +659,243 @@ public class DatabaseConnectionOrm {
     }
 
     public LazyList<RssItem> getAllUnreadRssItemsForDownloadWebPageService() {
-        return daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Read_temp.eq(false)).orderDesc(RssItemDao.Properties.PubDate).listLazy();
-    }
-
-    public LazyList<RssItem> getAllItemsWithIdHigher(long id) {
-        return daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Id.ge(id)).listLazy();
+        return daoSession.getRssItemDao().queryBuilder().where(new WhereCondition.StringCondition(DatabaseHelperOrm.CONDITION_UNREAD)).orderDesc(RssItemDao.Properties.PubDate).listLazy();
     }
 
     /***
-     * Warning: This methods performs database operations asynchronously. Therefore this method
-     * will return immediately - even though the operation might not be completed
+     * Persists the read / starred state of the item. Only the state columns are written.
+     *
+     * Warning: The state is written asynchronously (see {@link RssItemStateWriter}). Therefore this
+     * method will return immediately - call {@link #flushPendingItemStates()} before reading it.
      */
     public void updateRssItem(RssItem rssItem) {
-        AsyncTaskHelper.StartAsyncTask(new UpdateRssItemAsyncTask(rssItem));
+        stateWriter.enqueue(rssItem.getId(), rssItem.getFingerprint(),
+                Boolean.TRUE.equals(rssItem.getRead_temp()), Boolean.TRUE.equals(rssItem.getStarred_temp()));
     }
 
+    /***
+     * Persists the read / starred state of an item of the list view (see {@link #updateRssItem(RssItem)})
+     */
+    public void updateRssItem(RssItemListEntry rssItem) {
+        stateWriter.enqueue(rssItem.getId(), rssItem.getFingerprint(), rssItem.getRead_temp(), rssItem.getStarred_temp());
+    }
 
-    class UpdateRssItemAsyncTask extends AsyncTask<Void, Void, Void> {
+    /**
+     * Writes the state changes which are still queued (see {@link #updateRssItem(RssItem)})
+     */
+    public void flushPendingItemStates() {
+        stateWriter.flush();
+    }
 
-        private final RssItem rssItem;
+    public void removeFeedById(final long feedId) {
+        daoSession.runInTx(() -> deleteFeedsInTx(Collections.singletonList(feedId)));
+        clearSessionCache();
+    }
 
-        UpdateRssItemAsyncTask(RssItem rssItem) {
-            this.rssItem = rssItem;
+    /**
+     * Deletes the feeds and their items (one statement per feed instead of one per item).
+     */
+    private void deleteFeedsInTx(List<Long> feedIds) {
+        daoSession.getFeedDao().deleteByKeyInTx(feedIds);
+        try (SQLiteStatement stmt = daoSession.getDatabase().compileStatement("DELETE FROM " + RssItemDao.TABLENAME +
+                " WHERE " + RssItemDao.Properties.FeedId.columnName + " = ?")) {
+            for (long feedId : feedIds) {
+                stmt.bindLong(1, feedId);
+                stmt.executeUpdateDelete();
+            }
         }
+    }
 
-        @Override
-        protected Void doInBackground(Void... voids) {
-            daoSession.getRssItemDao().update(rssItem);
+    public void renameFeedById(long feedId, String newTitle) {
+        Feed feed = daoSession.getFeedDao().queryBuilder().where(FeedDao.Properties.Id.eq(feedId)).unique();
+        feed.setFeedTitle(newTitle);
+        daoSession.getFeedDao().update(feed);
+    }
 
-            // Code below is used to deduplicate rss items (see https://github.com/nextcloud/news-android/issues/513)
-            if(rssItem.getRead_temp()) {
-                // Get all rss items with the same fingerprint (This operation is very slow)
-                List<RssItem> rssItemList = daoSession.getRssItemDao().queryBuilder().where(
-                        RssItemDao.Properties.Fingerprint.eq(rssItem.getFingerprint()),
-                        RssItemDao.Properties.Id.notEq(rssItem.getId()))
-                        .list();
+    public SparseArray<String> getUrlsToFavIcons() {
+        // only the two columns are needed - no need to load (and cache) the complete feeds
+        return getStringSparseArrayFromSQL("SELECT " + FeedDao.Properties.Id.columnName + ", " + FeedDao.Properties.FaviconUrl.columnName +
+                " FROM " + FeedDao.TABLENAME, 0, 1);
+    }
 
-                // Sync the read-state of the items
-                for (RssItem rssItem1 : rssItemList) {
-                    rssItem1.setRead_temp(rssItem.getRead_temp());
-                }
+    /**
+     * Shows the items matching the given condition - only the first page is loaded, the following
+     * pages are loaded when they are requested (see {@link #getCurrentRssItemView(int, boolean)}).
+     * Items with the same fingerprint are only shown once.
+     *
+     * @param condition WHERE clause on RSS_ITEM (see {@link #getAllItemsConditionForFeed(long, boolean, boolean)}
+     *                  and {@link #getAllItemsConditionForFolder(long, boolean, Context)})
+     */
+    public void setCurrentRssItemView(String condition, SORT_DIRECTION sortDirection) {
+        StopWatch sw = new StopWatch();
+        sw.start();
 
-                // Update in database
-                daoSession.getRssItemDao().updateInTx(rssItemList);
-            }
+        synchronized (CURRENT_VIEW_LOCK) {
+            final RssItemKeysetPager pager = new RssItemKeysetPager(condition, sortDirection);
+            daoSession.runInTx(() -> {
+                daoSession.getCurrentRssItemViewDao().deleteAll();
+                pager.save(daoSession.getDatabase());
+                pager.appendPage(daoSession.getDatabase(), PageSize);
+            });
+            currentViewPager = pager;
+        }
 
-            return null;
+        sw.stop();
+        Log.v(TAG, "Time needed for loading the first page: " + sw);
+    }
+
+    /**
+     * @return the pager of the current view (restored from the database if the process has been
+     * restarted since the view was set) or null if the current view is complete. Needs to be
+     * called while holding CURRENT_VIEW_LOCK.
+     */
+    private RssItemKeysetPager getCurrentViewPager() {
+        if (currentViewPager == null) {
+            currentViewPager = RssItemKeysetPager.restore(daoSession.getDatabase());
         }
+        return currentViewPager;
     }
 
-    public void removeFeedById(final long feedId) {
-        daoSession.runInTx(() -> {
-            daoSession.getFeedDao().deleteByKey(feedId);
+    /**
+     * Forgets the pager of the current view like a restart of the process does
+     */
+    @VisibleForTesting
+    static void forgetCurrentViewPager() {
+        synchronized (CURRENT_VIEW_LOCK) {
+            currentViewPager = null;
+        }
+    }
 
-            List<RssItem> list = daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.FeedId.eq(feedId)).list();
-            for (RssItem rssItem : list) {
-                daoSession.getRssItemDao().delete(rssItem);
+    /**
+     * Makes sure that the first {@code itemCount} items of the current view are available in
+     * CURRENT_RSS_ITEM_VIEW.
+     */
+    private void loadCurrentRssItemView(final int itemCount) {
+        synchronized (CURRENT_VIEW_LOCK) {
+            final RssItemKeysetPager pager = getCurrentViewPager();
+            if (pager == null || pager.isExhausted() || pager.getLoadedCount() >= itemCount) {
+                return;
             }
-        });
+            daoSession.runInTx(() -> pager.appendPage(daoSession.getDatabase(), itemCount - pager.getLoadedCount()));
+        }
     }
 
-    public void renameFeedById(long feedId, String newTitle) {
-        Feed feed = daoSession.getFeedDao().queryBuilder().where(FeedDao.Properties.Id.eq(feedId)).unique();
-        feed.setFeedTitle(newTitle);
-        daoSession.getFeedDao().update(feed);
-    }
+    /**
+     * Loads all remaining items of the current view (e.g. before paging through all of them in
+     * the detail view)
+     */
+    private void completeCurrentRssItemView() {
+        synchronized (CURRENT_VIEW_LOCK) {
+            final RssItemKeysetPager pager = getCurrentViewPager();
+            if (pager == null || pager.isExhausted()) {
+                return;
+            }
 
-    public SparseArray<String> getUrlsToFavIcons() {
-        SparseArray<String> favIconUrls = new SparseArray<>();
+            StopWatch sw = new StopWatch();
+            sw.start();
 
-        for(Feed feed : getListOfFeeds())
-            favIconUrls.put((int) feed.getId(), feed.getFaviconUrl());
+            daoSession.runInTx(() -> {
+                while (!pager.isExhausted()) {
+                    pager.appendPage(daoSession.getDatabase(), 1000);
+                }
+            });
 
-        return favIconUrls;
+            sw.stop();
+            Log.v(TAG, "Time needed for loading all remaining items: " + sw);
+        }
     }
 
     public long getCurrentRssItemViewCount() {
-        return daoSession.getCurrentRssItemViewDao().count();
-
+        synchronized (CURRENT_VIEW_LOCK) {
+            RssItemKeysetPager pager = getCurrentViewPager();
+            if (pager != null && !pager.isExhausted()) {
+                return pager.getLoadedCount() + pager.getRemainingCount(daoSession.getDatabase());
+            }
+            return daoSession.getCurrentRssItemViewDao().count();
+        }
     }
 
-    public List<RssItem> getCurrentRssItemView(int page) {
-        String where_clause = ", " + CurrentRssItemViewDao.TABLENAME + " C "
-                + " WHERE C." + CurrentRssItemViewDao.Properties.RssItemId.columnName + " = T."
-                + RssItemDao.Properties.Id.columnName
-                + " AND C._id > " + page * PageSize + " AND c._id <= " + ((page+1) * PageSize)
-                + " ORDER BY C." + CurrentRssItemViewDao.Properties.Id.columnName;
-
-        return daoSession.getRssItemDao().queryRaw(where_clause);
+    /**
+     * Loads one page of the current rss view without hydrating the complete body of the items
+     * (bodies can be huge and would otherwise end up in memory / the cursor window for every item
+     * of the list).
+     *
+     * @param includeBody true if the whole body of the items is needed (only the precalculated
+     *                    excerpt is loaded otherwise)
+     */
+    public List<RssItemListEntry> getCurrentRssItemView(int page, boolean includeBody) {
+        flushPendingItemStates();
+        loadCurrentRssItemView((page + 1) * PageSize);
+
+        String bodyColumn = includeBody ? "T." + RssItemDao.Properties.Body.columnName : "NULL";
+
+        String sql = "SELECT T." + RssItemDao.Properties.Id.columnName +
+                ", T." + RssItemDao.Properties.FeedId.columnName +
+                ", T." + RssItemDao.Properties.Link.columnName +
+                ", T." + RssItemDao.Properties.Title.columnName +
+                ", " + bodyColumn +
+                ", T." + RssItemDao.Properties.Excerpt.columnName +
+                ", T." + RssItemDao.Properties.Read_temp.columnName +
+                ", T." + RssItemDao.Properties.Starred_temp.columnName +
+                ", T." + RssItemDao.Properties.PubDate.columnName +
+                ", T." + RssItemDao.Properties.Fingerprint.columnName +
+                ", T." + RssItemDao.Properties.EnclosureLink.columnName +
+                ", T." + RssItemDao.Properties.EnclosureMime.columnName +
+                ", T." + RssItemDao.Properties.MediaThumbnail.columnName +
+                ", T." + RssItemDao.Properties.MediaDescription.columnName +
+                " FROM " + RssItemDao.TABLENAME + " T, " + CurrentRssItemViewDao.TABLENAME + " C" +
+                " WHERE C." + CurrentRssItemViewDao.Properties.RssItemId.columnName + " = T." + RssItemDao.Properties.Id.columnName +
+                " AND C." + CurrentRssItemViewDao.Properties.Id.columnName + " > ?" +
+                " AND C." + CurrentRssItemViewDao.Properties.Id.columnName + " <= ?" +
+                " ORDER BY C." + CurrentRssItemViewDao.Properties.Id.columnName;
+        String[] args = new String[] { String.valueOf(page * PageSize), String.valueOf((page + 1) * PageSize) };
+
+        List<RssItemListEntry> result = new ArrayList<>(PageSize);
+        Map<Long, Feed> feeds = new HashMap<>();
+        try (Cursor cursor = daoSession.getDatabase().rawQuery(sql, args)) {
+            while (cursor.moveToNext()) {
+                long feedId = cursor.getLong(1);
+                Feed feed = feeds.computeIfAbsent(feedId, id -> daoSession.getFeedDao().load(id));
+
+                result.add(new RssItemListEntry(
+                        cursor.getLong(0), // id
+                        feedId,
+                        feed,
+                        cursor.getString(2), // link
+                        cursor.getString(3), // title
+                        cursor.getString(4), // body
+                        cursor.getString(5), // excerpt
+                        !cursor.isNull(6) && cursor.getShort(6) != 0, // read_temp
+                        !cursor.isNull(7) && cursor.getShort(7) != 0, // starred_temp
+                        cursor.isNull(8) ? null : new Date(cursor.getLong(8)), // pubDate
+                        cursor.getString(9), // fingerprint
+                        cursor.getString(10), // enclosureLink
+                        cursor.getString(11), // enclosureMime
+                        cursor.getString(12), // mediaThumbnail
+                        cursor.getString(13) // mediaDescription
+                ));
+            }
+        }
+        return result;
     }
 
+    /**
+     * @return all items of the current view - loads the pages which haven't been loaded yet, so
+     * call it in the background (see {@link #getLoadedRssItems()})
+     */
     public LazyList<RssItem> getAllRssItems() {
+        flushPendingItemStates();
+        completeCurrentRssItemView();
+        return getLoadedRssItems();
+    }
+
+    /**
+     * @return the items of the current view which have been loaded so far (at least the pages
+     * shown in the list) - fast enough for the main thread. The queued item states aren't
+     * written, so call {@link #flushPendingItemStates()} in the background first (the list
+     * does before it starts the detail view).
+     */
+    public LazyList<RssItem> getLoadedRssItems() {
         String where_clause = ", " + CurrentRssItemViewDao.TABLENAME + " C "
                 + " WHERE C." + CurrentRssItemViewDao.Properties.RssItemId.columnName + " = T."
                 + RssItemDao.Properties.Id.columnName
@@ -523,15 +927,29 @@ public class DatabaseConnectionOrm {
     */
 
     public static PodcastItem ParsePodcastItemFromRssItem(Context context, RssItem rssItem) {
+        return ParsePodcastItem(context, rssItem.getId(), rssItem.getTitle(), rssItem.getEnclosureLink(),
+                rssItem.getEnclosureMime(), rssItem.getFingerprint(), rssItem.getFeed());
+    }
+
+    /**
+     * Same as {@link #ParsePodcastItemFromRssItem(Context, RssItem)} for the entries of the list of
+     * articles (which contain all fields required for the podcast)
+     */
+    public static PodcastItem ParsePodcastItemFromRssItem(Context context, RssItemListEntry rssItem) {
+        return ParsePodcastItem(context, rssItem.getId(), rssItem.getTitle(), rssItem.getEnclosureLink(),
+                rssItem.getEnclosureMime(), rssItem.getFingerprint(), rssItem.getFeed());
+    }
+
+    private static PodcastItem ParsePodcastItem(Context context, long itemId, String title, String enclosureLink,
+                                                String enclosureMime, String fingerprint, Feed feed) {
         PodcastItem podcastItem = new PodcastItem();
-        Feed feed = rssItem.getFeed();
         podcastItem.author = feed.getFeedTitle();// rssItem.getAuthor();
-        podcastItem.itemId = rssItem.getId();
-        podcastItem.title = rssItem.getTitle();
-        podcastItem.link = rssItem.getEnclosureLink();
-        podcastItem.mimeType = rssItem.getEnclosureMime();
+        podcastItem.itemId = itemId;
+        podcastItem.title = title;
+        podcastItem.link = enclosureLink;
+        podcastItem.mimeType = enclosureMime;
         podcastItem.favIcon = feed.getFaviconUrl();
-        podcastItem.fingerprint = rssItem.getFingerprint();
+        podcastItem.fingerprint = fingerprint;
 
         if("image/jpeg".equals(podcastItem.mimeType)) {
             // We don't want to accidentally think that enclosed images are podcasts
@@ -548,47 +966,30 @@ public class DatabaseConnectionOrm {
     }
 
 
-    public String getAllItemsIdsForFeedSQL(long idFeed, boolean onlyUnread, boolean onlyStarredItems, SORT_DIRECTION sortDirection) {
-
-        String buildSQL =  "SELECT " + RssItemDao.Properties.Id.columnName +
-                " FROM " + RssItemDao.TABLENAME +
-                " WHERE " + RssItemDao.Properties.FeedId.columnName + " = " + idFeed;
+    /**
+     * @return WHERE clause on RSS_ITEM selecting the items of the feed
+     */
+    public String getAllItemsConditionForFeed(long idFeed, boolean onlyUnread, boolean onlyStarredItems) {
+        String condition = RssItemDao.Properties.FeedId.columnName + " = " + idFeed;
 
         if(onlyUnread && !onlyStarredItems)
-            buildSQL += " AND " + RssItemDao.Properties.Read_temp.columnName + " != 1";
+            condition += " AND " + DatabaseHelperOrm.CONDITION_UNREAD;
         else if(onlyStarredItems)
-            buildSQL += " AND " + RssItemDao.Properties.Starred_temp.columnName + " = 1";
-
-        buildSQL += " ORDER BY " + RssItemDao.Properties.PubDate.columnName + " " + sortDirection.toString();
-
-        return buildSQL;
-    }
+            condition += " AND " + DatabaseHelperOrm.CONDITION_STARRED;
 
-    public String getAllItemsIdsForFeedSQLFilteredByTitle(final long feedId, boolean onlyUnread, boolean onlyStarredItems, SORT_DIRECTION sortDirection, final String searchString) {
-        String buildSQL = getAllItemsIdsForFeedSQL(feedId, onlyUnread, onlyStarredItems, sortDirection);
-
-        return new StringBuilder(
-                buildSQL).insert(buildSQL.indexOf("ORDER"), " AND " + getSearchSQLForColumn(RssItemDao.Properties.Title.columnName, searchString)).toString();
-    }
-
-    public String getAllItemsIdsForFeedSQLFilteredByBodySQL(final long feedId, boolean onlyUnread, boolean onlyStarredItems, SORT_DIRECTION sortDirection, final String searchString) {
-        String buildSQL = getAllItemsIdsForFeedSQL(feedId, onlyUnread, onlyStarredItems, sortDirection);
-
-        return new StringBuilder(
-                buildSQL).insert(buildSQL.indexOf("ORDER"), " AND " + getSearchSQLForColumn(RssItemDao.Properties.Body.columnName, searchString)).toString();
+        return condition;
     }
 
-    public String getAllItemsIdsForFeedSQLFilteredByTitleAndBodySQL(final long feedId, boolean onlyUnread, boolean onlyStarredItems, SORT_DIRECTION sortDirection, final String searchString) {
-        String buildSQL = getAllItemsIdsForFeedSQL(feedId, onlyUnread, onlyStarredItems, sortDirection);
-        String titleQuery = getSearchSQLForColumn(RssItemDao.Properties.Title.columnName, searchString);
-        String bodyQuery = getSearchSQLForColumn(RssItemDao.Properties.Body.columnName, searchString);
-
-        return new StringBuilder(
-                buildSQL).insert(buildSQL.indexOf("ORDER"), " AND (" + titleQuery + " OR " + bodyQuery + ")" ).toString();
-    }
-
-    private String getSearchSQLForColumn(String column, String searchString) {
-        return column + " LIKE \"%" + searchString + "%\"";
+    /**
+     * @param searchColumn see {@link RssItemSearchIndex#getMatchCondition(String)}
+     * @return statement with two bind parameters (the query of {@link RssItemSearchIndex#getMatchQuery(String)})
+     */
+    public String getAllItemsIdsForFeedSQLSearch(final long feedId, SORT_DIRECTION sortDirection, String searchColumn) {
+        return "SELECT " + RssItemDao.Properties.Id.columnName +
+                " FROM " + RssItemDao.TABLENAME +
+                " WHERE " + RssItemDao.Properties.FeedId.columnName + " = " + feedId +
+                " AND " + RssItemSearchIndex.getMatchCondition(searchColumn) +
+                " ORDER BY " + RssItemSearchIndex.getRankOrder() + ", " + RssItemDao.Properties.PubDate.columnName + " " + sortDirection.toString();
     }
 
     public Long getLowestItemIdByFolder(Long id_folder) {
@@ -602,37 +1003,41 @@ public class DatabaseConnectionOrm {
     }
 
 
-    public String getAllItemsIdsForFolderSQL(long ID_FOLDER, boolean onlyUnread, SORT_DIRECTION sortDirection, Context context) {
-        String buildSQL = "SELECT " + RssItemDao.Properties.Id.columnName +
-                " FROM " + RssItemDao.TABLENAME;
+    /**
+     * @return WHERE clause on RSS_ITEM selecting the items of the folder (or special folder)
+     */
+    public String getAllItemsConditionForFolder(long ID_FOLDER, boolean onlyUnread, Context context) {
+        String condition = "";
 
         if(!(ID_FOLDER == ALL_UNREAD_ITEMS.getValue() || ID_FOLDER == ALL_STARRED_ITEMS.getValue() || ID_FOLDER == ALL_DOWNLOADED_PODCASTS.getValue()) || ID_FOLDER == ALL_ITEMS.getValue())//Wenn nicht Alle Artikel ausgewaehlt wurde (-10) oder (-11) fuer Starred Feeds
         {
-            buildSQL += " WHERE " + RssItemDao.Properties.FeedId.columnName + " IN " +
+            condition = RssItemDao.Properties.FeedId.columnName + " IN " +
                     "(SELECT sc." + FeedDao.Properties.Id.columnName +
                     " FROM " + FeedDao.TABLENAME + " sc " +
                     " JOIN " + FolderDao.TABLENAME + " f ON sc." + FeedDao.Properties.FolderId.columnName + " = f." + FolderDao.Properties.Id.columnName +
                     " WHERE f." + FolderDao.Properties.Id.columnName + " = " + ID_FOLDER + ")";
 
             if(onlyUnread)
-                buildSQL += " AND " + RssItemDao.Properties.Read_temp.columnName + " != 1";
+                condition += " AND " + DatabaseHelperOrm.CONDITION_UNREAD;
         }
         else if(ID_FOLDER == ALL_UNREAD_ITEMS.getValue())
-            buildSQL += " WHERE " + RssItemDao.Properties.Read_temp.columnName + " != 1";
+            condition = DatabaseHelperOrm.CONDITION_UNREAD;
         else if(ID_FOLDER == ALL_STARRED_ITEMS.getValue())
-            buildSQL += " WHERE " + RssItemDao.Properties.Starred_temp.columnName + " = 1";
+            condition = DatabaseHelperOrm.CONDITION_STARRED;
         else if (ID_FOLDER == ALL_DOWNLOADED_PODCASTS.getValue()) {
             var ids = NewsFileUtils.getDownloadedPodcastsFingerprints(context);
             var files = Arrays.stream(ids).map((f) -> "\"" + f + "\"").collect(Collectors.toList());
-            buildSQL += " WHERE " + RssItemDao.Properties.Fingerprint.columnName + " in (" + String.join(",", files) + ")";
+            condition = RssItemDao.Properties.Fingerprint.columnName + " in (" + String.join(",", files) + ")";
         }
 
-        buildSQL += " ORDER BY " + RssItemDao.Properties.PubDate.columnName + " " + sortDirection.toString();
-
-        return buildSQL;
+        return condition;
     }
 
-    public String getAllItemsIdsForFolderSQLSearch(long ID_FOLDER, SORT_DIRECTION sortDirection, List<String> columns, String searchString) {
+    /**
+     * @param searchColumn see {@link RssItemSearchIndex#getMatchCondition(String)}
+     * @return statement with two bind parameters (the query of {@link RssItemSearchIndex#getMatchQuery(String)})
+     */
+    public String getAllItemsIdsForFolderSQLSearch(long ID_FOLDER, SORT_DIRECTION sortDirection, String searchColumn) {
         String buildSQL = "SELECT " + RssItemDao.Properties.Id.columnName +
                 " FROM " + RssItemDao.TABLENAME;
 
@@ -647,15 +1052,18 @@ public class DatabaseConnectionOrm {
             buildSQL += " WHERE ";
         }
 
-        columns = columns.stream().map(c -> c + " LIKE \"%" + searchString + "%\"").collect(Collectors.toList());
-        buildSQL += String.join(" OR ", columns);
+        buildSQL += RssItemSearchIndex.getMatchCondition(searchColumn);
 
-        buildSQL += " ORDER BY " + RssItemDao.Properties.PubDate.columnName + " " + sortDirection.toString();
+        buildSQL += " ORDER BY " + RssItemSearchIndex.getRankOrder() + ", " + RssItemDao.Properties.PubDate.columnName + " " + sortDirection.toString();
 
         return buildSQL;
     }
 
     public void insertIntoRssCurrentViewTable(String SQL_SELECT) {
+        insertIntoRssCurrentViewTable(SQL_SELECT, new Object[0]);
+    }
+
+    public void insertIntoRssCurrentViewTable(String SQL_SELECT, final Object[] bindArgs) {
         StopWatch sw = new StopWatch();
         sw.start();
 
@@ -664,26 +1072,28 @@ public class DatabaseConnectionOrm {
 
         final String SQL_INSERT_STATEMENT = SQL_SELECT;
 
-        daoSession.runInTx(new Runnable() {
-            @Override
-            public void run() {
-                daoSession.getCurrentRssItemViewDao().deleteAll();
-                daoSession.getDatabase().execSQL(SQL_INSERT_STATEMENT);
-            }
-        });
+        synchronized (CURRENT_VIEW_LOCK) {
+            daoSession.runInTx(new Runnable() {
+                @Override
+                public void run() {
+                    daoSession.getCurrentRssItemViewDao().deleteAll();
+                    RssItemKeysetPager.clear(daoSession.getDatabase());
+                    daoSession.getDatabase().execSQL(SQL_INSERT_STATEMENT, bindArgs);
+                }
+            });
+            currentViewPager = null;
+        }
 
         sw.stop();
         Log.v(TAG, "Time needed for insert: " + sw);
     }
 
     public String getUnreadItemsCountForSpecificFolder(SPECIAL_FOLDERS specialFolder) {
-        String buildSQL = "SELECT COUNT(1)" +
-                " FROM " + RssItemDao.TABLENAME + " rss ";
-
+        String buildSQL;
         if(specialFolder != null && specialFolder.equals(SPECIAL_FOLDERS.ALL_STARRED_ITEMS)) {
-            buildSQL += " WHERE " + RssItemDao.Properties.Starred_temp.columnName + " = 1 ";
+            buildSQL = getRssItemCountSQL(DatabaseHelperOrm.CONDITION_STARRED);
         } else {
-            buildSQL += " WHERE " + RssItemDao.Properties.Read_temp.columnName + " != 1 ";
+            buildSQL = getRssItemCountSQL(DatabaseHelperOrm.CONDITION_UNREAD);
         }
 
         SparseArray<String> values = getStringSparseArrayFromSQL(buildSQL, 0, 0);
@@ -691,65 +1101,68 @@ public class DatabaseConnectionOrm {
     }
 
     /**
+     * Reads the materialized counts of all feeds (see {@link FeedItemCounts}) - the sums of the
+     * folders and special folders are calculated from them.
      *
      * @return [0] = unread items count for folders, [1] = unread items count for feeds
      */
     public SparseArray<String>[] getUnreadItemCountFeedFolder() {
         SparseArray<String>[] values = new SparseArray[2];
 
-        String buildSQL = "SELECT f." + FolderDao.Properties.Id.columnName + ", feed." + FeedDao.Properties.Id.columnName + ", COUNT(1)" +
-                " FROM " + RssItemDao.TABLENAME + " rss " +
-                " JOIN " + FeedDao.TABLENAME + " feed ON rss." + RssItemDao.Properties.FeedId.columnName + " = feed." + FeedDao.Properties.Id.columnName +
-                " LEFT OUTER JOIN " + FolderDao.TABLENAME + " f ON feed." + FeedDao.Properties.FolderId.columnName + " = f." + FolderDao.Properties.Id.columnName +
-                " WHERE " + RssItemDao.Properties.Read_temp.columnName + " != 1 " +
-                " GROUP BY f." + FolderDao.Properties.Id.columnName + ", feed." + FeedDao.Properties.Id.columnName;
-                //" GROUP BY (case when f." + FolderDao.Properties.Id.columnName + " IS NULL then feed." + FeedDao.Properties.Id.columnName + " ELSE f." + FolderDao.Properties.Id.columnName + " end)";
+        String buildSQL = getUnreadItemCountFeedFolderSQL();
 
         values[0] = new SparseArray<>();
         values[1] = new SparseArray<>();
 
         int totalUnreadItemsCount = 0;
+        int totalStarredItemsCount = 0;
 
         try (Cursor cursor = daoSession.getDatabase().rawQuery(buildSQL, null)) {
-            if (cursor != null) {
-                if (cursor.getCount() > 0) {
-                    cursor.moveToFirst();
-                    do {
-                        int folderId = cursor.getInt(0);
-                        int feedId = cursor.getInt(1);
-                        int unreadCount = cursor.getInt(2);
+            while (cursor.moveToNext()) {
+                int folderId = cursor.getInt(0);
+                int feedId = cursor.getInt(1);
+                int unreadCount = cursor.getInt(2);
+
+                totalStarredItemsCount += cursor.getInt(3);
+                if (unreadCount == 0) {
+                    continue;
+                }
 
-                        totalUnreadItemsCount += unreadCount;
+                totalUnreadItemsCount += unreadCount;
 
-                        values[1].put(feedId, String.valueOf(unreadCount));
-                        if (folderId != 0) {
-                            if (values[0].get(folderId) != null) {
-                                unreadCount += Integer.parseInt(values[0].get(folderId));
-                            }
+                values[1].put(feedId, String.valueOf(unreadCount));
+                if (folderId != 0) {
+                    if (values[0].get(folderId) != null) {
+                        unreadCount += Integer.parseInt(values[0].get(folderId));
+                    }
 
-                            values[0].put(folderId, String.valueOf(unreadCount));
-                        }
-                    } while (cursor.moveToNext());
+                    values[0].put(folderId, String.valueOf(unreadCount));
                 }
             }
         }
 
-
         values[0].put(SPECIAL_FOLDERS.ALL_UNREAD_ITEMS.getValue(), String.valueOf(totalUnreadItemsCount));
-        values[0].put(SPECIAL_FOLDERS.ALL_STARRED_ITEMS.getValue(), getUnreadItemsCountForSpecificFolder(SPECIAL_FOLDERS.ALL_STARRED_ITEMS));
-
+        values[0].put(SPECIAL_FOLDERS.ALL_STARRED_ITEMS.getValue(), String.valueOf(totalStarredItemsCount));
 
         return values;
+    }
 
+    static String getUnreadItemCountFeedFolderSQL() {
+        return "SELECT f." + FolderDao.Properties.Id.columnName + ", feed." + FeedDao.Properties.Id.columnName +
+                ", c." + FeedItemCounts.COLUMN_UNREAD + ", c." + FeedItemCounts.COLUMN_STARRED +
+                " FROM " + FeedItemCounts.TABLENAME + " c " +
+                " JOIN " + FeedDao.TABLENAME + " feed ON c." + FeedItemCounts.COLUMN_FEED_ID + " = feed." + FeedDao.Properties.Id.columnName +
+                " LEFT OUTER JOIN " + FolderDao.TABLENAME + " f ON feed." + FeedDao.Properties.FolderId.columnName + " = f." + FolderDao.Properties.Id.columnName;
     }
 
     public SparseArray<String> getStarredItemCount() {
-        String buildSQL = "SELECT " + RssItemDao.Properties.FeedId.columnName + ", COUNT(1)" + // rowid as _id,
-                " FROM " + RssItemDao.TABLENAME +
-                " WHERE " + RssItemDao.Properties.Starred_temp.columnName + " = 1 " +
-                " GROUP BY " + RssItemDao.Properties.FeedId.columnName;
+        return getStringSparseArrayFromSQL(getStarredItemCountSQL(), 0, 1);
+    }
 
-        return getStringSparseArrayFromSQL(buildSQL, 0, 1);
+    static String getStarredItemCountSQL() {
+        return "SELECT " + FeedItemCounts.COLUMN_FEED_ID + ", " + FeedItemCounts.COLUMN_STARRED +
+                " FROM " + FeedItemCounts.TABLENAME +
+                " WHERE " + FeedItemCounts.COLUMN_STARRED + " > 0";
     }
 
     public int getDownloadedPodcastsCount(Context context) {
@@ -763,7 +1176,10 @@ public class DatabaseConnectionOrm {
         return (int) getLongValueBySQL(buildSQL);
     }
 
-    public void clearDatabaseOverSize()
+    /**
+     * @return amount of deleted items
+     */
+    public int clearDatabaseOverSize()
     {
         //If i have 9023 rows in the database, when i run that query it should delete 8023 rows and leave me with 1000
         //database.execSQL("DELETE FROM " + RSS_ITEM_TABLE + " WHERE " +  + "ORDER BY rowid DESC LIMIT 1000 *
@@ -774,7 +1190,7 @@ public class DatabaseConnectionOrm {
 
         int max = Constants.maxItemsCount;
         int total = (int) getLongValueBySQL("SELECT COUNT(*) FROM " + RssItemDao.TABLENAME);
-        int unread = (int) getLongValueBySQL("SELECT COUNT(*) FROM " + RssItemDao.TABLENAME + " WHERE " + RssItemDao.Properties.Read_temp.columnName + " != 1");
+        int unread = (int) getLongValueBySQL(getRssItemCountSQL(DatabaseHelperOrm.CONDITION_UNREAD));
         int read = total - unread;
 
         if(total > max)
@@ -795,20 +1211,28 @@ public class DatabaseConnectionOrm {
                                     " AND " + RssItemDao.Properties.Fingerprint.columnName + " NOT IN (" + String.join(",", files) + ")" + // This means that the article has downloaded podcast media
                                     " AND " + RssItemDao.Properties.Id.columnName + " NOT IN (SELECT " + CurrentRssItemViewDao.Properties.RssItemId.columnName + " FROM " + CurrentRssItemViewDao.TABLENAME + ")" +
                                     " ORDER BY " + RssItemDao.Properties.Id.columnName + " asc LIMIT " + overSize + ")";
-            daoSession.getDatabase().execSQL(sqlStatement);
+            try (SQLiteStatement stmt = daoSession.getDatabase().compileStatement(sqlStatement)) {
+                return stmt.executeUpdateDelete();
+            }
     		/* SELECT * FROM rss_item WHERE read_temp = 1 ORDER BY rowid asc LIMIT 3; */
         } else {
             Log.v(TAG, "Clearing Database oversize not necessary");
+            return 0;
         }
     }
 
     public long getLastModified()
     {
-        List<RssItem> rssItemList = daoSession.getRssItemDao().queryBuilder().orderDesc(RssItemDao.Properties.LastModified).limit(1).list();
+        // MAX() is answered by the index on LAST_MODIFIED (without loading the whole item)
+        return Math.max(getLongValueBySQL(getLastModifiedSQL()), 0);
+    }
 
-        if(rssItemList.size() > 0)
-            return rssItemList.get(0).getLastModified().getTime();
-        return 0;
+    static String getLastModifiedSQL() {
+        return "SELECT MAX(" + RssItemDao.Properties.LastModified.columnName + ") FROM " + RssItemDao.TABLENAME;
+    }
+
+    static String getRssItemCountSQL(String condition) {
+        return "SELECT COUNT(1) FROM " + RssItemDao.TABLENAME + " WHERE " + condition;
     }
 
     public long getLowestItemId(boolean onlyStarred)
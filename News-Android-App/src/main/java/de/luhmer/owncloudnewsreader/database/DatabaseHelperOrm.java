@@ -23,28 +23,125 @@ package de.luhmer.owncloudnewsreader.database;
 
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
 
 import de.luhmer.owncloudnewsreader.database.model.DaoMaster;
 import de.luhmer.owncloudnewsreader.database.model.DaoSession;
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
 
 public class DatabaseHelperOrm {
+    private static final String TAG = DatabaseHelperOrm.class.getCanonicalName();
+
     private volatile static DaoSession daoSession;
+    private volatile static RssItemStateWriter stateWriter;
+
+    /*
+     * Conditions of the partial indexes on RSS_ITEM. SQLite only uses a partial index if the
+     * WHERE clause of the query contains the exact same term (e.g. "READ_TEMP = 0" won't use
+     * the unread index) - so always use these constants when building queries.
+     */
+    public static final String CONDITION_UNREAD = RssItemDao.Properties.Read_temp.columnName + " != 1";
+    public static final String CONDITION_STARRED = RssItemDao.Properties.Starred_temp.columnName + " = 1";
+    public static final String CONDITION_READ_CHANGED = RssItemDao.Properties.Read_temp.columnName + " != " + RssItemDao.Properties.Read.columnName;
+    public static final String CONDITION_STARRED_CHANGED = RssItemDao.Properties.Starred_temp.columnName + " != " + RssItemDao.Properties.Starred.columnName;
 
     public static DaoSession getDaoSession(Context context, String DATABASE_NAME_ORM) {
         if(daoSession == null) {
             synchronized (DatabaseHelperOrm.class) {
                 if(daoSession == null) {
-                    // As we are in development we will use the DevOpenHelper which drops the database on a schema update
-                    DaoMaster.DevOpenHelper helper = new DaoMaster.DevOpenHelper(context, DATABASE_NAME_ORM, null);
+                    OpenHelper helper = new OpenHelper(context, DATABASE_NAME_ORM);
                     // Access the database using the helper
                     SQLiteDatabase db = helper.getWritableDatabase();
                     // Construct the DaoMaster which brokers DAOs for the Domain Objects
                     DaoMaster daoMaster = new DaoMaster(db);
                     // Create the session which is a container for the DAO layer and has a cache which will return handles to the same object across multiple queries
-                    daoSession = daoMaster.newSession();
+                    DaoSession session = daoMaster.newSession();
+                    stateWriter = new RssItemStateWriter(session);
+                    daoSession = session;
                 }
             }
         }
         return daoSession;
     }
+
+    /**
+     * @return the writer of the item states of the session returned by {@link #getDaoSession(Context, String)}
+     */
+    static RssItemStateWriter getStateWriter(Context context, String DATABASE_NAME_ORM) {
+        getDaoSession(context, DATABASE_NAME_ORM);
+        return stateWriter;
+    }
+
+    /**
+     * Upgrades the schema using {@link DatabaseMigrations} (DaoMaster.DevOpenHelper drops all
+     * tables which forces a complete resync). Only databases which are too old to be migrated
+     * are dropped and created again.
+     */
+    static class OpenHelper extends DaoMaster.OpenHelper {
+
+        OpenHelper(Context context, String name) {
+            super(context, name, null);
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            if (DatabaseMigrations.canMigrate(oldVersion, newVersion)) {
+                Log.i(TAG, "Migrating schema from version " + oldVersion + " to " + newVersion);
+                DatabaseMigrations.migrate(db, oldVersion, newVersion);
+            } else {
+                Log.i(TAG, "Upgrading schema from version " + oldVersion + " to " + newVersion + " by dropping all tables");
+                DaoMaster.dropAllTables(db, true);
+                RssItemSearchIndex.drop(db);
+                FeedItemCounts.drop(db);
+                RssItemKeysetPager.drop(db);
+                PendingItemBodies.drop(db);
+                SyncCheckpoint.drop(db);
+                ResponseValidators.drop(db);
+                RssItemImages.drop(db);
+                onCreate(db);
+            }
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            Log.i(TAG, "Creating tables for schema version " + DaoMaster.SCHEMA_VERSION);
+            createSchema(db);
+        }
+    }
+
+    /**
+     * Creates all tables and indexes of the current schema version (including the ones which
+     * can't be generated by greenDAO)
+     */
+    public static void createSchema(SQLiteDatabase db) {
+        DaoMaster.createAllTables(db, false);
+        createPartialIndexes(db);
+        RssItemSearchIndex.create(db);
+        FeedItemCounts.create(db);
+        RssItemKeysetPager.create(db);
+        PendingItemBodies.create(db);
+        SyncCheckpoint.create(db);
+        ResponseValidators.create(db);
+        RssItemImages.create(db);
+    }
+
+    /**
+     * Creates the partial indexes on RSS_ITEM (greenDAO can't generate them). The indexes of
+     * unread / starred items only contain a fraction of all items, the indexes of changed items
+     * are (almost) empty except between a change and the next sync.
+     */
+    public static void createPartialIndexes(SQLiteDatabase db) {
+        String feedId = RssItemDao.Properties.FeedId.columnName;
+        String pubDate = RssItemDao.Properties.PubDate.columnName;
+
+        createPartialIndex(db, "IDX_RSS_ITEM_UNREAD_PUB_DATE", pubDate, CONDITION_UNREAD);
+        createPartialIndex(db, "IDX_RSS_ITEM_UNREAD_FEED_ID_PUB_DATE", feedId + ", " + pubDate, CONDITION_UNREAD);
+        createPartialIndex(db, "IDX_RSS_ITEM_STARRED_FEED_ID_PUB_DATE", feedId + ", " + pubDate, CONDITION_STARRED);
+        createPartialIndex(db, "IDX_RSS_ITEM_READ_CHANGED", RssItemDao.Properties.Read_temp.columnName, CONDITION_READ_CHANGED);
+        createPartialIndex(db, "IDX_RSS_ITEM_STARRED_CHANGED", RssItemDao.Properties.Starred_temp.columnName, CONDITION_STARRED_CHANGED);
+    }
+
+    private static void createPartialIndex(SQLiteDatabase db, String name, String columns, String condition) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + name + " ON " + RssItemDao.TABLENAME + " (" + columns + ") WHERE " + condition);
+    }
 }
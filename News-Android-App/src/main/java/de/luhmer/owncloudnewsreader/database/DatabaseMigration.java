@@ -0,0 +1,21 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * A single incremental schema migration step (see {@link DatabaseMigrations}).
+ */
+public interface DatabaseMigration {
+
+    /**
+     * @return the schema version of the database after this migration has been applied
+     * (the migration is applied to databases of version getTargetVersion() - 1)
+     */
+    int getTargetVersion();
+
+    /**
+     * Migrates the database. Runs inside the transaction of
+     * {@link android.database.sqlite.SQLiteOpenHelper#onUpgrade(SQLiteDatabase, int, int)}.
+     */
+    void migrate(SQLiteDatabase db);
+}
@@ -0,0 +1,266 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
+
+/**
+ * Incremental migrations of the database schema. Every schema change (see
+ * {@link de.luhmer.owncloudnewsreader.database.generator.LastestVersion}) needs a migration step
+ * here - otherwise all tables are dropped on upgrade and all articles have to be downloaded again.
+ * The generator refuses to generate a schema version without migration
+ * (see {@link de.luhmer.owncloudnewsreader.database.generator.DatabaseOrmGenerator}).
+ * <p>
+ * The migrations run in onUpgrade - they only change the schema (plain SQL). Values which need
+ * to be calculated from the bodies are filled in the background: the items are marked as
+ * pending (see {@link PendingItemBodies}) and processed by the ItemBodyProcessor.
+ */
+public class DatabaseMigrations {
+
+    private static final String TAG = DatabaseMigrations.class.getCanonicalName();
+
+    // Oldest schema version which can be migrated. Older databases are dropped and created again
+    public static final int MIN_MIGRATABLE_VERSION = 10;
+
+    private static final List<DatabaseMigration> MIGRATIONS;
+
+    static {
+        List<DatabaseMigration> migrations = new ArrayList<>();
+        migrations.add(new AddExcerptMigration());
+        migrations.add(new AddRssItemIndexesMigration());
+        migrations.add(new AddSearchIndexMigration());
+        migrations.add(new AddFeedItemCountsMigration());
+        migrations.add(new AddCurrentViewPagerMigration());
+        migrations.add(new AddPendingItemBodiesMigration());
+        migrations.add(new AddSyncCheckpointMigration());
+        migrations.add(new AddResponseValidatorsMigration());
+        migrations.add(new AddRssItemImagesMigration());
+        MIGRATIONS = Collections.unmodifiableList(migrations);
+    }
+
+    private DatabaseMigrations() {
+    }
+
+    public static List<DatabaseMigration> getMigrations() {
+        return MIGRATIONS;
+    }
+
+    /**
+     * @return schema version of the database after all migrations have been applied
+     */
+    public static int getLatestVersion() {
+        return MIN_MIGRATABLE_VERSION + MIGRATIONS.size();
+    }
+
+    public static boolean canMigrate(int oldVersion, int newVersion) {
+        return oldVersion >= MIN_MIGRATABLE_VERSION && oldVersion <= newVersion && newVersion <= getLatestVersion();
+    }
+
+    /**
+     * Applies all migrations needed to upgrade the database from oldVersion to newVersion.
+     *
+     * @throws IllegalArgumentException if there is no migration path (see {@link #canMigrate(int, int)})
+     */
+    public static void migrate(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (!canMigrate(oldVersion, newVersion)) {
+            throw new IllegalArgumentException("No migration from schema version " + oldVersion + " to " + newVersion);
+        }
+
+        for (DatabaseMigration migration : MIGRATIONS) {
+            int targetVersion = migration.getTargetVersion();
+            if (targetVersion > oldVersion && targetVersion <= newVersion) {
+                Log.i(TAG, "Migrating schema to version " + targetVersion);
+                migration.migrate(db);
+            }
+        }
+    }
+
+    /**
+     * Marks the bodies of all existing items as pending, so the values calculated from the bodies
+     * are filled after the upgrade. Creates the table of the pending items if it doesn't exist yet
+     * (it has been added in version 16).
+     */
+    private static void markAllItemsAsPending(SQLiteDatabase db) {
+        PendingItemBodies.create(db);
+        db.execSQL("INSERT OR IGNORE INTO " + PendingItemBodies.TABLENAME + " (" + PendingItemBodies.COLUMN_ITEM_ID + ")" +
+                " SELECT " + RssItemDao.Properties.Id.columnName + " FROM " + RssItemDao.TABLENAME);
+    }
+
+    /**
+     * Version 11 - adds the excerpt column (the excerpts of the existing items are calculated
+     * in the background)
+     */
+    static class AddExcerptMigration implements DatabaseMigration {
+
+        @Override
+        public int getTargetVersion() {
+            return 11;
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE " + RssItemDao.TABLENAME + " ADD COLUMN " + RssItemDao.Properties.Excerpt.columnName + " TEXT");
+            markAllItemsAsPending(db);
+        }
+    }
+
+    /**
+     * Version 12 - replaces the index on FEED_ID with the indexes used by the hot queries
+     * (see {@link DatabaseHelperOrm#createPartialIndexes(SQLiteDatabase)})
+     */
+    static class AddRssItemIndexesMigration implements DatabaseMigration {
+
+        @Override
+        public int getTargetVersion() {
+            return 12;
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("DROP INDEX IF EXISTS IDX_RSS_ITEM_FEED_ID");
+            createIndex(db, "IDX_RSS_ITEM_FINGERPRINT", RssItemDao.Properties.Fingerprint.columnName);
+            createIndex(db, "IDX_RSS_ITEM_LAST_MODIFIED", RssItemDao.Properties.LastModified.columnName);
+            createIndex(db, "IDX_RSS_ITEM_FEED_ID_PUB_DATE", RssItemDao.Properties.FeedId.columnName + ", " + RssItemDao.Properties.PubDate.columnName);
+            DatabaseHelperOrm.createPartialIndexes(db);
+        }
+
+        private static void createIndex(SQLiteDatabase db, String name, String columns) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + name + " ON " + RssItemDao.TABLENAME + " (" + columns + ")");
+        }
+    }
+
+    /**
+     * Version 13 - adds the full text search index and indexes the titles of all existing items
+     * (the bodies are indexed in the background)
+     */
+    static class AddSearchIndexMigration implements DatabaseMigration {
+
+        @Override
+        public int getTargetVersion() {
+            return 13;
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            RssItemSearchIndex.create(db);
+            db.execSQL("INSERT OR REPLACE INTO " + RssItemSearchIndex.TABLENAME +
+                    " (docid, " + RssItemSearchIndex.COLUMN_TITLE + ", " + RssItemSearchIndex.COLUMN_BODY + ")" +
+                    " SELECT " + RssItemDao.Properties.Id.columnName + ", IFNULL(" + RssItemDao.Properties.Title.columnName + ", ''), ''" +
+                    " FROM " + RssItemDao.TABLENAME);
+            markAllItemsAsPending(db);
+        }
+    }
+
+    /**
+     * Version 14 - adds the materialized unread / starred counts per feed
+     */
+    static class AddFeedItemCountsMigration implements DatabaseMigration {
+
+        @Override
+        public int getTargetVersion() {
+            return 14;
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            FeedItemCounts.create(db);
+            FeedItemCounts.rebuild(db);
+        }
+    }
+
+    /**
+     * Version 15 - stores the pager of the current list (the list is loaded again when it is
+     * shown the next time)
+     */
+    static class AddCurrentViewPagerMigration implements DatabaseMigration {
+
+        @Override
+        public int getTargetVersion() {
+            return 15;
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            RssItemKeysetPager.create(db);
+        }
+    }
+
+    /**
+     * Version 16 - adds the table of items whose body hasn't been processed yet. Items which are
+     * still missing their excerpt or their search index entry (databases upgraded to version 11 -
+     * 15 before the bodies were processed in the background) are marked as pending.
+     */
+    static class AddPendingItemBodiesMigration implements DatabaseMigration {
+
+        @Override
+        public int getTargetVersion() {
+            return 16;
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            PendingItemBodies.create(db);
+            db.execSQL("INSERT OR IGNORE INTO " + PendingItemBodies.TABLENAME + " (" + PendingItemBodies.COLUMN_ITEM_ID + ")" +
+                    " SELECT " + RssItemDao.Properties.Id.columnName + " FROM " + RssItemDao.TABLENAME +
+                    " WHERE " + RssItemDao.Properties.Excerpt.columnName + " IS NULL" +
+                    " OR " + RssItemDao.Properties.Id.columnName + " NOT IN (SELECT docid FROM " + RssItemSearchIndex.TABLENAME + ")");
+        }
+    }
+
+    /**
+     * Version 17 - adds the checkpoint of the first sync (existing databases have finished it)
+     */
+    static class AddSyncCheckpointMigration implements DatabaseMigration {
+
+        @Override
+        public int getTargetVersion() {
+            return 17;
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            SyncCheckpoint.create(db);
+        }
+    }
+
+    /**
+     * Version 18 - adds the validators of the folder / feed responses (the next sync writes the
+     * folders and feeds once more and stores them)
+     */
+    static class AddResponseValidatorsMigration implements DatabaseMigration {
+
+        @Override
+        public int getTargetVersion() {
+            return 18;
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            ResponseValidators.create(db);
+        }
+    }
+
+    /**
+     * Version 19 - adds the image links of the items (the links of the existing items are
+     * stored in the background)
+     */
+    static class AddRssItemImagesMigration implements DatabaseMigration {
+
+        @Override
+        public int getTargetVersion() {
+            return 19;
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            RssItemImages.create(db);
+            // processing the (already processed) bodies again is a no-op apart from collecting the links
+            markAllItemsAsPending(db);
+        }
+    }
+}
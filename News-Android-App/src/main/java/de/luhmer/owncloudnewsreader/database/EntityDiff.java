@@ -0,0 +1,87 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Difference between the entities stored in the database and the entities received from the
+ * server (matched by id). Unchanged entities are neither part of {@link #getAdded()} nor
+ * {@link #getChanged()}, so they are not written again.
+ */
+public class EntityDiff<T> {
+
+    public interface Merger<T> {
+        /**
+         * Copies the local fields (which are not synced with the server) of the stored entity to
+         * the received one.
+         *
+         * @return true if the synced fields of the entities differ
+         */
+        boolean merge(T stored, T received);
+    }
+
+    private final List<T> added = new ArrayList<>();
+    private final List<T> changed = new ArrayList<>();
+    private final List<Long> removedIds = new ArrayList<>();
+
+    private EntityDiff() {
+    }
+
+    public static <T> EntityDiff<T> empty() {
+        return new EntityDiff<>();
+    }
+
+    /**
+     * Compares both lists in one pass over each list (the stored entities are indexed by id).
+     */
+    public static <T> EntityDiff<T> compute(List<T> stored, List<T> received, ToLongFunction<T> getId, Merger<T> merger) {
+        Map<Long, T> storedById = new HashMap<>(stored.size() * 2);
+        for (T entity : stored) {
+            storedById.put(getId.applyAsLong(entity), entity);
+        }
+
+        EntityDiff<T> diff = new EntityDiff<>();
+        for (T entity : received) {
+            T storedEntity = storedById.remove(getId.applyAsLong(entity));
+            if (storedEntity == null) {
+                diff.added.add(entity);
+            } else if (merger.merge(storedEntity, entity)) {
+                diff.changed.add(entity);
+            }
+        }
+        // all remaining entities don't exist on the server anymore
+        diff.removedIds.addAll(storedById.keySet());
+        return diff;
+    }
+
+    public List<T> getAdded() {
+        return added;
+    }
+
+    public List<T> getChanged() {
+        return changed;
+    }
+
+    public List<Long> getRemovedIds() {
+        return removedIds;
+    }
+
+    public boolean isEmpty() {
+        return getChangeCount() == 0;
+    }
+
+    /**
+     * @return amount of entities which need to be written
+     */
+    public int getChangeCount() {
+        return added.size() + changed.size() + removedIds.size();
+    }
+
+    @Override
+    public String toString() {
+        return "added=" + added.size() + ", changed=" + changed.size() + ", removed=" + removedIds.size();
+    }
+}
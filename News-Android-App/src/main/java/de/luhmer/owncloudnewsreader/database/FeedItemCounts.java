@@ -0,0 +1,108 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import de.luhmer.owncloudnewsreader.database.model.FeedDao;
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
+
+/**
+ * Materialized amount of unread / starred items per feed (used by the navigation drawer).
+ * The counts are kept up to date by triggers on RSS_ITEM - so every insert, update and delete
+ * (greenDAO or plain SQL) changes them in the same transaction.
+ */
+public class FeedItemCounts {
+
+    public static final String TABLENAME = "FEED_ITEM_COUNT";
+    public static final String COLUMN_FEED_ID = "FEED_ID";
+    public static final String COLUMN_UNREAD = "UNREAD_COUNT";
+    public static final String COLUMN_STARRED = "STARRED_COUNT";
+
+    private static final String TRIGGER_INSERT = "FEED_ITEM_COUNT_INSERT";
+    private static final String TRIGGER_REPLACE = "FEED_ITEM_COUNT_REPLACE";
+    private static final String TRIGGER_UPDATE = "FEED_ITEM_COUNT_UPDATE";
+    private static final String TRIGGER_DELETE = "FEED_ITEM_COUNT_DELETE";
+    private static final String TRIGGER_DELETE_FEED = "FEED_ITEM_COUNT_DELETE_FEED";
+
+    private static final String FEED_ID = RssItemDao.Properties.FeedId.columnName;
+    private static final String READ_TEMP = RssItemDao.Properties.Read_temp.columnName;
+    private static final String STARRED_TEMP = RssItemDao.Properties.Starred_temp.columnName;
+
+    private FeedItemCounts() {
+    }
+
+    public static void create(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLENAME + " (" +
+                COLUMN_FEED_ID + " INTEGER PRIMARY KEY NOT NULL, " +
+                COLUMN_UNREAD + " INTEGER NOT NULL, " +
+                COLUMN_STARRED + " INTEGER NOT NULL)");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_INSERT + " AFTER INSERT ON " + RssItemDao.TABLENAME +
+                " BEGIN " + add("new") + " END");
+
+        // INSERT OR REPLACE (greenDAO insertOrReplace) deletes the existing item without firing
+        // the delete trigger - so the counts of the replaced item are removed before the insert
+        String existing = "(SELECT * FROM " + RssItemDao.TABLENAME + " WHERE " + RssItemDao.Properties.Id.columnName + " = new." + RssItemDao.Properties.Id.columnName + ")";
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_REPLACE + " BEFORE INSERT ON " + RssItemDao.TABLENAME +
+                " BEGIN UPDATE " + TABLENAME + " SET " +
+                COLUMN_UNREAD + " = " + COLUMN_UNREAD + " - (SELECT " + isUnread("o") + " FROM " + existing + " o), " +
+                COLUMN_STARRED + " = " + COLUMN_STARRED + " - (SELECT " + isStarred("o") + " FROM " + existing + " o)" +
+                " WHERE " + COLUMN_FEED_ID + " = (SELECT " + FEED_ID + " FROM " + existing + "); END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_UPDATE + " AFTER UPDATE OF " + FEED_ID + ", " + READ_TEMP + ", " + STARRED_TEMP +
+                " ON " + RssItemDao.TABLENAME +
+                " WHEN old." + FEED_ID + " IS NOT new." + FEED_ID +
+                " OR old." + READ_TEMP + " IS NOT new." + READ_TEMP +
+                " OR old." + STARRED_TEMP + " IS NOT new." + STARRED_TEMP +
+                " BEGIN " + remove("old") + " " + add("new") + " END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_DELETE + " AFTER DELETE ON " + RssItemDao.TABLENAME +
+                " BEGIN " + remove("old") + " END");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_DELETE_FEED + " AFTER DELETE ON " + FeedDao.TABLENAME +
+                " BEGIN DELETE FROM " + TABLENAME + " WHERE " + COLUMN_FEED_ID + " = old." + FeedDao.Properties.Id.columnName + "; END");
+    }
+
+    public static void drop(SQLiteDatabase db) {
+        for (String trigger : new String[] { TRIGGER_INSERT, TRIGGER_REPLACE, TRIGGER_UPDATE, TRIGGER_DELETE, TRIGGER_DELETE_FEED }) {
+            db.execSQL("DROP TRIGGER IF EXISTS " + trigger);
+        }
+        db.execSQL("DROP TABLE IF EXISTS " + TABLENAME);
+    }
+
+    /**
+     * Calculates the counts of all feeds from scratch
+     */
+    public static void rebuild(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLENAME);
+        db.execSQL("INSERT INTO " + TABLENAME + " (" + COLUMN_FEED_ID + ", " + COLUMN_UNREAD + ", " + COLUMN_STARRED + ")" +
+                " SELECT " + FEED_ID + ", SUM(" + isUnread(RssItemDao.TABLENAME) + "), SUM(" + isStarred(RssItemDao.TABLENAME) + ")" +
+                " FROM " + RssItemDao.TABLENAME +
+                " GROUP BY " + FEED_ID);
+    }
+
+    private static String add(String row) {
+        // no INSERT OR IGNORE - the conflict resolution of the outer statement (INSERT OR REPLACE) would override it
+        return "INSERT INTO " + TABLENAME + " SELECT " + row + "." + FEED_ID + ", 0, 0" +
+                " WHERE NOT EXISTS (SELECT 1 FROM " + TABLENAME + " WHERE " + COLUMN_FEED_ID + " = " + row + "." + FEED_ID + "); " +
+                "UPDATE " + TABLENAME + " SET " +
+                COLUMN_UNREAD + " = " + COLUMN_UNREAD + " + " + isUnread(row) + ", " +
+                COLUMN_STARRED + " = " + COLUMN_STARRED + " + " + isStarred(row) +
+                " WHERE " + COLUMN_FEED_ID + " = " + row + "." + FEED_ID + ";";
+    }
+
+    private static String remove(String row) {
+        return "UPDATE " + TABLENAME + " SET " +
+                COLUMN_UNREAD + " = " + COLUMN_UNREAD + " - " + isUnread(row) + ", " +
+                COLUMN_STARRED + " = " + COLUMN_STARRED + " - " + isStarred(row) +
+                " WHERE " + COLUMN_FEED_ID + " = " + row + "." + FEED_ID + ";";
+    }
+
+    // same conditions as DatabaseHelperOrm.CONDITION_UNREAD / CONDITION_STARRED (NULL is neither unread nor starred)
+    private static String isUnread(String row) {
+        return "(CASE WHEN " + row + "." + READ_TEMP + " != 1 THEN 1 ELSE 0 END)";
+    }
+
+    private static String isStarred(String row) {
+        return "(CASE WHEN " + row + "." + STARRED_TEMP + " = 1 THEN 1 ELSE 0 END)";
+    }
+}
@@ -0,0 +1,146 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
+
+/**
+ * Items which have been stored with the body as received from the server. The links in the body,
+ * the preview text, the thumbnail and the image links (see {@link RssItemImages}) are calculated
+ * afterwards (see ItemBodyProcessor) - the
+ * table survives the death of the process, so the processing continues where it stopped.
+ * Entries are removed by a trigger when the item is deleted.
+ */
+public class PendingItemBodies {
+
+    public static final String TABLENAME = "RSS_ITEM_PENDING_BODY";
+    public static final String COLUMN_ITEM_ID = "ITEM_ID";
+
+    private static final String TRIGGER_DELETE = "RSS_ITEM_PENDING_BODY_DELETE";
+
+    private static final String ID = RssItemDao.Properties.Id.columnName;
+    private static final String BODY = RssItemDao.Properties.Body.columnName;
+
+    private PendingItemBodies() {
+    }
+
+    public static void create(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLENAME + " (" + COLUMN_ITEM_ID + " INTEGER PRIMARY KEY NOT NULL)");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_DELETE + " AFTER DELETE ON " + RssItemDao.TABLENAME +
+                " BEGIN DELETE FROM " + TABLENAME + " WHERE " + COLUMN_ITEM_ID + " = old." + ID + "; END");
+    }
+
+    public static void drop(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_DELETE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLENAME);
+    }
+
+    /**
+     * Marks the body of the items as pending. Needs to run in the same transaction as the insert
+     * of the items.
+     */
+    static void add(SQLiteDatabase db, Iterable<RssItem> items) {
+        try (SQLiteStatement stmt = db.compileStatement("INSERT OR IGNORE INTO " + TABLENAME + " (" + COLUMN_ITEM_ID + ") VALUES (?)")) {
+            for (RssItem item : items) {
+                stmt.bindLong(1, item.getId());
+                stmt.executeInsert();
+            }
+        }
+    }
+
+    /**
+     * @return up to {@code limit} items with a pending body (newest first - they are shown first in
+     * the list). Only the fields needed for processing the body are loaded.
+     */
+    static List<RssItem> load(SQLiteDatabase db, int limit) {
+        List<RssItem> items = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(getLoadSQL(limit), null)) {
+            while (cursor.moveToNext()) {
+                RssItem item = new RssItem(cursor.getLong(0));
+                item.setTitle(cursor.getString(1));
+                item.setLink(getStringOrEmpty(cursor, 2));
+                item.setBody(getStringOrEmpty(cursor, 3));
+                item.setMediaDescription(getStringOrEmpty(cursor, 4));
+                item.setMediaThumbnail(getStringOrEmpty(cursor, 5));
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    static String getLoadSQL(int limit) {
+        return "SELECT i." + ID +
+                ", i." + RssItemDao.Properties.Title.columnName +
+                ", i." + RssItemDao.Properties.Link.columnName +
+                ", i." + BODY +
+                ", i." + RssItemDao.Properties.MediaDescription.columnName +
+                ", i." + RssItemDao.Properties.MediaThumbnail.columnName +
+                " FROM " + TABLENAME + " p JOIN " + RssItemDao.TABLENAME + " i ON i." + ID + " = p." + COLUMN_ITEM_ID +
+                " ORDER BY p." + COLUMN_ITEM_ID + " DESC" +
+                " LIMIT " + limit;
+    }
+
+    /**
+     * Stores the processed bodies and removes the items from the pending ones. An item is skipped
+     * (and stays pending) if its body has been replaced in the meantime (e.g. by a sync).
+     *
+     * @param rawBodies the bodies as they were loaded (same order as items)
+     * @return amount of updated items
+     */
+    static int update(SQLiteDatabase db, List<RssItem> items, List<String> rawBodies) {
+        int updated = 0;
+        try (SQLiteStatement updateItem = db.compileStatement("UPDATE " + RssItemDao.TABLENAME + " SET " +
+                BODY + " = ?, " +
+                RssItemDao.Properties.Excerpt.columnName + " = ?, " +
+                RssItemDao.Properties.MediaThumbnail.columnName + " = ?" +
+                " WHERE " + ID + " = ? AND IFNULL(" + BODY + ", '') = ?");
+             SQLiteStatement updateIndex = db.compileStatement(RssItemSearchIndex.getInsertSQL());
+             RssItemImages.Writer images = new RssItemImages.Writer(db);
+             SQLiteStatement delete = db.compileStatement("DELETE FROM " + TABLENAME + " WHERE " + COLUMN_ITEM_ID + " = ?")) {
+            for (int i = 0; i < items.size(); i++) {
+                RssItem item = items.get(i);
+                updateItem.bindString(1, item.getBody());
+                updateItem.bindString(2, item.getExcerpt());
+                updateItem.bindString(3, item.getMediaThumbnail());
+                updateItem.bindLong(4, item.getId());
+                updateItem.bindString(5, rawBodies.get(i));
+                if (updateItem.executeUpdateDelete() == 0) {
+                    continue;
+                }
+
+                RssItemSearchIndex.bind(updateIndex, item.getId(), item.getTitle(), item.getBodyText());
+                updateIndex.executeInsert();
+
+                images.replace(item.getId(), RssItemImages.getImageLinks(item));
+
+                delete.bindLong(1, item.getId());
+                delete.executeUpdateDelete();
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    static boolean contains(SQLiteDatabase db, long itemId) {
+        try (Cursor cursor = db.rawQuery("SELECT 1 FROM " + TABLENAME + " WHERE " + COLUMN_ITEM_ID + " = ?", new String[] { String.valueOf(itemId) })) {
+            return cursor.moveToFirst();
+        }
+    }
+
+    static long count(SQLiteDatabase db) {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(1) FROM " + TABLENAME, null)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    private static String getStringOrEmpty(Cursor cursor, int index) {
+        return cursor.isNull(index) ? "" : cursor.getString(index);
+    }
+}
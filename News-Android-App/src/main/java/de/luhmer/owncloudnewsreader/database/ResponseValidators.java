@@ -0,0 +1,127 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+
+import java.util.Objects;
+
+/**
+ * Validators (ETag, Last-Modified and a hash of the content) of the last response of an endpoint
+ * whose content has been written to the database. They are sent with the next request of the
+ * endpoint (If-None-Match / If-Modified-Since), so an unchanged response doesn't need to be parsed
+ * and written again. The validators are stored in the database, so they are removed together with
+ * the data they describe.
+ */
+public class ResponseValidators {
+
+    public static final String TABLENAME = "RESPONSE_VALIDATOR";
+
+    private static final String COLUMN_ENDPOINT = "ENDPOINT";
+    private static final String COLUMN_ETAG = "ETAG";
+    private static final String COLUMN_LAST_MODIFIED = "LAST_MODIFIED";
+    private static final String COLUMN_CONTENT_HASH = "CONTENT_HASH";
+
+    private final String eTag;
+    private final String lastModified;
+    private final String contentHash;
+
+    /**
+     * @param eTag         ETag header of the response (null if the server didn't send one)
+     * @param lastModified Last-Modified header of the response (null if the server didn't send one)
+     * @param contentHash  hash of the body of the response
+     */
+    public ResponseValidators(String eTag, String lastModified, String contentHash) {
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.contentHash = contentHash;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ResponseValidators)) {
+            return false;
+        }
+        ResponseValidators that = (ResponseValidators) o;
+        return Objects.equals(eTag, that.eTag) &&
+                Objects.equals(lastModified, that.lastModified) &&
+                Objects.equals(contentHash, that.contentHash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(eTag, lastModified, contentHash);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "eTag=" + eTag + ", lastModified=" + lastModified + ", contentHash=" + contentHash;
+    }
+
+    public static void create(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLENAME + " (" +
+                COLUMN_ENDPOINT + " TEXT PRIMARY KEY NOT NULL, " +
+                COLUMN_ETAG + " TEXT, " +
+                COLUMN_LAST_MODIFIED + " TEXT, " +
+                COLUMN_CONTENT_HASH + " TEXT)");
+    }
+
+    public static void drop(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLENAME);
+    }
+
+    /**
+     * @return the validators of the endpoint or null if none have been stored
+     */
+    static ResponseValidators load(SQLiteDatabase db, String endpoint) {
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_ETAG + ", " + COLUMN_LAST_MODIFIED + ", " + COLUMN_CONTENT_HASH +
+                " FROM " + TABLENAME + " WHERE " + COLUMN_ENDPOINT + " = ?", new String[] { endpoint })) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new ResponseValidators(cursor.getString(0), cursor.getString(1), cursor.getString(2));
+        }
+    }
+
+    static void save(SQLiteDatabase db, String endpoint, ResponseValidators validators) {
+        try (SQLiteStatement stmt = db.compileStatement("INSERT OR REPLACE INTO " + TABLENAME + " (" +
+                COLUMN_ENDPOINT + ", " + COLUMN_ETAG + ", " + COLUMN_LAST_MODIFIED + ", " + COLUMN_CONTENT_HASH +
+                ") VALUES (?, ?, ?, ?)")) {
+            stmt.bindString(1, endpoint);
+            bindStringOrNull(stmt, 2, validators.eTag);
+            bindStringOrNull(stmt, 3, validators.lastModified);
+            bindStringOrNull(stmt, 4, validators.contentHash);
+            stmt.executeInsert();
+        }
+    }
+
+    static void clear(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLENAME);
+    }
+
+    private static void bindStringOrNull(SQLiteStatement stmt, int index, String value) {
+        if (value != null) {
+            stmt.bindString(index, value);
+        } else {
+            stmt.bindNull(index);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
+import de.luhmer.owncloudnewsreader.helper.ImageHandler;
+
+/**
+ * Links of the images in the (processed) bodies of the items, so the bodies don't need to be
+ * scanned again when an item is opened or its images are downloaded for offline reading. The
+ * entries are written together with the processed body (see {@link PendingItemBodies}) and
+ * removed by a trigger when the item is deleted.
+ * <p>
+ * Whether an image is in the disk cache (and its size) is only known after the offline download
+ * checked it - the flag is a hint (the cache may evict the image at any time).
+ */
+public class RssItemImages {
+
+    public static final String TABLENAME = "RSS_ITEM_IMAGE";
+    public static final String COLUMN_ITEM_ID = "ITEM_ID";
+    public static final String COLUMN_ORDINAL = "ORDINAL";
+    public static final String COLUMN_URL = "URL";
+    public static final String COLUMN_CACHED = "CACHED";
+    public static final String COLUMN_BYTE_SIZE = "BYTE_SIZE";
+
+    private static final String INDEX_URL = "IDX_RSS_ITEM_IMAGE_URL";
+    private static final String TRIGGER_DELETE = "RSS_ITEM_IMAGE_DELETE";
+
+    private static final String ID = RssItemDao.Properties.Id.columnName;
+
+    private RssItemImages() {
+    }
+
+    public static void create(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLENAME + " (" +
+                COLUMN_ITEM_ID + " INTEGER NOT NULL, " +
+                COLUMN_ORDINAL + " INTEGER NOT NULL, " +
+                COLUMN_URL + " TEXT NOT NULL, " +
+                COLUMN_CACHED + " INTEGER NOT NULL DEFAULT 0, " +
+                COLUMN_BYTE_SIZE + " INTEGER, " +
+                "PRIMARY KEY (" + COLUMN_ITEM_ID + ", " + COLUMN_ORDINAL + "))");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_URL + " ON " + TABLENAME + " (" + COLUMN_URL + ")");
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_DELETE + " AFTER DELETE ON " + RssItemDao.TABLENAME +
+                " BEGIN DELETE FROM " + TABLENAME + " WHERE " + COLUMN_ITEM_ID + " = old." + ID + "; END");
+    }
+
+    public static void drop(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_DELETE);
+        db.execSQL("DROP INDEX IF EXISTS " + INDEX_URL);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLENAME);
+    }
+
+    /**
+     * Replaces the image links of the given items. Needs to run in the same transaction as the
+     * insert of the items.
+     */
+    static void insert(SQLiteDatabase db, Iterable<RssItem> items) {
+        try (Writer writer = new Writer(db)) {
+            for (RssItem item : items) {
+                writer.replace(item.getId(), getImageLinks(item));
+            }
+        }
+    }
+
+    /**
+     * @return the image links of the body of the item (collected while processing the body if
+     * possible). Duplicates are removed.
+     */
+    static List<String> getImageLinks(RssItem item) {
+        List<String> links = item.getImageLinks();
+        if (links == null) {
+            links = item.getBody() != null ? ImageHandler.getImageLinksFromText(item.getLink(), item.getBody()) : new ArrayList<>();
+        }
+        Set<String> uniqueLinks = new LinkedHashSet<>();
+        for (String link : links) {
+            link = link.trim();
+            if (!link.isEmpty()) {
+                uniqueLinks.add(link);
+            }
+        }
+        return new ArrayList<>(uniqueLinks);
+    }
+
+    /**
+     * Replaces the image links of items - the cached flag and size of a link already known from
+     * another item (or a previous version of the body) are kept.
+     */
+    static class Writer implements AutoCloseable {
+
+        private final SQLiteStatement insert;
+        private final SQLiteStatement deleteRemaining;
+
+        Writer(SQLiteDatabase db) {
+            // the aggregate always returns one row (CACHED = 0 if the link is unknown)
+            insert = db.compileStatement("INSERT OR REPLACE INTO " + TABLENAME + " (" +
+                    COLUMN_ITEM_ID + ", " + COLUMN_ORDINAL + ", " + COLUMN_URL + ", " + COLUMN_CACHED + ", " + COLUMN_BYTE_SIZE + ")" +
+                    " SELECT ?, ?, ?, IFNULL(MAX(" + COLUMN_CACHED + "), 0), MAX(" + COLUMN_BYTE_SIZE + ")" +
+                    " FROM " + TABLENAME + " WHERE " + COLUMN_URL + " = ?");
+            deleteRemaining = db.compileStatement("DELETE FROM " + TABLENAME +
+                    " WHERE " + COLUMN_ITEM_ID + " = ? AND " + COLUMN_ORDINAL + " >= ?");
+        }
+
+        void replace(long itemId, List<String> links) {
+            for (int i = 0; i < links.size(); i++) {
+                insert.bindLong(1, itemId);
+                insert.bindLong(2, i);
+                insert.bindString(3, links.get(i));
+                insert.bindString(4, links.get(i));
+                insert.executeInsert();
+            }
+            deleteRemaining.bindLong(1, itemId);
+            deleteRemaining.bindLong(2, links.size());
+            deleteRemaining.executeUpdateDelete();
+        }
+
+        @Override
+        public void close() {
+            insert.close();
+            deleteRemaining.close();
+        }
+    }
+
+    /**
+     * @return the image links of the item in the order they appear in the body
+     */
+    static List<String> load(SQLiteDatabase db, long itemId) {
+        List<String> links = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_URL + " FROM " + TABLENAME +
+                " WHERE " + COLUMN_ITEM_ID + " = ? ORDER BY " + COLUMN_ORDINAL, new String[] { String.valueOf(itemId) })) {
+            while (cursor.moveToNext()) {
+                links.add(cursor.getString(0));
+            }
+        }
+        return links;
+    }
+
+    /**
+     * @return the unique http(s) image links of the items with an id >= {@code minItemId} in the
+     * order they should be downloaded (unread items first, then the newest), at most {@code limit}
+     */
+    static List<String> loadForPrefetch(SQLiteDatabase db, long minItemId, int limit) {
+        Set<String> links = new LinkedHashSet<>();
+        try (Cursor cursor = db.rawQuery(getPrefetchSQL(), new String[] { String.valueOf(minItemId) })) {
+            while (links.size() < limit && cursor.moveToNext()) {
+                links.add(cursor.getString(0));
+            }
+        }
+        return new ArrayList<>(links);
+    }
+
+    static String getPrefetchSQL() {
+        return "SELECT img." + COLUMN_URL +
+                " FROM " + TABLENAME + " img JOIN " + RssItemDao.TABLENAME + " i ON i." + ID + " = img." + COLUMN_ITEM_ID +
+                " WHERE i." + ID + " >= ?" +
+                " AND (img." + COLUMN_URL + " LIKE 'http://%' OR img." + COLUMN_URL + " LIKE 'https://%')" +
+                " ORDER BY i." + RssItemDao.Properties.Read.columnName +
+                ", i." + RssItemDao.Properties.PubDate.columnName + " DESC" +
+                ", img." + COLUMN_ITEM_ID + ", img." + COLUMN_ORDINAL;
+    }
+
+    /**
+     * Stores whether the images are in the disk cache (all entries of a link are updated).
+     *
+     * @param byteSizes size of each checked image, -1 if it isn't cached
+     */
+    static void updateCached(SQLiteDatabase db, Map<String, Long> byteSizes) {
+        try (SQLiteStatement stmt = db.compileStatement("UPDATE " + TABLENAME + " SET " +
+                COLUMN_CACHED + " = ?, " + COLUMN_BYTE_SIZE + " = IFNULL(?, " + COLUMN_BYTE_SIZE + ")" +
+                " WHERE " + COLUMN_URL + " = ?")) {
+            for (Map.Entry<String, Long> entry : byteSizes.entrySet()) {
+                long byteSize = entry.getValue();
+                stmt.bindLong(1, byteSize >= 0 ? 1 : 0);
+                if (byteSize >= 0) {
+                    stmt.bindLong(2, byteSize);
+                } else {
+                    stmt.bindNull(2);
+                }
+                stmt.bindString(3, entry.getKey());
+                stmt.executeUpdateDelete();
+            }
+        }
+    }
+
+    /**
+     * @return statistics of the unique images of the items with an id >= {@code minItemId}
+     */
+    static Stats loadStats(SQLiteDatabase db, long minItemId) {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(1), IFNULL(SUM(c), 0), IFNULL(SUM(CASE WHEN c = 1 THEN s END), 0)" +
+                " FROM (SELECT MAX(" + COLUMN_CACHED + ") c, MAX(" + COLUMN_BYTE_SIZE + ") s FROM " + TABLENAME +
+                " WHERE " + COLUMN_ITEM_ID + " >= ? GROUP BY " + COLUMN_URL + ")", new String[] { String.valueOf(minItemId) })) {
+            cursor.moveToFirst();
+            return new Stats(cursor.getInt(0), cursor.getInt(1), cursor.getLong(2));
+        }
+    }
+
+    public static class Stats {
+
+        private final int imageCount;
+        private final int cachedCount;
+        private final long cachedBytes;
+
+        Stats(int imageCount, int cachedCount, long cachedBytes) {
+            this.imageCount = imageCount;
+            this.cachedCount = cachedCount;
+            this.cachedBytes = cachedBytes;
+        }
+
+        public int getImageCount() {
+            return imageCount;
+        }
+
+        public int getCachedCount() {
+            return cachedCount;
+        }
+
+        public long getCachedBytes() {
+            return cachedBytes;
+        }
+
+        /**
+         * @return estimated amount of bytes which need to be downloaded for reading the items
+         * offline (based on the average size of the cached images) or -1 if no image has been
+         * cached yet
+         */
+        public long getEstimatedDownloadBytes() {
+            if (cachedCount == 0) {
+                return imageCount == 0 ? 0 : -1;
+            }
+            return (imageCount - cachedCount) * (cachedBytes / cachedCount);
+        }
+    }
+}
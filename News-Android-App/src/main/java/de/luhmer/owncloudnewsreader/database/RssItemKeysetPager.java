@@ -0,0 +1,228 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.Nullable;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm.SORT_DIRECTION;
+import de.luhmer.owncloudnewsreader.database.model.CurrentRssItemViewDao;
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
+
+/**
+ * Pages through the items of a list directly from RSS_ITEM using keyset pagination on
+ * (PUB_DATE, _id): every page continues after the last item of the previous page instead of
+ * materializing the whole list first, so loading a page only reads the rows of the page (from the
+ * index matching the condition of the list).
+ * <p>
+ * The ids of the loaded pages are appended to CURRENT_RSS_ITEM_VIEW, which stays the snapshot of
+ * the list - items marked as read keep their position and NewsDetailActivity pages through the
+ * same items as the list. Items with the same fingerprint are only added once (the first one in
+ * sort order). Items without a date are sorted like SQLite sorts NULL values (after all other
+ * items in descending order, before them in ascending order).
+ * <p>
+ * The condition and the sort direction of the list are stored in a single row table together with
+ * the first page, so the pager can be restored from CURRENT_RSS_ITEM_VIEW after the process has
+ * been restarted (e.g. when NewsDetailActivity is recreated without the list).
+ */
+class RssItemKeysetPager {
+
+    static final String TABLENAME = "CURRENT_RSS_ITEM_VIEW_PAGER";
+
+    private static final String COLUMN_ID = "_id";
+    private static final String COLUMN_CONDITION = "CONDITION";
+    private static final String COLUMN_SORT_DIRECTION = "SORT_DIRECTION";
+
+    private static final long ROW_ID = 1;
+
+    private static final String ID = RssItemDao.Properties.Id.columnName;
+    private static final String PUB_DATE = RssItemDao.Properties.PubDate.columnName;
+    private static final String FINGERPRINT = RssItemDao.Properties.Fingerprint.columnName;
+
+    private final String condition;
+    private final SORT_DIRECTION sortDirection;
+
+    private final Set<String> fingerprints = new HashSet<>();
+    private Long lastPubDate;
+    private long lastId;
+    private boolean started = false;
+    private boolean exhausted = false;
+    private int loadedCount = 0;
+
+    /**
+     * @param condition WHERE clause on RSS_ITEM selecting the items of the list
+     */
+    RssItemKeysetPager(String condition, SORT_DIRECTION sortDirection) {
+        this.condition = condition;
+        this.sortDirection = sortDirection;
+    }
+
+    boolean isExhausted() {
+        return exhausted;
+    }
+
+    int getLoadedCount() {
+        return loadedCount;
+    }
+
+    /**
+     * Appends up to {@code count} items to CURRENT_RSS_ITEM_VIEW (less if the end of the list has
+     * been reached). Needs to run in a transaction.
+     *
+     * @return amount of appended items
+     */
+    int appendPage(SQLiteDatabase db, int count) {
+        int appended = 0;
+        try (SQLiteStatement insert = db.compileStatement("INSERT INTO " + CurrentRssItemViewDao.TABLENAME +
+                " (" + CurrentRssItemViewDao.Properties.RssItemId.columnName + ") VALUES (?)")) {
+            while (appended < count && !exhausted) {
+                // fetch a few more rows than needed - duplicates are skipped
+                int limit = count - appended + 5;
+                int rows = 0;
+                try (Cursor cursor = db.rawQuery(getPageSQL(limit), getPageArgs())) {
+                    while (cursor.moveToNext() && appended < count) {
+                        rows++;
+                        lastId = cursor.getLong(0);
+                        lastPubDate = cursor.isNull(1) ? null : cursor.getLong(1);
+                        started = true;
+
+                        if (fingerprints.add(cursor.getString(2))) {
+                            insert.bindLong(1, lastId);
+                            insert.executeInsert();
+                            appended++;
+                        }
+                    }
+                    exhausted = rows < limit && appended < count;
+                }
+            }
+        }
+        loadedCount += appended;
+        return appended;
+    }
+
+    /**
+     * @return amount of items which have not been loaded yet (duplicates included)
+     */
+    long getRemainingCount(SQLiteDatabase db) {
+        if (exhausted) {
+            return 0;
+        }
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(1) FROM " + RssItemDao.TABLENAME + " WHERE " + getCondition(), getPageArgs())) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    String getPageSQL(int limit) {
+        return "SELECT " + ID + ", " + PUB_DATE + ", " + FINGERPRINT +
+                " FROM " + RssItemDao.TABLENAME +
+                " WHERE " + getCondition() +
+                " ORDER BY " + PUB_DATE + " " + sortDirection + ", " + ID + " " + sortDirection +
+                " LIMIT " + limit;
+    }
+
+    private String getCondition() {
+        if (!started) {
+            return "(" + condition + ")";
+        }
+        // same as (PUB_DATE, _id) < (?, ?) (> for asc) - row values are not supported by older SQLite versions.
+        // The range on PUB_DATE can be answered by the index, only the items with the same date
+        // as the last item are filtered by id. NULL dates don't match any comparison, so the
+        // items without a date are selected explicitly
+        boolean desc = sortDirection == SORT_DIRECTION.desc;
+        String after;
+        if (lastPubDate == null) {
+            after = desc
+                    ? PUB_DATE + " IS NULL AND " + ID + " < ?"
+                    : "(" + PUB_DATE + " IS NULL AND " + ID + " > ? OR " + PUB_DATE + " IS NOT NULL)";
+        } else {
+            after = PUB_DATE + (desc ? " <= ?" : " >= ?") +
+                    " AND NOT (" + PUB_DATE + " = ? AND " + ID + (desc ? " >= ?" : " <= ?") + ")";
+            if (desc) {
+                after = "(" + after + " OR " + PUB_DATE + " IS NULL)";
+            }
+        }
+        return "(" + condition + ") AND " + after;
+    }
+
+    String[] getPageArgs() {
+        if (!started) {
+            return null;
+        }
+        if (lastPubDate == null) {
+            return new String[] { String.valueOf(lastId) };
+        }
+        return new String[] { String.valueOf(lastPubDate), String.valueOf(lastPubDate), String.valueOf(lastId) };
+    }
+
+    /**
+     * Stores the condition and the sort direction of the list (needs to run in the transaction
+     * which replaces the contents of CURRENT_RSS_ITEM_VIEW).
+     */
+    void save(SQLiteDatabase db) {
+        try (SQLiteStatement stmt = db.compileStatement("INSERT OR REPLACE INTO " + TABLENAME + " (" +
+                COLUMN_ID + ", " + COLUMN_CONDITION + ", " + COLUMN_SORT_DIRECTION + ") VALUES (" + ROW_ID + ", ?, ?)")) {
+            stmt.bindString(1, condition);
+            stmt.bindString(2, sortDirection.name());
+            stmt.executeInsert();
+        }
+    }
+
+    /**
+     * Restores the pager of the list in CURRENT_RSS_ITEM_VIEW - the next page continues after the
+     * last loaded item.
+     *
+     * @return the pager or null if CURRENT_RSS_ITEM_VIEW contains a complete list (e.g. search results)
+     */
+    @Nullable
+    static RssItemKeysetPager restore(SQLiteDatabase db) {
+        RssItemKeysetPager pager;
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_CONDITION + ", " + COLUMN_SORT_DIRECTION +
+                " FROM " + TABLENAME + " WHERE " + COLUMN_ID + " = " + ROW_ID, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            try {
+                pager = new RssItemKeysetPager(cursor.getString(0), SORT_DIRECTION.valueOf(cursor.getString(1)));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        String viewId = CurrentRssItemViewDao.Properties.Id.columnName;
+        String viewItemId = CurrentRssItemViewDao.Properties.RssItemId.columnName;
+        try (Cursor cursor = db.rawQuery("SELECT T." + ID + ", T." + PUB_DATE + ", T." + FINGERPRINT +
+                " FROM " + CurrentRssItemViewDao.TABLENAME + " C, " + RssItemDao.TABLENAME + " T" +
+                " WHERE C." + viewItemId + " = T." + ID +
+                " ORDER BY C." + viewId, null)) {
+            while (cursor.moveToNext()) {
+                pager.lastId = cursor.getLong(0);
+                pager.lastPubDate = cursor.isNull(1) ? null : cursor.getLong(1);
+                pager.fingerprints.add(cursor.getString(2));
+                pager.started = true;
+            }
+        }
+        // the pages are requested by position - items which have been deleted in the meantime still count
+        pager.loadedCount = (int) DatabaseUtils.queryNumEntries(db, CurrentRssItemViewDao.TABLENAME);
+        return pager;
+    }
+
+    static void clear(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLENAME);
+    }
+
+    static void create(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLENAME + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY CHECK (" + COLUMN_ID + " = " + ROW_ID + "), " +
+                COLUMN_CONDITION + " TEXT NOT NULL, " +
+                COLUMN_SORT_DIRECTION + " TEXT NOT NULL)");
+    }
+
+    static void drop(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLENAME);
+    }
+}
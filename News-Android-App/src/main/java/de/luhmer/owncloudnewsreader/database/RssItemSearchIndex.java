@@ -0,0 +1,138 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
+import de.luhmer.owncloudnewsreader.helper.ExcerptHelper;
+
+/**
+ * Full text search index of the title and the plain text body of all items (FTS4 - FTS5 is not
+ * available in the SQLite version shipped with Android). The docid of an entry is the id of the
+ * item. Entries are added when items are inserted (see
+ * {@link DatabaseConnectionOrm#insertNewItems(Iterable)}) and removed by a trigger on RSS_ITEM.
+ */
+public class RssItemSearchIndex {
+
+    private static final String TAG = RssItemSearchIndex.class.getCanonicalName();
+
+    public static final String TABLENAME = "RSS_ITEM_SEARCH";
+    public static final String COLUMN_TITLE = "TITLE";
+    public static final String COLUMN_BODY = "BODY";
+
+    private static final String TRIGGER_DELETE = "RSS_ITEM_SEARCH_DELETE";
+
+    // Everything except letters and digits separates the words of a search query
+    private static final Pattern PATTERN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private RssItemSearchIndex() {
+    }
+
+    public static void create(SQLiteDatabase db) {
+        String columns = COLUMN_TITLE + ", " + COLUMN_BODY;
+        try {
+            // unicode61 folds the case of non ascii characters and removes diacritics (ä -> a)
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLENAME + " USING fts4(" + columns + ", tokenize=unicode61)");
+        } catch (SQLException ex) {
+            Log.w(TAG, "Tokenizer unicode61 not available - falling back to the default tokenizer", ex);
+            db.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS " + TABLENAME + " USING fts4(" + columns + ")");
+        }
+
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS " + TRIGGER_DELETE + " AFTER DELETE ON " + RssItemDao.TABLENAME +
+                " BEGIN DELETE FROM " + TABLENAME + " WHERE docid = old." + RssItemDao.Properties.Id.columnName + "; END");
+    }
+
+    public static void drop(SQLiteDatabase db) {
+        db.execSQL("DROP TRIGGER IF EXISTS " + TRIGGER_DELETE);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLENAME);
+    }
+
+    /**
+     * Adds (or replaces) the index entries of the given items. Needs to run in the same
+     * transaction as the insert of the items.
+     */
+    static void insert(SQLiteDatabase db, Iterable<RssItem> items) {
+        insert(db, items, true);
+    }
+
+    /**
+     * @param indexBody false to index the title only (the body is added once it has been processed,
+     *                  see {@link PendingItemBodies})
+     */
+    static void insert(SQLiteDatabase db, Iterable<RssItem> items, boolean indexBody) {
+        try (SQLiteStatement stmt = db.compileStatement(getInsertSQL())) {
+            for (RssItem item : items) {
+                bind(stmt, item.getId(), item.getTitle(), indexBody ? getBodyText(item) : "");
+                stmt.executeInsert();
+            }
+        }
+    }
+
+    static String getInsertSQL() {
+        return "INSERT OR REPLACE INTO " + TABLENAME + " (docid, " + COLUMN_TITLE + ", " + COLUMN_BODY + ") VALUES (?, ?, ?)";
+    }
+
+    static void bind(SQLiteStatement stmt, long id, String title, String bodyText) {
+        stmt.bindLong(1, id);
+        stmt.bindString(2, title != null ? title : "");
+        stmt.bindString(3, bodyText);
+    }
+
+    /**
+     * @return the plain text of the body (calculated while parsing the item if possible)
+     */
+    private static String getBodyText(RssItem item) {
+        if (item.getBodyText() != null) {
+            return item.getBodyText();
+        }
+        return item.getBody() != null ? ExcerptHelper.getBodyText(item.getBody(), 0) : "";
+    }
+
+    /**
+     * Converts the text entered by the user into a FTS query. Every word is searched as prefix
+     * ("news app" finds "newsreader application"), all words need to match. Operators and special
+     * characters of the FTS query syntax are removed.
+     *
+     * @return the query or null if the search string doesn't contain any word
+     */
+    public static String getMatchQuery(String searchString) {
+        if (searchString == null) {
+            return null;
+        }
+
+        List<String> terms = new ArrayList<>();
+        for (String word : PATTERN_SEPARATOR.split(searchString.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                // lower case words are never treated as operator (AND, OR, NOT, NEAR)
+                terms.add(word + "*");
+            }
+        }
+        return terms.isEmpty() ? null : String.join(" ", terms);
+    }
+
+    /**
+     * @param column {@link #TABLENAME} (title and body), {@link #COLUMN_TITLE} or {@link #COLUMN_BODY}
+     * @return condition on RSS_ITEM matching the items found by the query (one bind parameter)
+     */
+    static String getMatchCondition(String column) {
+        return RssItemDao.Properties.Id.columnName + " IN (SELECT docid FROM " + TABLENAME +
+                " WHERE " + TABLENAME + "." + column + " MATCH ?)";
+    }
+
+    /**
+     * Ranks the items matching the query in their title above items only matching in the body
+     * (one bind parameter). FTS4 has no built-in ranking function (and Android doesn't allow to
+     * register custom functions), the remaining order is defined by the caller.
+     */
+    static String getRankOrder() {
+        return getMatchCondition(COLUMN_TITLE) + " DESC";
+    }
+}
@@ -0,0 +1,218 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import de.luhmer.owncloudnewsreader.database.model.DaoSession;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
+import de.luhmer.owncloudnewsreader.helper.StopWatch;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+/**
+ * Write-behind queue for the read / starred state of single items (e.g. all items marked as read
+ * while scrolling through the list). Changes are coalesced per item (the latest state wins) and
+ * written by one thread in a single transaction - {@link #FLUSH_DELAY_MS} after the first change
+ * or as soon as {@link #MAX_PENDING_ITEMS} items are waiting.
+ * <p>
+ * Everything reading the state from the database (list, detail view, sync) needs to call
+ * {@link #flush()} first. There must only be one writer per database - it is created together
+ * with the DaoSession (see {@link DatabaseHelperOrm#getStateWriter}).
+ * <p>
+ * The state is written with plain SQL. Entities cached by the session (identity scope) are
+ * updated by the caller (the entity passed to
+ * {@link DatabaseConnectionOrm#updateRssItem(de.luhmer.owncloudnewsreader.database.model.RssItem)})
+ * - except for the duplicates which are marked as read here, their cached entities are updated
+ * by the writer.
+ */
+public class RssItemStateWriter {
+
+    private static final String TAG = RssItemStateWriter.class.getCanonicalName();
+
+    static final long FLUSH_DELAY_MS = 500;
+    static final int MAX_PENDING_ITEMS = 50;
+
+    private final DaoSession daoSession;
+    private final Scheduler scheduler;
+
+    private final Object pendingLock = new Object();
+    private final Object writeLock = new Object();
+    private Map<Long, PendingState> pending = new LinkedHashMap<>();
+    private Disposable scheduledFlush;
+    private boolean immediateFlushScheduled = false;
+
+    private static class PendingState {
+        final long id;
+        final String fingerprint;
+        final boolean read;
+        final boolean starred;
+
+        PendingState(long id, String fingerprint, boolean read, boolean starred) {
+            this.id = id;
+            this.fingerprint = fingerprint;
+            this.read = read;
+            this.starred = starred;
+        }
+    }
+
+    RssItemStateWriter(DaoSession daoSession) {
+        this(daoSession, Schedulers.from(newExecutor()));
+    }
+
+    /**
+     * @param scheduler runs the flushes in the background (the delay is measured by the scheduler)
+     */
+    RssItemStateWriter(DaoSession daoSession, Scheduler scheduler) {
+        this.daoSession = daoSession;
+        this.scheduler = scheduler;
+    }
+
+    private static ScheduledThreadPoolExecutor newExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "RssItemStateWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // don't keep an idle thread around
+        executor.setKeepAliveTime(10, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Queues the new state of the item - replaces a pending state of the same item.
+     */
+    public void enqueue(long id, String fingerprint, boolean read, boolean starred) {
+        synchronized (pendingLock) {
+            pending.put(id, new PendingState(id, fingerprint, read, starred));
+
+            if (pending.size() >= MAX_PENDING_ITEMS) {
+                if (!immediateFlushScheduled) {
+                    if (scheduledFlush != null) {
+                        scheduledFlush.dispose();
+                    }
+                    scheduledFlush = scheduler.scheduleDirect(this::flushInBackground);
+                    immediateFlushScheduled = true;
+                }
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.scheduleDirect(this::flushInBackground, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Writes all pending changes (on the calling thread).
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            final List<PendingState> states;
+            synchronized (pendingLock) {
+                if (scheduledFlush != null) {
+                    // doesn't interrupt the flush if it is the one calling this method
+                    scheduledFlush.dispose();
+                    scheduledFlush = null;
+                }
+                immediateFlushScheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                states = new ArrayList<>(pending.values());
+                pending = new LinkedHashMap<>();
+            }
+
+            StopWatch sw = new StopWatch();
+            sw.start();
+
+            daoSession.runInTx(() -> write(states));
+
+            sw.stop();
+            Log.v(TAG, "Time needed for writing the state of " + states.size() + " items: " + sw);
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            Log.e(TAG, "Failed to write the state of the items", ex);
+        }
+    }
+
+    private void write(List<PendingState> states) {
+        SQLiteDatabase db = daoSession.getDatabase();
+        Set<String> readFingerprints = new LinkedHashSet<>();
+
+        try (SQLiteStatement stmt = db.compileStatement("UPDATE " + RssItemDao.TABLENAME +
+                " SET " + RssItemDao.Properties.Read_temp.columnName + " = ?, " + RssItemDao.Properties.Starred_temp.columnName + " = ?" +
+                " WHERE " + RssItemDao.Properties.Id.columnName + " = ?")) {
+            for (PendingState state : states) {
+                stmt.bindLong(1, state.read ? 1 : 0);
+                stmt.bindLong(2, state.starred ? 1 : 0);
+                stmt.bindLong(3, state.id);
+                stmt.executeUpdateDelete();
+
+                if (state.read && state.fingerprint != null) {
+                    readFingerprints.add(state.fingerprint);
+                }
+            }
+        }
+
+        // Deduplicate rss items (see https://github.com/nextcloud/news-android/issues/513) - all
+        // items with the fingerprint of an item marked as read are marked as read as well
+        List<String> fingerprints = new ArrayList<>(readFingerprints);
+        List<Long> duplicateIds = new ArrayList<>();
+        for (int start = 0; start < fingerprints.size(); start += DatabaseConnectionOrm.MAX_SQL_VARIABLES_PER_STATEMENT) {
+            List<String> chunk = fingerprints.subList(start, Math.min(start + DatabaseConnectionOrm.MAX_SQL_VARIABLES_PER_STATEMENT, fingerprints.size()));
+            String[] args = chunk.toArray(new String[0]);
+            try (Cursor cursor = db.rawQuery(getUnreadDuplicatesSQL(chunk.size()), args)) {
+                while (cursor.moveToNext()) {
+                    duplicateIds.add(cursor.getLong(0));
+                }
+            }
+            db.execSQL(getMarkDuplicatesAsReadSQL(chunk.size()), args);
+        }
+
+        updateCachedDuplicates(duplicateIds);
+    }
+
+    /**
+     * The duplicates are updated without the DAO - so the entities of the duplicates which are
+     * cached by the session would still be unread. Querying them returns the cached instances
+     * (uncached ones are loaded with the new state).
+     */
+    private void updateCachedDuplicates(List<Long> duplicateIds) {
+        for (int start = 0; start < duplicateIds.size(); start += DatabaseConnectionOrm.MAX_SQL_VARIABLES_PER_STATEMENT) {
+            List<Long> chunk = duplicateIds.subList(start, Math.min(start + DatabaseConnectionOrm.MAX_SQL_VARIABLES_PER_STATEMENT, duplicateIds.size()));
+            for (RssItem item : daoSession.getRssItemDao().queryBuilder().where(RssItemDao.Properties.Id.in(chunk)).list()) {
+                item.setRead_temp(true);
+            }
+        }
+    }
+
+    static String getUnreadDuplicatesSQL(int fingerprintCount) {
+        return "SELECT " + RssItemDao.Properties.Id.columnName +
+                " FROM " + RssItemDao.TABLENAME +
+                " WHERE " + RssItemDao.Properties.Fingerprint.columnName + " IN (" + DatabaseConnectionOrm.getSqlPlaceholders(fingerprintCount) + ")" +
+                " AND " + DatabaseHelperOrm.CONDITION_UNREAD;
+    }
+
+    static String getMarkDuplicatesAsReadSQL(int fingerprintCount) {
+        return "UPDATE " + RssItemDao.TABLENAME +
+                " SET " + RssItemDao.Properties.Read_temp.columnName + " = 1" +
+                " WHERE " + RssItemDao.Properties.Fingerprint.columnName + " IN (" + DatabaseConnectionOrm.getSqlPlaceholders(fingerprintCount) + ")" +
+                " AND " + DatabaseHelperOrm.CONDITION_UNREAD;
+    }
+}
@@ -0,0 +1,142 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Progress of the first sync (the download of all unread and starred items). The checkpoint is
+ * stored in a single row table and written together with each inserted page, so an interrupted
+ * first sync (process death, network error, timeout of the sync adapter) is resumed with the next
+ * page instead of switching to the incremental sync and leaving out the rest of the items. The row
+ * is removed when the first sync has finished.
+ */
+public class SyncCheckpoint {
+
+    public static final String TABLENAME = "SYNC_STATE";
+
+    private static final String COLUMN_ID = "_id";
+    private static final String COLUMN_PHASE = "PHASE";
+    private static final String COLUMN_ITEM_OFFSET = "ITEM_OFFSET";
+    private static final String COLUMN_UNREAD_COUNT = "UNREAD_COUNT";
+    private static final String COLUMN_STARRED_COUNT = "STARRED_COUNT";
+
+    private static final long ROW_ID = 1;
+
+    public enum Phase {
+        UNREAD,
+        STARRED
+    }
+
+    private final Phase phase;
+    private final long offset;
+    private final int unreadCount;
+    private final int starredCount;
+
+    /**
+     * @param offset highest id of the items inserted in this phase (the next page starts after it)
+     */
+    public SyncCheckpoint(@NonNull Phase phase, long offset, int unreadCount, int starredCount) {
+        this.phase = phase;
+        this.offset = offset;
+        this.unreadCount = unreadCount;
+        this.starredCount = starredCount;
+    }
+
+    /**
+     * @return checkpoint of a first sync which has just been started
+     */
+    public static SyncCheckpoint start() {
+        return new SyncCheckpoint(Phase.UNREAD, 0, 0, 0);
+    }
+
+    /**
+     * @return the checkpoint after a page of the current phase has been inserted
+     */
+    public SyncCheckpoint afterPage(long highestItemId, int itemCount) {
+        if (phase == Phase.UNREAD) {
+            return new SyncCheckpoint(phase, highestItemId, unreadCount + itemCount, starredCount);
+        }
+        return new SyncCheckpoint(phase, highestItemId, unreadCount, starredCount + itemCount);
+    }
+
+    /**
+     * @return the checkpoint after all unread items have been downloaded
+     */
+    public SyncCheckpoint startStarred() {
+        return new SyncCheckpoint(Phase.STARRED, 0, unreadCount, 0);
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public int getUnreadCount() {
+        return unreadCount;
+    }
+
+    public int getStarredCount() {
+        return starredCount;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "phase=" + phase + ", offset=" + offset + ", unread=" + unreadCount + ", starred=" + starredCount;
+    }
+
+    public static void create(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLENAME + " (" +
+                COLUMN_ID + " INTEGER PRIMARY KEY CHECK (" + COLUMN_ID + " = " + ROW_ID + "), " +
+                COLUMN_PHASE + " TEXT NOT NULL, " +
+                COLUMN_ITEM_OFFSET + " INTEGER NOT NULL, " +
+                COLUMN_UNREAD_COUNT + " INTEGER NOT NULL, " +
+                COLUMN_STARRED_COUNT + " INTEGER NOT NULL)");
+    }
+
+    public static void drop(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TABLENAME);
+    }
+
+    /**
+     * @return the checkpoint or null if no first sync is in progress
+     */
+    static SyncCheckpoint load(SQLiteDatabase db) {
+        try (Cursor cursor = db.rawQuery("SELECT " + COLUMN_PHASE + ", " + COLUMN_ITEM_OFFSET + ", " + COLUMN_UNREAD_COUNT + ", " + COLUMN_STARRED_COUNT +
+                " FROM " + TABLENAME + " WHERE " + COLUMN_ID + " = " + ROW_ID, null)) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            Phase phase;
+            try {
+                phase = Phase.valueOf(cursor.getString(0));
+            } catch (IllegalArgumentException e) {
+                // unknown phase - start over
+                return start();
+            }
+            return new SyncCheckpoint(phase, cursor.getLong(1), cursor.getInt(2), cursor.getInt(3));
+        }
+    }
+
+    static void save(SQLiteDatabase db, SyncCheckpoint checkpoint) {
+        try (SQLiteStatement stmt = db.compileStatement("INSERT OR REPLACE INTO " + TABLENAME + " (" +
+                COLUMN_ID + ", " + COLUMN_PHASE + ", " + COLUMN_ITEM_OFFSET + ", " + COLUMN_UNREAD_COUNT + ", " + COLUMN_STARRED_COUNT +
+                ") VALUES (" + ROW_ID + ", ?, ?, ?, ?)")) {
+            stmt.bindString(1, checkpoint.phase.name());
+            stmt.bindLong(2, checkpoint.offset);
+            stmt.bindLong(3, checkpoint.unreadCount);
+            stmt.bindLong(4, checkpoint.starredCount);
+            stmt.executeInsert();
+        }
+    }
+
+    static void clear(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + TABLENAME);
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Set;
 
 import de.greenrobot.daogenerator.DaoGenerator;
+import de.luhmer.owncloudnewsreader.database.DatabaseMigrations;
 
 public class DatabaseOrmGenerator {
     private static final String SCHEMA_OUTPUT_DIR = "./News-Android-App/src/main/java/";
@@ -14,7 +15,8 @@ public class DatabaseOrmGenerator {
      * Generator main application which builds all of the schema versions
      * (including older versions used for migration test purposes) and ensures
      * business rules are met; these include ensuring we only have a single
-     * current schema instance and the version numbering is correct.
+     * current schema instance, the version numbering is correct and a migration
+     * to the current schema version exists.
      */
     public static void main(String[] args) throws Exception {
         List<SchemaVersion> versions = new ArrayList<>();
@@ -61,5 +63,13 @@ public class DatabaseOrmGenerator {
             throw new IllegalArgumentException(
                     "Unable to generate schema, exactly one schema marked as current is required.");
         }
+
+        for (SchemaVersion version : versions) {
+            if (version.isCurrent() && version.getVersionNumber() != DatabaseMigrations.getLatestVersion()) {
+                throw new IllegalArgumentException(
+                        "Unable to generate schema, no migration to schema version " + version.getVersionNumber()
+                                + " available (see DatabaseMigrations). Without a migration all tables would be dropped on upgrade.");
+            }
+        }
     }
 }
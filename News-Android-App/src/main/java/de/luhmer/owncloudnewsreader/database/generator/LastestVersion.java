@@ -1,6 +1,7 @@
 package de.luhmer.owncloudnewsreader.database.generator;
 
 import de.greenrobot.daogenerator.Entity;
+import de.greenrobot.daogenerator.Index;
 import de.greenrobot.daogenerator.Property;
 import de.greenrobot.daogenerator.Schema;
 
@@ -42,7 +43,7 @@ public class LastestVersion extends SchemaVersion {
         /* RSS Item */
         Entity rssItem = schema.addEntity("RssItem");
         Property rssItemId = rssItem.addIdProperty().notNull().getProperty();
-        Property rssItemFeedId = rssItem.addLongProperty("feedId").notNull().index().getProperty();
+        Property rssItemFeedId = rssItem.addLongProperty("feedId").notNull().getProperty();
 
         rssItem.addStringProperty("link");
         rssItem.addStringProperty("title");
@@ -52,11 +53,18 @@ public class LastestVersion extends SchemaVersion {
         rssItem.addStringProperty("author").notNull();
         rssItem.addStringProperty("guid").notNull();
         rssItem.addStringProperty("guidHash").notNull();
-        rssItem.addStringProperty("fingerprint").notNull();
+        rssItem.addStringProperty("fingerprint").notNull().index();
         rssItem.addBooleanProperty("read_temp");
         rssItem.addBooleanProperty("starred_temp");
-        rssItem.addDateProperty("lastModified");
-        rssItem.addDateProperty("pubDate");
+        rssItem.addDateProperty("lastModified").index();
+        Property rssItemPubDate = rssItem.addDateProperty("pubDate").getProperty();
+
+        // Items of a feed are always sorted by pubDate. The partial indexes (unread / starred items)
+        // can't be generated - see DatabaseHelperOrm.createPartialIndexes
+        Index rssItemFeedIdPubDate = new Index();
+        rssItemFeedIdPubDate.addProperty(rssItemFeedId);
+        rssItemFeedIdPubDate.addProperty(rssItemPubDate);
+        rssItem.addIndex(rssItemFeedIdPubDate);
 
 
         rssItem.addStringProperty("enclosureLink");
@@ -67,6 +75,8 @@ public class LastestVersion extends SchemaVersion {
 
         rssItem.addBooleanProperty("rtl");
 
+        rssItem.addStringProperty("excerpt"); // plain text preview of the body (used by the list)
+
 
         feed.addToOne(folder, folderIdProperty);
         folder.addToMany(feed, folderIdProperty);
@@ -88,6 +98,6 @@ public class LastestVersion extends SchemaVersion {
      */
     @Override
     public int getVersionNumber() {
-        return 10;
+        return 19;
     }
 }
@@ -41,7 +41,8 @@ public abstract class SchemaVersion {
     }
 
     /**
-     * @return unique integer schema version identifier.
+     * @return unique integer schema version identifier. Increasing the version requires a
+     * migration step in {@link de.luhmer.owncloudnewsreader.database.DatabaseMigrations}.
      */
     public abstract int getVersionNumber();
 }
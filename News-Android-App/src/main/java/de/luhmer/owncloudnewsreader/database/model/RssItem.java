@@ -6,6 +6,7 @@ import de.luhmer.owncloudnewsreader.adapter.HasId;
 // THIS CODE IS GENERATED BY greenDAO, EDIT ONLY INSIDE THE "KEEP"-SECTIONS
 
 // KEEP INCLUDES - put your custom includes here
+import java.util.List;
 // KEEP INCLUDES END
 /**
  * Entity mapped to table "RSS_ITEM".
@@ -36,6 +37,7 @@ public class RssItem implements HasId<Long> {
     private String mediaThumbnail;
     private String mediaDescription;
     private Boolean rtl;
+    private String excerpt;
 
     /** Used to resolve relations */
     private transient DaoSession daoSession;
@@ -48,6 +50,10 @@ public class RssItem implements HasId<Long> {
 
 
     // KEEP FIELDS - put your custom fields here
+    // Plain text of the body - only set while syncing (used for the search index, not stored in RSS_ITEM)
+    private transient String bodyText;
+    // Links of the images in the body - only set while syncing (stored in RSS_ITEM_IMAGE)
+    private transient List<String> imageLinks;
     // KEEP FIELDS END
 
     public RssItem() {
@@ -57,7 +63,7 @@ public class RssItem implements HasId<Long> {
         this.id = id;
     }
 
-    public RssItem(long id, long feedId, String link, String title, String body, Boolean read, Boolean starred, String author, String guid, String guidHash, String fingerprint, Boolean read_temp, Boolean starred_temp, java.util.Date lastModified, java.util.Date pubDate, String enclosureLink, String enclosureMime, String mediaThumbnail, String mediaDescription, Boolean rtl) {
+    public RssItem(long id, long feedId, String link, String title, String body, Boolean read, Boolean starred, String author, String guid, String guidHash, String fingerprint, Boolean read_temp, Boolean starred_temp, java.util.Date lastModified, java.util.Date pubDate, String enclosureLink, String enclosureMime, String mediaThumbnail, String mediaDescription, Boolean rtl, String excerpt) {
         this.id = id;
         this.feedId = feedId;
         this.link = link;
@@ -78,6 +84,7 @@ public class RssItem implements HasId<Long> {
         this.mediaThumbnail = mediaThumbnail;
         this.mediaDescription = mediaDescription;
         this.rtl = rtl;
+        this.excerpt = excerpt;
     }
 
     /** called by internal mechanisms, do not call yourself. */
@@ -254,6 +261,14 @@ public class RssItem implements HasId<Long> {
         this.rtl = rtl;
     }
 
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public void setExcerpt(String excerpt) {
+        this.excerpt = excerpt;
+    }
+
     /** To-one relationship, resolved on first access. */
     public Feed getFeed() {
         long __key = this.feedId;
@@ -307,6 +322,21 @@ public class RssItem implements HasId<Long> {
     }
 
     // KEEP METHODS - put your custom methods here
+    public String getBodyText() {
+        return bodyText;
+    }
+
+    public void setBodyText(String bodyText) {
+        this.bodyText = bodyText;
+    }
+
+    public List<String> getImageLinks() {
+        return imageLinks;
+    }
+
+    public void setImageLinks(List<String> imageLinks) {
+        this.imageLinks = imageLinks;
+    }
     // KEEP METHODS END
 
 }
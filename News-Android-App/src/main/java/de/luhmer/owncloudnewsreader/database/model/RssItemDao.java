@@ -102,6 +102,11 @@ public class RssItemDao extends AbstractDao<RssItem, Long> {
         if (rtl != null) {
             stmt.bindLong(20, rtl ? 1L : 0L);
         }
+
+        String excerpt = entity.getExcerpt();
+        if (excerpt != null) {
+            stmt.bindString(21, excerpt);
+        }
     }
 
     private DaoSession daoSession;
@@ -140,10 +145,15 @@ public class RssItemDao extends AbstractDao<RssItem, Long> {
                 "\"ENCLOSURE_MIME\" TEXT," + // 16: enclosureMime
                 "\"MEDIA_THUMBNAIL\" TEXT," + // 17: mediaThumbnail
                 "\"MEDIA_DESCRIPTION\" TEXT," + // 18: mediaDescription
-                "\"RTL\" INTEGER);"); // 19: rtl
+                "\"RTL\" INTEGER," + // 19: rtl
+                "\"EXCERPT\" TEXT);"); // 20: excerpt
         // Add Indexes
-        db.execSQL("CREATE INDEX " + constraint + "IDX_RSS_ITEM_FEED_ID ON RSS_ITEM" +
-                " (\"FEED_ID\");");
+        db.execSQL("CREATE INDEX " + constraint + "IDX_RSS_ITEM_FINGERPRINT ON RSS_ITEM" +
+                " (\"FINGERPRINT\");");
+        db.execSQL("CREATE INDEX " + constraint + "IDX_RSS_ITEM_LAST_MODIFIED ON RSS_ITEM" +
+                " (\"LAST_MODIFIED\");");
+        db.execSQL("CREATE INDEX " + constraint + "IDX_RSS_ITEM_FEED_ID_PUB_DATE ON RSS_ITEM" +
+                " (\"FEED_ID\",\"PUB_DATE\");");
     }
 
     /** Drops the underlying database table. */
@@ -191,7 +201,8 @@ public class RssItemDao extends AbstractDao<RssItem, Long> {
                 cursor.isNull(offset + 16) ? null : cursor.getString(offset + 16), // enclosureMime
                 cursor.isNull(offset + 17) ? null : cursor.getString(offset + 17), // mediaThumbnail
                 cursor.isNull(offset + 18) ? null : cursor.getString(offset + 18), // mediaDescription
-                cursor.isNull(offset + 19) ? null : cursor.getShort(offset + 19) != 0 // rtl
+                cursor.isNull(offset + 19) ? null : cursor.getShort(offset + 19) != 0, // rtl
+                cursor.isNull(offset + 20) ? null : cursor.getString(offset + 20) // excerpt
         );
         return entity;
     }
@@ -231,6 +242,7 @@ public class RssItemDao extends AbstractDao<RssItem, Long> {
         entity.setMediaThumbnail(cursor.isNull(offset + 17) ? null : cursor.getString(offset + 17));
         entity.setMediaDescription(cursor.isNull(offset + 18) ? null : cursor.getString(offset + 18));
         entity.setRtl(cursor.isNull(offset + 19) ? null : cursor.getShort(offset + 19) != 0);
+        entity.setExcerpt(cursor.isNull(offset + 20) ? null : cursor.getString(offset + 20));
     }
 
     /**
@@ -319,6 +331,7 @@ public class RssItemDao extends AbstractDao<RssItem, Long> {
         public final static Property MediaThumbnail = new Property(17, String.class, "mediaThumbnail", false, "MEDIA_THUMBNAIL");
         public final static Property MediaDescription = new Property(18, String.class, "mediaDescription", false, "MEDIA_DESCRIPTION");
         public final static Property Rtl = new Property(19, Boolean.class, "rtl", false, "RTL");
+        public final static Property Excerpt = new Property(20, String.class, "excerpt", false, "EXCERPT");
     }
 
     public RssItem loadDeep(Long key) {
@@ -0,0 +1,68 @@
+package de.luhmer.owncloudnewsreader.helper;
+
+import android.text.Html;
+
+import java.util.regex.Pattern;
+
+/**
+ * Creates the plain text preview of an article which is shown in the list of articles.
+ * The excerpt is calculated once while syncing (see InsertRssItemIntoDatabase) and stored in the
+ * database so that the view holders don't need to parse the html body every time they are bound.
+ */
+public class ExcerptHelper {
+
+    // Max. amount of characters of the preview shown in the list
+    public static final int EXCERPT_LENGTH = 400;
+
+    private static final Pattern PATTERN_IMG = Pattern.compile("<img[^>]*>");
+    private static final Pattern PATTERN_VIDEO = Pattern.compile("<video[^>]*>");
+
+    private ExcerptHelper() {
+    }
+
+    /**
+     * @return the plain text excerpt of an article (the media description is preferred over the body)
+     */
+    public static String getExcerpt(String mediaDescription, String body) {
+        String text = mediaDescription;
+        if (text == null || text.isEmpty()) {
+            text = body;
+        }
+        if (text == null) {
+            return "";
+        }
+        return Html.fromHtml(getBodyText(text, EXCERPT_LENGTH)).toString();
+    }
+
+    /**
+     * Same as {@link #getExcerpt(String, String)} for items without media description - but
+     * based on the already stripped body (see {@link #getBodyText(String, int)} with maxLength 0)
+     */
+    public static String getExcerptOfBodyText(String bodyText) {
+        return Html.fromHtml(limit(bodyText, EXCERPT_LENGTH)).toString();
+    }
+
+    /**
+     * Strips html (and images / videos) from the given body.
+     *
+     * @param maxLength the text is cut after maxLength characters (no limit if &lt;= 0)
+     */
+    public static String getBodyText(String body, int maxLength) {
+        if (body.startsWith("<![CDATA[")) {
+            body = body.replaceFirst(Pattern.quote("<![CDATA["), "");
+            body = body.replaceFirst("]]>", "");
+        }
+
+        body = PATTERN_IMG.matcher(body).replaceAll("");
+        body = PATTERN_VIDEO.matcher(body).replaceAll("");
+
+        return limit(Html.fromHtml(body).toString().trim(), maxLength);
+    }
+
+    private static String limit(String text, int maxLength) {
+        if (maxLength > 0 && text.length() > maxLength) {
+            return text.substring(0, maxLength) + "...";
+        }
+        return text;
+    }
+}
@@ -13,6 +13,7 @@ import de.luhmer.owncloudnewsreader.database.model.RssItem;
 import de.luhmer.owncloudnewsreader.model.OcsUser;
 import de.luhmer.owncloudnewsreader.reader.nextcloud.NextcloudNewsDeserializer;
 import de.luhmer.owncloudnewsreader.reader.nextcloud.NextcloudServerDeserializer;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.RssItemListTypeAdapter;
 import de.luhmer.owncloudnewsreader.reader.nextcloud.Types;
 
 /**
@@ -32,7 +33,7 @@ public class GsonConfig {
                 .setLenient()
                 .registerTypeAdapter(folderList,   new NextcloudNewsDeserializer<>(Types.FOLDERS.toString(), Folder.class))
                 .registerTypeAdapter(feedList,     new NextcloudNewsDeserializer<>(Types.FEEDS.toString(), Feed.class))
-                .registerTypeAdapter(rssItemsList, new NextcloudNewsDeserializer<>(Types.ITEMS.toString(), RssItem.class))
+                .registerTypeAdapter(rssItemsList, new RssItemListTypeAdapter().nullSafe())
                 .registerTypeAdapter(ocsUser,      new NextcloudServerDeserializer<>("ocsUser", OcsUser.class))
                 .create();
     }
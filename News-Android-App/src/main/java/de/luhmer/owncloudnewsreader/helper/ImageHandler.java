@@ -26,6 +26,8 @@ import android.util.Log;
 
 import com.bumptech.glide.Glide;
 
+import org.greenrobot.eventbus.EventBus;
+
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -33,12 +35,14 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import de.luhmer.owncloudnewsreader.services.events.ImageCacheChangedEvent;
+
 public class ImageHandler {
     private static final String TAG = "[ImageHandler]";
     private static final Pattern patternImg = Pattern.compile("<img[^>]*>");
     private static final Pattern patternImgSrcLink = Pattern.compile("src=\"(.*?)\"");
-    private static final Pattern patternHref = Pattern.compile("<a[^>]*>");
-    private static final Pattern patternHrefLink = Pattern.compile("href=\"(.*?)\"");
+    // images and anchors (same as <img[^>]*> and <a[^>]*>)
+    private static final Pattern patternLinkElement = Pattern.compile("<(?:img|a)[^>]*>");
 
     public static List<String> getImageLinksFromText(String articleUrl, String text) {
 		List<String> links = new ArrayList<>();
@@ -68,115 +72,184 @@ public class ImageHandler {
 	}
 
     public static String fixBrokenImageLinksInArticle(String articleUrl, String text) {
-        return fixBrokenLinkInArticle(articleUrl, text, patternImg, patternImgSrcLink, "src");
+        return fixBrokenLinksInArticle(articleUrl, text, true, false, null);
     }
 
     public static String fixBrokenHrefInArticle(String articleUrl, String text) {
-        return fixBrokenLinkInArticle(articleUrl, text, patternHref, patternHrefLink, "href");
+        return fixBrokenLinksInArticle(articleUrl, text, false, true, null);
+    }
+
+    /**
+     * Fixes the links of images (src) and anchors (href) in a single pass over the article. Each
+     * link is replaced where it was found - the article is copied at most once, no matter how many
+     * links need to be fixed.
+     *
+     * @param imageLinks if not null, the (fixed) links of all images are added to this list - same
+     *                   as {@link #getImageLinksFromText(String, String)} on the result
+     */
+    public static String fixBrokenLinksInArticle(String articleUrl, String text, List<String> imageLinks) {
+        return fixBrokenLinksInArticle(articleUrl, text, true, true, imageLinks);
     }
 
-    public static String fixBrokenLinkInArticle(String articleUrl, String text, Pattern matcherElement, Pattern matcherLink, String htmlAttribut) {
-        Matcher matcher = matcherElement.matcher(text);
+    private static String fixBrokenLinksInArticle(String articleUrl, String text, boolean fixImages, boolean fixHrefs, List<String> imageLinks) {
+        // the result is only copied once the first link needs to be fixed
+        StringBuilder sb = null;
+        int copied = 0;
+
+        Matcher matcher = patternLinkElement.matcher(text);
         // Check all occurrences
         while (matcher.find()) {
-            Matcher matcherSrcLink = matcherLink.matcher(matcher.group());
-            if(matcherSrcLink.find()) {
-                String link = matcherSrcLink.group(1);
-                String originalLink = link;
-                String originalArticleUrl = articleUrl;
-                if(link != null) {
-                    if(link.startsWith("//")) { //Maybe the text contains image urls without http or https prefix.
-                        // System.out.println("CASE_MISSING_PROTOCOL");
-                        link = "https:" + link;
-                    } else if (link.startsWith("/")) { // detected absolute url
-                        // System.out.println("CASE_ABSOLUTE_URL");
-                        try {
-                            URL uri = new URL(articleUrl);
-                            String protocol = uri.getProtocol();
-                            String authority = uri.getAuthority();
-                            link = String.format("%s://%s", protocol, authority) + link;
-                        } catch (MalformedURLException e) {
-                            e.printStackTrace();
-                            Log.e(TAG, e.toString());
-                        }
-                    } else {
-                        // check if we have relative urls such as
-                        // ./abc.jpeg or ./../abc.jpeg, ../abc.jpeg or ../../abc.jpeg
-                        boolean linkNeedsHost = false;
-                        if(link.startsWith("./")) {
-                            //Log.d(TAG, "fix relative url (remove ./ in front)");
-                            link = link.substring(2); // remove ./ from link
-                            linkNeedsHost = true;
-                        }
+            int tagStart = matcher.start();
+            int tagEnd = matcher.end();
 
-                        // if link is relative without anything else in front (e.g. pix/wow.svg)
-                        if(!link.startsWith("http") && !link.startsWith(".") && !"about:blank".equals(articleUrl)) {
-                            if(!link.contains("/")) {
-                                // could be just a domain name or a reference to a file in the same directory (either way we should leave it as it is)
-                                //System.out.println("CASE_RELATIVE_DOMAIN_OR_FILE");
-                            } else {
-                                String lastPartOfUrl = getFileName(link);
-
-                                // the link ends with a filname (e.g. "test.jpg") - therefore we can assume that it is a relative url
-                                if(lastPartOfUrl.contains(".")) {
-                                    if(!articleUrl.endsWith("/")) {
-                                        // the article contains a file in the end (doesn't end with "/") - therefore we need to remove the last part of the article URL
-                                        // System.out.println("CASE_RELATIVE_FILE_END");
-                                        // remove last part of article url to get a relative url
-                                        articleUrl = sliceLastPathOfUrl(articleUrl);
-                                        linkNeedsHost = true;
-                                    } else {
-                                        // article URL ends with a "/" so we can just append it
-                                        // System.out.println("CASE_RELATIVE_ADD_HOST");
-                                        linkNeedsHost = true;
-                                    }
-                                } else {
-                                    // in case we have an url such as astralcodexten.substack.com/subscribe we assume that it is a path and we should not modify it
-                                    // System.out.println("CASE_RELATIVE_DOMAIN_SUBPATH");
-                                }
-                            }
-                        }
+            boolean isImage = text.startsWith("<img", tagStart);
+            if (isImage ? !fixImages && imageLinks == null : !fixHrefs) {
+                continue;
+            }
 
-                        // in case the article url is of type articles/matrix-vs-xmpp.html we need to remove the file plus the first part of the url
-                        if(link.startsWith("../") && !articleUrl.endsWith("/")) {
-                            // System.out.println("CASE_RELATIVE_PARENT");
-                            linkNeedsHost = true;
-                            articleUrl = sliceLastPathOfUrl(articleUrl);
-                            articleUrl = sliceLastPathOfUrl(articleUrl);
-                            link = link.substring(3); // remove ../ from link
-                        }
+            // same as src="(.*?)" / href="(.*?)" within the tag
+            String attribute = isImage ? "src=\"" : "href=\"";
+            int linkStart = indexOf(text, attribute, tagStart, tagEnd);
+            if (linkStart < 0) {
+                continue;
+            }
+            linkStart += attribute.length();
+            int linkEnd = indexOf(text, "\"", linkStart, tagEnd);
+            if (linkEnd < 0) {
+                continue;
+            }
 
-                        // if the article urls ends with an / we can just remove it piece by piece
-                        while(link.startsWith("../")) {
-                            // System.out.println("CASE_RELATIVE_PARENT");
-                            linkNeedsHost = true;
-                            articleUrl = sliceLastPathOfUrl(articleUrl);
-                            link = link.substring(3); // remove ../ from link
-                        }
+            String originalLink = text.substring(linkStart, linkEnd);
+            if (originalLink.indexOf('\n') >= 0) {
+                continue; // not matched by the regex (.*?) previously
+            }
+            String link = originalLink;
+            if (!isImage || fixImages) {
+                link = fixBrokenLink(articleUrl, originalLink);
+            }
 
-                        if(linkNeedsHost) {
-                            // concat article url + link (and make sure that we have only one /)
-                            if(articleUrl.endsWith("/")) {
-                                link = articleUrl + link;
-                            } else {
-                                link = articleUrl + "/" + link;
-                            }
+            if (isImage && imageLinks != null) {
+                String imageLink = link.startsWith("//") ? "https:" + link : link;
+                // the android universal image loader doesn't support svg images. Therefore we don't want to load them through UIL
+                if (imageLink.endsWith(".svg")) {
+                    Log.d(TAG, "detected unsupported svg image in article: " + articleUrl + " -> " + imageLink);
+                } else {
+                    imageLinks.add(imageLink);
+                }
+            }
+
+            if (!originalLink.equals(link)) {
+                // String l = "Fixed link in article: " + articleUrl + ": " + originalLink + " -> " + link;
+                // Log.d(TAG, l);
+                if (sb == null) {
+                    sb = new StringBuilder(text.length() + 1024);
+                }
+                sb.append(text, copied, linkStart).append(link);
+                copied = linkEnd;
+            }
+        }
+
+        if (sb == null) {
+            return text;
+        }
+        return sb.append(text, copied, text.length()).toString();
+    }
+
+    /**
+     * @return index of str in text between start and end (exclusive) or -1
+     */
+    private static int indexOf(String text, String str, int start, int end) {
+        for (int i = start; i <= end - str.length(); i++) {
+            if (text.startsWith(str, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the absolute url of a (relative) link in an article
+     */
+    private static String fixBrokenLink(String articleUrl, String link) {
+        if(link.startsWith("//")) { //Maybe the text contains image urls without http or https prefix.
+            // System.out.println("CASE_MISSING_PROTOCOL");
+            link = "https:" + link;
+        } else if (link.startsWith("/")) { // detected absolute url
+            // System.out.println("CASE_ABSOLUTE_URL");
+            try {
+                URL uri = new URL(articleUrl);
+                String protocol = uri.getProtocol();
+                String authority = uri.getAuthority();
+                link = String.format("%s://%s", protocol, authority) + link;
+            } catch (MalformedURLException e) {
+                e.printStackTrace();
+                Log.e(TAG, e.toString());
+            }
+        } else {
+            // check if we have relative urls such as
+            // ./abc.jpeg or ./../abc.jpeg, ../abc.jpeg or ../../abc.jpeg
+            boolean linkNeedsHost = false;
+            if(link.startsWith("./")) {
+                //Log.d(TAG, "fix relative url (remove ./ in front)");
+                link = link.substring(2); // remove ./ from link
+                linkNeedsHost = true;
+            }
+
+            // if link is relative without anything else in front (e.g. pix/wow.svg)
+            if(!link.startsWith("http") && !link.startsWith(".") && !"about:blank".equals(articleUrl)) {
+                if(!link.contains("/")) {
+                    // could be just a domain name or a reference to a file in the same directory (either way we should leave it as it is)
+                    //System.out.println("CASE_RELATIVE_DOMAIN_OR_FILE");
+                } else {
+                    String lastPartOfUrl = getFileName(link);
+
+                    // the link ends with a filname (e.g. "test.jpg") - therefore we can assume that it is a relative url
+                    if(lastPartOfUrl.contains(".")) {
+                        if(!articleUrl.endsWith("/")) {
+                            // the article contains a file in the end (doesn't end with "/") - therefore we need to remove the last part of the article URL
+                            // System.out.println("CASE_RELATIVE_FILE_END");
+                            // remove last part of article url to get a relative url
+                            articleUrl = sliceLastPathOfUrl(articleUrl);
+                            linkNeedsHost = true;
+                        } else {
+                            // article URL ends with a "/" so we can just append it
+                            // System.out.println("CASE_RELATIVE_ADD_HOST");
+                            linkNeedsHost = true;
                         }
+                    } else {
+                        // in case we have an url such as astralcodexten.substack.com/subscribe we assume that it is a path and we should not modify it
+                        // System.out.println("CASE_RELATIVE_DOMAIN_SUBPATH");
                     }
                 }
+            }
 
-                if(!originalLink.equals(link)) {
-                    // String l = "Fixed link in article: " + originalArticleUrl + ": " + originalLink + " -> " + link;
-                    // Log.d(TAG, l);
-                    // text = text.replaceAll(originalLink, link); // this causes OutOfMemoryExceptions (https://github.com/nextcloud/news-android/issues/1055)
+            // in case the article url is of type articles/matrix-vs-xmpp.html we need to remove the file plus the first part of the url
+            if(link.startsWith("../") && !articleUrl.endsWith("/")) {
+                // System.out.println("CASE_RELATIVE_PARENT");
+                linkNeedsHost = true;
+                articleUrl = sliceLastPathOfUrl(articleUrl);
+                articleUrl = sliceLastPathOfUrl(articleUrl);
+                link = link.substring(3); // remove ../ from link
+            }
+
+            // if the article urls ends with an / we can just remove it piece by piece
+            while(link.startsWith("../")) {
+                // System.out.println("CASE_RELATIVE_PARENT");
+                linkNeedsHost = true;
+                articleUrl = sliceLastPathOfUrl(articleUrl);
+                link = link.substring(3); // remove ../ from link
+            }
 
-                    Pattern URL_PATTERN = Pattern.compile(String.format("%s=\"%s\"", htmlAttribut, originalLink));
-                    Matcher urlMatcher = URL_PATTERN.matcher(text);
-                    text = urlMatcher.replaceAll(String.format("%s=\"%s\"", htmlAttribut, link));
+            if(linkNeedsHost) {
+                // concat article url + link (and make sure that we have only one /)
+                if(articleUrl.endsWith("/")) {
+                    link = articleUrl + link;
+                } else {
+                    link = articleUrl + "/" + link;
                 }
             }
         }
-        return text;
+        return link;
     }
 
     private static String sliceLastPathOfUrl(String url) {
@@ -205,5 +278,6 @@ public class ImageHandler {
     {
         Glide.get(context).clearMemory();
         Glide.get(context).clearDiskCache();
+        EventBus.getDefault().post(new ImageCacheChangedEvent());
     }
 }
@@ -8,6 +8,7 @@ import com.bumptech.glide.GlideBuilder
 import com.bumptech.glide.Registry
 import com.bumptech.glide.annotation.GlideModule
 import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory
+import com.bumptech.glide.load.engine.executor.GlideExecutor
 import com.bumptech.glide.module.AppGlideModule
 import com.bumptech.glide.samples.svg.SvgDecoder
 import com.bumptech.glide.samples.svg.SvgDrawableTranscoder
@@ -20,6 +21,9 @@ import javax.inject.Inject
 
 private const val CACHE_SIZE = 500
 
+// articles look up all their images in the disk cache at once (see RssItemToHtmlTask)
+private const val DISK_CACHE_THREAD_COUNT = 4
+
 private const val KB = 1024
 private const val MB = 1024 * KB
 
@@ -44,6 +48,13 @@ class NextcloudGlideModule : AppGlideModule() {
         // size disk cache with LRU eviction. The default disk cache size is 250 MB and is placed
         // in a specific directory in the Application’s cache folder.
         builder.setDiskCache(InternalCacheDiskCacheFactory(context, diskCacheSizeBytes.toLong()))
+        // the default executor uses a single thread - cache lookups of an article would run one by one
+        builder.setDiskCacheExecutor(
+            GlideExecutor
+                .newDiskCacheBuilder()
+                .setThreadCount(DISK_CACHE_THREAD_COUNT)
+                .build(),
+        )
         // builder.setDiskCache(ExternalPreferredCacheDiskCacheFactory(context))
 
         // #00ff00 Memory Cache (Green)
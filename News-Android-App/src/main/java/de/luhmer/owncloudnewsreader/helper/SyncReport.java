@@ -0,0 +1,183 @@
+package de.luhmer.owncloudnewsreader.helper;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings and counters of the phases of one sync (see
+ * {@link de.luhmer.owncloudnewsreader.authentication.OwnCloudSyncAdapter}). Phases can be recorded
+ * from several threads (folders, feeds and item states are synced in parallel) and more than once
+ * (the values are summed up). The reports of the last syncs are kept by {@link SyncReportStore}.
+ */
+public class SyncReport {
+
+    public enum Phase {
+        STATE_PUSH,
+        FOLDERS_FEEDS_FETCH,
+        DB_UPSERT,
+        ITEM_DOWNLOAD, // network (wall time of the download minus the cpu time needed for parsing)
+        PARSE, // cpu time of the thread reading the item responses
+        INSERT,
+        OVERSIZE_CLEANUP,
+        WIDGET_NOTIFICATION,
+        FAVICON_PREFETCH // enqueueing the download (the favicons are downloaded by DownloadImagesService)
+    }
+
+    public static class PhaseMetrics {
+        private Phase phase;
+        private long wallTimeMs;
+        private long items;
+        private long bytes;
+        private long rowsWritten;
+        private int retries;
+
+        private transient long wallTimeNanos;
+
+        private PhaseMetrics() {
+        }
+
+        PhaseMetrics(Phase phase) {
+            this.phase = phase;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public long getWallTimeMs() {
+            return wallTimeMs;
+        }
+
+        public long getItems() {
+            return items;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getRowsWritten() {
+            return rowsWritten;
+        }
+
+        public int getRetries() {
+            return retries;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %d ms, %d items, %d bytes, %d rows, %d retries",
+                    phase, wallTimeMs, items, bytes, rowsWritten, retries);
+        }
+    }
+
+    private final long startTime;
+    private long totalTimeMs;
+    private boolean firstSync;
+    private String error;
+    private final List<PhaseMetrics> phases = new ArrayList<>();
+
+    private transient final long startNanos;
+
+    public SyncReport() {
+        startTime = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Adds the values to the metrics of the phase.
+     *
+     * @param wallTimeNanos see {@link System#nanoTime()}
+     * @param bytes         amount of bytes received (0 if unknown)
+     */
+    public synchronized void record(Phase phase, long wallTimeNanos, long items, long bytes, long rowsWritten) {
+        PhaseMetrics metrics = getOrCreate(phase);
+        metrics.wallTimeNanos += wallTimeNanos;
+        metrics.wallTimeMs = TimeUnit.NANOSECONDS.toMillis(metrics.wallTimeNanos);
+        metrics.items += items;
+        metrics.bytes += bytes;
+        metrics.rowsWritten += rowsWritten;
+    }
+
+    public synchronized void addRetry(Phase phase) {
+        getOrCreate(phase).retries++;
+    }
+
+    public synchronized void setFirstSync(boolean firstSync) {
+        this.firstSync = firstSync;
+    }
+
+    public synchronized void setError(Throwable error) {
+        this.error = error.toString();
+    }
+
+    /**
+     * Stops the total time of the sync.
+     */
+    public synchronized void finish() {
+        totalTimeMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return the metrics of the phase or null if it hasn't been recorded
+     */
+    public synchronized PhaseMetrics getPhase(Phase phase) {
+        for (PhaseMetrics metrics : phases) {
+            if (metrics.phase == phase) {
+                return metrics;
+            }
+        }
+        return null;
+    }
+
+    public synchronized List<PhaseMetrics> getPhases() {
+        return new ArrayList<>(phases);
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public synchronized long getTotalTimeMs() {
+        return totalTimeMs;
+    }
+
+    public synchronized boolean isFirstSync() {
+        return firstSync;
+    }
+
+    public synchronized String getError() {
+        return error;
+    }
+
+    private PhaseMetrics getOrCreate(Phase phase) {
+        PhaseMetrics metrics = getPhase(phase);
+        if (metrics == null) {
+            metrics = new PhaseMetrics(phase);
+            // keep the order of the phases (independent of the order they have been recorded)
+            int index = 0;
+            while (index < phases.size() && phases.get(index).phase.ordinal() < phase.ordinal()) {
+                index++;
+            }
+            phases.add(index, metrics);
+        }
+        return metrics;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "Sync %s: %d ms%s", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ROOT).format(new Date(startTime)), totalTimeMs, firstSync ? " (first sync)" : ""));
+        if (error != null) {
+            sb.append(" - failed: ").append(error);
+        }
+        for (PhaseMetrics metrics : phases) {
+            sb.append("\n  ").append(metrics);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package de.luhmer.owncloudnewsreader.helper;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the reports of the last {@link #MAX_REPORTS} syncs (oldest first) as JSON in the shared
+ * preferences - the oldest report is dropped when a new one is added.
+ */
+public class SyncReportStore {
+
+    private static final String TAG = SyncReportStore.class.getCanonicalName();
+
+    static final int MAX_REPORTS = 20;
+    static final String PREF_SYNC_REPORTS = "SYNC_REPORTS";
+
+    private static final Object LOCK = new Object();
+
+    private final SharedPreferences mPrefs;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    public SyncReportStore(SharedPreferences prefs) {
+        this.mPrefs = prefs;
+    }
+
+    public void add(SyncReport report) {
+        synchronized (LOCK) {
+            List<SyncReport> reports = getReports();
+            reports.add(report);
+            if (reports.size() > MAX_REPORTS) {
+                reports = new ArrayList<>(reports.subList(reports.size() - MAX_REPORTS, reports.size()));
+            }
+            mPrefs.edit().putString(PREF_SYNC_REPORTS, gson.toJson(reports)).apply();
+        }
+    }
+
+    /**
+     * @return the stored reports (oldest first)
+     */
+    public List<SyncReport> getReports() {
+        String json = mPrefs.getString(PREF_SYNC_REPORTS, null);
+        if (json != null) {
+            try {
+                List<SyncReport> reports = gson.fromJson(json, new TypeToken<List<SyncReport>>() {}.getType());
+                if (reports != null) {
+                    return reports;
+                }
+            } catch (JsonParseException ex) {
+                Log.e(TAG, "Failed to read sync reports", ex);
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    public String toJson() {
+        return gson.toJson(getReports());
+    }
+
+    /**
+     * @return human readable summary of the stored reports (newest first)
+     */
+    public String getSummary() {
+        List<SyncReport> reports = getReports();
+        StringBuilder sb = new StringBuilder();
+        for (int i = reports.size() - 1; i >= 0; i--) {
+            sb.append(reports.get(i)).append("\n\n");
+        }
+        return sb.toString().trim();
+    }
+
+    /**
+     * Writes the reports as JSON to the cache directory.
+     */
+    public File export(Context context) throws IOException {
+        File file = new File(NewsFileUtils.getCacheDirPath(context), "syncReports.json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+        return file;
+    }
+}
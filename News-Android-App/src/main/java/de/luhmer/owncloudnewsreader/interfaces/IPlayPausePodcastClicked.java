@@ -1,8 +1,8 @@
 package de.luhmer.owncloudnewsreader.interfaces;
 
-import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.model.PodcastItem;
 
 public interface IPlayPausePodcastClicked {
-    void openPodcast(RssItem rssItem);
+    void openPodcast(PodcastItem podcastItem);
     void pausePodcast();
 }
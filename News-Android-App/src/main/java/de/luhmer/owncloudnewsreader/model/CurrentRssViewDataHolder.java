@@ -2,9 +2,7 @@ package de.luhmer.owncloudnewsreader.model;
 
 import java.util.List;
 
-import de.luhmer.owncloudnewsreader.database.model.RssItem;
-
 public class CurrentRssViewDataHolder {
     public Long maxCount;
-    public List<RssItem> rssItems;
+    public List<RssItemListEntry> rssItems;
 }
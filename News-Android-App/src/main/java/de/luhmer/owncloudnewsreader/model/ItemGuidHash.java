@@ -0,0 +1,17 @@
+package de.luhmer.owncloudnewsreader.model;
+
+/**
+ * Lightweight projection of an RssItem which contains only the fields required to identify an
+ * item on the server (used for starring / unstarring items).
+ */
+public class ItemGuidHash {
+    public final long id;
+    public final long feedId;
+    public final String guidHash;
+
+    public ItemGuidHash(long id, long feedId, String guidHash) {
+        this.id = id;
+        this.feedId = feedId;
+        this.guidHash = guidHash;
+    }
+}
@@ -0,0 +1,126 @@
+package de.luhmer.owncloudnewsreader.model;
+
+import java.util.Date;
+
+import de.luhmer.owncloudnewsreader.adapter.HasId;
+import de.luhmer.owncloudnewsreader.database.model.Feed;
+
+/**
+ * Lightweight representation of an RssItem which is used to display the list of articles.
+ * In contrast to {@link de.luhmer.owncloudnewsreader.database.model.RssItem} it doesn't contain
+ * the (possibly huge) body of the article - only a short plain text excerpt of it.
+ */
+public class RssItemListEntry implements HasId<Long> {
+
+    private final long id;
+    private final long feedId;
+    private final Feed feed;
+    private final String link;
+    private final String title;
+    private final String body;
+    private final String excerpt;
+    private boolean read_temp;
+    private boolean starred_temp;
+    private final Date pubDate;
+    private final String fingerprint;
+    private final String enclosureLink;
+    private final String enclosureMime;
+    private final String mediaThumbnail;
+    private final String mediaDescription;
+
+    public RssItemListEntry(long id, long feedId, Feed feed, String link, String title, String body, String excerpt,
+                            boolean read_temp, boolean starred_temp, Date pubDate, String fingerprint,
+                            String enclosureLink, String enclosureMime, String mediaThumbnail, String mediaDescription) {
+        this.id = id;
+        this.feedId = feedId;
+        this.feed = feed;
+        this.link = link;
+        this.title = title;
+        this.body = body;
+        this.excerpt = excerpt;
+        this.read_temp = read_temp;
+        this.starred_temp = starred_temp;
+        this.pubDate = pubDate;
+        this.fingerprint = fingerprint;
+        this.enclosureLink = enclosureLink;
+        this.enclosureMime = enclosureMime;
+        this.mediaThumbnail = mediaThumbnail;
+        this.mediaDescription = mediaDescription;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public long getFeedId() {
+        return feedId;
+    }
+
+    public Feed getFeed() {
+        return feed;
+    }
+
+    public String getLink() {
+        return link;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the (html) body of the article - only loaded if the list layout displays the
+     * whole article (text only and full text layout), null otherwise
+     */
+    public String getBody() {
+        return body;
+    }
+
+    /**
+     * @return plain text preview of the article
+     */
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public boolean getRead_temp() {
+        return read_temp;
+    }
+
+    public void setRead_temp(boolean read_temp) {
+        this.read_temp = read_temp;
+    }
+
+    public boolean getStarred_temp() {
+        return starred_temp;
+    }
+
+    public void setStarred_temp(boolean starred_temp) {
+        this.starred_temp = starred_temp;
+    }
+
+    public Date getPubDate() {
+        return pubDate;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getEnclosureLink() {
+        return enclosureLink;
+    }
+
+    public String getEnclosureMime() {
+        return enclosureMime;
+    }
+
+    public String getMediaThumbnail() {
+        return mediaThumbnail;
+    }
+
+    public String getMediaDescription() {
+        return mediaDescription;
+    }
+}
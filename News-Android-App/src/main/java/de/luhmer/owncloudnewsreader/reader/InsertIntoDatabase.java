@@ -24,8 +24,10 @@ package de.luhmer.owncloudnewsreader.reader;
 import android.util.Log;
 
 import java.util.List;
+import java.util.Objects;
 
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
+import de.luhmer.owncloudnewsreader.database.EntityDiff;
 import de.luhmer.owncloudnewsreader.database.model.Feed;
 import de.luhmer.owncloudnewsreader.database.model.Folder;
 import de.luhmer.owncloudnewsreader.helper.FavIconUtils;
@@ -33,73 +35,44 @@ import de.luhmer.owncloudnewsreader.helper.FavIconUtils;
 public class InsertIntoDatabase {
     private static final String TAG = "InsertRssItemIntoDb";
 
-    public static void InsertFoldersIntoDatabase(List<Folder> folderList, DatabaseConnectionOrm dbConn)
+    /**
+     * Updates the folders and feeds to the state of the server in one transaction. Only added,
+     * changed and removed folders / feeds are written (null = keep the stored ones).
+     *
+     * @return amount of written folders and feeds
+     */
+    public static int InsertFoldersAndFeedsIntoDatabase(List<Folder> folderList, List<Feed> feeds, DatabaseConnectionOrm dbConn)
     {
-        dbConn.deleteOldAndInsertNewFolders(folderList);
+        EntityDiff<Folder> folderDiff = folderList != null ? diffFolders(dbConn.getListOfFolders(), folderList) : EntityDiff.empty();
+        EntityDiff<Feed> feedDiff = feeds != null ? diffFeeds(dbConn.getListOfFeeds(), feeds) : EntityDiff.empty();
+        Log.v(TAG, "Folders: " + folderDiff + " - Feeds: " + feedDiff);
 
-        /*
-        List<Feed> feeds = dbConn.getListOfFeeds();
-
-        List<String> tagsAvailable = new ArrayList<String>(feeds.size());
-        for(int i = 0; i < feeds.size(); i++)
-            tagsAvailable.add(feeds.get(i).getFeedTitle());
-
-
-        if(folderList != null)
-        {
-            int addedCount = 0;
-            int removedCount = 0;
-
-            for(Folder folder : folderList)
-            {
-                if(!tagsAvailable.contains(folder.getLabel()))
-                {
-                    addedCount++;
-                    dbConn.insertNewFolder(folder);
-                }
-            }
-
-            Log.d("ADD", ""+ addedCount);
-            Log.d("REMOVE", ""+ removedCount++);
-        }
-    */
+        dbConn.applySubscriptionChanges(folderDiff, feedDiff);
+        return folderDiff.getChangeCount() + feedDiff.getChangeCount();
     }
 
-    public static void InsertFeedsIntoDatabase(List<Feed> feeds, DatabaseConnectionOrm dbConn)
-    {
-        List<Feed> oldFeeds = dbConn.getListOfFeeds();
-
-        if(feeds != null)
-        {
-            dbConn.insertNewFeed(feeds);
-
-            for(Feed oldFeed : oldFeeds)
-            {
-                boolean found = false;
-                for(Feed newFeed : feeds)
-                {
-                    if(oldFeed.getId() == newFeed.getId()) {
-                        found = true;
-
-                        // Set the avg color after sync again.
-                        newFeed.setAvgColour(oldFeed.getAvgColour());
-                        // Set the notification channel after sync again
-                        newFeed.setNotificationChannel(oldFeed.getNotificationChannel());
-                        newFeed.setOpenIn(oldFeed.getOpenIn());
-
-                        // fix favicon url
-                        newFeed.setFaviconUrl(FavIconUtils.fixFavIconUrl(newFeed.getFaviconUrl()));
+    static EntityDiff<Folder> diffFolders(List<Folder> oldFolders, List<Folder> newFolders) {
+        return EntityDiff.compute(oldFolders, newFolders, Folder::getId,
+                (oldFolder, newFolder) -> !Objects.equals(oldFolder.getLabel(), newFolder.getLabel()));
+    }
 
-                        dbConn.updateFeed(newFeed);
-                        break;
-                    }
-                }
-                if(!found)
-                {
-                    dbConn.removeFeedById(oldFeed.getId());
-                    Log.v(TAG, "Remove Subscription: " + oldFeed.getFeedTitle());
-                }
-            }
+    static EntityDiff<Feed> diffFeeds(List<Feed> oldFeeds, List<Feed> newFeeds) {
+        for (Feed newFeed : newFeeds) {
+            // fix favicon url
+            newFeed.setFaviconUrl(FavIconUtils.fixFavIconUrl(newFeed.getFaviconUrl()));
         }
+
+        return EntityDiff.compute(oldFeeds, newFeeds, Feed::getId, (oldFeed, newFeed) -> {
+            // Set the avg color after sync again.
+            newFeed.setAvgColour(oldFeed.getAvgColour());
+            // Set the notification channel after sync again
+            newFeed.setNotificationChannel(oldFeed.getNotificationChannel());
+            newFeed.setOpenIn(oldFeed.getOpenIn());
+
+            return !Objects.equals(oldFeed.getFolderId(), newFeed.getFolderId()) ||
+                    !Objects.equals(oldFeed.getFeedTitle(), newFeed.getFeedTitle()) ||
+                    !Objects.equals(oldFeed.getFaviconUrl(), newFeed.getFaviconUrl()) ||
+                    !Objects.equals(oldFeed.getLink(), newFeed.getLink());
+        });
     }
 }
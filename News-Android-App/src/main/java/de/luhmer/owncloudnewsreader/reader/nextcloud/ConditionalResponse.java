@@ -0,0 +1,149 @@
+package de.luhmer.owncloudnewsreader.reader.nextcloud;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import de.luhmer.owncloudnewsreader.database.ResponseValidators;
+import de.luhmer.owncloudnewsreader.database.model.Feed;
+import de.luhmer.owncloudnewsreader.database.model.Folder;
+import de.luhmer.owncloudnewsreader.helper.GsonConfig;
+import io.reactivex.rxjava3.core.Observable;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.ByteString;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+/**
+ * Response of a request of the folders or feeds which is only parsed if it has changed since the
+ * last sync. The validators of the last response written to the database are sent as
+ * If-None-Match / If-Modified-Since - if the server answers with 304 (or the body has the same hash
+ * as the last one, e.g. if the server doesn't support conditional requests) the response is not
+ * modified and {@link #getData()} returns null.
+ * <p>
+ * With single sign on the headers of the response are not available, so only the hash of the body
+ * is compared.
+ * <p>
+ * The validators must only be stored (see {@link #getValidators()}) after the data has been
+ * written to the database.
+ */
+public class ConditionalResponse<T> {
+
+    public static final String ENDPOINT_FOLDERS = "folders";
+    public static final String ENDPOINT_FEEDS = "feeds";
+
+    static final int HTTP_NOT_MODIFIED = 304;
+
+    private static final Type FOLDER_LIST = new TypeToken<List<Folder>>() {}.getType();
+    private static final Type FEED_LIST = new TypeToken<List<Feed>>() {}.getType();
+
+    private final T data;
+    private final ResponseValidators validators;
+    private final long byteCount;
+
+    private ConditionalResponse(T data, ResponseValidators validators, long byteCount) {
+        this.data = data;
+        this.validators = validators;
+        this.byteCount = byteCount;
+    }
+
+    /**
+     * @param stored validators of the last response written to the database (null if none)
+     */
+    public static Observable<ConditionalResponse<List<Folder>>> folders(NewsAPI newsApi, boolean useSso, ResponseValidators stored) {
+        if (useSso) {
+            return newsApi.foldersBody().map(body -> ConditionalResponse.<List<Folder>>fromBody(body, stored, FOLDER_LIST));
+        }
+        return newsApi.foldersIfModified(getETag(stored), getLastModified(stored))
+                .map(response -> ConditionalResponse.<List<Folder>>fromResponse(response, stored, FOLDER_LIST));
+    }
+
+    /**
+     * @param stored validators of the last response written to the database (null if none)
+     */
+    public static Observable<ConditionalResponse<List<Feed>>> feeds(NewsAPI newsApi, boolean useSso, ResponseValidators stored) {
+        if (useSso) {
+            return newsApi.feedsBody().map(body -> ConditionalResponse.<List<Feed>>fromBody(body, stored, FEED_LIST));
+        }
+        return newsApi.feedsIfModified(getETag(stored), getLastModified(stored))
+                .map(response -> ConditionalResponse.<List<Feed>>fromResponse(response, stored, FEED_LIST));
+    }
+
+    static <T> ConditionalResponse<T> fromResponse(Response<ResponseBody> response, ResponseValidators stored, Type type) throws IOException {
+        if (response.code() == HTTP_NOT_MODIFIED && stored != null) {
+            return new ConditionalResponse<>(null, stored, 0);
+        }
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new HttpException(response);
+        }
+        try (ResponseBody body = response.body()) {
+            ByteString content = body.source().readByteString();
+            ResponseValidators validators = new ResponseValidators(
+                    response.headers().get("ETag"),
+                    response.headers().get("Last-Modified"),
+                    content.sha256().hex());
+            return create(content, validators, stored, type);
+        }
+    }
+
+    static <T> ConditionalResponse<T> fromBody(ResponseBody responseBody, ResponseValidators stored, Type type) throws IOException {
+        try (ResponseBody body = responseBody) {
+            ByteString content = body.source().readByteString();
+            return create(content, new ResponseValidators(null, null, content.sha256().hex()), stored, type);
+        }
+    }
+
+    private static <T> ConditionalResponse<T> create(ByteString content, ResponseValidators validators, ResponseValidators stored, Type type) throws IOException {
+        if (stored != null && validators.getContentHash().equals(stored.getContentHash())) {
+            return new ConditionalResponse<>(null, validators, content.size());
+        }
+        try (Reader reader = new InputStreamReader(new Buffer().write(content).inputStream(), StandardCharsets.UTF_8)) {
+            Gson gson = GsonConfig.GetGson();
+            T data = gson.fromJson(reader, type);
+            if (data == null) {
+                throw new IOException("Empty response");
+            }
+            return new ConditionalResponse<>(data, validators, content.size());
+        }
+    }
+
+    private static String getETag(ResponseValidators stored) {
+        return stored != null ? stored.getETag() : null;
+    }
+
+    private static String getLastModified(ResponseValidators stored) {
+        return stored != null ? stored.getLastModified() : null;
+    }
+
+    /**
+     * @return true if the response differs from the last one written to the database
+     */
+    public boolean isModified() {
+        return data != null;
+    }
+
+    /**
+     * @return the parsed response or null if it hasn't been modified
+     */
+    public T getData() {
+        return data;
+    }
+
+    public ResponseValidators getValidators() {
+        return validators;
+    }
+
+    /**
+     * @return size of the received body (0 for 304 responses)
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+}
@@ -24,75 +24,194 @@ package de.luhmer.owncloudnewsreader.reader.nextcloud;
 import android.text.Html;
 import android.util.Log;
 
-import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.helper.ExcerptHelper;
 import de.luhmer.owncloudnewsreader.helper.ImageHandler;
 
 class InsertRssItemIntoDatabase {
 
     private final static String TAG = InsertRssItemIntoDatabase.class.getCanonicalName();
 
-    static RssItem parseItem(JsonObject e) {
-		Date pubDate = new Date(e.get("pubDate").getAsLong() * 1000);
+    private static final Pattern PATTERN_YOUTUBE_URL = Pattern.compile("^https?://(www.)?youtube.com/.*");
 
-        String content = e.get("body").getAsString();
+    // required fields of an item (see readItem)
+    private static final int FIELD_ID = 1;
+    private static final int FIELD_FEED_ID = 1 << 1;
+    private static final int FIELD_GUID = 1 << 2;
+    private static final int FIELD_GUID_HASH = 1 << 3;
+    private static final int FIELD_PUB_DATE = 1 << 4;
+    private static final int FIELD_BODY = 1 << 5;
+    private static final int FIELD_UNREAD = 1 << 6;
+    private static final int FIELD_STARRED = 1 << 7;
+    private static final int REQUIRED_FIELDS = (1 << 8) - 1;
 
-        /*
-        // URL Decoding content (some pages provide url decoded content - such as showrss.info
-        try {
-            // Try URL decoding
-            content = URLDecoder.decode(content, "UTF-8");
-        } catch (UnsupportedEncodingException e1) {
-            e1.printStackTrace();
+    /**
+     * Reads the array of items from a response of the items api ({"items": [...]}) - each item is
+     * passed to the consumer as soon as it has been read. The bodies are not processed (see
+     * {@link ItemBodyProcessor}).
+     */
+    static void readItems(JsonReader reader, Consumer<RssItem> consumer) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (Types.ITEMS.toString().equals(reader.nextName())) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    consumer.accept(readItem(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
         }
-        */
+        reader.endObject();
+    }
 
-        //String url = e.get("url").getAsString();
-        String url = getStringOrDefault("url", "about:blank", e);
-        String guid = e.get("guid").getAsString();
-        String enclosureLink = getStringOrEmpty("enclosureLink", e);
-        String enclosureMime = getStringOrEmpty("enclosureMime", e);
+    /**
+     * Reads the next item object from the reader. The fields are read directly into the RssItem
+     * (no JsonObject is created for the item). Unknown fields, arrays and nested objects are skipped.
+     */
+    static RssItem readItem(JsonReader reader) throws IOException {
+        RssItem rssItem = new RssItem();
+        rssItem.setFingerprint("");
+        rssItem.setLastModified(new Date(0));
+        rssItem.setRtl(false);
+        rssItem.setTitle("");
+        rssItem.setAuthor("");
+        rssItem.setLink("about:blank");
+        rssItem.setEnclosureLink("");
+        rssItem.setEnclosureMime("");
+        rssItem.setMediaDescription("");
+        rssItem.setMediaThumbnail("");
 
-        String mediaDescription = getStringOrEmpty("mediaDescription", e);
+        int fields = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if (token == JsonToken.NULL || token == JsonToken.BEGIN_ARRAY || token == JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+                continue;
+            }
 
-        Boolean rtl = getBooleanOrDefault("rtl", false, e);
+            switch (name) {
+                case "id":
+                    rssItem.setId(reader.nextLong());
+                    fields |= FIELD_ID;
+                    break;
+                case "feedId":
+                    rssItem.setFeedId(reader.nextLong());
+                    fields |= FIELD_FEED_ID;
+                    break;
+                case "guid":
+                    rssItem.setGuid(reader.nextString()); // non-null
+                    fields |= FIELD_GUID;
+                    break;
+                case "guidHash":
+                    rssItem.setGuidHash(reader.nextString()); // non-null
+                    fields |= FIELD_GUID_HASH;
+                    break;
+                case "pubDate":
+                    rssItem.setPubDate(new Date(reader.nextLong() * 1000));
+                    fields |= FIELD_PUB_DATE;
+                    break;
+                case "lastModified":
+                    rssItem.setLastModified(new Date(reader.nextLong()));
+                    break;
+                case "body":
+                    rssItem.setBody(reader.nextString());
+                    fields |= FIELD_BODY;
+                    break;
+                case "unread":
+                    rssItem.setRead(!nextBoolean(reader));
+                    rssItem.setRead_temp(rssItem.getRead());
+                    fields |= FIELD_UNREAD;
+                    break;
+                case "starred":
+                    rssItem.setStarred(nextBoolean(reader));
+                    rssItem.setStarred_temp(rssItem.getStarred());
+                    fields |= FIELD_STARRED;
+                    break;
+                case "rtl":
+                    rssItem.setRtl(nextBoolean(reader));
+                    break;
+                case "fingerprint":
+                    rssItem.setFingerprint(reader.nextString());
+                    break;
+                //Possible XSS fields
+                case "title":
+                    rssItem.setTitle(reader.nextString());
+                    break;
+                case "author":
+                    rssItem.setAuthor(reader.nextString());
+                    break;
+                case "url":
+                    rssItem.setLink(reader.nextString());
+                    break;
+                case "enclosureLink":
+                    rssItem.setEnclosureLink(reader.nextString());
+                    break;
+                case "enclosureMime":
+                    rssItem.setEnclosureMime(reader.nextString());
+                    break;
+                case "mediaDescription":
+                    rssItem.setMediaDescription(reader.nextString());
+                    break;
+                case "mediaThumbnail":
+                    rssItem.setMediaThumbnail(reader.nextString());
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-        if(enclosureLink.trim().equals("") && url.matches("^https?://(www.)?youtube.com/.*")) {
-            enclosureLink = url;
-            enclosureMime = "youtube";
+        if (fields != REQUIRED_FIELDS) {
+            throw new MalformedJsonException("Item " + rssItem.getId() + " is missing required fields (" + Integer.toBinaryString(fields) + ")");
         }
 
-        RssItem rssItem = new RssItem();
-        rssItem.setId(e.get("id").getAsLong());
-        rssItem.setFeedId(e.get("feedId").getAsLong());
-        rssItem.setGuid(guid); // non-null
-        rssItem.setGuidHash(e.get("guidHash").getAsString()); // non-null
-        rssItem.setFingerprint(getStringOrDefault("fingerprint", "", e));
-        rssItem.setLastModified(new Date(Long.parseLong(getStringOrDefault("lastModified", "0", e))));
-        rssItem.setRead(!e.get("unread").getAsBoolean());
-        rssItem.setRead_temp(rssItem.getRead());
-        rssItem.setStarred(e.get("starred").getAsBoolean());
-        rssItem.setStarred_temp(rssItem.getStarred());
-        rssItem.setPubDate(pubDate);
-        rssItem.setRtl(rtl);
-
-        //Possible XSS fields
-        rssItem.setTitle(getStringOrDefault("title", "", e));
-        rssItem.setAuthor(getStringOrDefault("author", "", e));
-        rssItem.setLink(url);
-        rssItem.setEnclosureLink(enclosureLink);
-        rssItem.setEnclosureMime(enclosureMime);
-        rssItem.setMediaDescription(mediaDescription);
+        if(rssItem.getEnclosureLink().trim().equals("") && PATTERN_YOUTUBE_URL.matcher(rssItem.getLink()).matches()) {
+            rssItem.setEnclosureLink(rssItem.getLink());
+            rssItem.setEnclosureMime("youtube");
+        }
 
         if(rssItem.getFingerprint() == null) {
             rssItem.setFingerprint(UUID.randomUUID().toString());
         }
 
+        return rssItem;
+    }
+
+    /**
+     * Fixes the links in the body of the item and calculates the preview text, thumbnail and the
+     * links of the images.
+     */
+    static void processBody(RssItem rssItem) {
+        String content = rssItem.getBody();
+        String url = rssItem.getLink();
+
+        /*
+        // URL Decoding content (some pages provide url decoded content - such as showrss.info
+        try {
+            // Try URL decoding
+            content = URLDecoder.decode(content, "UTF-8");
+        } catch (UnsupportedEncodingException e1) {
+            e1.printStackTrace();
+        }
+        */
+
         // Calculate the size of the rss items - useful if users run into a SQLiteBlobTooBigException
         // https://github.com/nextcloud/news-android/issues/887
         int contentLength = content.length();
@@ -110,12 +229,12 @@ class InsertRssItemIntoDatabase {
             Log.w(TAG, "Large rss item detected - " + content.length() + " chars  / " + content.length() / 1024d / 1024d + "mb - url: " + rssItem.getLink());
         }
 
+        List<String> images = new ArrayList<>();
         try {
-            // try fixing relative image links
-            content = ImageHandler.fixBrokenImageLinksInArticle(url, content);
-
-            // try fixing relative href links
-            content = ImageHandler.fixBrokenHrefInArticle(url, content);
+            // try fixing relative image and href links (and collect the images for the thumbnail
+            // and the image links stored with the item)
+            content = ImageHandler.fixBrokenLinksInArticle(url, content, images);
+            rssItem.setImageLinks(images);
         } catch (Exception ex) {
             ex.printStackTrace();
             Log.e(TAG, "Error while fixing broken image links in article" + ex);
@@ -128,10 +247,20 @@ class InsertRssItemIntoDatabase {
 
         rssItem.setBody(content);
 
-        String mediaThumbnail = getStringOrEmpty("mediaThumbnail", e); // Possible XSS Fields
+        // the list of articles only shows a plain text preview - calculate it once here instead of
+        // parsing the html each time the item is displayed. The plain text is indexed for the search as well
+        String mediaDescription = rssItem.getMediaDescription();
+        String bodyText = ExcerptHelper.getBodyText(content, 0);
+        rssItem.setBodyText(bodyText);
+        if (mediaDescription.isEmpty()) {
+            rssItem.setExcerpt(ExcerptHelper.getExcerptOfBodyText(bodyText));
+        } else {
+            rssItem.setExcerpt(ExcerptHelper.getExcerpt(mediaDescription, content));
+        }
+
+        String mediaThumbnail = rssItem.getMediaThumbnail(); // Possible XSS Fields
         // in case the server doesn't provide a mediaThumbnail - the app will try to find one
         if(mediaThumbnail.isEmpty()) {
-            List<String> images = ImageHandler.getImageLinksFromText(url, content);
             if (!images.isEmpty()) {
                 mediaThumbnail = Html.fromHtml(images.get(0)).toString();
                 // Log.d(TAG, "extracted mediaThumbnail from body" + mediaThumbnail);
@@ -140,28 +269,58 @@ class InsertRssItemIntoDatabase {
             }
         }
         rssItem.setMediaThumbnail(mediaThumbnail);
+    }
 
-        return rssItem;
-	}
-
-	private static String getStringOrEmpty(String key, JsonObject jObj) {
-        return getStringOrDefault(key, "", jObj);
+    /**
+     * Writes the items in the format of the items api ({"items": [...]}) - the counterpart of
+     * {@link #readItems(JsonReader, Consumer)}.
+     */
+    static void writeItems(JsonWriter writer, List<RssItem> items) throws IOException {
+        writer.beginObject();
+        writer.name(Types.ITEMS.toString());
+        writer.beginArray();
+        for (RssItem rssItem : items) {
+            writeItem(writer, rssItem);
+        }
+        writer.endArray();
+        writer.endObject();
     }
 
-    private static String getStringOrDefault(String key, String defaultValue, JsonObject jObj) {
-        if(jObj.has(key) && !jObj.get(key).isJsonNull()) {
-            return jObj.get(key).getAsString();
-        } else {
-            return defaultValue;
+    private static void writeItem(JsonWriter writer, RssItem rssItem) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(rssItem.getId());
+        writer.name("feedId").value(rssItem.getFeedId());
+        writer.name("guid").value(rssItem.getGuid());
+        writer.name("guidHash").value(rssItem.getGuidHash());
+        if (rssItem.getPubDate() != null) {
+            writer.name("pubDate").value(rssItem.getPubDate().getTime() / 1000);
         }
+        if (rssItem.getLastModified() != null) {
+            writer.name("lastModified").value(rssItem.getLastModified().getTime());
+        }
+        writer.name("body").value(rssItem.getBody());
+        writer.name("unread").value(rssItem.getRead() != null ? !rssItem.getRead() : null);
+        writer.name("starred").value(rssItem.getStarred());
+        writer.name("rtl").value(rssItem.getRtl());
+        writer.name("fingerprint").value(rssItem.getFingerprint());
+        writer.name("title").value(rssItem.getTitle());
+        writer.name("author").value(rssItem.getAuthor());
+        writer.name("url").value(rssItem.getLink());
+        writer.name("enclosureLink").value(rssItem.getEnclosureLink());
+        writer.name("enclosureMime").value(rssItem.getEnclosureMime());
+        writer.name("mediaDescription").value(rssItem.getMediaDescription());
+        writer.name("mediaThumbnail").value(rssItem.getMediaThumbnail());
+        writer.endObject();
     }
 
-    @SuppressWarnings("SameParameterValue")
-    private static Boolean getBooleanOrDefault(String key, Boolean defaultValue, JsonObject jObj) {
-        if(jObj.has(key) && !jObj.get(key).isJsonNull()) {
-            return jObj.get(key).getAsBoolean();
-        } else {
-            return defaultValue;
+    private static boolean nextBoolean(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER:
+                return reader.nextInt() != 0;
+            default:
+                return Boolean.parseBoolean(reader.nextString());
         }
     }
 }
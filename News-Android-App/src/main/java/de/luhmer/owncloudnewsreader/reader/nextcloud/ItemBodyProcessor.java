@@ -0,0 +1,171 @@
+package de.luhmer.owncloudnewsreader.reader.nextcloud;
+
+import android.util.Log;
+
+import org.greenrobot.eventbus.EventBus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.services.events.ItemBodiesProcessedEvent;
+
+/**
+ * Processes the bodies of synced items (links, plain text excerpt and thumbnail - see
+ * {@link InsertRssItemIntoDatabase#processBody(RssItem)}) in the background. The sync stores the
+ * items as they were received and marks them as pending, a coordinator thread then loads the
+ * pending items in batches (newest first), processes each batch on a pool of worker threads (one
+ * per cpu core) and writes the results back in one transaction per batch. The transactions run on
+ * the database lane of {@link SyncSchedulers} (between the pages of a running sync).
+ * <p>
+ * The pending items are stored in the database - items which haven't been processed when the app
+ * is killed are processed on the next call of {@link #process(DatabaseConnectionOrm)}.
+ */
+public class ItemBodyProcessor {
+
+    private static final String TAG = ItemBodyProcessor.class.getCanonicalName();
+
+    static final int BATCH_SIZE = 50;
+
+    private static ItemBodyProcessor instance;
+
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final Runnable onProcessed;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private volatile DatabaseConnectionOrm dbConn;
+
+    public static synchronized ItemBodyProcessor getInstance() {
+        if (instance == null) {
+            instance = new ItemBodyProcessor(Runtime.getRuntime().availableProcessors(),
+                    () -> EventBus.getDefault().post(new ItemBodiesProcessedEvent()));
+        }
+        return instance;
+    }
+
+    /**
+     * @param onProcessed called on the coordinator thread when processed items have been written
+     *                    (after the first batch and at the end)
+     */
+    ItemBodyProcessor(int workerCount, Runnable onProcessed) {
+        this.coordinator = SyncSchedulers.newExecutor("ItemBodyProcessor", 1, Thread.MIN_PRIORITY);
+        this.workers = SyncSchedulers.newExecutor("ItemBodyProcessor-worker", workerCount, Thread.MIN_PRIORITY);
+        this.onProcessed = onProcessed;
+    }
+
+    /**
+     * Starts processing all pending bodies in the background (returns immediately). Items which
+     * are marked as pending while the processor is running are picked up by the running pass.
+     */
+    public void process(DatabaseConnectionOrm dbConn) {
+        this.dbConn = dbConn;
+        if (scheduled.compareAndSet(false, true)) {
+            coordinator.execute(this::processPendingItems);
+        }
+    }
+
+    /**
+     * Same as {@link #process(DatabaseConnectionOrm)} but waits until all pending bodies have been
+     * processed and written (don't call it on the main thread or the database lane).
+     */
+    public void awaitProcessed(DatabaseConnectionOrm dbConn) throws InterruptedException {
+        process(dbConn);
+        try {
+            // the coordinator runs the passes in order - this task runs after the scheduled pass
+            coordinator.submit(() -> {}).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void processPendingItems() {
+        // items marked as pending after this point schedule a new pass
+        scheduled.set(false);
+        DatabaseConnectionOrm dbConn = this.dbConn;
+
+        long start = System.nanoTime();
+        int batchCount = 0;
+        int updatedCount = 0;
+        try {
+            List<RssItem> items;
+            while (!(items = dbConn.getItemsWithPendingBody(BATCH_SIZE)).isEmpty()) {
+                List<String> rawBodies = new ArrayList<>(items.size());
+                for (RssItem item : items) {
+                    rawBodies.add(item.getBody());
+                }
+
+                processBodies(items);
+
+                int updated = writeProcessedBodies(dbConn, items, rawBodies);
+                updatedCount += updated;
+                batchCount++;
+                if (updated == 0) {
+                    // all items have been replaced while processing them - try again on the next pass
+                    Log.w(TAG, "No processed item could be written - stopping");
+                    break;
+                }
+                if (batchCount == 1) {
+                    // the first batch contains the newest items (top of the list)
+                    onProcessed.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "Processing of item bodies interrupted");
+        } catch (RuntimeException | ExecutionException e) {
+            Log.e(TAG, "Processing of item bodies failed", e);
+        }
+
+        if (updatedCount > 0) {
+            long time = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Log.d(TAG, String.format(Locale.ROOT, "Processed %d item bodies in %d batches, %d ms", updatedCount, batchCount, time));
+            if (batchCount > 1) {
+                onProcessed.run();
+            }
+        }
+    }
+
+    private void processBodies(List<RssItem> items) throws InterruptedException {
+        List<Callable<Void>> tasks = new ArrayList<>(items.size());
+        for (RssItem item : items) {
+            tasks.add(() -> {
+                processBody(item);
+                return null;
+            });
+        }
+        workers.invokeAll(tasks);
+    }
+
+    /**
+     * Writes the processed batch on the database lane (waits until it has been written).
+     */
+    private static int writeProcessedBodies(DatabaseConnectionOrm dbConn, List<RssItem> items, List<String> rawBodies) throws InterruptedException, ExecutionException {
+        return SyncSchedulers.databaseExecutor().submit(() -> dbConn.updateProcessedBodies(items, rawBodies)).get();
+    }
+
+    /**
+     * Processes the body of the item - the raw body is kept if processing fails.
+     */
+    private static void processBody(RssItem item) {
+        String rawBody = item.getBody();
+        String mediaThumbnail = item.getMediaThumbnail();
+        try {
+            InsertRssItemIntoDatabase.processBody(item);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to process body of item " + item.getId(), e);
+            item.setBody(rawBody);
+            item.setBodyText("");
+            item.setExcerpt("");
+            item.setImageLinks(null);
+            item.setMediaThumbnail(mediaThumbnail);
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package de.luhmer.owncloudnewsreader.reader.nextcloud;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
-import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.model.ItemGuidHash;
 
 /**
  * Created by david on 26.05.17.
@@ -16,16 +19,30 @@ public class ItemMap {
     private final Set<Map<String, Object>> items = new HashSet<>();
 
     public ItemMap(Iterable<String> itemIds, DatabaseConnectionOrm dbConn) {
-        for(String idItem : itemIds)
+        this(dbConn.getGuidHashesOfItems(toList(itemIds)));
+    }
+
+    public ItemMap(Collection<ItemGuidHash> guidHashes) {
+        for(ItemGuidHash guidHash : guidHashes)
         {
-            RssItem rssItem = dbConn.getRssItemById(Long.parseLong(idItem));
             HashMap<String, Object> itemMap = new HashMap<>();
-            itemMap.put("feedId", rssItem.getFeedId());
-            itemMap.put("guidHash", rssItem.getGuidHash());
+            itemMap.put("feedId", guidHash.feedId);
+            itemMap.put("guidHash", guidHash.guidHash);
             this.items.add(itemMap);
         }
     }
 
+    private static List<String> toList(Iterable<String> itemIds) {
+        if (itemIds instanceof List) {
+            return (List<String>) itemIds;
+        }
+        List<String> result = new ArrayList<>();
+        for (String itemId : itemIds) {
+            result.add(itemId);
+        }
+        return result;
+    }
+
     public Set<Map<String, Object>> getItems() {
         return items;
     }
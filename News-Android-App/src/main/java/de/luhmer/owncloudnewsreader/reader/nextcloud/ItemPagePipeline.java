@@ -0,0 +1,246 @@
+package de.luhmer.owncloudnewsreader.reader.nextcloud;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.helper.SyncReport;
+
+/**
+ * Downloads all pages of a (first) sync with two stages running in parallel: the calling thread
+ * requests and parses the pages while the database lane of {@link SyncSchedulers} inserts them.
+ * The offset of the next page (highest id of the previous page - the pages are requested oldest
+ * first) is known as soon as a page has been parsed, so page N + 1 is downloaded while page N is
+ * being inserted.
+ * <p>
+ * Each page is inserted by a task of its own (the lane runs them in order and isn't blocked
+ * between the pages). At most {@link #MAX_BUFFERED_PAGES} parsed pages wait for the writer - the
+ * download blocks when the database can't keep up. The metrics of each run are added to the
+ * {@link SyncReport}.
+ */
+class ItemPagePipeline {
+
+    private static final String TAG = ItemPagePipeline.class.getCanonicalName();
+
+    static final int MAX_BUFFERED_PAGES = 2;
+
+    interface PageRequest {
+        /**
+         * @return items with an id higher than {@code offset} or null if the request failed
+         */
+        List<RssItem> execute(long offset) throws IOException;
+    }
+
+    interface PageWriter {
+        /**
+         * Called on the writer thread for each page (in order).
+         */
+        void insert(List<RssItem> page);
+    }
+
+    interface ProgressListener {
+        /**
+         * Called on the writer thread after each inserted page.
+         */
+        void onPageInserted(int insertedCount);
+    }
+
+    private final int mPageSize;
+    private final PageWriter mPageWriter;
+    private final SyncReport mReport;
+
+    // stage metrics (nanoseconds)
+    private long fetchTime;
+    private long fetchCpuTime; // time spent parsing (the thread doesn't use the cpu while waiting for the network)
+    private long blockedTime;
+    private volatile long insertTime; // written by the writer thread
+    private volatile int insertedItemCount; // written by the writer thread
+    private volatile boolean writerFailed; // written by the writer thread
+
+    ItemPagePipeline(int pageSize, PageWriter pageWriter) {
+        this(pageSize, pageWriter, new SyncReport());
+    }
+
+    ItemPagePipeline(int pageSize, PageWriter pageWriter, SyncReport report) {
+        this.mPageSize = pageSize;
+        this.mPageWriter = pageWriter;
+        this.mReport = report;
+    }
+
+    /**
+     * Downloads and inserts pages until a page with less than pageSize items is returned.
+     *
+     * @return amount of inserted items
+     */
+    int run(String name, PageRequest request, ProgressListener listener) throws IOException {
+        return run(name, 0, request, listener);
+    }
+
+    /**
+     * Same as {@link #run(String, PageRequest, ProgressListener)} - starts with the items after
+     * {@code startOffset} (to resume an interrupted download).
+     */
+    int run(String name, long startOffset, PageRequest request, ProgressListener listener) throws IOException {
+        // inserts which haven't finished yet (oldest first)
+        final Deque<Future<?>> inserts = new ArrayDeque<>();
+        fetchTime = 0;
+        fetchCpuTime = 0;
+        blockedTime = 0;
+        insertTime = 0;
+        insertedItemCount = 0;
+        writerFailed = false;
+        long start = System.nanoTime();
+
+        int pageCount = 0;
+        int downloadedCount = 0;
+        try {
+            long offset = startOffset;
+            int requestCount;
+            do {
+                long fetchStart = System.nanoTime();
+                long fetchCpuStart = SystemClock.currentThreadTimeMillis();
+                List<RssItem> page = request.execute(offset);
+                fetchCpuTime += TimeUnit.MILLISECONDS.toNanos(SystemClock.currentThreadTimeMillis() - fetchCpuStart);
+                fetchTime += System.nanoTime() - fetchStart;
+
+                requestCount = page != null ? page.size() : 0;
+                if (requestCount > 0) {
+                    offset = getMaxIdFromItems(page);
+                    pageCount++;
+                    downloadedCount += requestCount;
+                    enqueue(inserts, page, listener);
+                }
+                Log.v(TAG, "[" + name + "] offset=" + offset + ", requestCount=" + requestCount + ", total downloaded=" + downloadedCount);
+            } while (requestCount == mPageSize);
+        } catch (IOException | RuntimeException e) {
+            // the pages downloaded so far are inserted even if a request failed
+            try {
+                awaitAll(inserts);
+            } finally {
+                recordMetrics(downloadedCount);
+            }
+            throw e;
+        }
+
+        awaitAll(inserts);
+        int insertedCount = insertedItemCount;
+        recordMetrics(downloadedCount);
+        logMetrics(name, pageCount, insertedCount, System.nanoTime() - start);
+        return insertedCount;
+    }
+
+    /**
+     * Runs on the database lane - the pages after a failed page are skipped.
+     */
+    private void writePage(List<RssItem> page, ProgressListener listener) {
+        if (writerFailed) {
+            return;
+        }
+        try {
+            long insertStart = System.nanoTime();
+            mPageWriter.insert(page);
+            insertTime += System.nanoTime() - insertStart;
+        } catch (RuntimeException e) {
+            writerFailed = true;
+            throw e;
+        }
+
+        insertedItemCount += page.size();
+        listener.onPageInserted(insertedItemCount);
+    }
+
+    /**
+     * Queues the insert of the page - waits until the oldest insert has finished if
+     * {@link #MAX_BUFFERED_PAGES} pages are already waiting for the page being inserted
+     * (back-pressure). Fails if an insert has failed.
+     */
+    private void enqueue(Deque<Future<?>> inserts, List<RssItem> page, ProgressListener listener) throws IOException {
+        long blockedStart = System.nanoTime();
+        try {
+            while (inserts.size() > MAX_BUFFERED_PAGES) {
+                await(inserts);
+            }
+        } finally {
+            blockedTime += System.nanoTime() - blockedStart;
+        }
+        inserts.add(SyncSchedulers.databaseExecutor().submit(() -> writePage(page, listener)));
+    }
+
+    private static void awaitAll(Deque<Future<?>> inserts) throws IOException {
+        while (!inserts.isEmpty()) {
+            await(inserts);
+        }
+    }
+
+    /**
+     * Waits for the oldest insert - throws the error of the writer.
+     */
+    private static void await(Deque<Future<?>> inserts) throws IOException {
+        Future<?> insert = inserts.poll();
+        try {
+            insert.get();
+        } catch (ExecutionException e) {
+            cancelAll(inserts);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to insert items", cause);
+        } catch (InterruptedException e) {
+            // a running insert finishes its transaction, the queued ones are dropped
+            insert.cancel(false);
+            cancelAll(inserts);
+            throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+        }
+    }
+
+    private static void cancelAll(Deque<Future<?>> inserts) {
+        Future<?> insert;
+        while ((insert = inserts.poll()) != null) {
+            insert.cancel(false);
+        }
+    }
+
+    private void recordMetrics(int downloadedCount) {
+        mReport.record(SyncReport.Phase.ITEM_DOWNLOAD, Math.max(fetchTime - fetchCpuTime, 0), downloadedCount, 0, 0);
+        mReport.record(SyncReport.Phase.PARSE, fetchCpuTime, downloadedCount, 0, 0);
+        mReport.record(SyncReport.Phase.INSERT, insertTime, insertedItemCount, 0, insertedItemCount);
+    }
+
+    static long getMaxIdFromItems(List<RssItem> buffer) {
+        long max = 0;
+        for (RssItem item : buffer) {
+            if (item.getId() > max) {
+                max = item.getId();
+            }
+        }
+        return max;
+    }
+
+    private void logMetrics(String name, int pageCount, int itemCount, long totalTime) {
+        Log.d(TAG, String.format(Locale.ROOT,
+                "[%s] %d items in %d pages, total %d ms (%.1f items/s) - download+parse %d ms (%.1f items/s), blocked by writer %d ms, insert %d ms (%.1f items/s)",
+                name, itemCount, pageCount, toMillis(totalTime), itemsPerSecond(itemCount, totalTime),
+                toMillis(fetchTime), itemsPerSecond(itemCount, fetchTime),
+                toMillis(blockedTime),
+                toMillis(insertTime), itemsPerSecond(itemCount, insertTime)));
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static double itemsPerSecond(int itemCount, long nanos) {
+        return nanos > 0 ? itemCount * 1e9 / nanos : 0;
+    }
+}
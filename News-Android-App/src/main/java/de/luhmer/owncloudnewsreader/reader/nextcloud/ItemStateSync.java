@@ -3,16 +3,23 @@ package de.luhmer.owncloudnewsreader.reader.nextcloud;
 import android.util.Log;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
+import de.luhmer.owncloudnewsreader.helper.SyncReport;
 import de.luhmer.owncloudnewsreader.reader.FeedItemTags;
 import okhttp3.ResponseBody;
+import retrofit2.HttpException;
 import retrofit2.Response;
 
 /**
@@ -23,8 +30,25 @@ public class ItemStateSync {
 
     private static final String TAG = ItemStateSync.class.getCanonicalName();
 
+    private static final int MAX_SYNC_ITEMS_PER_REQUEST = 300;
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+    private static final int MAX_ATTEMPTS_PER_REQUEST = 3;
+    private static final long INITIAL_RETRY_BACKOFF_MS = 1000;
+
+    // shared by all syncs (the idle threads are stopped, see SyncSchedulers)
+    private static final ExecutorService requestExecutor = SyncSchedulers.newExecutor("ItemStateSync", MAX_PARALLEL_REQUESTS, Thread.NORM_PRIORITY - 1);
+
     public static void PerformItemStateSync(NewsAPI newsApi, DatabaseConnectionOrm dbConn) throws IOException {
-        int MAX_SYNC_ITEMS_PER_REQUEST = 300;
+        PerformItemStateSync(newsApi, dbConn, new SyncReport());
+    }
+
+    /**
+     * @param report the synced items and retries are recorded as {@link SyncReport.Phase#STATE_PUSH}
+     */
+    public static void PerformItemStateSync(NewsAPI newsApi, DatabaseConnectionOrm dbConn, SyncReport report) throws IOException {
+        long start = System.nanoTime();
+        // state changes which are still queued need to be synced as well
+        dbConn.flushPendingItemStates();
 
         Map<FeedItemTags, List<String>> itemsToSync = new HashMap<>();
         itemsToSync.put(
@@ -50,14 +74,96 @@ public class ItemStateSync {
         Log.d(TAG, "itemsToSync[MARK_ITEM_AS_UNSTARRED]:" + itemsToSync.get(FeedItemTags.MARK_ITEM_AS_UNSTARRED).size());
 
 
+        // Read/unread (and starred/unstarred) are mutually exclusive by construction (an item is
+        // either in the new-read or the new-unread list) - therefore all partitions are independent
+        // of each other and can be sent in parallel without ever issuing conflicting operations.
+        List<Callable<Void>> tasks = new ArrayList<>();
+        AtomicInteger syncedCount = new AtomicInteger();
+        int itemCount = 0;
         for(Map.Entry<FeedItemTags, List<String>> entry : itemsToSync.entrySet()) {
             FeedItemTags operation = entry.getKey();
+            itemCount += entry.getValue().size();
             Collection<List<String>> itemIdsPartitioned = partitionBasedOnSize(entry.getValue(), MAX_SYNC_ITEMS_PER_REQUEST);
             for(List<String> itemIds : itemIdsPartitioned) {
-                Log.d(TAG, "Marking " + itemIds.size() + " items as " + operation.toString());
-                PerformTagExecution(itemIds, operation, dbConn, newsApi);
+                tasks.add(() -> {
+                    Log.d(TAG, "Marking " + itemIds.size() + " items as " + operation.toString());
+                    PerformTagExecutionWithRetry(itemIds, operation, dbConn, newsApi, report);
+                    syncedCount.addAndGet(itemIds.size());
+                    return null;
+                });
             }
         }
+
+        try {
+            executeInParallel(tasks);
+        } finally {
+            report.record(SyncReport.Phase.STATE_PUSH, System.nanoTime() - start, itemCount, 0, syncedCount.get());
+        }
+    }
+
+    /**
+     * Runs all tasks using a bounded amount of parallel requests. Waits for all tasks to finish
+     * (so that every successful partition gets committed locally) and rethrows the first error.
+     * The tasks don't run on the network lane of {@link SyncSchedulers} as the sync itself waits
+     * on it for the tasks.
+     */
+    private static void executeInParallel(List<Callable<Void>> tasks) throws IOException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        List<Future<Void>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<Void> task : tasks) {
+                futures.add(requestExecutor.submit(task));
+            }
+
+            IOException firstError = null;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException ex) {
+                    if (firstError == null) {
+                        firstError = ex.getCause() instanceof IOException ? (IOException) ex.getCause() : new IOException(ex.getCause());
+                    }
+                }
+            }
+            if (firstError != null) {
+                throw firstError;
+            }
+        } catch (InterruptedException ex) {
+            for (Future<Void> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new IOException("Item state sync interrupted", ex);
+        }
+    }
+
+    /**
+     * Retries the request if it failed because of the network or the server (5xx) - other http
+     * errors (4xx) won't be fixed by retrying.
+     */
+    private static void PerformTagExecutionWithRetry(List<String> itemIds, FeedItemTags tag, DatabaseConnectionOrm dbConn, NewsAPI newsApi, SyncReport report) throws IOException, InterruptedException {
+        long backoffMillis = INITIAL_RETRY_BACKOFF_MS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                PerformTagExecution(itemIds, tag, dbConn, newsApi);
+                return;
+            } catch (IOException | HttpException ex) {
+                if (attempt >= MAX_ATTEMPTS_PER_REQUEST || !isRetryable(ex)) {
+                    throw ex;
+                }
+                Log.w(TAG, "Marking " + itemIds.size() + " items as " + tag + " failed (attempt " + attempt + ") - retrying in " + backoffMillis + "ms", ex);
+                report.addRetry(SyncReport.Phase.STATE_PUSH);
+                Thread.sleep(backoffMillis);
+                backoffMillis *= 2;
+            }
+        }
+    }
+
+    static boolean isRetryable(Exception ex) {
+        return !(ex instanceof HttpException) || ((HttpException) ex).code() >= 500;
     }
 
     static <T> Collection<List<T>> partitionBasedOnSize(List<T> inputList, int size) {
@@ -74,12 +180,9 @@ public class ItemStateSync {
         } else {
             ResponseBody errorBody = response.errorBody();
             if (errorBody != null) {
-                String errorBodyStr = errorBody.string();
-                Log.e(TAG, errorBodyStr);
-                throw new IOException(errorBodyStr);
-            } else {
-                throw new IOException("mark item as read failed - http code: " + response.code());
+                Log.e(TAG, errorBody.string());
             }
+            throw new HttpException(response);
         }
 
     }
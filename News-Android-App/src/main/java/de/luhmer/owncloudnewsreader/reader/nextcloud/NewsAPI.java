@@ -14,10 +14,12 @@ import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Observable;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
+import retrofit2.Response;
 import retrofit2.http.Body;
 import retrofit2.http.DELETE;
 import retrofit2.http.Field;
 import retrofit2.http.GET;
+import retrofit2.http.Header;
 import retrofit2.http.POST;
 import retrofit2.http.PUT;
 import retrofit2.http.Path;
@@ -43,10 +45,29 @@ public interface NewsAPI {
     @GET("folders")
     Observable<List<Folder>> folders();
 
+    /**
+     * Conditional request of the folders (the server returns 304 if they haven't changed) - see
+     * {@link ConditionalResponse}. Null headers are not sent.
+     */
+    @GET("folders")
+    Observable<Response<ResponseBody>> foldersIfModified(@Header("If-None-Match") String eTag, @Header("If-Modified-Since") String lastModified);
+
+    @GET("folders")
+    Observable<ResponseBody> foldersBody();
+
     /** FEEDS **/
     @GET("feeds")
     Observable<List<Feed>> feeds();
 
+    /**
+     * Conditional request of the feeds - see {@link #foldersIfModified(String, String)}
+     */
+    @GET("feeds")
+    Observable<Response<ResponseBody>> feedsIfModified(@Header("If-None-Match") String eTag, @Header("If-Modified-Since") String lastModified);
+
+    @GET("feeds")
+    Observable<ResponseBody> feedsBody();
+
     @POST("folders")
     Call<List<Folder>> createFolder(@Body Map<String, Object> folderMap);
 
@@ -13,7 +13,6 @@ import java.util.List;
 
 import de.luhmer.owncloudnewsreader.database.model.Feed;
 import de.luhmer.owncloudnewsreader.database.model.Folder;
-import de.luhmer.owncloudnewsreader.database.model.RssItem;
 
 /**
  * Created by david on 24.05.17.
@@ -42,8 +41,6 @@ public class NextcloudNewsDeserializer<T> implements JsonDeserializer<List<T>> {
                 items.add((T) parseFolder(jArr.get(i).getAsJsonObject()));
             } else if(mType == Feed.class) {
                 items.add((T) parseFeed(jArr.get(i).getAsJsonObject()));
-            } else if(mType == RssItem.class) {
-                items.add((T) InsertRssItemIntoDatabase.parseItem(jArr.get(i).getAsJsonObject()));
             }
         }
 
@@ -0,0 +1,32 @@
+package de.luhmer.owncloudnewsreader.reader.nextcloud;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+
+/**
+ * Reads the items of a response of the items api while it is streamed - unlike
+ * {@link NextcloudNewsDeserializer} the response is not parsed into a JsonArray first. The bodies
+ * of the items are not processed yet (see {@link ItemBodyProcessor}). Items are written in the
+ * same format, so serialized items can be read again.
+ */
+public class RssItemListTypeAdapter extends TypeAdapter<List<RssItem>> {
+
+    @Override
+    public List<RssItem> read(JsonReader in) throws IOException {
+        List<RssItem> items = new ArrayList<>();
+        InsertRssItemIntoDatabase.readItems(in, items::add);
+        return items;
+    }
+
+    @Override
+    public void write(JsonWriter out, List<RssItem> value) throws IOException {
+        InsertRssItemIntoDatabase.writeItems(out, value);
+    }
+}
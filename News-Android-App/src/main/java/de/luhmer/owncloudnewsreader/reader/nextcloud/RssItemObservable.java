@@ -1,11 +1,10 @@
 package de.luhmer.owncloudnewsreader.reader.nextcloud;
 
 import android.content.SharedPreferences;
+import android.os.SystemClock;
 import android.util.Log;
 
-import com.google.gson.JsonObject;
 import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonToken;
 
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
@@ -15,20 +14,32 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import de.luhmer.owncloudnewsreader.Constants;
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
+import de.luhmer.owncloudnewsreader.database.SyncCheckpoint;
 import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.helper.SyncReport;
 import de.luhmer.owncloudnewsreader.reader.FeedItemTags;
 import io.reactivex.rxjava3.annotations.NonNull;
+import io.reactivex.rxjava3.core.Completable;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.ObservableSource;
 import io.reactivex.rxjava3.core.Observer;
 import io.reactivex.rxjava3.disposables.Disposable;
 import io.reactivex.rxjava3.functions.Function;
 import okhttp3.ResponseBody;
+import okio.Buffer;
 import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import okio.Source;
+import retrofit2.Call;
+import retrofit2.Response;
 
 /**
  * onNext returns the current amount of synced items
@@ -38,13 +49,22 @@ public class RssItemObservable implements Publisher<Integer> {
     private final DatabaseConnectionOrm mDbConn;
     private final NewsAPI mNewsApi;
     private final SharedPreferences mPrefs;
+    private final SyncReport mReport;
     private static final String TAG = RssItemObservable.class.getCanonicalName();
     private static final int maxSizePerSync = 200;
 
     public RssItemObservable(DatabaseConnectionOrm dbConn, NewsAPI newsApi, SharedPreferences prefs) {
+        this(dbConn, newsApi, prefs, new SyncReport());
+    }
+
+    /**
+     * @param report the download, parsing, insert and cleanup of the items are recorded here
+     */
+    public RssItemObservable(DatabaseConnectionOrm dbConn, NewsAPI newsApi, SharedPreferences prefs, SyncReport report) {
         this.mDbConn = dbConn;
         this.mNewsApi = newsApi;
         this.mPrefs = prefs;
+        this.mReport = report;
     }
 
     @Override
@@ -64,24 +84,7 @@ public class RssItemObservable implements Publisher<Integer> {
                 BufferedReader br = new BufferedReader(isr);
 
                 try (isr; br; JsonReader reader = new JsonReader(br)) {
-                    reader.beginObject();
-
-                    String currentName;
-                    while (reader.hasNext() && (currentName = reader.nextName()) != null) {
-                        if (currentName.equals("items")) {
-                            break;
-                        } else {
-                            reader.skipValue();
-                        }
-                    }
-
-                    reader.beginArray();
-                    while (reader.hasNext()) {
-                        JsonObject jsonObj = getJsonObjectFromReader(reader);
-                        RssItem item = InsertRssItemIntoDatabase.parseItem(Objects.requireNonNull(jsonObj));
-                        e.onNext(item);
-                    }
-                    reader.endArray();
+                    InsertRssItemIntoDatabase.readItems(reader, e::onNext);
                 }
             } catch (IOException | NullPointerException err) {
                 err.printStackTrace();
@@ -91,75 +94,113 @@ public class RssItemObservable implements Publisher<Integer> {
         });
     }
 
-    private static long getMaxIdFromItems(List<RssItem> buffer) {
-        long max = 0;
-        for (RssItem item : buffer) {
-            if (item.getId() > max) {
-                max = item.getId();
-            }
+    /**
+     * Executes the request of a page of the first sync (the size of the response is added to the report).
+     */
+    private List<RssItem> executePageRequest(Call<List<RssItem>> call) throws IOException {
+        Response<List<RssItem>> response = call.execute();
+        ResponseBody rawBody = response.raw().body();
+        if (rawBody != null && rawBody.contentLength() > 0) {
+            mReport.record(SyncReport.Phase.ITEM_DOWNLOAD, 0, 0, rawBody.contentLength(), 0);
         }
-        return max;
+        return response.body();
+    }
+
+    /**
+     * @return the source - the amount of bytes read from it is added to {@code bytesRead}
+     */
+    static BufferedSource countBytes(Source source, AtomicLong bytesRead) {
+        return Okio.buffer(new ForwardingSource(source) {
+            @Override
+            public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+                long read = super.read(sink, byteCount);
+                if (read > 0) {
+                    bytesRead.addAndGet(read);
+                }
+                return read;
+            }
+        });
     }
 
     public static boolean performDatabaseBatchInsert(DatabaseConnectionOrm dbConn, List<RssItem> buffer) {
         Log.v(TAG, "performDatabaseBatchInsert() called with [" + buffer.size() + " rss items]");
-        dbConn.insertNewItems(buffer);
+        dbConn.insertNewItemsWithRawBody(buffer);
         buffer.clear();
+        ItemBodyProcessor.getInstance().process(dbConn);
         return true;
     }
 
-    public void sync(Subscriber<? super Integer> subscriber) throws IOException {
-        mDbConn.clearDatabaseOverSize();
-
-        long lastModified = mDbConn.getLastModified();
+    /**
+     * Same as {@link #performDatabaseBatchInsert(DatabaseConnectionOrm, List)} - stores the
+     * checkpoint of the first sync together with the items.
+     */
+    private static void performDatabaseBatchInsert(DatabaseConnectionOrm dbConn, List<RssItem> buffer, SyncCheckpoint checkpoint) {
+        Log.v(TAG, "performDatabaseBatchInsert() called with [" + buffer.size() + " rss items, " + checkpoint + "]");
+        dbConn.insertNewItemsWithRawBody(buffer, checkpoint);
+        buffer.clear();
+        ItemBodyProcessor.getInstance().process(dbConn);
+    }
 
-        int requestCount = 0;
-        int totalCount = 0;
-        int maxSyncSize = maxSizePerSync;
+    /**
+     * Downloads all items of the phase of the first sync, starting after the offset of the
+     * checkpoint. The checkpoint is stored together with each inserted page.
+     *
+     * @return the checkpoint after the last inserted page
+     */
+    private SyncCheckpoint downloadAllItems(SyncCheckpoint checkpoint, ItemPagePipeline.PageRequest request, ItemPagePipeline.ProgressListener listener) throws IOException {
+        final AtomicReference<SyncCheckpoint> current = new AtomicReference<>(checkpoint);
+        ItemPagePipeline pipeline = new ItemPagePipeline(maxSizePerSync, page -> {
+            SyncCheckpoint next = current.get().afterPage(ItemPagePipeline.getMaxIdFromItems(page), page.size());
+            performDatabaseBatchInsert(mDbConn, page, next);
+            current.set(next);
+        }, mReport);
+
+        pipeline.run(checkpoint.getPhase().name().toLowerCase(Locale.ROOT), checkpoint.getOffset(), request, listener);
+        return current.get();
+    }
 
-        if (lastModified == 0) { // Only on first sync
-            long offset = 0;
+    public void sync(Subscriber<? super Integer> subscriber) throws IOException {
+        long cleanupStart = System.nanoTime();
+        int deletedCount = mDbConn.clearDatabaseOverSize();
+        mReport.record(SyncReport.Phase.OVERSIZE_CLEANUP, System.nanoTime() - cleanupStart, deletedCount, 0, deletedCount);
+        // continue processing the bodies of the last sync (if the app has been killed meanwhile)
+        ItemBodyProcessor.getInstance().process(mDbConn);
 
-            Log.v(TAG, "First sync - download all available unread articles!!");
+        long lastModified = mDbConn.getLastModified();
+        SyncCheckpoint checkpoint = mDbConn.getSyncCheckpoint();
+
+        mReport.setFirstSync(lastModified == 0 || checkpoint != null);
+        if (lastModified == 0 || checkpoint != null) { // Only on first sync (or if the first sync has been interrupted)
+            if (checkpoint == null) {
+                Log.v(TAG, "First sync - download all available unread articles!!");
+                checkpoint = SyncCheckpoint.start();
+                mDbConn.saveSyncCheckpoint(checkpoint);
+            } else {
+                Log.v(TAG, "Resuming interrupted first sync (" + checkpoint + ")");
+            }
             // int maxItemsInDatabase = Constants.maxItemsCount;
 
-            do {
-                Log.v(TAG, "[unread] offset=" + offset + ",  requestCount=" + requestCount + ", maxSyncSize=" + maxSyncSize + ", total downloaded=" + totalCount);
-                List<RssItem> buffer = (mNewsApi.items(maxSyncSize, offset, Integer.parseInt(FeedItemTags.ALL.toString()), 0, false, true).execute().body());
+            if (checkpoint.getPhase() == SyncCheckpoint.Phase.UNREAD) {
+                final int previousUnreadCount = checkpoint.getUnreadCount();
+                checkpoint = downloadAllItems(checkpoint,
+                        offset -> executePageRequest(mNewsApi.items(maxSizePerSync, offset, Integer.parseInt(FeedItemTags.ALL.toString()), 0, false, true)),
+                        insertedCount -> subscriber.onNext(previousUnreadCount + insertedCount));
 
-                requestCount = 0;
-                if(buffer != null) {
-                    requestCount = buffer.size();
-                    performDatabaseBatchInsert(mDbConn, buffer);
-                }
-
-                if(requestCount > 0)
-                    offset = mDbConn.getHighestItemId();
-                totalCount += requestCount;
-
-                subscriber.onNext(totalCount);
-            } while(requestCount == maxSyncSize);
+                Log.v(TAG, "Sync all items done - Synchronizing all starred articles now");
 
-            Log.v(TAG, "[all] offset=" + offset + ",  requestCount=" + requestCount + ", maxSyncSize=" + maxSyncSize);
+                checkpoint = checkpoint.startStarred();
+                mDbConn.saveSyncCheckpoint(checkpoint);
+            }
 
-            Log.v(TAG, "Sync all items done - Synchronizing all starred articles now");
+            final int unreadCount = checkpoint.getUnreadCount();
+            mPrefs.edit().putInt(Constants.LAST_UPDATE_NEW_ITEMS_COUNT_STRING, unreadCount).apply();
 
-            mPrefs.edit().putInt(Constants.LAST_UPDATE_NEW_ITEMS_COUNT_STRING, totalCount).apply();
+            final int previousStarredCount = checkpoint.getStarredCount();
+            downloadAllItems(checkpoint,
+                    offset -> executePageRequest(mNewsApi.items(maxSizePerSync, offset, Integer.parseInt(FeedItemTags.ALL_STARRED.toString()), 0, true, true)),
+                    insertedCount -> subscriber.onNext(unreadCount + previousStarredCount + insertedCount));
 
-            offset = 0;
-            do {
-                List<RssItem> buffer = mNewsApi.items(maxSyncSize, offset, Integer.parseInt(FeedItemTags.ALL_STARRED.toString()), 0, true, true).execute().body();
-                requestCount = 0;
-                if(buffer != null) {
-                    requestCount = buffer.size();
-                    offset = getMaxIdFromItems(buffer); // get maximum id of returned items
-                    performDatabaseBatchInsert(mDbConn, buffer);
-                }
-                Log.v(TAG, "[starred] offset=" + offset + ",  requestCount=" + requestCount + ", maxSyncSize=" + maxSyncSize + ", total downloaded=" + totalCount);
-                totalCount += requestCount;
-
-                subscriber.onNext(totalCount);
-            } while(requestCount == maxSyncSize);
+            mDbConn.clearSyncCheckpoint();
         } else {
             Log.v(TAG, "Incremental sync!!");
             //First reset the count of last updated items
@@ -168,16 +209,25 @@ public class RssItemObservable implements Publisher<Integer> {
             // long highestItemIdBeforeSync = mDbConn.getHighestItemId();
 
             // Get all updated items
+            final AtomicLong bytesRead = new AtomicLong();
             mNewsApi.updatedItems(lastModified, Integer.parseInt(FeedItemTags.ALL.toString()), 0)
-                    .flatMap((Function<ResponseBody, ObservableSource<RssItem>>) responseBody -> events(responseBody.source()))
+                    .flatMap((Function<ResponseBody, ObservableSource<RssItem>>) responseBody -> events(countBytes(responseBody.source(), bytesRead)))
                     .subscribe(new Observer<>() {
                         int totalUpdatedUnreadItemCount = 0;
                         final int bufferSize = maxSizePerSync / 2;
                         final List<RssItem> buffer = new ArrayList<>(bufferSize); // Buffer of size X
 
+                        // the items are downloaded and parsed on this thread (and inserted on the database lane)
+                        long start;
+                        long cpuStart;
+                        long insertTime;
+                        int itemCount = 0;
+
                         @Override
                         public void onSubscribe(@NonNull Disposable d) {
                             Log.v(TAG, "onSubscribe() called");
+                            start = System.nanoTime();
+                            cpuStart = SystemClock.currentThreadTimeMillis();
                         }
 
                         @Override
@@ -190,84 +240,47 @@ public class RssItemObservable implements Publisher<Integer> {
                                 totalUpdatedUnreadItemCount++;
                             }
 
+                            itemCount++;
                             buffer.add(rssItem);
                             if (buffer.size() >= bufferSize) {
                                 Log.v(TAG, "onNext() buffer size exceeded - insert items: " + buffer.size());
-                                performDatabaseBatchInsert(mDbConn, buffer);
+                                insertBuffer();
                             }
                         }
 
                         @Override
                         public void onError(@NonNull Throwable e) {
                             Log.e(TAG, "onError() called with: e = [" + e + "]");
+                            recordMetrics();
                         }
 
                         @Override
                         public void onComplete() {
                             Log.v(TAG, "onComplete() called - items: " + buffer.size());
-                            performDatabaseBatchInsert(mDbConn, buffer);
+                            insertBuffer();
+                            recordMetrics();
 
                             //If no exception occurs, set the number of updated items
                             mPrefs.edit().putInt(Constants.LAST_UPDATE_NEW_ITEMS_COUNT_STRING, totalUpdatedUnreadItemCount).apply();
                         }
-                    });
-        }
-    }
-
 
-    private static JsonObject getJsonObjectFromReader(JsonReader jsonReader) {
-        JsonObject jObj = new JsonObject();
-        JsonToken tokenInstance;
-        try {
-            tokenInstance = jsonReader.peek();
-            if(tokenInstance == JsonToken.BEGIN_OBJECT)
-                jsonReader.beginObject();
-            else if (tokenInstance == JsonToken.BEGIN_ARRAY)
-                jsonReader.beginArray();
-
-            while(jsonReader.hasNext()) {
-                JsonToken token;
-                String name;
-                try {
-                    name = jsonReader.nextName();
-                    token = jsonReader.peek();
-
-                    //Log.d(TAG, token.toString());
-
-                    switch(token) {
-                        case NUMBER:
-                            jObj.addProperty(name, jsonReader.nextLong());
-                            break;
-                        case NULL:
-                            jsonReader.skipValue();
-                            break;
-                        case BOOLEAN:
-                            jObj.addProperty(name, jsonReader.nextBoolean());
-                            break;
-                        case BEGIN_OBJECT:
-                            jObj.add(name, getJsonObjectFromReader(jsonReader));
-                            break;
-                        case BEGIN_ARRAY:
-                            jsonReader.skipValue();
-                            break;
-                        default:
-                            jObj.addProperty(name, jsonReader.nextString());
-                    }
-                } catch(Exception ex) {
-                    ex.printStackTrace();
-                    jsonReader.skipValue();
-                }
-            }
-
-            if(tokenInstance == JsonToken.BEGIN_OBJECT)
-                jsonReader.endObject();
-            else if (tokenInstance == JsonToken.BEGIN_ARRAY)
-                jsonReader.endArray();
+                        private void insertBuffer() {
+                            long insertStart = System.nanoTime();
+                            Completable.fromAction(() -> performDatabaseBatchInsert(mDbConn, buffer))
+                                    .subscribeOn(SyncSchedulers.database())
+                                    .blockingAwait();
+                            insertTime += System.nanoTime() - insertStart;
+                        }
 
-            return jObj;
-        } catch (Exception e) {
-            e.printStackTrace();
+                        private void recordMetrics() {
+                            // everything except inserting is downloading (waiting for the network) or parsing (cpu)
+                            long fetchTime = System.nanoTime() - start - insertTime;
+                            long parseTime = Math.min(TimeUnit.MILLISECONDS.toNanos(SystemClock.currentThreadTimeMillis() - cpuStart), fetchTime);
+                            mReport.record(SyncReport.Phase.ITEM_DOWNLOAD, Math.max(fetchTime - parseTime, 0), itemCount, bytesRead.get(), 0);
+                            mReport.record(SyncReport.Phase.PARSE, Math.max(parseTime, 0), itemCount, 0, 0);
+                            mReport.record(SyncReport.Phase.INSERT, insertTime, itemCount - buffer.size(), 0, itemCount - buffer.size());
+                        }
+                    });
         }
-        return null;
     }
 }
@@ -0,0 +1,75 @@
+package de.luhmer.owncloudnewsreader.reader.nextcloud;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+/**
+ * Threads used by the sync (and the dialogs calling the News API) instead of a new thread per
+ * request. There are two lanes:
+ * <ul>
+ *     <li>network - a bounded pool for the requests (and parsing the responses), requests of
+ *     overlapping syncs wait in the queue</li>
+ *     <li>database - a single thread for writing the synced items, folders and feeds, so the
+ *     writes never compete for the lock of the DaoSession</li>
+ * </ul>
+ * Idle threads are stopped after {@link #KEEP_ALIVE_SECONDS}. Tasks on the database lane must
+ * never wait for other tasks or the network (each page of {@link ItemPagePipeline} is inserted by
+ * a task of its own).
+ * <p>
+ * Work which would block a lane has pools of its own created by
+ * {@link #newExecutor(String, int, int)}: the parallel requests of {@link ItemStateSync} (the sync
+ * waits for them on the network lane) and the workers of {@link ItemBodyProcessor}, which writes
+ * its results on the database lane.
+ */
+public final class SyncSchedulers {
+
+    static final int NETWORK_THREAD_COUNT = 4;
+    static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final ExecutorService networkExecutor = newExecutor("SyncNetwork", NETWORK_THREAD_COUNT, Thread.NORM_PRIORITY - 1);
+    private static final ExecutorService databaseExecutor = newExecutor("SyncDatabase", 1, Thread.NORM_PRIORITY);
+
+    private static final Scheduler network = Schedulers.from(networkExecutor);
+    private static final Scheduler database = Schedulers.from(databaseExecutor);
+
+    private SyncSchedulers() {
+    }
+
+    public static Scheduler network() {
+        return network;
+    }
+
+    public static Scheduler database() {
+        return database;
+    }
+
+    static ExecutorService databaseExecutor() {
+        return databaseExecutor;
+    }
+
+    static ExecutorService newExecutor(String name, int threadCount, int priority) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadCount, threadCount,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                newThreadFactory(name, priority));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory newThreadFactory(String name, int priority) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+}
@@ -32,21 +32,24 @@ import androidx.core.app.NotificationCompat;
 
 import com.bumptech.glide.Glide;
 import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
 
-import java.util.ArrayList;
+import org.greenrobot.eventbus.EventBus;
+
+import java.io.File;
 import java.util.List;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
 
-import de.greenrobot.dao.query.LazyList;
 import de.luhmer.owncloudnewsreader.R;
-import de.luhmer.owncloudnewsreader.async_tasks.DownloadImageHandler;
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
+import de.luhmer.owncloudnewsreader.database.RssItemImages;
 import de.luhmer.owncloudnewsreader.database.model.Feed;
-import de.luhmer.owncloudnewsreader.database.model.RssItem;
 import de.luhmer.owncloudnewsreader.helper.FavIconHandler;
-import de.luhmer.owncloudnewsreader.helper.ImageHandler;
 import de.luhmer.owncloudnewsreader.notification.NextcloudNotificationManager;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.ItemBodyProcessor;
+import de.luhmer.owncloudnewsreader.services.events.ImageCacheChangedEvent;
 
 public class DownloadImagesService extends JobIntentService {
 
@@ -61,6 +64,7 @@ public class DownloadImagesService extends JobIntentService {
 	private NotificationCompat.Builder mNotificationDownloadImages;
 
     private int maxCount;
+    private long lastNotificationUpdate;
     private NotificationManager mNotificationManager;
 
 
@@ -70,6 +74,9 @@ public class DownloadImagesService extends JobIntentService {
     private static final int JOB_ID = 1000;
     private static final String CHANNEL_ID = "Download Images Service";
 
+    private static final int MAX_IMAGE_COUNT = 10000;
+    private static final long NOTIFICATION_UPDATE_INTERVAL_MS = 500;
+
 
     /**
      * Convenience method for enqueuing work in to this service.
@@ -126,18 +133,22 @@ public class DownloadImagesService extends JobIntentService {
             }
         } else if(Objects.equals(downloadMode, DownloadMode.FAVICONS_AND_PICTURES) || Objects.equals(downloadMode, DownloadMode.PICTURES_ONLY)) {
             long lastId = intent.getLongExtra(LAST_ITEM_ID, 0);
-            List<RssItem> rssItemList = dbConn.getAllItemsWithIdHigher(lastId);
-            List<String> links = new ArrayList<>();
-            for(RssItem rssItem : rssItemList) {
-                String body = rssItem.getBody();
-                links.addAll(ImageHandler.getImageLinksFromText(rssItem.getLink(), body));
-
-                if(links.size() > 10000) {
-                    NextcloudNotificationManager.showNotificationImageDownloadLimitReached(this, CHANNEL_ID, 10000);
-                    break;
-                }
+            try {
+                // the image links are stored once the bodies of the synced items have been processed
+                ItemBodyProcessor.getInstance().awaitProcessed(dbConn);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            RssItemImages.Stats stats = dbConn.getImageStats(lastId);
+            Log.d(TAG, "Images: " + stats.getImageCount() + ", cached: " + stats.getCachedCount() +
+                    " (" + stats.getCachedBytes() + " bytes), estimated download: " + stats.getEstimatedDownloadBytes() + " bytes");
+
+            List<String> links = dbConn.getImageLinksForPrefetch(lastId, MAX_IMAGE_COUNT);
+            if(links.size() >= MAX_IMAGE_COUNT) {
+                NextcloudNotificationManager.showNotificationImageDownloadLimitReached(this, CHANNEL_ID, MAX_IMAGE_COUNT);
             }
-            ((LazyList)rssItemList).close();
 
             maxCount = links.size();
 
@@ -145,20 +156,15 @@ public class DownloadImagesService extends JobIntentService {
                 mNotificationManager.notify(NOTIFICATION_ID, mNotificationDownloadImages.build());
             }
 
-            downloadImages(links);
+            downloadImages(dbConn, links);
         }
 	}
 
-    private void downloadImages(List<String> linksToImages) {
+    private void downloadImages(DatabaseConnectionOrm dbConn, List<String> linksToImages) {
+        RequestManager glide = Glide.with(this.getApplicationContext());
+        ImagePrefetcher prefetcher = new ImagePrefetcher(new GlideImageLoader(glide));
         try {
-            RequestManager glide = Glide.with(this.getApplicationContext());
-
-            while(linksToImages.size() > 0) {
-                String link = linksToImages.remove(0);
-                new DownloadImageHandler(link).preloadSync(glide);
-
-                updateNotificationProgress(linksToImages.size());
-            }
+            prefetcher.prefetch(linksToImages, this::updateNotificationProgress);
         } catch (Exception ex) {
             ex.printStackTrace();
             Log.e(TAG, "Error while downloading images.");
@@ -166,14 +172,23 @@ public class DownloadImagesService extends JobIntentService {
                     .setContentText("Error while downloading images - " + ex.toString())
                     .setProgress(0, 0, false);
             mNotificationManager.notify(NOTIFICATION_ID, mNotificationDownloadImages.build());
+        } finally {
+            dbConn.updateCachedImages(prefetcher.getByteSizes());
+            EventBus.getDefault().post(new ImageCacheChangedEvent());
         }
     }
 
-    private void updateNotificationProgress(int remainingImagesCount) {
-        int count = maxCount - remainingImagesCount;
+    private synchronized void updateNotificationProgress(int count, int maxCount) {
         if(maxCount == count) {
             mNotificationManager.cancel(NOTIFICATION_ID);
         } else {
+            // the images are downloaded in parallel - don't post a notification for each of them
+            long now = System.currentTimeMillis();
+            if(now - lastNotificationUpdate < NOTIFICATION_UPDATE_INTERVAL_MS) {
+                return;
+            }
+            lastNotificationUpdate = now;
+
             mNotificationDownloadImages
                     .setContentText((count + 1) + "/" + maxCount + " - " + getString(R.string.notification_download_images_offline))
                     .setProgress(maxCount, count + 1, false);
@@ -181,4 +196,41 @@ public class DownloadImagesService extends JobIntentService {
             mNotificationManager.notify(NOTIFICATION_ID, mNotificationDownloadImages.build());
         }
     }
+
+    /**
+     * Stores the original image data in the disk cache of Glide (the images are not decoded).
+     */
+    private static class GlideImageLoader implements ImagePrefetcher.ImageLoader {
+
+        private final RequestManager glide;
+
+        GlideImageLoader(RequestManager glide) {
+            this.glide = glide;
+        }
+
+        @Override
+        public long getCachedSize(String url) throws InterruptedException {
+            try {
+                File file = glide.asFile()
+                        .diskCacheStrategy(DiskCacheStrategy.DATA)
+                        .onlyRetrieveFromCache(true)
+                        .load(url)
+                        .submit()
+                        .get();
+                return file.length();
+            } catch (ExecutionException e) {
+                return -1;
+            }
+        }
+
+        @Override
+        public long download(String url) throws ExecutionException, InterruptedException {
+            File file = glide.asFile()
+                    .diskCacheStrategy(DiskCacheStrategy.DATA)
+                    .load(url)
+                    .submit()
+                    .get();
+            return file.length();
+        }
+    }
 }
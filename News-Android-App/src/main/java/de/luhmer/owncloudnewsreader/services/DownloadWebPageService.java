@@ -5,30 +5,20 @@ import android.app.PendingIntent;
 import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Handler;
 import android.os.IBinder;
-import android.os.Looper;
 import androidx.core.app.NotificationCompat;
 import android.util.Log;
-import android.webkit.ConsoleMessage;
-import android.webkit.ValueCallback;
-import android.webkit.WebChromeClient;
-import android.webkit.WebResourceError;
-import android.webkit.WebResourceRequest;
-import android.webkit.WebView;
-import android.webkit.WebViewClient;
+import android.webkit.WebSettings;
 
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 
 import java.io.File;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
+import de.greenrobot.dao.query.LazyList;
 import de.luhmer.owncloudnewsreader.R;
 import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
 import de.luhmer.owncloudnewsreader.database.model.RssItem;
@@ -36,14 +26,14 @@ import de.luhmer.owncloudnewsreader.helper.NewsFileUtils;
 import de.luhmer.owncloudnewsreader.helper.NotificationActionReceiver;
 import de.luhmer.owncloudnewsreader.notification.NextcloudNotificationManager;
 import de.luhmer.owncloudnewsreader.services.events.StopWebArchiveDownloadEvent;
+import okhttp3.OkHttpClient;
 
 import static de.luhmer.owncloudnewsreader.Constants.NOTIFICATION_ACTION_STOP_STRING;
 
 /**
- * An {@link Service} subclass for handling asynchronous task requests in
- * a service on a separate handler thread.
- * <p>
- * helper methods.
+ * Downloads the web pages of all unread items for offline reading (see
+ * {@link WebArchiveDownloader}). The downloads run on background threads - the service only shows
+ * the progress and stops once all pages have been processed.
  */
 public class DownloadWebPageService extends Service {
 
@@ -53,21 +43,13 @@ public class DownloadWebPageService extends Service {
     private static final String CHANNEL_ID = "Download Web Page Service";
 
     public static final String WebArchiveFinalPrefix = "web_archive_";
-    private static final int NUMBER_OF_CORES = 4;
+    private static final int THREAD_COUNT = 4;
     private NotificationCompat.Builder mNotificationWebPages;
     private NotificationManager mNotificationManager;
 
-
-    // Sets the amount of time an idle thread waits before terminating
-    private static final int KEEP_ALIVE_TIME = 1;
-    // Sets the Time Unit to seconds
-    private static final TimeUnit KEEP_ALIVE_TIME_UNIT = TimeUnit.SECONDS;
-
     private final AtomicBoolean interrupted = new AtomicBoolean();
-    private final AtomicInteger doneCount = new AtomicInteger();
-    private Integer totalCount = 0;
 
-    private ThreadPoolExecutor mDownloadThreadPool;
+    private WebArchiveDownloader mDownloader;
 
 
 
@@ -77,11 +59,11 @@ public class DownloadWebPageService extends Service {
         super.onCreate();
 
         initNotification();
-        downloadWebPages();
-
         EventBus.getDefault().register(this);
 
         startForeground(NOTIFICATION_ID, mNotificationWebPages.build());
+
+        downloadWebPages();
     }
 
     @Override
@@ -109,207 +91,70 @@ public class DownloadWebPageService extends Service {
 
     @Subscribe
     public void onEvent(StopWebArchiveDownloadEvent event) {
-        mDownloadThreadPool.shutdownNow();
         interrupted.set(true);
+        mDownloader.cancel();
         stopSelf();
     }
 
-    private void runOnMainThreadAndWait(final Runnable runnable) throws InterruptedException {
-        synchronized(runnable) {
-            Handler handler = new Handler(Looper.getMainLooper());
-            handler.post(() -> {
-                runnable.run();
-                synchronized (runnable) {
-                    runnable.notifyAll();
-                }
-            });
-            runnable.wait(); // unlocks runnable while waiting
-        }
-    }
-
-    private void delayedRunOnMainThread(Runnable runnable, @SuppressWarnings("SameParameterValue") int waitMillis) {
-        try {
-            Thread.sleep(waitMillis);
-            runOnMainThreadAndWait(runnable);
-        } catch (InterruptedException e) {
-            Log.e(TAG, "Error occurred..", e);
-        }
-    }
-
 
 
     private void downloadWebPages() {
         mNotificationWebPages.setProgress(0, 100, true);
         mNotificationManager.notify(NOTIFICATION_ID, mNotificationWebPages.build());
 
-        final DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(DownloadWebPageService.this);
-        final BlockingQueue<Runnable> downloadWorkQueue = new LinkedBlockingQueue<>();
-
-        NewsFileUtils.getWebPageArchiveStorage(this).mkdirs();
-
-        for (RssItem rssItem : dbConn.getAllUnreadRssItemsForDownloadWebPageService()) {
-            downloadWorkQueue.add(new DownloadWebPage(rssItem.getLink()));
-        }
-        //downloadWorkQueue.clear();
-
-        /*
-        List<RssItem> items = dbConn.getAllUnreadRssItemsForDownloadWebPageService();
-        for (int i = 0; i < 5; i++) {
-            downloadWorkQueue.add(new DownloadWebPage(items.get(i).getLink()));
-        }
-        */
-
-        startDownloadingQueue(downloadWorkQueue);
-    }
-
-
-
-    private void startDownloadingQueue(BlockingQueue<Runnable> downloadWorkQueue) {
-        totalCount = downloadWorkQueue.size();
-
-        // Creates a thread pool manager
-        mDownloadThreadPool = new ThreadPoolExecutor(
-                NUMBER_OF_CORES,       // Initial pool size
-                NUMBER_OF_CORES,       // Max pool size
-                KEEP_ALIVE_TIME,
-                KEEP_ALIVE_TIME_UNIT,
-                downloadWorkQueue);
-
-        // Start all tasks in queue
-        mDownloadThreadPool.prestartAllCoreThreads();
-
-        // Tell ThreadPoolExecutor to stop once done
-        mDownloadThreadPool.shutdown();
-
-        // If no articles are present, remove notification right away. Otherwise the user has to close it manually
-        if(totalCount == 0) {
-            mNotificationManager.cancel(NOTIFICATION_ID);
-        }
-    }
-
-    class DownloadWebPage implements Runnable {
-
-        private final String url;
-        private WebView webView;
-        private final Object lock;
-
-        DownloadWebPage(String url) {
-            this.url = url;
-            lock = new Object();
-        }
+        mDownloader = new WebArchiveDownloader(createHttpClient(), THREAD_COUNT);
 
-        @Override
-        public void run() {
-            //Log.v(TAG, "Running DownloadWebPage for url: " + url);
-            synchronized (lock) {
-                File webArchiveFile = getWebPageArchiveFileForUrl(DownloadWebPageService.this, url);
-                if (!webArchiveFile.exists()) {
-                    //Log.v(TAG, "Loading page:");
-                    initWebView();
-                    loadUrlInWebViewAndWait();
-                } else {
-                    Log.v(TAG, "Already cached article: " + url);
+        new Thread(() -> {
+            List<String> urls = new ArrayList<>();
+            DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(DownloadWebPageService.this);
+            try (LazyList<RssItem> rssItems = dbConn.getAllUnreadRssItemsForDownloadWebPageService()) {
+                for (RssItem rssItem : rssItems) {
+                    urls.add(rssItem.getLink());
                 }
             }
-            updateNotificationProgress();
-        }
 
-        private void initWebView() {
-            try {
-                runOnMainThreadAndWait(() -> {
-                    webView = new WebView(DownloadWebPageService.this);
-                    webView.setWebViewClient(new DownloadImageWebViewClient(lock));
-                    webView.setWebChromeClient(new DownloadImageWebViewChromeClient());
-                });
-            } catch (InterruptedException e) {
-                Log.e(TAG, "Error while setting up WebView", e);
-            }
-        }
+            File directory = NewsFileUtils.getWebPageArchiveStorage(DownloadWebPageService.this);
+            directory.mkdirs();
 
-        private void loadUrlInWebViewAndWait() {
             try {
-                runOnMainThreadAndWait(() -> {
-                    Log.d(TAG, "downloading website for url: " + url);
-                    webView.loadUrl(url);
-                });
-                lock.wait();
+                mDownloader.downloadAll(urls, directory, this::updateNotificationProgress);
             } catch (InterruptedException e) {
-                Log.e(TAG, "Error while opening url", e);
+                Log.e(TAG, "Download of web pages interrupted", e);
             }
-        }
-    }
-
-    static class DownloadImageWebViewChromeClient extends WebChromeClient {
-        @Override
-        public boolean onConsoleMessage(ConsoleMessage cm) {
-            //Log.d("TAG", cm.message() + " at " + cm.sourceId() + ":" + cm.lineNumber());
-            return true;
-        }
-    }
 
-    class DownloadImageWebViewClient extends WebViewClient {
-        private final String TAG = DownloadImageWebViewClient.class.getName();
-        private final Object lock;
-        private boolean failed = false;
-
-        DownloadImageWebViewClient(Object lock) {
-            this.lock = lock;
-        }
-
-        @Override
-        public void onReceivedError(WebView view, WebResourceRequest request, WebResourceError error) {
-            //Log.e(TAG, "onReceivedError() called with: view = [" + view + "], request = [" + request + "], error = [" + error + "]");
-            failed = true;
-            super.onReceivedError(view, request, error);
-        }
-
-        public void onPageFinished(final WebView view, final String url) {
-            //Log.e(TAG, "onPageFinished() called with: view = [" + view + "], url = [" + url + "]");
-
-            if(failed) {
-                Log.e(TAG, "Skipping onPageFinished as request failed.. " + url);
-            } else {
-                saveWebArchive(view, url);
-            }
-
-            // Notify waiting thread that we're done..
-            synchronized (lock) {
-                lock.notifyAll();
+            // Removes the notification once done (or right away if no articles are present)
+            if (!interrupted.get()) {
+                EventBus.getDefault().post(new StopWebArchiveDownloadEvent());
             }
-        }
+        }, "DownloadWebPageService").start();
+    }
 
-        private void saveWebArchive(final WebView view, final String url) {
-            new Thread(() -> delayedRunOnMainThread(() -> {
-                // Can't store directly on external dir.. (workaround -> store on internal storage first and move then))
-                final File webArchive = getWebPageArchiveFileForUrl(DownloadWebPageService.this, url);
-                final File webArchiveExternalStorage = getWebPageArchiveFileForUrl(DownloadWebPageService.this, url);
-                view.saveWebArchive(webArchive.getAbsolutePath(), false, value -> {
-                    // Move file to external storage once done writing
-                    webArchive.renameTo(webArchiveExternalStorage);
-                    //boolean success = webArchive.renameTo(webArchiveExternalStorage);
-                    //Log.v(TAG, "Move succeeded: " + success);
-                });
-            }, 2000)).start();
+    /**
+     * @return client which identifies itself like the WebView (some sites serve a different
+     * page to unknown clients)
+     */
+    private OkHttpClient createHttpClient() {
+        OkHttpClient.Builder builder = new OkHttpClient.Builder();
+        try {
+            final String userAgent = WebSettings.getDefaultUserAgent(this);
+            builder.addInterceptor(chain -> chain.proceed(chain.request().newBuilder().header("User-Agent", userAgent).build()));
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Failed to get user agent of WebView", e);
         }
+        return builder.build();
     }
 
-    private synchronized void updateNotificationProgress() {
+    private synchronized void updateNotificationProgress(int current, int totalCount) {
         if(interrupted.get()) {
             Log.v(TAG, "interrupted.. stop requested.. do not show progress anymore!");
-        } else {
-            int current = doneCount.incrementAndGet();
+        } else if (current < totalCount) {
             Log.d(TAG, String.format("updateNotificationProgress (%d/%d)", current, totalCount));
 
-            if (current == totalCount) {
-                //mNotificationManager.cancel(NOTIFICATION_ID);
-                EventBus.getDefault().post(new StopWebArchiveDownloadEvent());
-            } else {
-                mNotificationWebPages
-                        .setContentText((current) + "/" + totalCount + " - " + getString(R.string.notification_download_articles_offline))
-                        .setProgress(totalCount, current, false);
+            mNotificationWebPages
+                    .setContentText((current) + "/" + totalCount + " - " + getString(R.string.notification_download_articles_offline))
+                    .setProgress(totalCount, current, false);
 
-                mNotificationManager.notify(NOTIFICATION_ID, mNotificationWebPages.build());
-            }
+            mNotificationManager.notify(NOTIFICATION_ID, mNotificationWebPages.build());
         }
     }
 
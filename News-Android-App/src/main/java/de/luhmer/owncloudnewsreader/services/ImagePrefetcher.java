@@ -0,0 +1,241 @@
+package de.luhmer.owncloudnewsreader.services;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Downloads the images of articles into the disk cache (for offline reading) in the order of the
+ * given (unique) links. The downloads run on a pool of {@link #THREAD_COUNT} threads with at most
+ * {@link #MAX_REQUESTS_PER_HOST} requests per host at the same time (so a host with many images
+ * doesn't block the others). Images which are cached already are skipped without being loaded.
+ */
+public class ImagePrefetcher {
+
+    private static final String TAG = ImagePrefetcher.class.getCanonicalName();
+
+    static final int THREAD_COUNT = 6;
+    static final int MAX_REQUESTS_PER_HOST = 2;
+
+    public interface ImageLoader {
+        /**
+         * @return size of the image if it is in the disk cache already or -1 (must not download it)
+         */
+        long getCachedSize(String url) throws Exception;
+
+        /**
+         * Downloads the image into the disk cache (blocks until it has been stored).
+         *
+         * @return size of the stored image
+         */
+        long download(String url) throws Exception;
+    }
+
+    public interface ProgressListener {
+        /**
+         * Called on the download threads after each image (cached, downloaded or failed).
+         */
+        void onProgress(int completedCount, int totalCount);
+    }
+
+    private final ImageLoader mLoader;
+    private final int mThreadCount;
+    private final int mMaxRequestsPerHost;
+
+    private final AtomicInteger completedCount = new AtomicInteger();
+    private final AtomicInteger cachedCount = new AtomicInteger();
+    private final AtomicInteger downloadedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final Map<String, Long> byteSizes = new ConcurrentHashMap<>();
+
+    public ImagePrefetcher(ImageLoader loader) {
+        this(loader, THREAD_COUNT, MAX_REQUESTS_PER_HOST);
+    }
+
+    ImagePrefetcher(ImageLoader loader, int threadCount, int maxRequestsPerHost) {
+        this.mLoader = loader;
+        this.mThreadCount = threadCount;
+        this.mMaxRequestsPerHost = maxRequestsPerHost;
+    }
+
+    /**
+     * Downloads all images (blocks until all have been processed). Each link is only processed
+     * once, even if it is contained more than once.
+     *
+     * @param links links ordered by priority (see
+     *              {@link de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm#getImageLinksForPrefetch(long, int)})
+     */
+    public void prefetch(List<String> links, ProgressListener listener) throws InterruptedException {
+        List<String> uniqueLinks = new ArrayList<>(new LinkedHashSet<>(links));
+        if (uniqueLinks.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        final int totalCount = uniqueLinks.size();
+        final WorkQueue queue = new WorkQueue(uniqueLinks, mMaxRequestsPerHost);
+
+        ExecutorService executor = Executors.newFixedThreadPool(mThreadCount, runnable -> {
+            Thread thread = new Thread(runnable, "ImagePrefetcher");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        try {
+            List<Future<?>> workers = new ArrayList<>(mThreadCount);
+            for (int i = 0; i < mThreadCount; i++) {
+                workers.add(executor.submit(() -> {
+                    String link;
+                    while ((link = queue.take()) != null) {
+                        try {
+                            fetch(link);
+                        } finally {
+                            queue.done(link);
+                            listener.onProgress(completedCount.incrementAndGet(), totalCount);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Log.d(TAG, "Prefetched " + totalCount + " images in " + (System.currentTimeMillis() - start) + "ms - " +
+                "downloaded: " + downloadedCount.get() + ", cached: " + cachedCount.get() + ", failed: " + failedCount.get());
+    }
+
+    private void fetch(String link) throws InterruptedException {
+        try {
+            long byteSize = mLoader.getCachedSize(link);
+            if (byteSize >= 0) {
+                cachedCount.incrementAndGet();
+            } else {
+                byteSize = mLoader.download(link);
+                downloadedCount.incrementAndGet();
+            }
+            byteSizes.put(link, byteSize);
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            byteSizes.put(link, -1L);
+            failedCount.incrementAndGet();
+            Log.d(TAG, "Failed to download image: " + link, e);
+        }
+    }
+
+    public int getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public int getCachedCount() {
+        return cachedCount.get();
+    }
+
+    public int getDownloadedCount() {
+        return downloadedCount.get();
+    }
+
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return size of each processed image in the disk cache, -1 if its download failed (see
+     * {@link de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm#updateCachedImages(Map)})
+     */
+    public Map<String, Long> getByteSizes() {
+        return byteSizes;
+    }
+
+    static String getHost(String link) {
+        HttpUrl url = HttpUrl.parse(link);
+        return url != null ? url.host() : "";
+    }
+
+    /**
+     * Hands out the links in the order of their priority - skips the links of hosts which have
+     * {@code maxRequestsPerHost} running requests until one of them is done.
+     */
+    static class WorkQueue {
+
+        private static class Host {
+            final ArrayDeque<Integer> pending = new ArrayDeque<>(); // indexes of the links (= priority)
+            int running;
+        }
+
+        private final List<String> links;
+        private final int maxRequestsPerHost;
+        private final Map<String, Host> hosts = new HashMap<>();
+        private int remainingCount;
+
+        WorkQueue(List<String> links, int maxRequestsPerHost) {
+            this.links = links;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+            for (int i = 0; i < links.size(); i++) {
+                String host = getHost(links.get(i));
+                Host entry = hosts.get(host);
+                if (entry == null) {
+                    entry = new Host();
+                    hosts.put(host, entry);
+                }
+                entry.pending.add(i);
+            }
+            remainingCount = links.size();
+        }
+
+        /**
+         * @return the next link or null if all links have been handed out (waits while all hosts
+         * with pending links are busy)
+         */
+        synchronized String take() throws InterruptedException {
+            while (remainingCount > 0) {
+                Host next = null;
+                Iterator<Host> iterator = hosts.values().iterator();
+                while (iterator.hasNext()) {
+                    Host host = iterator.next();
+                    if (host.pending.isEmpty()) {
+                        if (host.running == 0) {
+                            iterator.remove();
+                        }
+                    } else if (host.running < maxRequestsPerHost && (next == null || host.pending.peek() < next.pending.peek())) {
+                        next = host;
+                    }
+                }
+
+                if (next != null) {
+                    next.running++;
+                    remainingCount--;
+                    return links.get(next.pending.poll());
+                }
+                wait();
+            }
+            return null;
+        }
+
+        synchronized void done(String link) {
+            Host host = hosts.get(getHost(link));
+            if (host != null) {
+                host.running--;
+            }
+            notifyAll();
+        }
+    }
+}
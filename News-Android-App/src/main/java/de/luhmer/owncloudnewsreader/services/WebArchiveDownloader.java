@@ -0,0 +1,342 @@
+package de.luhmer.owncloudnewsreader.services;
+
+import android.util.Log;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+
+/**
+ * Downloads web pages for offline reading (see {@link DownloadWebPageService}). Each page is
+ * stored with its style sheets and images as a single MHTML file (the format of
+ * {@link android.webkit.WebView#saveWebArchive(String)}, so the WebView can open it directly).
+ * The parts are stored without transfer encoding to keep the archives small. Scripts are removed -
+ * they are not executed in archives anyway.
+ * <p>
+ * The pages are downloaded with plain HTTP requests on a pool of {@code threadCount} threads, the
+ * resources of a page one after another by the thread of the page.
+ */
+public class WebArchiveDownloader {
+
+    private static final String TAG = WebArchiveDownloader.class.getCanonicalName();
+
+    static final int THREAD_COUNT = 4;
+    static final int MAX_RESOURCE_COUNT = 100;
+    static final long MAX_PAGE_BYTES = 5 * 1024 * 1024;
+    static final long MAX_RESOURCE_BYTES = 2 * 1024 * 1024;
+
+    private static final Pattern CSS_URL = Pattern.compile("url\\(\\s*['\"]?([^'\")]+?)['\"]?\\s*\\)");
+    private static final String CRLF = "\r\n";
+
+    public interface ProgressListener {
+        /**
+         * Called on the download threads after each page (downloaded, skipped or failed).
+         */
+        void onProgress(int completedCount, int totalCount);
+    }
+
+    private final OkHttpClient mClient;
+    private final int mThreadCount;
+    private volatile ExecutorService mExecutor;
+    private volatile boolean cancelled;
+
+    private final AtomicInteger completedCount = new AtomicInteger();
+    private final AtomicInteger downloadedCount = new AtomicInteger();
+    private final AtomicInteger skippedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+
+    public WebArchiveDownloader(OkHttpClient client) {
+        this(client, THREAD_COUNT);
+    }
+
+    public WebArchiveDownloader(OkHttpClient client, int threadCount) {
+        this.mClient = client;
+        this.mThreadCount = threadCount;
+    }
+
+    /**
+     * Downloads the pages which haven't been archived yet into the directory (blocks until all
+     * pages have been processed or {@link #cancel()} is called).
+     */
+    public void downloadAll(List<String> urls, File directory, ProgressListener listener) throws InterruptedException {
+        // items of different feeds may link to the same page
+        Set<String> uniqueUrls = new LinkedHashSet<>();
+        for (String url : urls) {
+            if (url != null && HttpUrl.parse(url) != null) {
+                uniqueUrls.add(url);
+            }
+        }
+        long start = System.currentTimeMillis();
+        final int totalCount = uniqueUrls.size();
+
+        ExecutorService executor = Executors.newFixedThreadPool(mThreadCount, runnable -> {
+            Thread thread = new Thread(runnable, "WebArchiveDownloader");
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        mExecutor = executor;
+        if (cancelled) {
+            executor.shutdownNow();
+            return;
+        }
+        try {
+            for (String url : uniqueUrls) {
+                executor.execute(() -> {
+                    try {
+                        archive(url, new File(directory, DownloadWebPageService.getWebPageArchiveFilename(url)));
+                    } finally {
+                        listener.onProgress(completedCount.incrementAndGet(), totalCount);
+                    }
+                });
+            }
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                if (cancelled) {
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Log.d(TAG, "Processed " + totalCount + " web pages in " + (System.currentTimeMillis() - start) + "ms - " +
+                "downloaded: " + downloadedCount.get() + ", skipped: " + skippedCount.get() + ", failed: " + failedCount.get());
+    }
+
+    /**
+     * Stops all running downloads.
+     */
+    public void cancel() {
+        cancelled = true;
+        ExecutorService executor = mExecutor;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        mClient.dispatcher().cancelAll();
+    }
+
+    private void archive(String url, File target) {
+        if (target.exists()) {
+            Log.v(TAG, "Already cached article: " + url);
+            skippedCount.incrementAndGet();
+            return;
+        }
+        try {
+            download(url, target);
+            downloadedCount.incrementAndGet();
+        } catch (IOException e) {
+            failedCount.incrementAndGet();
+            Log.d(TAG, "Failed to download web page: " + url, e);
+        }
+    }
+
+    void download(String url, File target) throws IOException {
+        Resource page = fetch(url, MAX_PAGE_BYTES);
+        if (page.mediaType == null || !"html".equals(page.mediaType.subtype())) {
+            throw new IOException("Not an HTML page: " + page.mediaType);
+        }
+        Charset charset = page.mediaType.charset(null);
+        Document doc = Jsoup.parse(new ByteArrayInputStream(page.bytes), charset != null ? charset.name() : null, page.url);
+        doc.select("script").remove();
+        // the image of the src attribute is archived - sources for other screen sizes would be loaded from the network
+        doc.select("picture > source").remove();
+
+        List<String> styleSheets = new ArrayList<>();
+        Set<String> images = new LinkedHashSet<>();
+        for (Element link : doc.select("link[rel~=(?i)stylesheet][href]")) {
+            String href = toHttpUrl(link.absUrl("href"));
+            if (href != null) {
+                link.attr("href", href);
+                styleSheets.add(href);
+            }
+        }
+        for (Element img : doc.select("img[src]")) {
+            img.removeAttr("srcset");
+            String src = toHttpUrl(img.absUrl("src"));
+            if (src != null) {
+                img.attr("src", src);
+                images.add(src);
+            }
+        }
+
+        Map<String, Resource> resources = new LinkedHashMap<>();
+        for (String styleSheet : styleSheets) {
+            Resource css = fetchResource(styleSheet);
+            if (css != null) {
+                resources.put(styleSheet, css);
+                images.addAll(getCssUrls(css));
+            }
+        }
+        for (String image : images) {
+            if (resources.size() >= MAX_RESOURCE_COUNT) {
+                break;
+            }
+            if (!resources.containsKey(image)) {
+                Resource resource = fetchResource(image);
+                if (resource != null) {
+                    resources.put(image, resource);
+                }
+            }
+        }
+
+        doc.charset(StandardCharsets.UTF_8);
+        byte[] html = doc.outerHtml().getBytes(StandardCharsets.UTF_8);
+        writeArchive(target, new Resource(page.url, MediaType.get("text/html; charset=utf-8"), html), resources.values());
+    }
+
+    private Resource fetchResource(String url) {
+        if (cancelled) {
+            return null;
+        }
+        try {
+            // stored with the requested url - the page and the style sheets reference it
+            Resource resource = fetch(url, MAX_RESOURCE_BYTES);
+            return new Resource(url, resource.mediaType, resource.bytes);
+        } catch (IOException e) {
+            Log.v(TAG, "Skipping resource: " + url + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the response (with the url after redirects)
+     */
+    private Resource fetch(String url, long maxBytes) throws IOException {
+        Request request = new Request.Builder().url(url).build();
+        try (Response response = mClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new IOException("HTTP " + response.code() + " for " + url);
+            }
+            ResponseBody body = response.body();
+            BufferedSource source = body.source();
+            if (source.request(maxBytes + 1)) {
+                throw new IOException("Response exceeds " + maxBytes + " bytes: " + url);
+            }
+            return new Resource(response.request().url().toString(), body.contentType(), source.readByteArray());
+        }
+    }
+
+    /**
+     * @return the (absolute) links of the images and fonts used by the style sheet
+     */
+    static List<String> getCssUrls(Resource css) {
+        List<String> urls = new ArrayList<>();
+        HttpUrl base = HttpUrl.parse(css.url);
+        Charset charset = css.mediaType != null ? css.mediaType.charset(StandardCharsets.UTF_8) : StandardCharsets.UTF_8;
+        Matcher matcher = CSS_URL.matcher(new String(css.bytes, charset));
+        while (base != null && matcher.find()) {
+            HttpUrl url = base.resolve(matcher.group(1).trim());
+            if (url != null) {
+                urls.add(url.toString());
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * @return the normalized url (as it is stored in the archive) or null if it isn't a http(s) url
+     */
+    private static String toHttpUrl(String url) {
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        return httpUrl != null ? httpUrl.toString() : null;
+    }
+
+    /**
+     * Writes the page and its resources as MHTML (multipart/related). The archive is written to a
+     * temporary file first, so an incomplete archive is never opened.
+     */
+    static void writeArchive(File target, Resource page, Collection<Resource> resources) throws IOException {
+        File temp = new File(target.getPath() + ".tmp");
+        String boundary = "----MultipartBoundary--" + UUID.randomUUID() + "----";
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            writeAscii(out, "Snapshot-Content-Location: " + page.url + CRLF +
+                    "MIME-Version: 1.0" + CRLF +
+                    "Content-Type: multipart/related;" + CRLF +
+                    "\ttype=\"text/html\";" + CRLF +
+                    "\tboundary=\"" + boundary + "\"" + CRLF);
+            writePart(out, boundary, page);
+            for (Resource resource : resources) {
+                writePart(out, boundary, resource);
+            }
+            writeAscii(out, CRLF + "--" + boundary + "--" + CRLF);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(target)) {
+            temp.delete();
+            throw new IOException("Failed to store web archive: " + target);
+        }
+    }
+
+    private static void writePart(OutputStream out, String boundary, Resource resource) throws IOException {
+        writeAscii(out, CRLF + "--" + boundary + CRLF +
+                "Content-Type: " + (resource.mediaType != null ? resource.mediaType : "application/octet-stream") + CRLF +
+                "Content-Transfer-Encoding: binary" + CRLF +
+                "Content-Location: " + resource.url + CRLF + CRLF);
+        out.write(resource.bytes);
+    }
+
+    private static void writeAscii(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public int getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public int getDownloadedCount() {
+        return downloadedCount.get();
+    }
+
+    public int getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    static class Resource {
+        final String url;
+        final MediaType mediaType;
+        final byte[] bytes;
+
+        Resource(String url, MediaType mediaType, byte[] bytes) {
+            this.url = url;
+            this.mediaType = mediaType;
+            this.bytes = bytes;
+        }
+    }
+}
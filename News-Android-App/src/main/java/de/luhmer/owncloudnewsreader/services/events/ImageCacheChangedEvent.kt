@@ -0,0 +1,6 @@
+package de.luhmer.owncloudnewsreader.services.events
+
+/**
+ * Posted when images have been downloaded into or removed from the image cache
+ */
+class ImageCacheChangedEvent
@@ -0,0 +1,6 @@
+package de.luhmer.owncloudnewsreader.services.events
+
+/**
+ * Posted when the bodies of synced items have been processed (excerpt and thumbnail changed)
+ */
+class ItemBodiesProcessedEvent
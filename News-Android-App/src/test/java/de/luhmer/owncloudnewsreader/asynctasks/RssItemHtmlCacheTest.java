@@ -0,0 +1,128 @@
+package de.luhmer.owncloudnewsreader.asynctasks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+
+import de.luhmer.owncloudnewsreader.NewsDetailActivity;
+import de.luhmer.owncloudnewsreader.SettingsActivity;
+import de.luhmer.owncloudnewsreader.async_tasks.RssItemHtmlCache;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.services.events.ImageCacheChangedEvent;
+import de.luhmer.owncloudnewsreader.services.events.ItemBodiesProcessedEvent;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class RssItemHtmlCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SharedPreferences prefs;
+
+    @Before
+    public void setUp() {
+        prefs = RuntimeEnvironment.getApplication().getSharedPreferences("RssItemHtmlCacheTest", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void testKeyDependsOnSettings() {
+        RssItemHtmlCache cache = new RssItemHtmlCache(1000);
+        RssItem item = createItem(1, 1000);
+        String key = cache.getKey(item, prefs, false);
+        assertEquals(key, cache.getKey(createItem(1, 1000), prefs, false));
+
+        assertNotEquals(key, cache.getKey(createItem(2, 1000), prefs, false));
+        // the item has been changed on the server
+        assertNotEquals(key, cache.getKey(createItem(1, 2000), prefs, false));
+        assertNotEquals(key, cache.getKey(item, prefs, true));
+
+        prefs.edit().putBoolean(NewsDetailActivity.INCOGNITO_MODE_ENABLED, true).commit();
+        String incognitoKey = cache.getKey(item, prefs, false);
+        assertNotEquals(key, incognitoKey);
+
+        // the font size is applied by the web view
+        prefs.edit().putString(SettingsActivity.SP_FONT_SIZE, "1.2").commit();
+        assertEquals(incognitoKey, cache.getKey(item, prefs, false));
+
+        prefs.edit().putBoolean(SettingsActivity.CB_DETAILED_VIEW_ZOOM, false).commit();
+        assertNotEquals(incognitoKey, cache.getKey(item, prefs, false));
+    }
+
+    @Test
+    public void testPagesAreInvalidatedWhenBodiesOrImagesChange() {
+        RssItemHtmlCache cache = new RssItemHtmlCache(1000);
+        RssItem item = createItem(1, 1000);
+        String key = cache.getKey(item, prefs, false);
+        cache.put(key, "<p>1</p>");
+
+        cache.onEvent(new ItemBodiesProcessedEvent());
+        assertNull(cache.get(key));
+        String processedKey = cache.getKey(item, prefs, false);
+        assertNotEquals(key, processedKey);
+
+        // page which was rendered before the images have been downloaded
+        cache.put(key, "<p>1</p>");
+        cache.onEvent(new ImageCacheChangedEvent());
+        assertNotEquals(processedKey, cache.getKey(item, prefs, false));
+        assertNull(cache.get(cache.getKey(item, prefs, false)));
+    }
+
+    @Test
+    public void testPagesWithEvictedImagesAreDropped() throws IOException {
+        RssItemHtmlCache cache = new RssItemHtmlCache(1000);
+        File image1 = folder.newFile("1.jpg");
+        File image2 = folder.newFile("2.jpg");
+        cache.put("1", "<p><img src=\"file://" + image1.getAbsolutePath() + "\"><img src=\"file://" + image2.getAbsolutePath() + "\"></p>");
+        cache.put("2", "<p><img src=\"https://example.com/1.jpg\"></p>");
+
+        assertNotNull(cache.get("1"));
+        assertTrue(image2.delete());
+        assertNull(cache.get("1"));
+        assertNotNull(cache.get("2"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedPagesAreEvicted() {
+        RssItemHtmlCache cache = new RssItemHtmlCache(30);
+        cache.put("1", "<html>page 1</html>"); // 19 chars
+        cache.put("2", "<p>2</p>");            // 8 chars
+        assertEquals("<html>page 1</html>", cache.get("1"));
+
+        cache.put("3", "<p>3</p>");
+        // 2 has been used least recently
+        assertNull(cache.get("2"));
+        assertEquals("<html>page 1</html>", cache.get("1"));
+        assertEquals("<p>3</p>", cache.get("3"));
+
+        cache.clear();
+        assertNull(cache.get("1"));
+        assertNull(cache.get("3"));
+    }
+
+    private static RssItem createItem(long id, long lastModified) {
+        RssItem item = new RssItem(id);
+        item.setLastModified(new Date(lastModified));
+        return item;
+    }
+}
@@ -1,10 +1,33 @@
 package de.luhmer.owncloudnewsreader.asynctasks
 
 import de.luhmer.owncloudnewsreader.async_tasks.RssItemToHtmlTask
+import org.junit.AfterClass
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
 import org.junit.Test
+import java.io.File
+import java.io.FileNotFoundException
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
 
 class RssItemToHtmlTaskTest {
+    companion object {
+        private const val IMAGE_COUNT = 40
+
+        // same as the disk cache executor of Glide (see NextcloudGlideModule)
+        private val diskCacheExecutor: ExecutorService = Executors.newFixedThreadPool(4)
+
+        @JvmStatic
+        @AfterClass
+        fun tearDown() {
+            diskCacheExecutor.shutdown()
+        }
+    }
+
     @Test
     fun moreThan10PreBlocks() {
         val input = (1..11).joinToString(" ") { "<pre>$it</pre>" }
@@ -25,4 +48,79 @@ class RssItemToHtmlTaskTest {
         val result = RssItemToHtmlTask.removeLineBreaksFromHtml(input)
         assertEquals(input, result)
     }
+
+    @Test
+    fun cachedImagesAreReplaced() {
+        val text =
+            "<img src=\"https://example.com/a.png\"><img src=\"https://example.com/a.png?size=2\">" +
+                "<img src=\"https://example.com/b.png\"><a href=\"https://example.com/a.png\">a</a>"
+        val links = listOf("https://example.com/a.png", "https://example.com/a.png?size=2", " https://example.com/b.png ", "https://example.com/a.png")
+        val cached = mapOf("https://example.com/a.png" to "/cache/a", "https://example.com/a.png?size=2" to "/cache/a2")
+
+        val submitted = mutableListOf<String>()
+        val result =
+            RssItemToHtmlTask.replaceCachedImages(
+                { link ->
+                    submitted.add(link)
+                    diskCacheExecutor.submit(Callable { cached[link]?.let { File(it) } ?: throw FileNotFoundException(link) })
+                },
+                links,
+                text,
+            )
+
+        assertEquals(listOf("https://example.com/a.png", "https://example.com/a.png?size=2", "https://example.com/b.png"), submitted)
+        assertEquals(
+            "<img src=\"file:///cache/a\"><img src=\"file:///cache/a2\">" +
+                "<img src=\"https://example.com/b.png\"><a href=\"file:///cache/a\">a</a>",
+            result,
+        )
+    }
+
+    @Test
+    fun lookupsAreStartedAtOnce() {
+        val links = (1..IMAGE_COUNT).map { "https://cdn.example.com/images/$it.jpg" }
+        val text = createArticle(links)
+        val started = CountDownLatch(IMAGE_COUNT)
+        val lookup =
+            RssItemToHtmlTask.ImageCacheLookup { link ->
+                started.countDown()
+                diskCacheExecutor.submit(
+                    Callable {
+                        // completes only once all lookups have been started - waiting for each lookup before starting the next one would fail
+                        if (!started.await(5, TimeUnit.SECONDS)) {
+                            throw TimeoutException(link)
+                        }
+                        lookupFile(link)
+                    },
+                )
+            }
+
+        val result = RssItemToHtmlTask.replaceCachedImages(lookup, links, text)
+
+        for (id in 1..IMAGE_COUNT) {
+            val expected = if (id % 2 == 0) "file:///data/cache/image_manager_disk_cache/$id.0" else "https://cdn.example.com/images/$id.jpg"
+            assertTrue(result.contains("src=\"$expected\""))
+        }
+    }
+
+    /**
+     * Simulates a lookup in the disk cache (every second image is cached)
+     */
+    private fun lookupFile(link: String): File {
+        val id = link.substringAfterLast('/').substringBefore('.').toInt()
+        if (id % 2 == 1) {
+            throw FileNotFoundException(link)
+        }
+        return File("/data/cache/image_manager_disk_cache/$id.0")
+    }
+
+    private fun createArticle(links: List<String>): String {
+        val sb = StringBuilder()
+        for (link in links) {
+            sb.append("<p>")
+            repeat(300) { sb.append("lorem ipsum ") }
+            sb.append("<img alt=\"image\" src=\"").append(link).append("\"></p>\n")
+        }
+        return sb.toString()
+    }
 }
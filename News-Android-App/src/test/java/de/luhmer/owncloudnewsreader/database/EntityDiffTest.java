@@ -0,0 +1,154 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import de.luhmer.owncloudnewsreader.database.model.DaoSession;
+import de.luhmer.owncloudnewsreader.database.model.Feed;
+import de.luhmer.owncloudnewsreader.database.model.Folder;
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
+import de.luhmer.owncloudnewsreader.reader.InsertIntoDatabase;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class EntityDiffTest {
+
+    @Rule
+    public final TestDatabase database = new TestDatabase();
+
+    private SQLiteDatabase db;
+    private DaoSession daoSession;
+    private DatabaseConnectionOrm dbConn;
+
+    @Before
+    public void setUp() {
+        db = database.getDb();
+        daoSession = database.getDaoSession();
+        dbConn = database.getDbConn();
+    }
+
+    @Test
+    public void testCompute() {
+        List<Folder> stored = Arrays.asList(new Folder(1, "Unchanged"), new Folder(2, "Old label"), new Folder(3, "Removed"));
+        List<Folder> received = Arrays.asList(new Folder(1, "Unchanged"), new Folder(2, "New label"), new Folder(4, "Added"));
+
+        EntityDiff<Folder> diff = EntityDiff.compute(stored, received, Folder::getId,
+                (storedFolder, receivedFolder) -> !storedFolder.getLabel().equals(receivedFolder.getLabel()));
+
+        assertEquals(Collections.singletonList(received.get(2)), diff.getAdded());
+        assertEquals(Collections.singletonList(received.get(1)), diff.getChanged());
+        assertEquals(Collections.singletonList(3L), diff.getRemovedIds());
+        assertTrue(EntityDiff.<Folder>empty().isEmpty());
+    }
+
+    @Test
+    public void testSyncKeepsLocalFieldsOfFeeds() {
+        dbConn.insertNewFolders(Collections.singletonList(new Folder(1, "Folder")));
+        dbConn.insertNewFeed(Arrays.asList(
+                new Feed(1, 1L, "Feed 1", null, "https://example.com/1", "#ff0000", "channel", 1L),
+                new Feed(2, 1L, "Feed 2", null, "https://example.com/2", "#00ff00", null, null)));
+
+        InsertIntoDatabase.InsertFoldersAndFeedsIntoDatabase(
+                Arrays.asList(new Folder(1, "Renamed folder"), new Folder(2, "New folder")),
+                Arrays.asList(
+                        new Feed(1, 2L, "Feed 1", null, "https://example.com/1", null, null, null),
+                        new Feed(2, 1L, "Feed 2", null, "https://example.com/2", null, null, null)),
+                dbConn);
+        daoSession.clear();
+
+        assertEquals("Renamed folder", dbConn.getFolderById(1).getLabel());
+        assertEquals("New folder", dbConn.getFolderById(2).getLabel());
+
+        Feed movedFeed = dbConn.getFeedById(1);
+        assertEquals(2L, (long) movedFeed.getFolderId());
+        assertEquals("#ff0000", movedFeed.getAvgColour());
+        assertEquals("channel", movedFeed.getNotificationChannel());
+        assertEquals(1L, (long) movedFeed.getOpenIn());
+        assertEquals("#00ff00", dbConn.getFeedById(2).getAvgColour());
+    }
+
+    @Test
+    public void testUnchangedFeedsAreNotWritten() {
+        dbConn.insertNewFeed(Arrays.asList(
+                new Feed(1, null, "Feed 1", null, null, null, null, null),
+                new Feed(2, null, "Feed 2", null, null, null, null, null)));
+        db.execSQL("CREATE TEMP TABLE FEED_WRITES (FEED_ID INTEGER)");
+        db.execSQL("CREATE TEMP TRIGGER FEED_WRITES_UPDATE AFTER UPDATE ON FEED BEGIN INSERT INTO FEED_WRITES VALUES (new._id); END");
+
+        InsertIntoDatabase.InsertFoldersAndFeedsIntoDatabase(null, Arrays.asList(
+                new Feed(1, null, "Feed 1", null, null, null, null, null),
+                new Feed(2, null, "Feed 2 renamed", null, null, null, null, null)), dbConn);
+
+        try (Cursor cursor = db.rawQuery("SELECT FEED_ID FROM FEED_WRITES", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(2, cursor.getLong(0));
+            assertEquals(1, cursor.getCount());
+        }
+    }
+
+    @Test
+    public void testRemovedFeedIsDeletedWithItsItems() {
+        dbConn.insertNewFeed(Arrays.asList(
+                new Feed(1, null, "Feed 1", null, null, null, null, null),
+                new Feed(2, null, "Feed 2", null, null, null, null, null)));
+        insertItems(2, 10);
+
+        InsertIntoDatabase.InsertFoldersAndFeedsIntoDatabase(null, Collections.singletonList(new Feed(1, null, "Feed 1", null, null, null, null, null)), dbConn);
+
+        assertNull(dbConn.getFeedById(2));
+        assertEquals(10, count("SELECT COUNT(1) FROM RSS_ITEM WHERE FEED_ID = 1"));
+        assertEquals(0, count("SELECT COUNT(1) FROM RSS_ITEM WHERE FEED_ID = 2"));
+        assertEquals(0, count("SELECT COUNT(1) FROM " + FeedItemCounts.TABLENAME + " WHERE " + FeedItemCounts.COLUMN_FEED_ID + " = 2"));
+        assertEquals(10, count("SELECT COUNT(1) FROM " + RssItemSearchIndex.TABLENAME));
+    }
+
+    private void insertItems(long feedId, int count) {
+        db.beginTransaction();
+        try (SQLiteStatement insertItem = db.compileStatement("INSERT INTO " + RssItemDao.TABLENAME +
+                " (_id, FEED_ID, TITLE, BODY, AUTHOR, GUID, GUID_HASH, FINGERPRINT, READ_TEMP, STARRED_TEMP, PUB_DATE)" +
+                " VALUES (?, ?, ?, '<p>Body</p>', '', ?, ?, ?, 0, 0, ?)");
+             SQLiteStatement insertIndex = db.compileStatement(RssItemSearchIndex.getInsertSQL())) {
+            for (int i = 0; i < count; i++) {
+                long id = feedId * 1000 + i;
+                insertItem.bindLong(1, id);
+                insertItem.bindLong(2, feedId);
+                insertItem.bindString(3, "Title " + id);
+                insertItem.bindString(4, "guid" + id);
+                insertItem.bindString(5, "guidHash" + id);
+                insertItem.bindString(6, "fingerprint" + id);
+                insertItem.bindLong(7, id * 1000L);
+                insertItem.executeInsert();
+
+                RssItemSearchIndex.bind(insertIndex, id, "Title " + id, "Body");
+                insertIndex.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private long count(String sql) {
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.app.Application;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.SparseArray;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import de.luhmer.owncloudnewsreader.ListView.SubscriptionExpandableListAdapter.SPECIAL_FOLDERS;
+import de.luhmer.owncloudnewsreader.database.model.DaoSession;
+import de.luhmer.owncloudnewsreader.database.model.Feed;
+import de.luhmer.owncloudnewsreader.database.model.Folder;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class FeedItemCountsTest {
+
+    @Rule
+    public final TestDatabase database = new TestDatabase();
+
+    private SQLiteDatabase db;
+    private DaoSession daoSession;
+    private DatabaseConnectionOrm dbConn;
+
+    @Before
+    public void setUp() {
+        db = database.getDb();
+        daoSession = database.getDaoSession();
+        dbConn = database.getDbConn();
+
+        dbConn.insertNewFolders(Collections.singletonList(new Folder(1, "Folder")));
+        dbConn.insertNewFeed(Arrays.asList(
+                new Feed(1, 1L, "Feed 1", null, null, null, null, null),
+                new Feed(2, 1L, "Feed 2", null, null, null, null, null),
+                new Feed(3, null, "Feed 3", null, null, null, null, null)));
+    }
+
+    @Test
+    public void testDrawerCounts() {
+        dbConn.insertNewItems(Arrays.asList(
+                createItem(1, 1, false, true),
+                createItem(2, 1, false, false),
+                createItem(3, 2, false, false),
+                createItem(4, 2, true, true),
+                createItem(5, 3, false, false),
+                createItem(6, 3, true, false)));
+
+        SparseArray<String>[] unread = dbConn.getUnreadItemCountFeedFolder();
+        assertEquals("3", unread[0].get(1));
+        assertEquals("4", unread[0].get(SPECIAL_FOLDERS.ALL_UNREAD_ITEMS.getValue()));
+        assertEquals("2", unread[0].get(SPECIAL_FOLDERS.ALL_STARRED_ITEMS.getValue()));
+        assertEquals("2", unread[1].get(1));
+        assertEquals("1", unread[1].get(2));
+        assertEquals("1", unread[1].get(3));
+
+        SparseArray<String> starred = dbConn.getStarredItemCount();
+        assertEquals(2, starred.size());
+        assertEquals("1", starred.get(1));
+        assertEquals("1", starred.get(2));
+
+        dbConn.markAllItemsAsRead();
+        unread = dbConn.getUnreadItemCountFeedFolder();
+        assertNull(unread[0].get(1));
+        assertEquals(0, unread[1].size());
+        assertEquals("0", unread[0].get(SPECIAL_FOLDERS.ALL_UNREAD_ITEMS.getValue()));
+    }
+
+    @Test
+    public void testRemoveFeed() {
+        dbConn.insertNewItems(Arrays.asList(createItem(1, 1, false, true), createItem(2, 2, false, false)));
+
+        dbConn.removeFeedById(1);
+
+        assertEquals(Collections.singletonList("2 1 0"), getCounts());
+        assertEquals(0, dbConn.getStarredItemCount().size());
+    }
+
+    /**
+     * Runs random inserts, replacements, updates and deletes and compares the counts with the
+     * ones calculated from RSS_ITEM after every step.
+     */
+    @Test
+    public void testCountsFollowItems() {
+        Random random = new Random(42);
+        RssItemDao rssItemDao = daoSession.getRssItemDao();
+
+        for (int i = 0; i < 500; i++) {
+            long id = random.nextInt(100) + 1;
+            switch (random.nextInt(5)) {
+                case 0:
+                case 1:
+                    // new item or replaced by the sync
+                    dbConn.insertNewItems(Collections.singletonList(createItem(id, random.nextInt(3) + 1, random.nextBoolean(), random.nextBoolean())));
+                    break;
+                case 2:
+                    RssItem item = rssItemDao.load(id);
+                    if (item != null) {
+                        item.setRead_temp(random.nextBoolean());
+                        item.setStarred_temp(random.nextBoolean());
+                        rssItemDao.update(item);
+                    }
+                    break;
+                case 3:
+                    rssItemDao.deleteByKey(id);
+                    break;
+                default:
+                    if (random.nextInt(10) == 0) {
+                        dbConn.markAllItemsAsRead();
+                    }
+                    break;
+            }
+            assertEquals("Step " + i, getExpectedCounts(), getCounts());
+        }
+
+        FeedItemCounts.rebuild(db);
+        assertEquals(getExpectedCounts(), getCounts());
+    }
+
+    private List<String> getCounts() {
+        return query("SELECT " + FeedItemCounts.COLUMN_FEED_ID + ", " + FeedItemCounts.COLUMN_UNREAD + ", " + FeedItemCounts.COLUMN_STARRED +
+                " FROM " + FeedItemCounts.TABLENAME +
+                " WHERE " + FeedItemCounts.COLUMN_UNREAD + " > 0 OR " + FeedItemCounts.COLUMN_STARRED + " > 0" +
+                " ORDER BY " + FeedItemCounts.COLUMN_FEED_ID);
+    }
+
+    private List<String> getExpectedCounts() {
+        String unread = "SUM(" + DatabaseHelperOrm.CONDITION_UNREAD + ")";
+        String starred = "SUM(" + DatabaseHelperOrm.CONDITION_STARRED + ")";
+        return query("SELECT FEED_ID, " + unread + ", " + starred +
+                " FROM " + RssItemDao.TABLENAME +
+                " GROUP BY FEED_ID HAVING " + unread + " > 0 OR " + starred + " > 0" +
+                " ORDER BY FEED_ID");
+    }
+
+    private List<String> query(String sql) {
+        List<String> rows = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                rows.add(cursor.getLong(0) + " " + cursor.getLong(1) + " " + cursor.getLong(2));
+            }
+        }
+        return rows;
+    }
+
+    private static RssItem createItem(long id, long feedId, boolean read, boolean starred) {
+        RssItem item = TestDatabase.createItem(id);
+        item.setFeedId(feedId);
+        item.setRead(read);
+        item.setRead_temp(read);
+        item.setStarred(starred);
+        item.setStarred_temp(starred);
+        return item;
+    }
+}
@@ -0,0 +1,105 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.model.ItemGuidHash;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.ItemMap;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class ItemGuidHashTest {
+
+    // more items than fit into a single IN (...) statement
+    private static final int ITEM_COUNT = DatabaseConnectionOrm.MAX_SQL_VARIABLES_PER_STATEMENT * 2 + 100;
+
+    @Rule
+    public final TestDatabase database = new TestDatabase();
+
+    private DatabaseConnectionOrm dbConn;
+
+    @Before
+    public void setUp() {
+        dbConn = database.getDbConn();
+
+        List<RssItem> items = new ArrayList<>();
+        for (long id = 1; id <= ITEM_COUNT; id++) {
+            RssItem item = TestDatabase.createItem(id);
+            item.setFeedId(id % 3 + 1);
+            items.add(item);
+        }
+        dbConn.insertNewItems(items);
+    }
+
+    @Test
+    public void testGuidHashesOfItems() {
+        List<ItemGuidHash> guidHashes = dbConn.getGuidHashesOfItems(Arrays.asList("2", "999999", "1"));
+
+        assertEquals(2, guidHashes.size());
+        Map<Long, ItemGuidHash> byId = new HashMap<>();
+        for (ItemGuidHash guidHash : guidHashes) {
+            byId.put(guidHash.id, guidHash);
+        }
+        assertEquals(2, byId.get(1L).feedId);
+        assertEquals("guidHash1", byId.get(1L).guidHash);
+        assertEquals(3, byId.get(2L).feedId);
+        assertEquals("guidHash2", byId.get(2L).guidHash);
+
+        assertTrue(dbConn.getGuidHashesOfItems(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testGuidHashesOfManyItems() {
+        List<String> itemIds = new ArrayList<>();
+        for (long id = ITEM_COUNT + 10; id >= 1; id--) {
+            itemIds.add(String.valueOf(id));
+        }
+
+        List<ItemGuidHash> guidHashes = dbConn.getGuidHashesOfItems(itemIds);
+
+        assertEquals(ITEM_COUNT, guidHashes.size());
+        Set<Long> ids = new LinkedHashSet<>();
+        for (ItemGuidHash guidHash : guidHashes) {
+            assertEquals("guidHash" + guidHash.id, guidHash.guidHash);
+            assertEquals(guidHash.id % 3 + 1, guidHash.feedId);
+            ids.add(guidHash.id);
+        }
+        assertEquals(ITEM_COUNT, ids.size());
+    }
+
+    @Test
+    public void testItemMapOfStoredItems() {
+        Set<String> itemIds = new LinkedHashSet<>();
+        for (long id = 1; id <= ITEM_COUNT; id++) {
+            itemIds.add(String.valueOf(id));
+        }
+        itemIds.add("0");
+
+        ItemMap itemMap = new ItemMap(itemIds, dbConn);
+
+        assertEquals(ITEM_COUNT, itemMap.getItems().size());
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("feedId", (long) ITEM_COUNT % 3 + 1);
+        expected.put("guidHash", "guidHash" + ITEM_COUNT);
+        assertTrue(itemMap.getItems().contains(expected));
+    }
+}
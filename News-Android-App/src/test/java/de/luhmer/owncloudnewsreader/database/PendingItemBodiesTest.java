@@ -0,0 +1,145 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.luhmer.owncloudnewsreader.database.model.DaoSession;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.ItemBodyProcessor;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class PendingItemBodiesTest {
+
+    private static final int ITEM_COUNT = 120;
+
+    @Rule
+    public final TestDatabase database = new TestDatabase();
+
+    private SQLiteDatabase db;
+    private DaoSession daoSession;
+    private DatabaseConnectionOrm dbConn;
+
+    @Before
+    public void setUp() {
+        db = database.getDb();
+        daoSession = database.getDaoSession();
+        dbConn = database.getDbConn();
+
+        List<RssItem> items = new ArrayList<>();
+        for (long id = 1; id <= ITEM_COUNT; id++) {
+            items.add(createItem(id, "<p>Body of item " + id + "</p><img src=\"/images/" + id + ".png\">"));
+        }
+        dbConn.insertNewItemsWithRawBody(items);
+    }
+
+    @Test
+    public void testInsertedItemsArePending() {
+        assertEquals(ITEM_COUNT, dbConn.getPendingItemBodyCount());
+
+        List<RssItem> items = dbConn.getItemsWithPendingBody(50);
+        assertEquals(50, items.size());
+        // newest first
+        assertEquals(ITEM_COUNT, (long) items.get(0).getId());
+        assertEquals(ITEM_COUNT - 49, (long) items.get(49).getId());
+        assertEquals("<p>Body of item 120</p><img src=\"/images/120.png\">", items.get(0).getBody());
+        assertEquals("", items.get(0).getMediaThumbnail());
+
+        // only the title is indexed until the body has been processed
+        assertEquals(ITEM_COUNT, search(RssItemSearchIndex.COLUMN_TITLE, "title"));
+        assertEquals(0, search(RssItemSearchIndex.COLUMN_BODY, "body"));
+    }
+
+    @Test
+    public void testProcessedBodyIsStored() {
+        RssItem item = dbConn.getItemsWithPendingBody(1).get(0);
+        String rawBody = item.getBody();
+        process(item);
+
+        assertEquals(1, dbConn.updateProcessedBodies(Collections.singletonList(item), Collections.singletonList(rawBody)));
+
+        assertEquals(ITEM_COUNT - 1, dbConn.getPendingItemBodyCount());
+        RssItem stored = daoSession.getRssItemDao().load(item.getId());
+        assertEquals(item.getBody(), stored.getBody());
+        assertEquals("Body of item 120", stored.getExcerpt());
+        assertEquals("https://example.com/images/120.png", stored.getMediaThumbnail());
+        assertEquals(1, search(RssItemSearchIndex.COLUMN_BODY, "body"));
+        assertEquals(ITEM_COUNT, search(RssItemSearchIndex.COLUMN_TITLE, "title"));
+    }
+
+    @Test
+    public void testBodyChangedBySyncIsNotOverwritten() {
+        RssItem item = dbConn.getItemsWithPendingBody(1).get(0);
+        String rawBody = item.getBody();
+        process(item);
+
+        // the item is synced again while its body is being processed
+        dbConn.insertNewItemsWithRawBody(Collections.singletonList(createItem(item.getId(), "<p>Updated body</p>")));
+
+        assertEquals(0, dbConn.updateProcessedBodies(Collections.singletonList(item), Collections.singletonList(rawBody)));
+        assertEquals(ITEM_COUNT, dbConn.getPendingItemBodyCount());
+        assertEquals("<p>Updated body</p>", dbConn.getItemsWithPendingBody(1).get(0).getBody());
+    }
+
+    @Test
+    public void testDeletedItemIsNotPending() {
+        daoSession.getRssItemDao().deleteByKey(1L);
+        db.execSQL("DELETE FROM RSS_ITEM WHERE _id <= 10");
+
+        assertEquals(ITEM_COUNT - 10, dbConn.getPendingItemBodyCount());
+    }
+
+    @Test
+    public void testProcessorProcessesAllPendingItems() throws InterruptedException {
+        ItemBodyProcessor.getInstance().awaitProcessed(dbConn);
+
+        assertEquals(0, dbConn.getPendingItemBodyCount());
+
+        for (long id = 1; id <= ITEM_COUNT; id++) {
+            RssItem stored = daoSession.getRssItemDao().load(id);
+            assertTrue(stored.getBody().contains("src=\"https://example.com/images/" + id + ".png\""));
+            assertEquals("Body of item " + id, stored.getExcerpt());
+            assertEquals("https://example.com/images/" + id + ".png", stored.getMediaThumbnail());
+        }
+        assertEquals(ITEM_COUNT, search(RssItemSearchIndex.COLUMN_BODY, "body"));
+    }
+
+    /**
+     * Simulates the processing (done by InsertRssItemIntoDatabase.processBody)
+     */
+    private static void process(RssItem item) {
+        item.setBody(item.getBody().replace("src=\"/", "src=\"https://example.com/"));
+        item.setBodyText("Body of item " + item.getId());
+        item.setExcerpt(item.getBodyText());
+        item.setMediaThumbnail("https://example.com/images/" + item.getId() + ".png");
+    }
+
+    private long search(String column, String word) {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(1) FROM " + RssItemSearchIndex.TABLENAME +
+                " WHERE " + RssItemSearchIndex.TABLENAME + "." + column + " MATCH ?", new String[] { word })) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    private static RssItem createItem(long id, String body) {
+        RssItem item = TestDatabase.createItem(id);
+        item.setBody(body);
+        return item;
+    }
+}
@@ -0,0 +1,162 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.app.Application;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.luhmer.owncloudnewsreader.ListView.SubscriptionExpandableListAdapter.SPECIAL_FOLDERS;
+import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm.SORT_DIRECTION;
+
+/**
+ * Makes sure that the hot queries on RSS_ITEM don't fall back to a full table scan. A scan is
+ * only accepted if it uses one of the partial indexes (which only contain the matching items) or
+ * the full text search index.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class QueryPlanTest {
+
+    @Rule
+    public final TestDatabase database = new TestDatabase();
+
+    private SQLiteDatabase db;
+    private DatabaseConnectionOrm dbConn;
+    private List<String> partialIndexes;
+
+    @Before
+    public void setUp() {
+        db = database.getDb();
+        dbConn = database.getDbConn();
+
+        partialIndexes = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND sql LIKE '% WHERE %'", null)) {
+            while (cursor.moveToNext()) {
+                partialIndexes.add(cursor.getString(0));
+            }
+        }
+        assertFalse(partialIndexes.isEmpty());
+    }
+
+    @Test
+    public void testItemsOfFeed() {
+        for (SORT_DIRECTION sortDirection : SORT_DIRECTION.values()) {
+            assertNoFullTableScan(dbConn.getAllItemsConditionForFeed(1, false, false), sortDirection);
+            assertNoFullTableScan(dbConn.getAllItemsConditionForFeed(1, true, false), sortDirection);
+            assertNoFullTableScan(dbConn.getAllItemsConditionForFeed(1, false, true), sortDirection);
+        }
+    }
+
+    @Test
+    public void testItemsOfFolder() {
+        for (SORT_DIRECTION sortDirection : SORT_DIRECTION.values()) {
+            assertNoFullTableScan(dbConn.getAllItemsConditionForFolder(1, false, null), sortDirection);
+            assertNoFullTableScan(dbConn.getAllItemsConditionForFolder(1, true, null), sortDirection);
+            assertNoFullTableScan(dbConn.getAllItemsConditionForFolder(SPECIAL_FOLDERS.ALL_UNREAD_ITEMS.getValue(), true, null), sortDirection);
+            assertNoFullTableScan(dbConn.getAllItemsConditionForFolder(SPECIAL_FOLDERS.ALL_STARRED_ITEMS.getValue(), false, null), sortDirection);
+        }
+    }
+
+    @Test
+    public void testCounts() {
+        // the counts of the drawer are read from FEED_ITEM_COUNT (one row per feed)
+        assertNoFullTableScan(DatabaseConnectionOrm.getRssItemCountSQL(DatabaseHelperOrm.CONDITION_UNREAD));
+        assertNoFullTableScan(DatabaseConnectionOrm.getRssItemCountSQL(DatabaseHelperOrm.CONDITION_STARRED));
+    }
+
+    @Test
+    public void testSync() {
+        assertNoFullTableScan(DatabaseConnectionOrm.getLastModifiedSQL());
+        assertNoFullTableScan(DatabaseConnectionOrm.getRssItemCountSQL(DatabaseHelperOrm.CONDITION_READ_CHANGED));
+        assertNoFullTableScan(DatabaseConnectionOrm.getRssItemCountSQL(DatabaseHelperOrm.CONDITION_STARRED_CHANGED));
+    }
+
+    @Test
+    public void testMarkDuplicatesAsRead() {
+        assertNoFullTableScan(RssItemStateWriter.getMarkDuplicatesAsReadSQL(2), "fingerprint1", "fingerprint2");
+        assertNoFullTableScan(RssItemStateWriter.getUnreadDuplicatesSQL(2), "fingerprint1", "fingerprint2");
+    }
+
+    @Test
+    public void testSearch() {
+        for (String column : new String[] { RssItemSearchIndex.TABLENAME, RssItemSearchIndex.COLUMN_TITLE, RssItemSearchIndex.COLUMN_BODY }) {
+            assertNoFullTableScan(dbConn.getAllItemsIdsForFeedSQLSearch(1, SORT_DIRECTION.desc, column), "news*", "news*");
+            assertNoFullTableScan(dbConn.getAllItemsIdsForFolderSQLSearch(1, SORT_DIRECTION.desc, column), "news*", "news*");
+            assertNoFullTableScan(dbConn.getAllItemsIdsForFolderSQLSearch(SPECIAL_FOLDERS.ALL_UNREAD_ITEMS.getValue(), SORT_DIRECTION.desc, column), "news*", "news*");
+        }
+    }
+
+    @Test
+    public void testDetectsFullTableScan() {
+        List<String> plan = getQueryPlan("SELECT * FROM RSS_ITEM WHERE READ_TEMP = 0");
+        assertTrue(plan.toString(), plan.stream().anyMatch(this::isFullTableScan));
+    }
+
+    /**
+     * Checks the first and a following page of the keyset pagination
+     */
+    private void assertNoFullTableScan(String condition, SORT_DIRECTION sortDirection) {
+        RssItemKeysetPager pager = new RssItemKeysetPager(condition, sortDirection);
+        assertNoFullTableScan(pager.getPageSQL(25));
+
+        // an item matching all conditions - the second page continues after it
+        db.execSQL("INSERT OR IGNORE INTO FOLDER (_id, LABEL) VALUES (1, 'Folder')");
+        db.execSQL("INSERT OR IGNORE INTO FEED (_id, FOLDER_ID, FEED_TITLE) VALUES (1, 1, 'Feed')");
+        db.execSQL("INSERT INTO RSS_ITEM (_id, FEED_ID, AUTHOR, GUID, GUID_HASH, FINGERPRINT, READ_TEMP, STARRED_TEMP, PUB_DATE)" +
+                " VALUES (1, 1, '', 'guid', 'guidHash', 'fingerprint', 0, 1, 1000)");
+        db.beginTransaction();
+        try {
+            assertEquals(1, pager.appendPage(db, 1));
+        } finally {
+            db.endTransaction(); // rolls back
+        }
+        assertNoFullTableScan(pager.getPageSQL(25), pager.getPageArgs());
+        db.execSQL("DELETE FROM RSS_ITEM");
+    }
+
+    private void assertNoFullTableScan(String sql, String... args) {
+        List<String> plan = getQueryPlan(sql, args);
+        for (String line : plan) {
+            if (isFullTableScan(line)) {
+                fail("Full table scan (" + line + ") in query: " + sql + "\n" + String.join("\n", plan));
+            }
+        }
+    }
+
+    private boolean isFullTableScan(String planLine) {
+        if (!planLine.startsWith("SCAN ") || planLine.contains(" VIRTUAL TABLE INDEX ")) {
+            return false; // full text search queries are answered by the fts index
+        }
+        for (String index : partialIndexes) {
+            if (planLine.contains(" INDEX " + index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<String> getQueryPlan(String sql, String... args) {
+        List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args.length > 0 ? args : null)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detail));
+            }
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,141 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.luhmer.owncloudnewsreader.database.model.DaoSession;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class RssItemImagesTest {
+
+    @Rule
+    public final TestDatabase database = new TestDatabase();
+
+    private SQLiteDatabase db;
+    private DaoSession daoSession;
+    private DatabaseConnectionOrm dbConn;
+
+    @Before
+    public void setUp() {
+        db = database.getDb();
+        daoSession = database.getDaoSession();
+        dbConn = database.getDbConn();
+    }
+
+    @Test
+    public void testImageLinksAreStoredWithProcessedBody() {
+        dbConn.insertNewItemsWithRawBody(Collections.singletonList(createItem(1, false, 1000,
+                "<img src=\"/a.png\"><p>Text</p><img src=\"https://cdn.example.com/b.jpg\"><img src=\"/a.png\">")));
+
+        // the body hasn't been processed yet - the links are unknown
+        assertNull(dbConn.getImageLinks(1));
+
+        RssItem item = dbConn.getItemsWithPendingBody(1).get(0);
+        String rawBody = item.getBody();
+        item.setBody(rawBody.replace("src=\"/", "src=\"https://example.com/"));
+        item.setBodyText("Text");
+        item.setExcerpt("Text");
+        item.setImageLinks(Arrays.asList("https://example.com/a.png", "https://cdn.example.com/b.jpg", "https://example.com/a.png"));
+        assertEquals(1, dbConn.updateProcessedBodies(Collections.singletonList(item), Collections.singletonList(rawBody)));
+
+        assertEquals(Arrays.asList("https://example.com/a.png", "https://cdn.example.com/b.jpg"), dbConn.getImageLinks(1));
+    }
+
+    @Test
+    public void testImageLinksAreReplaced() {
+        dbConn.insertNewItems(Collections.singletonList(createItem(1, false, 1000,
+                "<img src=\"https://example.com/a.png\"><img src=\"https://example.com/b.png\">")));
+        dbConn.insertNewItems(Collections.singletonList(createItem(1, false, 1000,
+                "<img src=\"https://example.com/c.png\">")));
+
+        assertEquals(Collections.singletonList("https://example.com/c.png"), dbConn.getImageLinks(1));
+        assertEquals(1, count());
+
+        daoSession.getRssItemDao().deleteByKey(1L);
+        assertEquals(0, count());
+    }
+
+    @Test
+    public void testPrefetchOrder() {
+        dbConn.insertNewItems(Arrays.asList(
+                createItem(1, true, 4000, "<img src=\"https://example.com/read.png\">"),
+                createItem(2, false, 1000, "<img src=\"https://example.com/old.png\"><img src=\"https://example.com/shared.png\">"),
+                createItem(3, false, 3000, "<img src=\"https://example.com/new.png\"><img src=\"https://example.com/shared.png\">"),
+                createItem(4, false, 2000, "<img src=\"data:image/png;base64,AAAA\"><img src=\"/relative.png\">")));
+
+        // unread items first (newest first), each link only once
+        assertEquals(Arrays.asList("https://example.com/new.png", "https://example.com/shared.png", "https://example.com/old.png", "https://example.com/read.png"),
+                dbConn.getImageLinksForPrefetch(0, 100));
+        assertEquals(Arrays.asList("https://example.com/new.png", "https://example.com/shared.png"),
+                dbConn.getImageLinksForPrefetch(0, 2));
+        // only items with a higher id (relative links haven't been fixed - the body wasn't processed)
+        assertEquals(Arrays.asList("https://example.com/new.png", "https://example.com/shared.png"),
+                dbConn.getImageLinksForPrefetch(3, 100));
+    }
+
+    @Test
+    public void testCachedImages() {
+        dbConn.insertNewItems(Arrays.asList(
+                createItem(1, false, 1000, "<img src=\"https://example.com/a.png\"><img src=\"https://example.com/b.png\">"),
+                createItem(2, false, 2000, "<img src=\"https://example.com/a.png\"><img src=\"https://example.com/c.png\">")));
+
+        RssItemImages.Stats stats = dbConn.getImageStats(0);
+        assertEquals(3, stats.getImageCount());
+        assertEquals(0, stats.getCachedCount());
+        assertEquals(-1, stats.getEstimatedDownloadBytes());
+
+        Map<String, Long> byteSizes = new HashMap<>();
+        byteSizes.put("https://example.com/a.png", 1000L);
+        byteSizes.put("https://example.com/c.png", -1L);
+        dbConn.updateCachedImages(byteSizes);
+
+        stats = dbConn.getImageStats(0);
+        assertEquals(3, stats.getImageCount());
+        assertEquals(1, stats.getCachedCount());
+        assertEquals(1000, stats.getCachedBytes());
+        assertEquals(2000, stats.getEstimatedDownloadBytes());
+
+        // the cached state of a link is kept when an item with the same image is stored
+        dbConn.insertNewItems(Collections.singletonList(createItem(3, false, 3000, "<img src=\"https://example.com/a.png\">")));
+        stats = dbConn.getImageStats(3);
+        assertEquals(1, stats.getImageCount());
+        assertEquals(1, stats.getCachedCount());
+        assertEquals(0, stats.getEstimatedDownloadBytes());
+    }
+
+    private long count() {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(1) FROM " + RssItemImages.TABLENAME, null)) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getLong(0);
+        }
+    }
+
+    private static RssItem createItem(long id, boolean read, long pubDate, String body) {
+        RssItem item = TestDatabase.createItem(id);
+        item.setBody(body);
+        item.setRead(read);
+        item.setRead_temp(read);
+        item.setPubDate(new Date(pubDate));
+        return item;
+    }
+}
@@ -0,0 +1,249 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import de.greenrobot.dao.query.LazyList;
+import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm.SORT_DIRECTION;
+import de.luhmer.owncloudnewsreader.database.model.CurrentRssItemViewDao;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.model.RssItemListEntry;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class RssItemKeysetPagerTest {
+
+    private static final int ITEM_COUNT = 80;
+    private static final int PAGE_SIZE = 25;
+
+    @Rule
+    public final TestDatabase database = new TestDatabase();
+
+    private SQLiteDatabase db;
+    private DatabaseConnectionOrm dbConn;
+
+    @Before
+    public void setUp() {
+        db = database.getDb();
+        dbConn = database.getDbConn();
+        dbConn.resetDatabase();
+
+        List<RssItem> items = new ArrayList<>();
+        for (long id = 1; id <= ITEM_COUNT; id++) {
+            // three items share the same date - pages need to continue in the middle of them
+            RssItem item = createItem(id, id / 3 * 1000);
+            if (id == 41) {
+                item.setFingerprint("fingerprint40"); // duplicate of item 40
+            }
+            items.add(item);
+        }
+        dbConn.insertNewItems(items);
+    }
+
+    @Test
+    public void testPagesAreInSortOrder() {
+        for (SORT_DIRECTION sortDirection : SORT_DIRECTION.values()) {
+            dbConn.setCurrentRssItemView(dbConn.getAllItemsConditionForFeed(1, true, false), sortDirection);
+
+            List<Long> ids = new ArrayList<>();
+            for (int page = 0; page < 5; page++) {
+                ids.addAll(getIds(dbConn.getCurrentRssItemView(page, false)));
+            }
+            assertEquals(getExpectedIds(sortDirection), ids);
+            assertEquals(ITEM_COUNT - 1, dbConn.getCurrentRssItemViewCount());
+        }
+    }
+
+    @Test
+    public void testOnlyRequestedPagesAreLoaded() {
+        dbConn.setCurrentRssItemView(dbConn.getAllItemsConditionForFeed(1, true, false), SORT_DIRECTION.desc);
+        assertEquals(PAGE_SIZE, getLoadedCount());
+        // the following pages are counted (the duplicate is only detected when it is loaded)
+        assertEquals(ITEM_COUNT, dbConn.getCurrentRssItemViewCount());
+
+        assertEquals(PAGE_SIZE, dbConn.getCurrentRssItemView(1, false).size());
+        assertEquals(2 * PAGE_SIZE, getLoadedCount());
+    }
+
+    @Test
+    public void testSnapshot() {
+        dbConn.setCurrentRssItemView(dbConn.getAllItemsConditionForFeed(1, true, false), SORT_DIRECTION.desc);
+        List<Long> firstPage = getIds(dbConn.getCurrentRssItemView(0, false));
+
+        // items of the first page are read while scrolling, a new item arrives
+        dbConn.markAllItemsAsRead();
+        dbConn.insertNewItems(Collections.singletonList(createItem(ITEM_COUNT + 1, ITEM_COUNT * 1000)));
+
+        // the loaded items stay in the list
+        assertEquals(firstPage, getIds(dbConn.getCurrentRssItemView(0, false)));
+        // the next page only contains items which are still unread
+        assertTrue(dbConn.getCurrentRssItemView(1, false).isEmpty());
+
+        // the detail view pages through the same items
+        LazyList<RssItem> rssItems = dbConn.getAllRssItems();
+        try {
+            assertEquals(firstPage.size(), rssItems.size());
+            for (int i = 0; i < firstPage.size(); i++) {
+                assertEquals((long) firstPage.get(i), (long) rssItems.get(i).getId());
+            }
+        } finally {
+            rssItems.close();
+        }
+    }
+
+    @Test
+    public void testDetailViewLoadsAllItems() {
+        dbConn.setCurrentRssItemView(dbConn.getAllItemsConditionForFeed(1, false, false), SORT_DIRECTION.asc);
+
+        LazyList<RssItem> rssItems = dbConn.getAllRssItems();
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (RssItem rssItem : rssItems) {
+                ids.add(rssItem.getId());
+            }
+            assertEquals(getExpectedIds(SORT_DIRECTION.asc), ids);
+        } finally {
+            rssItems.close();
+        }
+        assertEquals(ITEM_COUNT - 1, dbConn.getCurrentRssItemViewCount());
+    }
+
+    @Test
+    public void testDetailViewStartsWithLoadedItems() {
+        dbConn.setCurrentRssItemView(dbConn.getAllItemsConditionForFeed(1, false, false), SORT_DIRECTION.desc);
+
+        LazyList<RssItem> rssItems = dbConn.getLoadedRssItems();
+        try {
+            assertEquals(PAGE_SIZE, rssItems.size());
+            assertEquals((long) getExpectedIds(SORT_DIRECTION.desc).get(0), (long) rssItems.get(0).getId());
+        } finally {
+            rssItems.close();
+        }
+        assertEquals(PAGE_SIZE, getLoadedCount());
+    }
+
+    @Test
+    public void testItemsWithoutDateAreIncluded() {
+        List<RssItem> items = new ArrayList<>();
+        for (long id = ITEM_COUNT + 1; id <= ITEM_COUNT + 30; id++) {
+            RssItem item = TestDatabase.createItem(id);
+            item.setPubDate(null);
+            items.add(item);
+        }
+        dbConn.insertNewItems(items);
+
+        for (SORT_DIRECTION sortDirection : SORT_DIRECTION.values()) {
+            dbConn.setCurrentRssItemView(dbConn.getAllItemsConditionForFeed(1, false, false), sortDirection);
+
+            List<Long> ids = new ArrayList<>();
+            for (int page = 0; page < 5; page++) {
+                ids.addAll(getIds(dbConn.getCurrentRssItemView(page, false)));
+            }
+
+            // SQLite sorts NULL before all other values
+            List<Long> withoutDate = new ArrayList<>();
+            for (RssItem item : items) {
+                withoutDate.add(item.getId());
+            }
+            List<Long> expected = new ArrayList<>(getExpectedIds(sortDirection));
+            if (sortDirection == SORT_DIRECTION.desc) {
+                Collections.reverse(withoutDate);
+                expected.addAll(withoutDate);
+            } else {
+                expected.addAll(0, withoutDate);
+            }
+            assertEquals(expected, ids);
+            assertEquals(expected.size(), dbConn.getCurrentRssItemViewCount());
+        }
+    }
+
+    @Test
+    public void testPagerIsRestoredAfterRestart() {
+        dbConn.setCurrentRssItemView(dbConn.getAllItemsConditionForFeed(1, false, false), SORT_DIRECTION.desc);
+        assertEquals(PAGE_SIZE, dbConn.getCurrentRssItemView(0, false).size());
+
+        DatabaseConnectionOrm.forgetCurrentViewPager();
+
+        // the following pages continue after the loaded ones (including the duplicate detection)
+        assertEquals(ITEM_COUNT, dbConn.getCurrentRssItemViewCount());
+        LazyList<RssItem> rssItems = dbConn.getAllRssItems();
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (RssItem rssItem : rssItems) {
+                ids.add(rssItem.getId());
+            }
+            assertEquals(getExpectedIds(SORT_DIRECTION.desc), ids);
+        } finally {
+            rssItems.close();
+        }
+    }
+
+    @Test
+    public void testSearchResultsAreNotRestored() {
+        dbConn.setCurrentRssItemView(dbConn.getAllItemsConditionForFeed(1, false, false), SORT_DIRECTION.desc);
+        dbConn.insertIntoRssCurrentViewTable("SELECT _id FROM RSS_ITEM WHERE _id <= 3 ORDER BY _id");
+
+        DatabaseConnectionOrm.forgetCurrentViewPager();
+
+        assertEquals(3, dbConn.getCurrentRssItemViewCount());
+        assertTrue(dbConn.getCurrentRssItemView(1, false).isEmpty());
+    }
+
+    @Test
+    public void testSearchReplacesPager() {
+        dbConn.setCurrentRssItemView(dbConn.getAllItemsConditionForFeed(1, false, false), SORT_DIRECTION.desc);
+        dbConn.insertIntoRssCurrentViewTable("SELECT _id FROM RSS_ITEM WHERE _id <= 3 ORDER BY _id");
+
+        assertEquals(3, dbConn.getCurrentRssItemViewCount());
+        assertEquals(Arrays.asList(1L, 2L, 3L), getIds(dbConn.getCurrentRssItemView(0, false)));
+        assertTrue(dbConn.getCurrentRssItemView(1, false).isEmpty());
+    }
+
+    private long getLoadedCount() {
+        return DatabaseUtils.queryNumEntries(db, CurrentRssItemViewDao.TABLENAME);
+    }
+
+    private static List<Long> getExpectedIds(SORT_DIRECTION sortDirection) {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= ITEM_COUNT; id++) {
+            ids.add(id);
+        }
+        Comparator<Long> comparator = Comparator.<Long>comparingLong(id -> id / 3).thenComparingLong(id -> id);
+        ids.sort(sortDirection == SORT_DIRECTION.desc ? comparator.reversed() : comparator);
+        // the duplicate which comes second is hidden
+        ids.remove(sortDirection == SORT_DIRECTION.desc ? 40L : 41L);
+        return ids;
+    }
+
+    private static List<Long> getIds(List<RssItemListEntry> entries) {
+        List<Long> ids = new ArrayList<>();
+        for (RssItemListEntry entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+
+    private static RssItem createItem(long id, long pubDate) {
+        RssItem item = TestDatabase.createItem(id);
+        item.setPubDate(new Date(pubDate));
+        return item;
+    }
+}
@@ -0,0 +1,204 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.app.Application;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import de.luhmer.owncloudnewsreader.ListView.SubscriptionExpandableListAdapter.SPECIAL_FOLDERS;
+import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm.SORT_DIRECTION;
+import de.luhmer.owncloudnewsreader.database.model.DaoSession;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.database.model.RssItemDao;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.ItemBodyProcessor;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class RssItemSearchIndexTest {
+
+    private static final int FIXTURE_ITEM_COUNT = 2000;
+
+    private static final String[] WORDS = { "android", "nextcloud", "release", "update", "security", "privacy",
+            "linux", "server", "mobile", "battery", "network", "feature", "performance", "community", "desktop" };
+
+    @Rule
+    public final TestDatabase database = new TestDatabase();
+
+    private SQLiteDatabase db;
+    private DaoSession daoSession;
+    private DatabaseConnectionOrm dbConn;
+
+    @Before
+    public void setUp() {
+        db = database.getDb();
+        daoSession = database.getDaoSession();
+        dbConn = database.getDbConn();
+    }
+
+    @Test
+    public void testMatchQuery() {
+        assertEquals("news* app*", RssItemSearchIndex.getMatchQuery("News App"));
+        assertEquals("c* and* x*", RssItemSearchIndex.getMatchQuery("c++ AND \"x\""));
+        assertEquals("über*", RssItemSearchIndex.getMatchQuery("Über"));
+        assertNull(RssItemSearchIndex.getMatchQuery(" \"*- "));
+        assertNull(RssItemSearchIndex.getMatchQuery(null));
+    }
+
+    @Test
+    public void testSearchPrefixAndRanking() {
+        dbConn.insertNewItems(Arrays.asList(
+                createItem(1, "Weather", "<p>The <b>newsreader</b> shows the weather</p>", 3000),
+                createItem(2, "Newsreader released", "<p>Version 1.0</p>", 1000),
+                createItem(3, "Something else", "<p>Nothing to see</p>", 2000)));
+
+        // title matches first, then sorted by date
+        assertEquals(Arrays.asList(2L, 1L), search(RssItemSearchIndex.TABLENAME, "news"));
+        assertEquals(Collections.singletonList(2L), search(RssItemSearchIndex.COLUMN_TITLE, "news"));
+        assertEquals(Collections.singletonList(1L), search(RssItemSearchIndex.COLUMN_BODY, "news"));
+        // html is not indexed
+        assertEquals(Collections.emptyList(), search(RssItemSearchIndex.TABLENAME, "b"));
+        // all words need to match
+        assertEquals(Collections.singletonList(1L), search(RssItemSearchIndex.TABLENAME, "weather news"));
+        // query syntax of the user is ignored
+        assertEquals(Collections.singletonList(2L), search(RssItemSearchIndex.TABLENAME, "\"released\" -("));
+    }
+
+    @Test
+    public void testIndexFollowsItems() {
+        dbConn.insertNewItems(Collections.singletonList(createItem(1, "Old title", "<p>Body</p>", 1000)));
+        dbConn.insertNewItems(Collections.singletonList(createItem(1, "New title", "<p>Body</p>", 1000)));
+
+        assertEquals(Collections.emptyList(), search(RssItemSearchIndex.TABLENAME, "old"));
+        assertEquals(Collections.singletonList(1L), search(RssItemSearchIndex.TABLENAME, "new"));
+
+        daoSession.getRssItemDao().deleteByKey(1L);
+        assertEquals(Collections.emptyList(), search(RssItemSearchIndex.TABLENAME, "new"));
+        assertEquals(0, count("SELECT docid FROM " + RssItemSearchIndex.TABLENAME));
+    }
+
+    @Test
+    public void testPendingItemsAreIndexed() throws InterruptedException {
+        // stored before the index was added (marked as pending by the migration)
+        RssItem item = createItem(1, "Newsreader released", "<p>Version <b>1.0</b></p>", 1000);
+        daoSession.getRssItemDao().insert(item);
+        PendingItemBodies.add(db, Collections.singletonList(item));
+        assertEquals(Collections.emptyList(), search(RssItemSearchIndex.TABLENAME, "news"));
+
+        ItemBodyProcessor.getInstance().awaitProcessed(dbConn);
+
+        assertEquals(Collections.singletonList(1L), search(RssItemSearchIndex.COLUMN_TITLE, "news"));
+        assertEquals(Collections.singletonList(1L), search(RssItemSearchIndex.COLUMN_BODY, "version 1"));
+        assertEquals(0, dbConn.getPendingItemBodyCount());
+    }
+
+    /**
+     * The index finds the same items as the previous search (LIKE "%term%" on title and html body).
+     */
+    @Test
+    public void testSearchFindsSameItemsAsLike() {
+        int expected = createFixture();
+        String term = "zeppelin";
+
+        String legacySql = "SELECT " + RssItemDao.Properties.Id.columnName + " FROM " + RssItemDao.TABLENAME +
+                " WHERE " + RssItemDao.Properties.Body.columnName + " LIKE \"%" + term + "%\"" +
+                " OR " + RssItemDao.Properties.Title.columnName + " LIKE \"%" + term + "%\"";
+        String sql = dbConn.getAllItemsIdsForFolderSQLSearch(SPECIAL_FOLDERS.ALL_UNREAD_ITEMS.getValue(), SORT_DIRECTION.desc, RssItemSearchIndex.TABLENAME);
+        String query = RssItemSearchIndex.getMatchQuery(term);
+
+        assertEquals(expected, count(legacySql));
+        assertEquals(expected, count(sql, query, query));
+    }
+
+    /**
+     * @return amount of items containing the word "zeppelin"
+     */
+    private int createFixture() {
+        Random random = new Random(42);
+        int matching = 0;
+
+        db.beginTransaction();
+        try (SQLiteStatement insertItem = db.compileStatement("INSERT INTO " + RssItemDao.TABLENAME +
+                " (_id, FEED_ID, TITLE, BODY, AUTHOR, GUID, GUID_HASH, FINGERPRINT, READ_TEMP, STARRED_TEMP, PUB_DATE)" +
+                " VALUES (?, 1, ?, ?, '', ?, ?, ?, 0, 0, ?)");
+             SQLiteStatement insertIndex = db.compileStatement(RssItemSearchIndex.getInsertSQL())) {
+            for (int id = 1; id <= FIXTURE_ITEM_COUNT; id++) {
+                boolean match = id % 100 == 0;
+                String title = randomText(random, 6) + (match && id % 200 == 0 ? " zeppelin" : "");
+                String text = randomText(random, 150) + (match && id % 200 != 0 ? " zeppelin" : "");
+                String body = "<p>" + text.replace(" network ", " <a href=\"https://example.com\">network</a> ") + "</p>" +
+                        "<img src=\"https://example.com/image" + id + ".png\"/>";
+                if (match) {
+                    matching++;
+                }
+
+                insertItem.bindLong(1, id);
+                insertItem.bindString(2, title);
+                insertItem.bindString(3, body);
+                insertItem.bindString(4, "guid" + id);
+                insertItem.bindString(5, "guidHash" + id);
+                insertItem.bindString(6, "fingerprint" + id);
+                insertItem.bindLong(7, id * 1000L);
+                insertItem.executeInsert();
+
+                RssItemSearchIndex.bind(insertIndex, id, title, text);
+                insertIndex.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        return matching;
+    }
+
+    private static String randomText(Random random, int wordCount) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            sb.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private List<Long> search(String column, String searchString) {
+        String query = RssItemSearchIndex.getMatchQuery(searchString);
+        String sql = dbConn.getAllItemsIdsForFolderSQLSearch(SPECIAL_FOLDERS.ALL_UNREAD_ITEMS.getValue(), SORT_DIRECTION.desc, column);
+
+        List<Long> ids = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(sql, new String[] { query, query })) {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getLong(0));
+            }
+        }
+        return ids;
+    }
+
+    private int count(String sql, String... args) {
+        try (Cursor cursor = db.rawQuery(sql, args.length > 0 ? args : null)) {
+            return cursor.getCount();
+        }
+    }
+
+    private static RssItem createItem(long id, String title, String body, long pubDate) {
+        RssItem item = TestDatabase.createItem(id);
+        item.setTitle(title);
+        item.setBody(body);
+        item.setPubDate(new Date(pubDate));
+        return item;
+    }
+}
@@ -0,0 +1,156 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class RssItemStateWriterTest {
+
+    private static final int ITEM_COUNT = 200;
+
+    @Rule
+    public final TestDatabase database = new TestDatabase();
+
+    private SQLiteDatabase db;
+    private DatabaseConnectionOrm dbConn;
+    private RssItemStateWriter writer;
+    private TestScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        db = database.getDb();
+        dbConn = database.getDbConn();
+        writer = database.getStateWriter();
+        scheduler = database.getScheduler();
+
+        List<RssItem> items = new ArrayList<>();
+        for (long id = 1; id <= ITEM_COUNT; id++) {
+            // items 101 - 200 are duplicates of items 1 - 100
+            RssItem item = TestDatabase.createItem(id);
+            item.setFingerprint("fingerprint" + (id > 100 ? id - 100 : id));
+            items.add(item);
+        }
+        dbConn.insertNewItems(items);
+    }
+
+    @Test
+    public void testChangesAreCoalesced() {
+        for (int i = 0; i < 5; i++) {
+            writer.enqueue(1, "fingerprint1", i % 2 == 0, false);
+        }
+        writer.enqueue(2, "fingerprint2", false, true);
+        writer.enqueue(2, "fingerprint2", false, false);
+        writer.flush();
+
+        assertEquals("1 0", getState(1)); // last change: read
+        assertEquals("0 0", getState(2));
+        // duplicate of the read item
+        assertEquals("1 0", getState(101));
+        assertEquals("0 0", getState(102));
+    }
+
+    @Test
+    public void testCachedDuplicatesAreMarkedAsRead() {
+        // entity cached by the session (e.g. shown in the detail view)
+        RssItem duplicate = database.getDaoSession().getRssItemDao().load(104L);
+        assertFalse(duplicate.getRead_temp());
+
+        writer.enqueue(4, "fingerprint4", true, false);
+        writer.flush();
+
+        assertEquals("1 0", getState(104));
+        assertTrue(duplicate.getRead_temp());
+        assertSame(duplicate, database.getDaoSession().getRssItemDao().load(104L));
+    }
+
+    @Test
+    public void testFlushWhenQueueIsFull() {
+        for (long id = 1; id < RssItemStateWriter.MAX_PENDING_ITEMS; id++) {
+            writer.enqueue(id, "fingerprint" + id, true, false);
+        }
+        scheduler.triggerActions();
+        assertEquals(0, countRead());
+
+        // the queue is written in the background without waiting for the delay
+        writer.enqueue(RssItemStateWriter.MAX_PENDING_ITEMS, "fingerprint" + RssItemStateWriter.MAX_PENDING_ITEMS, true, false);
+        scheduler.triggerActions();
+        assertEquals(2 * RssItemStateWriter.MAX_PENDING_ITEMS, countRead());
+
+        // the delayed flush has been cancelled
+        scheduler.advanceTimeBy(RssItemStateWriter.FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+        assertEquals(2 * RssItemStateWriter.MAX_PENDING_ITEMS, countRead());
+    }
+
+    @Test
+    public void testFlushAfterDelay() {
+        writer.enqueue(3, "fingerprint3", true, true);
+
+        scheduler.advanceTimeBy(RssItemStateWriter.FLUSH_DELAY_MS - 1, TimeUnit.MILLISECONDS);
+        assertEquals("0 0", getState(3));
+
+        scheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+        assertEquals("1 1", getState(3));
+    }
+
+    @Test
+    public void testFlushCancelsScheduledFlush() {
+        writer.enqueue(3, "fingerprint3", true, false);
+        writer.flush();
+        assertEquals("1 0", getState(3));
+
+        // a change after the flush is written with a delay of its own
+        scheduler.advanceTimeBy(RssItemStateWriter.FLUSH_DELAY_MS / 2, TimeUnit.MILLISECONDS);
+        writer.enqueue(3, "fingerprint3", false, false);
+        scheduler.advanceTimeBy(RssItemStateWriter.FLUSH_DELAY_MS / 2, TimeUnit.MILLISECONDS);
+        assertEquals("1 0", getState(3));
+        scheduler.advanceTimeBy(RssItemStateWriter.FLUSH_DELAY_MS / 2, TimeUnit.MILLISECONDS);
+        assertEquals("0 0", getState(3));
+    }
+
+    @Test
+    public void testReadsSeePendingChanges() {
+        RssItem item = TestDatabase.createItem(5);
+        item.setFingerprint("fingerprint5");
+        item.setRead_temp(true);
+        dbConn.updateRssItem(item);
+
+        // flushed before checking for unsynced changes
+        assertTrue(dbConn.areThereAnyUnsavedChangesInDatabase());
+        assertEquals("1 0", getState(5));
+    }
+
+    private String getState(long id) {
+        try (Cursor cursor = db.rawQuery("SELECT READ_TEMP, STARRED_TEMP FROM RSS_ITEM WHERE _id = ?", new String[] { String.valueOf(id) })) {
+            assertTrue(cursor.moveToFirst());
+            return cursor.getInt(0) + " " + cursor.getInt(1);
+        }
+    }
+
+    private long countRead() {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(1) FROM RSS_ITEM WHERE READ_TEMP = 1", null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.app.Application;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import de.luhmer.owncloudnewsreader.database.model.DaoSession;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class SyncCheckpointTest {
+
+    @Rule
+    public final TestDatabase database = new TestDatabase();
+
+    private DaoSession daoSession;
+    private DatabaseConnectionOrm dbConn;
+
+    @Before
+    public void setUp() {
+        daoSession = database.getDaoSession();
+        dbConn = database.getDbConn();
+    }
+
+    @Test
+    public void testNoFirstSyncInProgress() {
+        assertNull(dbConn.getSyncCheckpoint());
+    }
+
+    @Test
+    public void testCheckpointIsStoredWithItems() {
+        SyncCheckpoint checkpoint = SyncCheckpoint.start();
+        dbConn.saveSyncCheckpoint(checkpoint);
+
+        List<RssItem> page = createPage(1, 200);
+        checkpoint = checkpoint.afterPage(200, page.size());
+        dbConn.insertNewItemsWithRawBody(page, checkpoint);
+
+        SyncCheckpoint stored = dbConn.getSyncCheckpoint();
+        assertEquals(SyncCheckpoint.Phase.UNREAD, stored.getPhase());
+        assertEquals(200, stored.getOffset());
+        assertEquals(200, stored.getUnreadCount());
+        assertEquals(0, stored.getStarredCount());
+        assertEquals(200, daoSession.getRssItemDao().count());
+    }
+
+    @Test
+    public void testStarredPhaseKeepsUnreadCount() {
+        SyncCheckpoint checkpoint = SyncCheckpoint.start().afterPage(200, 200).afterPage(350, 150);
+        checkpoint = checkpoint.startStarred();
+        dbConn.saveSyncCheckpoint(checkpoint);
+        dbConn.insertNewItemsWithRawBody(createPage(1000, 1005), checkpoint.afterPage(1005, 6));
+
+        SyncCheckpoint stored = dbConn.getSyncCheckpoint();
+        assertEquals(SyncCheckpoint.Phase.STARRED, stored.getPhase());
+        assertEquals(1005, stored.getOffset());
+        assertEquals(350, stored.getUnreadCount());
+        assertEquals(6, stored.getStarredCount());
+    }
+
+    @Test
+    public void testFailedInsertDoesNotMoveCheckpoint() {
+        SyncCheckpoint checkpoint = SyncCheckpoint.start().afterPage(100, 100);
+        dbConn.insertNewItemsWithRawBody(createPage(1, 100), checkpoint);
+
+        List<RssItem> invalidPage = createPage(101, 200);
+        invalidPage.get(50).setAuthor(null); // AUTHOR is NOT NULL
+        try {
+            dbConn.insertNewItemsWithRawBody(invalidPage, checkpoint.afterPage(200, 100));
+        } catch (RuntimeException e) {
+            // expected
+        }
+
+        assertEquals(100, dbConn.getSyncCheckpoint().getOffset());
+        assertEquals(100, daoSession.getRssItemDao().count());
+    }
+
+    @Test
+    public void testClearAndReset() {
+        dbConn.saveSyncCheckpoint(SyncCheckpoint.start());
+        dbConn.clearSyncCheckpoint();
+        assertNull(dbConn.getSyncCheckpoint());
+
+        dbConn.saveSyncCheckpoint(SyncCheckpoint.start().afterPage(10, 10));
+        dbConn.resetDatabase();
+        assertNull(dbConn.getSyncCheckpoint());
+    }
+
+    private static List<RssItem> createPage(long firstId, long lastId) {
+        List<RssItem> items = new ArrayList<>();
+        for (long id = firstId; id <= lastId; id++) {
+            RssItem item = TestDatabase.createItem(id);
+            item.setLastModified(new Date(id * 1000));
+            items.add(item);
+        }
+        return items;
+    }
+}
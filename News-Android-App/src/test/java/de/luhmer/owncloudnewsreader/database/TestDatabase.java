@@ -0,0 +1,91 @@
+package de.luhmer.owncloudnewsreader.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.rules.ExternalResource;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Date;
+
+import de.luhmer.owncloudnewsreader.database.model.DaoMaster;
+import de.luhmer.owncloudnewsreader.database.model.DaoSession;
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+
+/**
+ * In-memory database with the schema of the app for Robolectric tests (including the tables and
+ * indexes which aren't generated by greenDAO, see {@link DatabaseHelperOrm#createSchema}). A new
+ * database is created for every test and closed afterwards. The item states queued by the
+ * connection are only written in the background when the test advances the
+ * {@link #getScheduler() scheduler}.
+ * <pre>
+ * &#64;Rule
+ * public final TestDatabase database = new TestDatabase();
+ * </pre>
+ */
+public class TestDatabase extends ExternalResource {
+
+    private SQLiteDatabase db;
+    private DaoSession daoSession;
+    private TestScheduler scheduler;
+    private RssItemStateWriter stateWriter;
+    private DatabaseConnectionOrm dbConn;
+
+    @Override
+    protected void before() {
+        db = SQLiteDatabase.create(null);
+        DatabaseHelperOrm.createSchema(db);
+        daoSession = new DaoMaster(db).newSession();
+        scheduler = new TestScheduler();
+        stateWriter = new RssItemStateWriter(daoSession, scheduler);
+        dbConn = new DatabaseConnectionOrm(RuntimeEnvironment.getApplication(), daoSession, stateWriter);
+    }
+
+    @Override
+    protected void after() {
+        db.close();
+    }
+
+    public SQLiteDatabase getDb() {
+        return db;
+    }
+
+    public DaoSession getDaoSession() {
+        return daoSession;
+    }
+
+    public DatabaseConnectionOrm getDbConn() {
+        return dbConn;
+    }
+
+    public RssItemStateWriter getStateWriter() {
+        return stateWriter;
+    }
+
+    public TestScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * @return an unread, not starred item of feed 1 - all required columns are set (derived from the id)
+     */
+    public static RssItem createItem(long id) {
+        RssItem item = new RssItem(id);
+        item.setFeedId(1);
+        item.setTitle("Title " + id);
+        item.setLink("https://example.com/articles/" + id);
+        item.setBody("<p>Body of item " + id + "</p>");
+        item.setAuthor("");
+        item.setGuid("guid" + id);
+        item.setGuidHash("guidHash" + id);
+        item.setFingerprint("fingerprint" + id);
+        item.setRead(false);
+        item.setRead_temp(false);
+        item.setStarred(false);
+        item.setStarred_temp(false);
+        item.setPubDate(new Date(id * 1000));
+        item.setMediaDescription("");
+        item.setMediaThumbnail("");
+        return item;
+    }
+}
@@ -0,0 +1,282 @@
+package de.luhmer.owncloudnewsreader.junit_tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import de.luhmer.owncloudnewsreader.database.DatabaseConnectionOrm;
+import de.luhmer.owncloudnewsreader.database.DatabaseHelperOrm;
+import de.luhmer.owncloudnewsreader.database.DatabaseMigration;
+import de.luhmer.owncloudnewsreader.database.DatabaseMigrations;
+import de.luhmer.owncloudnewsreader.database.FeedItemCounts;
+import de.luhmer.owncloudnewsreader.database.PendingItemBodies;
+import de.luhmer.owncloudnewsreader.database.ResponseValidators;
+import de.luhmer.owncloudnewsreader.database.RssItemImages;
+import de.luhmer.owncloudnewsreader.database.RssItemSearchIndex;
+import de.luhmer.owncloudnewsreader.database.SyncCheckpoint;
+import de.luhmer.owncloudnewsreader.database.model.DaoMaster;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.ItemBodyProcessor;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class DatabaseMigrationTest {
+
+    private static final int ITEM_COUNT = 100;
+
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        db = SQLiteDatabase.create(null);
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void testMigrationsAreContiguous() {
+        int version = DatabaseMigrations.MIN_MIGRATABLE_VERSION;
+        for (DatabaseMigration migration : DatabaseMigrations.getMigrations()) {
+            assertEquals(++version, migration.getTargetVersion());
+        }
+        assertEquals(DaoMaster.SCHEMA_VERSION, DatabaseMigrations.getLatestVersion());
+    }
+
+    @Test
+    public void testCanMigrate() {
+        assertTrue(DatabaseMigrations.canMigrate(10, DaoMaster.SCHEMA_VERSION));
+        assertFalse(DatabaseMigrations.canMigrate(9, DaoMaster.SCHEMA_VERSION));
+        assertFalse(DatabaseMigrations.canMigrate(10, DatabaseMigrations.getLatestVersion() + 1));
+    }
+
+    @Test
+    public void testMigrateVersion10KeepsData() throws InterruptedException {
+        createVersion10Schema(db);
+        populateVersion10Database(db);
+
+        DatabaseMigrations.migrate(db, 10, DaoMaster.SCHEMA_VERSION);
+
+        assertEquals(ITEM_COUNT, count("RSS_ITEM"));
+        assertEquals(2, count("FEED"));
+        assertEquals(1, count("FOLDER"));
+
+        try (Cursor cursor = db.rawQuery("SELECT TITLE, READ_TEMP, EXCERPT FROM RSS_ITEM WHERE _id = 1", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Title 1", cursor.getString(0));
+            assertEquals(1, cursor.getInt(1));
+            assertTrue(cursor.isNull(2));
+        }
+
+        // the titles are indexed - the values calculated from the bodies are filled in the background
+        assertEquals(ITEM_COUNT, count(RssItemSearchIndex.TABLENAME));
+        assertEquals(ITEM_COUNT, count(PendingItemBodies.TABLENAME));
+        assertEquals(0, count(RssItemImages.TABLENAME));
+        DatabaseConnectionOrm dbConn = new DatabaseConnectionOrm(RuntimeEnvironment.getApplication(), new DaoMaster(db).newSession());
+        ItemBodyProcessor.getInstance().awaitProcessed(dbConn);
+        assertEquals(0, count(PendingItemBodies.TABLENAME));
+
+        try (Cursor cursor = db.rawQuery("SELECT EXCERPT FROM RSS_ITEM WHERE _id = 1", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Body of item 1", cursor.getString(0));
+        }
+        try (Cursor cursor = db.rawQuery("SELECT EXCERPT FROM RSS_ITEM WHERE _id = 2", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals("Media description", cursor.getString(0)); // media description is preferred
+        }
+
+        assertEquals(ITEM_COUNT, count(RssItemSearchIndex.TABLENAME));
+        // the first sync of the existing databases has finished
+        assertEquals(0, count(SyncCheckpoint.TABLENAME));
+        // the folders and feeds are written once more by the next sync
+        assertEquals(0, count(ResponseValidators.TABLENAME));
+        // the image links of the existing bodies have been stored
+        try (Cursor cursor = db.rawQuery("SELECT " + RssItemImages.COLUMN_ITEM_ID + ", " + RssItemImages.COLUMN_URL + " FROM " + RssItemImages.TABLENAME, null)) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(3, cursor.getLong(0));
+            assertEquals("https://example.com/3.png", cursor.getString(1));
+            assertFalse(cursor.moveToNext());
+        }
+        try (Cursor cursor = db.rawQuery("SELECT docid FROM " + RssItemSearchIndex.TABLENAME + " WHERE " + RssItemSearchIndex.COLUMN_BODY + " MATCH ?", new String[] { "\"item 42\"" })) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(42, cursor.getLong(0));
+            assertFalse(cursor.moveToNext());
+        }
+
+        // feed 1 contains the unread items with an even id, feed 2 the read ones
+        try (Cursor cursor = db.rawQuery("SELECT " + FeedItemCounts.COLUMN_FEED_ID + ", " + FeedItemCounts.COLUMN_UNREAD + ", " + FeedItemCounts.COLUMN_STARRED +
+                " FROM " + FeedItemCounts.TABLENAME + " ORDER BY " + FeedItemCounts.COLUMN_FEED_ID, null)) {
+            assertTrue(cursor.moveToNext());
+            assertEquals(1, cursor.getLong(0));
+            assertEquals(ITEM_COUNT / 2, cursor.getInt(1));
+            assertEquals(0, cursor.getInt(2));
+            assertTrue(cursor.moveToNext());
+            assertEquals(2, cursor.getLong(0));
+            assertEquals(0, cursor.getInt(1));
+            assertEquals(0, cursor.getInt(2));
+            assertFalse(cursor.moveToNext());
+        }
+    }
+
+    @Test
+    public void testMigrateVersion15MarksIncompleteItemsAsPending() {
+        createVersion10Schema(db);
+        populateVersion10Database(db);
+        DatabaseMigrations.migrate(db, 10, 15);
+        // version 15 had no pending bodies - the excerpts of the first 10 items were still missing
+        PendingItemBodies.drop(db);
+        db.execSQL("UPDATE RSS_ITEM SET EXCERPT = '' WHERE _id > 10");
+
+        DatabaseMigrations.migrate(db, 15, 16);
+
+        assertEquals(10, count(PendingItemBodies.TABLENAME));
+    }
+
+    @Test
+    public void testMigrateVersion18MarksItemsAsPending() {
+        createVersion10Schema(db);
+        populateVersion10Database(db);
+        DatabaseMigrations.migrate(db, 10, 18);
+        // the bodies have been processed before the upgrade
+        db.execSQL("DELETE FROM " + PendingItemBodies.TABLENAME);
+
+        DatabaseMigrations.migrate(db, 18, 19);
+
+        // the image links are collected in the background
+        assertEquals(0, count(RssItemImages.TABLENAME));
+        assertEquals(ITEM_COUNT, count(PendingItemBodies.TABLENAME));
+    }
+
+    @Test
+    public void testMigratedSchemaMatchesCurrentSchema() {
+        createVersion10Schema(db);
+        DatabaseMigrations.migrate(db, 10, DaoMaster.SCHEMA_VERSION);
+
+        SQLiteDatabase currentDb = SQLiteDatabase.create(null);
+        try {
+            DatabaseHelperOrm.createSchema(currentDb);
+
+            assertEquals(getTables(currentDb), getTables(db));
+            for (String table : getTables(currentDb)) {
+                assertEquals(table, getColumns(currentDb, table), getColumns(db, table));
+            }
+            assertEquals(getIndexes(currentDb), getIndexes(db));
+            assertEquals(getTriggers(currentDb), getTriggers(db));
+        } finally {
+            currentDb.close();
+        }
+    }
+
+    private long count(String table) {
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    private static Set<String> getTables(SQLiteDatabase db) {
+        return querySet(db, "SELECT name FROM sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite_%' AND name != 'android_metadata'");
+    }
+
+    private static Set<String> getIndexes(SQLiteDatabase db) {
+        return querySet(db, "SELECT name FROM sqlite_master WHERE type = 'index' AND name NOT LIKE 'sqlite_%'");
+    }
+
+    private static Set<String> getTriggers(SQLiteDatabase db) {
+        return querySet(db, "SELECT name FROM sqlite_master WHERE type = 'trigger'");
+    }
+
+    private static Set<String> getColumns(SQLiteDatabase db, String table) {
+        Set<String> columns = new TreeSet<>();
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null)) {
+            while (cursor.moveToNext()) {
+                // name, type, notnull
+                columns.add(cursor.getString(1) + " " + cursor.getString(2) + " " + cursor.getInt(3));
+            }
+        }
+        return columns;
+    }
+
+    private static Set<String> querySet(SQLiteDatabase db, String sql) {
+        Set<String> result = new TreeSet<>();
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                result.add(cursor.getString(0));
+            }
+        }
+        return result;
+    }
+
+    private static void populateVersion10Database(SQLiteDatabase db) {
+        db.execSQL("INSERT INTO FOLDER (_id, LABEL) VALUES (1, 'Folder')");
+        db.execSQL("INSERT INTO FEED (_id, FOLDER_ID, FEED_TITLE) VALUES (1, 1, 'Feed 1')");
+        db.execSQL("INSERT INTO FEED (_id, FOLDER_ID, FEED_TITLE) VALUES (2, NULL, 'Feed 2')");
+
+        for (int i = 1; i <= ITEM_COUNT; i++) {
+            db.execSQL("INSERT INTO RSS_ITEM (_id, FEED_ID, TITLE, BODY, READ, STARRED, AUTHOR, GUID, GUID_HASH, FINGERPRINT, READ_TEMP, STARRED_TEMP, PUB_DATE, MEDIA_DESCRIPTION)" +
+                            " VALUES (?, ?, ?, ?, 0, 0, '', ?, ?, ?, ?, 0, ?, ?)",
+                    new Object[] { i, i % 2 + 1, "Title " + i, "<p>Body of <b>item</b> " + i + "</p>" + (i == 3 ? "<img src=\"https://example.com/3.png\">" : ""), "guid" + i, "guidHash" + i,
+                            "fingerprint" + i, i % 2, i * 1000L, i == 2 ? "<i>Media description</i>" : "" });
+        }
+    }
+
+    /**
+     * Schema version 10 (the last version which was upgraded by dropping all tables)
+     */
+    private static void createVersion10Schema(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE \"FOLDER\" (" +
+                "\"_id\" INTEGER PRIMARY KEY NOT NULL ," +
+                "\"LABEL\" TEXT NOT NULL );");
+        db.execSQL("CREATE TABLE \"FEED\" (" +
+                "\"_id\" INTEGER PRIMARY KEY NOT NULL ," +
+                "\"FOLDER_ID\" INTEGER," +
+                "\"FEED_TITLE\" TEXT NOT NULL ," +
+                "\"FAVICON_URL\" TEXT," +
+                "\"LINK\" TEXT," +
+                "\"AVG_COLOUR\" TEXT," +
+                "\"NOTIFICATION_CHANNEL\" TEXT," +
+                "\"OPEN_IN\" INTEGER);");
+        db.execSQL("CREATE INDEX IDX_FEED_FOLDER_ID ON FEED (\"FOLDER_ID\");");
+        db.execSQL("CREATE TABLE \"RSS_ITEM\" (" +
+                "\"_id\" INTEGER PRIMARY KEY NOT NULL ," +
+                "\"FEED_ID\" INTEGER NOT NULL ," +
+                "\"LINK\" TEXT," +
+                "\"TITLE\" TEXT," +
+                "\"BODY\" TEXT," +
+                "\"READ\" INTEGER," +
+                "\"STARRED\" INTEGER," +
+                "\"AUTHOR\" TEXT NOT NULL ," +
+                "\"GUID\" TEXT NOT NULL ," +
+                "\"GUID_HASH\" TEXT NOT NULL ," +
+                "\"FINGERPRINT\" TEXT NOT NULL ," +
+                "\"READ_TEMP\" INTEGER," +
+                "\"STARRED_TEMP\" INTEGER," +
+                "\"LAST_MODIFIED\" INTEGER," +
+                "\"PUB_DATE\" INTEGER," +
+                "\"ENCLOSURE_LINK\" TEXT," +
+                "\"ENCLOSURE_MIME\" TEXT," +
+                "\"MEDIA_THUMBNAIL\" TEXT," +
+                "\"MEDIA_DESCRIPTION\" TEXT," +
+                "\"RTL\" INTEGER);");
+        db.execSQL("CREATE INDEX IDX_RSS_ITEM_FEED_ID ON RSS_ITEM (\"FEED_ID\");");
+        db.execSQL("CREATE TABLE \"CURRENT_RSS_ITEM_VIEW\" (" +
+                "\"_id\" INTEGER PRIMARY KEY NOT NULL ," +
+                "\"RSS_ITEM_ID\" INTEGER NOT NULL );");
+    }
+}
@@ -0,0 +1,77 @@
+package de.luhmer.owncloudnewsreader.junit_tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.text.Html;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.regex.Pattern;
+
+import de.luhmer.owncloudnewsreader.helper.ExcerptHelper;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class ExcerptHelperTest {
+
+    @Test
+    public void testExcerptStripsHtml() {
+        String body = "<![CDATA[<p>Hello <b>World</b><img src=\"https://example.com/a.png\"/></p>]]>";
+        assertEquals("Hello World", ExcerptHelper.getExcerpt("", body));
+    }
+
+    @Test
+    public void testExcerptPrefersMediaDescription() {
+        assertEquals("Description", ExcerptHelper.getExcerpt("<i>Description</i>", "<p>Body</p>"));
+        assertEquals("", ExcerptHelper.getExcerpt(null, null));
+    }
+
+    @Test
+    public void testExcerptIsLimited() {
+        String excerpt = ExcerptHelper.getExcerpt(null, createBody(0));
+        assertTrue(excerpt.endsWith("..."));
+        assertTrue(excerpt.length() <= ExcerptHelper.EXCERPT_LENGTH + "...".length());
+    }
+
+    @Test
+    public void testExcerptMatchesPreviousBindOutput() {
+        for (int i = 0; i < 10; i++) {
+            String body = createBody(i);
+            assertEquals(legacyBindBodyText(body), ExcerptHelper.getExcerpt(null, body));
+        }
+    }
+
+    /**
+     * Body text calculation which was done in RssItemViewHolder.bind previously
+     */
+    private static String legacyBindBodyText(String body) {
+        if (body.startsWith("<![CDATA[")) {
+            body = body.replaceFirst(Pattern.quote("<![CDATA["), "");
+            body = body.replaceFirst("]]>", "");
+        }
+
+        body = body.replaceAll("<img[^>]*>", "");
+        body = body.replaceAll("<video[^>]*>", "");
+
+        String bodyString = Html.fromHtml(body).toString().trim();
+        if (bodyString.length() > 400) {
+            bodyString = bodyString.substring(0, 400) + "...";
+        }
+        return Html.fromHtml(bodyString).toString();
+    }
+
+    private static String createBody(int seed) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            sb.append("<p>Paragraph ").append(seed).append('-').append(i)
+                    .append(" with <a href=\"https://example.com/").append(i).append("\">a link</a> &amp; some <b>bold</b> text.")
+                    .append("<img src=\"https://example.com/image").append(i).append(".png\" width=\"100\"/></p>");
+        }
+        return sb.toString();
+    }
+}
@@ -1,8 +1,14 @@
 package de.luhmer.owncloudnewsreader.junit_tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import de.luhmer.owncloudnewsreader.helper.ImageHandler;
 
 public class ImageHandlerTest {
@@ -110,4 +116,58 @@ public class ImageHandlerTest {
         String result = ImageHandler.fixBrokenImageLinksInArticle(articleUrl, content);
         assertEquals(expectedResult, result);
     }
+
+    @Test
+    public void testImagesAndHrefsInSinglePass() {
+        String articleUrl = "https://example.com/blog/";
+        String content =
+                "<p><a href=\"/about\"><img alt=\"logo\" src=\"img/logo.png\"></a>" +
+                "<img src=\"//cdn.example.com/a.jpg\"><img src=\"icon.svg\">" +
+                "<abbr title=\"x\">x</abbr><a name=\"anchor\">no link</a>" +
+                "<source src=\"img/video.mp4\"></p>";
+        String expectedResult =
+                "<p><a href=\"https://example.com/about\"><img alt=\"logo\" src=\"https://example.com/blog/img/logo.png\"></a>" +
+                "<img src=\"https://cdn.example.com/a.jpg\"><img src=\"icon.svg\">" +
+                "<abbr title=\"x\">x</abbr><a name=\"anchor\">no link</a>" +
+                "<source src=\"img/video.mp4\"></p>";
+
+        List<String> imageLinks = new ArrayList<>();
+        String result = ImageHandler.fixBrokenLinksInArticle(articleUrl, content, imageLinks);
+
+        assertEquals(expectedResult, result);
+        // svg images are skipped
+        assertEquals(Arrays.asList("https://example.com/blog/img/logo.png", "https://cdn.example.com/a.jpg"), imageLinks);
+        assertEquals(ImageHandler.getImageLinksFromText(articleUrl, result), imageLinks);
+    }
+
+    @Test
+    public void testEachLinkIsResolvedAgainstArticleUrl() {
+        String articleUrl = "https://example.com/a/b/article.html";
+        String content = "<img src=\"img/1.png\"><img src=\"img/2.png\"><a href=\"../c/other.html\">Other</a>";
+        String expectedResult =
+                "<img src=\"https://example.com/a/b/img/1.png\"><img src=\"https://example.com/a/b/img/2.png\">" +
+                "<a href=\"https://example.com/a/c/other.html\">Other</a>";
+        assertEquals(expectedResult, ImageHandler.fixBrokenLinksInArticle(articleUrl, content, null));
+    }
+
+    @Test
+    public void testArticleWithoutBrokenLinksIsNotCopied() {
+        String content = "<p><img src=\"https://example.com/a.png\"><a href=\"https://example.com\">Link</a></p>";
+        assertTrue(content == ImageHandler.fixBrokenLinksInArticle("https://example.com/", content, null));
+    }
+
+    @Test
+    public void testRelativeLinkVariants() {
+        String articleUrl = "https://example.com/a/b/c/article.html";
+        String content = "<p><img src=\"./img/a.png\"><img src=\"../../img/b.png\">" +
+                "<a href=\"#note1\">1</a><a href=\"https://example.org/x\">x</a>" +
+                "<img src=\"/img/a.png\"><a href=\"./img/a.png\">again</a></p>";
+        String expectedResult = "<p><img src=\"https://example.com/a/b/c/img/a.png\"><img src=\"https://example.com/a/img/b.png\">" +
+                "<a href=\"#note1\">1</a><a href=\"https://example.org/x\">x</a>" +
+                "<img src=\"https://example.com/img/a.png\"><a href=\"https://example.com/a/b/c/img/a.png\">again</a></p>";
+
+        List<String> imageLinks = new ArrayList<>();
+        assertEquals(expectedResult, ImageHandler.fixBrokenLinksInArticle(articleUrl, content, imageLinks));
+        assertEquals(Arrays.asList("https://example.com/a/b/c/img/a.png", "https://example.com/a/img/b.png", "https://example.com/img/a.png"), imageLinks);
+    }
 }
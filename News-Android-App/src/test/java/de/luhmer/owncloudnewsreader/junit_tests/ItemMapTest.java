@@ -0,0 +1,49 @@
+package de.luhmer.owncloudnewsreader.junit_tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.luhmer.owncloudnewsreader.model.ItemGuidHash;
+import de.luhmer.owncloudnewsreader.reader.nextcloud.ItemMap;
+
+public class ItemMapTest {
+
+    @Test
+    public void testItemMapContainsFeedIdAndGuidHash() {
+        ItemMap itemMap = new ItemMap(Arrays.asList(
+                new ItemGuidHash(1, 10, "3059047a572cd9cd5d0bf645faffd077"),
+                new ItemGuidHash(2, 11, "a2f9e7a4d1b51d1f2c7ef1e0a87b3c44")));
+
+        assertEquals(2, itemMap.getItems().size());
+        assertTrue(itemMap.getItems().contains(expectedEntry(10, "3059047a572cd9cd5d0bf645faffd077")));
+        assertTrue(itemMap.getItems().contains(expectedEntry(11, "a2f9e7a4d1b51d1f2c7ef1e0a87b3c44")));
+    }
+
+    @Test
+    public void testItemMapPartition() {
+        List<ItemGuidHash> guidHashes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            guidHashes.add(new ItemGuidHash(i, i % 7, "guidHash" + i));
+        }
+
+        ItemMap itemMap = new ItemMap(guidHashes);
+
+        assertEquals(300, itemMap.getItems().size());
+        assertTrue(itemMap.getItems().contains(expectedEntry(299 % 7, "guidHash299")));
+    }
+
+    private static Map<String, Object> expectedEntry(long feedId, String guidHash) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("feedId", feedId);
+        entry.put("guidHash", guidHash);
+        return entry;
+    }
+}
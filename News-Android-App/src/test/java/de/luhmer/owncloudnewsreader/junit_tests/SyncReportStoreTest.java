@@ -0,0 +1,104 @@
+package de.luhmer.owncloudnewsreader.junit_tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import de.luhmer.owncloudnewsreader.helper.SyncReport;
+import de.luhmer.owncloudnewsreader.helper.SyncReportStore;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class SyncReportStoreTest {
+
+    private SharedPreferences prefs;
+
+    @Before
+    public void setUp() {
+        prefs = RuntimeEnvironment.getApplication().getSharedPreferences("SyncReportStoreTest", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void testPhasesAreSummedAndOrdered() {
+        SyncReport report = new SyncReport();
+        report.record(SyncReport.Phase.INSERT, TimeUnit.MILLISECONDS.toNanos(5), 100, 0, 100);
+        report.record(SyncReport.Phase.STATE_PUSH, TimeUnit.MILLISECONDS.toNanos(2), 3, 0, 3);
+        report.record(SyncReport.Phase.INSERT, TimeUnit.MILLISECONDS.toNanos(7), 50, 0, 50);
+        report.addRetry(SyncReport.Phase.STATE_PUSH);
+
+        List<SyncReport.PhaseMetrics> phases = report.getPhases();
+        assertEquals(2, phases.size());
+        assertEquals(SyncReport.Phase.STATE_PUSH, phases.get(0).getPhase());
+        assertEquals(1, phases.get(0).getRetries());
+        assertEquals(SyncReport.Phase.INSERT, phases.get(1).getPhase());
+        assertEquals(12, phases.get(1).getWallTimeMs());
+        assertEquals(150, phases.get(1).getItems());
+        assertEquals(150, phases.get(1).getRowsWritten());
+        assertNull(report.getPhase(SyncReport.Phase.PARSE));
+    }
+
+    @Test
+    public void testReportsAreStored() {
+        SyncReport report = new SyncReport();
+        report.setFirstSync(true);
+        report.record(SyncReport.Phase.ITEM_DOWNLOAD, TimeUnit.MILLISECONDS.toNanos(300), 200, 4096, 0);
+        report.setError(new IOException("Connection reset"));
+        report.finish();
+
+        SyncReportStore store = new SyncReportStore(prefs);
+        store.add(report);
+
+        List<SyncReport> reports = store.getReports();
+        assertEquals(1, reports.size());
+        SyncReport stored = reports.get(0);
+        assertEquals(report.getStartTime(), stored.getStartTime());
+        assertTrue(stored.isFirstSync());
+        assertEquals("java.io.IOException: Connection reset", stored.getError());
+        assertEquals(300, stored.getPhase(SyncReport.Phase.ITEM_DOWNLOAD).getWallTimeMs());
+        assertEquals(4096, stored.getPhase(SyncReport.Phase.ITEM_DOWNLOAD).getBytes());
+        assertEquals(report.toString(), stored.toString());
+    }
+
+    @Test
+    public void testOldestReportIsDropped() {
+        SyncReportStore store = new SyncReportStore(prefs);
+        for (int i = 0; i < 25; i++) {
+            SyncReport report = new SyncReport();
+            report.record(SyncReport.Phase.INSERT, 0, i, 0, i);
+            store.add(report);
+        }
+
+        List<SyncReport> reports = store.getReports();
+        assertEquals(20, reports.size());
+        assertEquals(5, reports.get(0).getPhase(SyncReport.Phase.INSERT).getItems());
+        assertEquals(24, reports.get(19).getPhase(SyncReport.Phase.INSERT).getItems());
+    }
+
+    @Test
+    public void testInvalidJsonIsIgnored() {
+        prefs.edit().putString("SYNC_REPORTS", "{invalid").commit();
+
+        SyncReportStore store = new SyncReportStore(prefs);
+        assertTrue(store.getReports().isEmpty());
+        store.add(new SyncReport());
+        assertEquals(1, store.getReports().size());
+        assertFalse(store.getSummary().isEmpty());
+    }
+}
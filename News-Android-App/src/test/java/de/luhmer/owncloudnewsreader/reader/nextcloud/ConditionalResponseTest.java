@@ -0,0 +1,113 @@
+package de.luhmer.owncloudnewsreader.reader.nextcloud;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.app.Application;
+
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import de.luhmer.owncloudnewsreader.database.ResponseValidators;
+import de.luhmer.owncloudnewsreader.database.model.Folder;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class ConditionalResponseTest {
+
+    private static final Type FOLDER_LIST = new TypeToken<List<Folder>>() {}.getType();
+    private static final String FOLDERS_JSON = "{\"folders\":[{\"id\":1,\"name\":\"News\"},{\"id\":2,\"name\":\"Tech\"}]}";
+    private static final String ETAG = "\"abc123\"";
+    private static final String LAST_MODIFIED = "Wed, 14 Oct 2026 08:00:00 GMT";
+
+    @Test
+    public void testFirstResponseIsParsed() throws IOException {
+        ConditionalResponse<List<Folder>> response = ConditionalResponse.fromResponse(ok(FOLDERS_JSON), null, FOLDER_LIST);
+
+        assertTrue(response.isModified());
+        assertEquals(2, response.getData().size());
+        assertEquals("Tech", response.getData().get(1).getLabel());
+        assertEquals(ETAG, response.getValidators().getETag());
+        assertEquals(LAST_MODIFIED, response.getValidators().getLastModified());
+        assertEquals(FOLDERS_JSON.length(), response.getByteCount());
+    }
+
+    @Test
+    public void testNotModifiedResponseIsNotParsed() throws IOException {
+        ResponseValidators stored = ConditionalResponse.fromResponse(ok(FOLDERS_JSON), null, FOLDER_LIST).getValidators();
+
+        ConditionalResponse<List<Folder>> response = ConditionalResponse.fromResponse(notModified(), stored, FOLDER_LIST);
+
+        assertFalse(response.isModified());
+        assertNull(response.getData());
+        assertEquals(stored, response.getValidators());
+        assertEquals(0, response.getByteCount());
+    }
+
+    @Test
+    public void testSameContentIsNotParsed() throws IOException {
+        // e.g. the server doesn't support conditional requests or single sign on is used
+        ResponseValidators stored = ConditionalResponse.fromBody(body(FOLDERS_JSON), null, FOLDER_LIST).getValidators();
+        assertNull(stored.getETag());
+
+        ConditionalResponse<List<Folder>> response = ConditionalResponse.fromBody(body(FOLDERS_JSON), stored, FOLDER_LIST);
+        assertFalse(response.isModified());
+        assertEquals(stored.getContentHash(), response.getValidators().getContentHash());
+
+        response = ConditionalResponse.fromBody(body(FOLDERS_JSON.replace("Tech", "Science")), stored, FOLDER_LIST);
+        assertTrue(response.isModified());
+        assertEquals("Science", response.getData().get(1).getLabel());
+    }
+
+    @Test
+    public void testErrorResponse() throws IOException {
+        okhttp3.Response raw = rawResponse(500).build();
+        try {
+            ConditionalResponse.fromResponse(Response.error(body("error"), raw), null, FOLDER_LIST);
+            fail("HttpException expected");
+        } catch (HttpException e) {
+            assertEquals(500, e.code());
+        }
+    }
+
+    private static Response<ResponseBody> ok(String json) {
+        okhttp3.Response raw = rawResponse(200)
+                .header("ETag", ETAG)
+                .header("Last-Modified", LAST_MODIFIED)
+                .build();
+        return Response.success(body(json), raw);
+    }
+
+    private static Response<ResponseBody> notModified() {
+        return Response.error(body(""), rawResponse(ConditionalResponse.HTTP_NOT_MODIFIED).build());
+    }
+
+    private static ResponseBody body(String content) {
+        return ResponseBody.create(content, MediaType.get("application/json"));
+    }
+
+    private static okhttp3.Response.Builder rawResponse(int code) {
+        return new okhttp3.Response.Builder()
+                .code(code)
+                .message("")
+                .protocol(Protocol.HTTP_1_1)
+                .request(new Request.Builder().url("https://example.com/index.php/apps/news/api/v1-2/folders").build());
+    }
+}
@@ -0,0 +1,183 @@
+package de.luhmer.owncloudnewsreader.reader.nextcloud;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import android.app.Application;
+
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+import de.luhmer.owncloudnewsreader.helper.GsonConfig;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 35, application = Application.class)
+public class InsertRssItemIntoDatabaseTest {
+
+    private static final String ITEM = "{" +
+            "\"id\": 3443, \"guid\": \"http://grulja.wordpress.com/?p=76\", \"guidHash\": \"3059047a572cd9cd5d0bf645faffd077\"," +
+            "\"url\": \"http://grulja.wordpress.com/2013/04/29/plasma-nm-after-the-solid-sprint/\"," +
+            "\"title\": \"Plasma-nm after the solid sprint\", \"author\": \"Jan Grulich (grulja)\"," +
+            "\"pubDate\": 1367270544, \"updatedDate\": null," +
+            "\"body\": \"<p>At first I have to say...</p><img src=\\\"/images/sprint.png\\\">\"," +
+            "\"enclosureMime\": null, \"enclosureLink\": null, \"mediaThumbnail\": null, \"mediaDescription\": null," +
+            "\"feedId\": 67, \"unread\": true, \"starred\": false, \"rtl\": false," +
+            "\"lastModified\": 1367273003, \"fingerprint\": \"aeaae2123\", \"contentHash\": \"ab1f\"," +
+            "\"tags\": [\"kde\", \"plasma\"], \"extra\": {\"nested\": [1, 2, {\"a\": null}]}" +
+            "}";
+
+    @Test
+    public void testReadItem() throws IOException {
+        RssItem rssItem = InsertRssItemIntoDatabase.readItem(new JsonReader(new StringReader(ITEM)));
+
+        assertEquals(3443, rssItem.getId());
+        assertEquals(67, rssItem.getFeedId());
+        assertEquals("http://grulja.wordpress.com/?p=76", rssItem.getGuid());
+        assertEquals("3059047a572cd9cd5d0bf645faffd077", rssItem.getGuidHash());
+        assertEquals("http://grulja.wordpress.com/2013/04/29/plasma-nm-after-the-solid-sprint/", rssItem.getLink());
+        assertEquals("Plasma-nm after the solid sprint", rssItem.getTitle());
+        assertEquals("Jan Grulich (grulja)", rssItem.getAuthor());
+        assertEquals(new Date(1367270544000L), rssItem.getPubDate());
+        assertEquals(new Date(1367273003L), rssItem.getLastModified());
+        assertEquals("aeaae2123", rssItem.getFingerprint());
+        assertFalse(rssItem.getRead());
+        assertFalse(rssItem.getRead_temp());
+        assertFalse(rssItem.getStarred());
+        assertFalse(rssItem.getStarred_temp());
+        assertFalse(rssItem.getRtl());
+        // null values are replaced by the defaults
+        assertEquals("", rssItem.getEnclosureLink());
+        assertEquals("", rssItem.getEnclosureMime());
+        assertEquals("", rssItem.getMediaDescription());
+        assertEquals("", rssItem.getMediaThumbnail());
+    }
+
+    @Test
+    public void testProcessBody() throws IOException {
+        RssItem rssItem = InsertRssItemIntoDatabase.readItem(new JsonReader(new StringReader(ITEM)));
+        InsertRssItemIntoDatabase.processBody(rssItem);
+
+        assertTrue(rssItem.getBody().contains("src=\"http://grulja.wordpress.com/images/sprint.png\""));
+        assertEquals("At first I have to say...", rssItem.getExcerpt());
+        assertEquals("http://grulja.wordpress.com/images/sprint.png", rssItem.getMediaThumbnail());
+    }
+
+    @Test
+    public void testYoutubeLinkBecomesEnclosure() throws IOException {
+        String item = ITEM.replace("http://grulja.wordpress.com/2013/04/29/plasma-nm-after-the-solid-sprint/", "https://www.youtube.com/watch?v=abc");
+        RssItem rssItem = InsertRssItemIntoDatabase.readItem(new JsonReader(new StringReader(item)));
+
+        assertEquals("https://www.youtube.com/watch?v=abc", rssItem.getEnclosureLink());
+        assertEquals("youtube", rssItem.getEnclosureMime());
+    }
+
+    @Test
+    public void testMissingRequiredField() throws IOException {
+        String item = ITEM.replace("\"guidHash\": \"3059047a572cd9cd5d0bf645faffd077\",", "");
+        try {
+            InsertRssItemIntoDatabase.readItem(new JsonReader(new StringReader(item)));
+            fail("MalformedJsonException expected");
+        } catch (MalformedJsonException e) {
+            assertTrue(e.getMessage().contains("3443"));
+        }
+    }
+
+    @Test
+    public void testItemsResponse() {
+        String response = createResponse(3);
+        List<RssItem> items = GsonConfig.GetGson().fromJson(response, new TypeToken<List<RssItem>>() {}.getType());
+
+        assertEquals(3, items.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(i + 1, items.get(i).getId());
+            // the bodies are processed after the items have been inserted
+            assertTrue(items.get(i).getBody().startsWith("<p>Paragraph"));
+            assertNull(items.get(i).getExcerpt());
+        }
+    }
+
+    @Test
+    public void testWrittenItemsCanBeRead() throws IOException {
+        RssItem rssItem = InsertRssItemIntoDatabase.readItem(new JsonReader(new StringReader(ITEM)));
+        rssItem.setStarred(true);
+        Type type = new TypeToken<List<RssItem>>() {}.getType();
+
+        String json = GsonConfig.GetGson().toJson(Collections.singletonList(rssItem), type);
+        List<RssItem> items = GsonConfig.GetGson().fromJson(json, type);
+
+        assertEquals(1, items.size());
+        RssItem read = items.get(0);
+        assertEquals(rssItem.getId(), read.getId());
+        assertEquals(rssItem.getFeedId(), read.getFeedId());
+        assertEquals(rssItem.getGuidHash(), read.getGuidHash());
+        assertEquals(rssItem.getLink(), read.getLink());
+        assertEquals(rssItem.getBody(), read.getBody());
+        assertEquals(rssItem.getPubDate(), read.getPubDate());
+        assertEquals(rssItem.getLastModified(), read.getLastModified());
+        assertEquals(rssItem.getFingerprint(), read.getFingerprint());
+        assertFalse(read.getRead());
+        assertTrue(read.getStarred());
+
+        assertEquals("null", GsonConfig.GetGson().toJson(null, type));
+    }
+
+    /**
+     * @return response of the items api with the given amount of items (~3kb body each)
+     */
+    private static String createResponse(int itemCount) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder("{\"items\": [");
+        for (int id = 1; id <= itemCount; id++) {
+            if (id > 1) {
+                sb.append(',');
+            }
+            StringBuilder body = new StringBuilder();
+            for (int p = 0; p < 10; p++) {
+                body.append("<p>Paragraph ").append(p).append(" of item ").append(id);
+                for (int w = 0; w < 40; w++) {
+                    body.append(' ').append(Long.toString(random.nextLong() & 0xffffffL, 36));
+                }
+                body.append(" <a href=\\\"https://example.com/").append(id).append('/').append(p).append("\\\">link</a></p>");
+            }
+            body.append("<img src=\\\"https://example.com/images/").append(id).append(".jpg\\\">");
+
+            sb.append("{\"id\": ").append(id)
+                    .append(", \"guid\": \"https://example.com/?p=").append(id).append('"')
+                    .append(", \"guidHash\": \"").append(Integer.toHexString(("guid" + id).hashCode())).append('"')
+                    .append(", \"url\": \"https://example.com/").append(id).append('"')
+                    .append(", \"title\": \"Title of item ").append(id).append('"')
+                    .append(", \"author\": \"Author ").append(id % 7).append('"')
+                    .append(", \"pubDate\": ").append(1367270544 + id)
+                    .append(", \"updatedDate\": null")
+                    .append(", \"body\": \"").append(body).append('"')
+                    .append(", \"enclosureMime\": null, \"enclosureLink\": null")
+                    .append(", \"mediaThumbnail\": null, \"mediaDescription\": null")
+                    .append(", \"feedId\": ").append(id % 13)
+                    .append(", \"unread\": true, \"starred\": ").append(id % 10 == 0)
+                    .append(", \"rtl\": false")
+                    .append(", \"lastModified\": \"").append(1367273003000L + id).append('"')
+                    .append(", \"fingerprint\": \"fingerprint").append(id).append('"')
+                    .append(", \"contentHash\": \"hash").append(id).append('"')
+                    .append('}');
+        }
+        return sb.append("]}").toString();
+    }
+}
@@ -0,0 +1,187 @@
+package de.luhmer.owncloudnewsreader.reader.nextcloud;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import de.luhmer.owncloudnewsreader.database.model.RssItem;
+
+public class ItemPagePipelineTest {
+
+    private static final int PAGE_SIZE = 10;
+
+    @Test
+    public void testAllPagesAreInsertedInOrder() throws IOException {
+        List<Long> offsets = Collections.synchronizedList(new ArrayList<>());
+        List<Long> insertedIds = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+        Thread callingThread = Thread.currentThread();
+        List<Thread> writerThreads = Collections.synchronizedList(new ArrayList<>());
+
+        ItemPagePipeline pipeline = new ItemPagePipeline(PAGE_SIZE, page -> {
+            writerThreads.add(Thread.currentThread());
+            for (RssItem item : page) {
+                insertedIds.add(item.getId());
+            }
+        });
+        int count = pipeline.run("test", offset -> {
+            offsets.add(offset);
+            return createPage(offset, 35);
+        }, progress::add);
+
+        assertEquals(35, count);
+        // the offset of the next page is the highest id of the previous page
+        assertEquals(Arrays.asList(0L, 10L, 20L, 30L), offsets);
+        assertEquals(Arrays.asList(10, 20, 30, 35), progress);
+        for (long id = 1; id <= 35; id++) {
+            assertEquals(id, (long) insertedIds.get((int) id - 1));
+        }
+        for (Thread thread : writerThreads) {
+            assertNotEquals(callingThread, thread);
+        }
+    }
+
+    @Test
+    public void testDownloadWaitsForWriter() throws Exception {
+        AtomicInteger requestCount = new AtomicInteger();
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+
+        ItemPagePipeline pipeline = new ItemPagePipeline(PAGE_SIZE, page -> {
+            try {
+                releaseWriter.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        Thread download = new Thread(() -> {
+            try {
+                pipeline.run("test", offset -> {
+                    requestCount.incrementAndGet();
+                    return createPage(offset, 100);
+                }, insertedCount -> { });
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        download.start();
+
+        // one page is being inserted, MAX_BUFFERED_PAGES are waiting and one is waiting to be queued
+        int maxRequests = ItemPagePipeline.MAX_BUFFERED_PAGES + 2;
+        long timeout = System.currentTimeMillis() + 5000;
+        while (requestCount.get() < maxRequests && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        assertEquals(maxRequests, requestCount.get());
+
+        releaseWriter.countDown();
+        download.join(5000);
+        // the last page is full - an empty page ends the download
+        assertEquals(11, requestCount.get());
+    }
+
+    @Test
+    public void testDatabaseLaneIsNotBlockedByDownload() throws IOException {
+        ItemPagePipeline pipeline = new ItemPagePipeline(PAGE_SIZE, page -> { });
+
+        int count = pipeline.run("test", offset -> {
+            if (offset == 10) {
+                // the first page has been inserted - other writes don't wait for the next page
+                try {
+                    SyncSchedulers.databaseExecutor().submit(() -> { }).get(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IOException("Database lane is blocked", e);
+                }
+            }
+            return createPage(offset, 35);
+        }, insertedCount -> { });
+
+        assertEquals(35, count);
+    }
+
+    @Test
+    public void testPagesBeforeFailedRequestAreInserted() {
+        List<Long> insertedIds = Collections.synchronizedList(new ArrayList<>());
+        ItemPagePipeline pipeline = new ItemPagePipeline(PAGE_SIZE, page -> {
+            for (RssItem item : page) {
+                insertedIds.add(item.getId());
+            }
+        });
+
+        try {
+            pipeline.run("test", offset -> {
+                if (offset == 20) {
+                    throw new IOException("Connection lost");
+                }
+                return createPage(offset, 100);
+            }, insertedCount -> { });
+            fail("IOException expected");
+        } catch (IOException e) {
+            assertEquals("Connection lost", e.getMessage());
+        }
+        assertEquals(20, insertedIds.size());
+    }
+
+    @Test
+    public void testWriterErrorStopsDownload() throws IOException {
+        AtomicInteger requestCount = new AtomicInteger();
+        ItemPagePipeline pipeline = new ItemPagePipeline(PAGE_SIZE, page -> {
+            throw new IllegalStateException("Database closed");
+        });
+
+        try {
+            pipeline.run("test", offset -> {
+                requestCount.incrementAndGet();
+                return createPage(offset, 1000);
+            }, insertedCount -> { });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            assertEquals("Database closed", e.getMessage());
+        }
+        assertTrue(requestCount.get() < 100);
+    }
+
+    @Test
+    public void testResumeAfterOffset() throws IOException {
+        List<Long> offsets = Collections.synchronizedList(new ArrayList<>());
+        List<Long> insertedIds = Collections.synchronizedList(new ArrayList<>());
+
+        ItemPagePipeline pipeline = new ItemPagePipeline(PAGE_SIZE, page -> {
+            for (RssItem item : page) {
+                insertedIds.add(item.getId());
+            }
+        });
+        int count = pipeline.run("test", 20, offset -> {
+            offsets.add(offset);
+            return createPage(offset, 35);
+        }, insertedCount -> { });
+
+        assertEquals(15, count);
+        assertEquals(Arrays.asList(20L, 30L), offsets);
+        assertEquals(21L, (long) insertedIds.get(0));
+        assertEquals(35L, (long) insertedIds.get(14));
+    }
+
+    /**
+     * @return the next page of a server with items 1 - itemCount
+     */
+    private static List<RssItem> createPage(long offset, int itemCount) {
+        List<RssItem> page = new ArrayList<>();
+        for (long id = offset + 1; id <= Math.min(offset + PAGE_SIZE, itemCount); id++) {
+            page.add(new RssItem(id));
+        }
+        return page;
+    }
+}
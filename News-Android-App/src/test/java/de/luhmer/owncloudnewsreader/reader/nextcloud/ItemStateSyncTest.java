@@ -0,0 +1,33 @@
+package de.luhmer.owncloudnewsreader.reader.nextcloud;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+public class ItemStateSyncTest {
+
+    @Test
+    public void testOnlyNetworkAndServerErrorsAreRetried() {
+        assertTrue(ItemStateSync.isRetryable(new SocketTimeoutException()));
+        assertTrue(ItemStateSync.isRetryable(new IOException("connection reset")));
+        assertTrue(ItemStateSync.isRetryable(httpError(500)));
+        assertTrue(ItemStateSync.isRetryable(httpError(503)));
+
+        assertFalse(ItemStateSync.isRetryable(httpError(400)));
+        assertFalse(ItemStateSync.isRetryable(httpError(401)));
+        assertFalse(ItemStateSync.isRetryable(httpError(404)));
+    }
+
+    private static HttpException httpError(int code) {
+        return new HttpException(Response.error(code, ResponseBody.create("", MediaType.get("text/plain"))));
+    }
+}
@@ -0,0 +1,79 @@
+package de.luhmer.owncloudnewsreader.reader.nextcloud;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.rxjava3.core.Completable;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.Single;
+
+public class SyncSchedulersTest {
+
+    private static final int TASK_COUNT = 20;
+
+    @Test
+    public void testNetworkLaneIsBounded() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        Set<String> threadNames = Collections.synchronizedSet(new HashSet<>());
+
+        List<Completable> tasks = new ArrayList<>();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(Completable.fromAction(() -> {
+                threadNames.add(Thread.currentThread().getName());
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+            }).subscribeOn(SyncSchedulers.network()));
+        }
+        Completable.merge(tasks).blockingAwait();
+
+        assertTrue(maxRunning.get() > 1);
+        assertTrue(maxRunning.get() <= SyncSchedulers.NETWORK_THREAD_COUNT);
+        assertTrue(threadNames.size() <= SyncSchedulers.NETWORK_THREAD_COUNT);
+        for (String name : threadNames) {
+            assertTrue(name, name.startsWith("SyncNetwork-"));
+        }
+    }
+
+    @Test
+    public void testDatabaseLaneIsSerial() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        List<Single<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(Single.fromCallable(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return Thread.currentThread().getName();
+            }).subscribeOn(SyncSchedulers.database()));
+        }
+        Set<String> threadNames = new HashSet<>(Single.merge(tasks).toList().blockingGet());
+
+        assertEquals(1, maxRunning.get());
+        assertEquals(1, threadNames.size());
+        assertTrue(threadNames.iterator().next().startsWith("SyncDatabase-"));
+    }
+
+    @Test
+    public void testThreadsAreReused() {
+        Set<String> threadNames = new HashSet<>();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            threadNames.add(Observable.fromCallable(() -> Thread.currentThread().getName())
+                    .subscribeOn(SyncSchedulers.network())
+                    .blockingFirst());
+        }
+        assertTrue(threadNames.size() <= SyncSchedulers.NETWORK_THREAD_COUNT);
+    }
+}
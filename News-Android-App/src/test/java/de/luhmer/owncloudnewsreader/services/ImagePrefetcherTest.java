@@ -0,0 +1,159 @@
+package de.luhmer.owncloudnewsreader.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ImagePrefetcherTest {
+
+    private static final long CACHED_SIZE = 1000;
+    private static final long DOWNLOADED_SIZE = 2000;
+
+    @Test
+    public void testEachImageIsDownloadedOnce() throws InterruptedException {
+        FakeImageLoader loader = new FakeImageLoader(0);
+        loader.cached.add("https://a.com/2.png");
+        List<String> links = links(50, "a.com", "b.com", "c.com");
+        int uniqueCount = links.size();
+        // an image used by several items
+        links.add("https://a.com/2.png");
+        links.add("https://b.com/7.png");
+
+        List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+        ImagePrefetcher prefetcher = new ImagePrefetcher(loader);
+        prefetcher.prefetch(links, (completed, total) -> progress.add(completed));
+
+        assertEquals(uniqueCount - 1, loader.downloaded.size());
+        assertEquals(new HashSet<>(loader.downloaded).size(), loader.downloaded.size());
+        assertEquals(1, prefetcher.getCachedCount());
+        assertEquals(uniqueCount - 1, prefetcher.getDownloadedCount());
+        assertEquals(uniqueCount, prefetcher.getCompletedCount());
+        assertEquals(uniqueCount, progress.size());
+        assertTrue(progress.contains(uniqueCount));
+        assertEquals(uniqueCount, prefetcher.getByteSizes().size());
+        assertEquals(CACHED_SIZE, (long) prefetcher.getByteSizes().get("https://a.com/2.png"));
+        assertEquals(DOWNLOADED_SIZE, (long) prefetcher.getByteSizes().get("https://a.com/1.png"));
+    }
+
+    @Test
+    public void testFailedDownloadsAreSkipped() throws InterruptedException {
+        FakeImageLoader loader = new FakeImageLoader(0);
+        loader.failing.add("https://a.com/1.png");
+
+        ImagePrefetcher prefetcher = new ImagePrefetcher(loader);
+        prefetcher.prefetch(links(5, "a.com"), (completed, total) -> {});
+
+        assertEquals(1, prefetcher.getFailedCount());
+        assertEquals(4, prefetcher.getDownloadedCount());
+        assertEquals(-1, (long) prefetcher.getByteSizes().get("https://a.com/1.png"));
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() throws InterruptedException {
+        FakeImageLoader loader = new FakeImageLoader(10);
+
+        new ImagePrefetcher(loader).prefetch(links(20, "a.com", "b.com", "c.com", "d.com", "e.com"), (completed, total) -> {});
+
+        assertTrue(loader.maxRunning.get() > 1);
+        assertTrue(loader.maxRunning.get() <= ImagePrefetcher.THREAD_COUNT);
+        for (AtomicInteger maxRunning : loader.maxRunningPerHost.values()) {
+            assertTrue(maxRunning.get() <= ImagePrefetcher.MAX_REQUESTS_PER_HOST);
+        }
+    }
+
+    @Test
+    public void testSingleHostDoesNotBlockOthers() throws InterruptedException {
+        // all images of the first item are on the same host - the other hosts still get a thread
+        List<String> links = links(20, "slow.com");
+        links.add("https://fast.com/1.png");
+        links.add("https://other.com/1.png");
+        FakeImageLoader loader = new FakeImageLoader(10);
+
+        new ImagePrefetcher(loader).prefetch(links, (completed, total) -> {});
+
+        assertTrue(loader.downloaded.indexOf("https://fast.com/1.png") < ImagePrefetcher.THREAD_COUNT);
+        assertTrue(loader.downloaded.indexOf("https://other.com/1.png") < ImagePrefetcher.THREAD_COUNT);
+    }
+
+    @Test
+    public void testLinksAreHandedOutInOrder() throws InterruptedException {
+        List<String> links = links(5, "a.com", "b.com");
+        ImagePrefetcher.WorkQueue queue = new ImagePrefetcher.WorkQueue(links, 1);
+
+        String first = queue.take();
+        String second = queue.take();
+        assertEquals(links.get(0), first);
+        assertEquals(links.get(1), second);
+
+        // both hosts are busy until one of the requests is done
+        queue.done(second);
+        assertEquals(links.get(3), queue.take());
+        queue.done(first);
+        assertEquals(links.get(2), queue.take());
+    }
+
+    private static List<String> links(int countPerHost, String... hosts) {
+        List<String> links = new ArrayList<>();
+        for (int i = 1; i <= countPerHost; i++) {
+            for (String host : hosts) {
+                links.add("https://" + host + "/" + i + ".png");
+            }
+        }
+        return links;
+    }
+
+    private static class FakeImageLoader implements ImagePrefetcher.ImageLoader {
+
+        private final long downloadTimeMs;
+        final Set<String> cached = new HashSet<>();
+        final Set<String> failing = new HashSet<>();
+        final List<String> downloaded = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final Map<String, AtomicInteger> runningPerHost = new HashMap<>();
+        final Map<String, AtomicInteger> maxRunningPerHost = new HashMap<>();
+
+        FakeImageLoader(long downloadTimeMs) {
+            this.downloadTimeMs = downloadTimeMs;
+        }
+
+        @Override
+        public long getCachedSize(String url) {
+            return cached.contains(url) ? CACHED_SIZE : -1;
+        }
+
+        @Override
+        public long download(String url) throws Exception {
+            String host = ImagePrefetcher.getHost(url);
+            AtomicInteger hostRunning;
+            AtomicInteger hostMaxRunning;
+            synchronized (this) {
+                hostRunning = runningPerHost.computeIfAbsent(host, key -> new AtomicInteger());
+                hostMaxRunning = maxRunningPerHost.computeIfAbsent(host, key -> new AtomicInteger());
+            }
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            hostMaxRunning.accumulateAndGet(hostRunning.incrementAndGet(), Math::max);
+            try {
+                downloaded.add(url);
+                Thread.sleep(downloadTimeMs);
+                if (failing.contains(url)) {
+                    throw new IllegalStateException("Download failed");
+                }
+                return DOWNLOADED_SIZE;
+            } finally {
+                hostRunning.decrementAndGet();
+                running.decrementAndGet();
+            }
+        }
+    }
+}
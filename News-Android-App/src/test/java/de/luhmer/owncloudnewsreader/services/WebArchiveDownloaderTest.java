@@ -0,0 +1,164 @@
+package de.luhmer.owncloudnewsreader.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+public class WebArchiveDownloaderTest {
+
+    private static final String PAGE = "<html><head><title>Article</title>" +
+            "<link rel=\"stylesheet\" href=\"/style.css\">" +
+            "<script src=\"https://example.com/tracker.js\"></script>" +
+            "</head><body><p>Text</p>" +
+            "<img src=\"images/a.png\" srcset=\"images/a-2x.png 2x\">" +
+            "<img src=\"https://cdn.example.com/missing.png\">" +
+            "</body></html>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPageIsArchivedWithResources() throws Exception {
+        FakeServer server = new FakeServer(0);
+        server.add("https://example.com/articles/1", "text/html", PAGE);
+        server.add("https://example.com/style.css", "text/css", "body { background: url('bg.png') } .icon { background: url(data:image/png;base64,AAAA) }");
+        server.add("https://example.com/articles/images/a.png", "image/png", "PNG-A");
+        server.add("https://example.com/bg.png", "image/png", "PNG-BG");
+
+        WebArchiveDownloader downloader = new WebArchiveDownloader(server.client());
+        downloader.downloadAll(Collections.singletonList("https://example.com/articles/1"), folder.getRoot(), (completed, total) -> {});
+
+        assertEquals(1, downloader.getDownloadedCount());
+        File archive = new File(folder.getRoot(), DownloadWebPageService.getWebPageArchiveFilename("https://example.com/articles/1"));
+        String content = new String(Files.readAllBytes(archive.toPath()), StandardCharsets.UTF_8);
+
+        assertTrue(content.contains("Content-Type: multipart/related;"));
+        assertTrue(content.contains("Content-Location: https://example.com/articles/1\r\n"));
+        assertTrue(content.contains("Content-Location: https://example.com/style.css\r\n"));
+        assertTrue(content.contains("Content-Location: https://example.com/articles/images/a.png\r\n\r\nPNG-A"));
+        assertTrue(content.contains("Content-Location: https://example.com/bg.png\r\n\r\nPNG-BG"));
+        // the links reference the archived resources
+        assertTrue(content.contains("src=\"https://example.com/articles/images/a.png\""));
+        assertTrue(content.contains("href=\"https://example.com/style.css\""));
+        assertFalse(content.contains("<script"));
+        assertFalse(content.contains("srcset"));
+        assertFalse(content.contains("missing.png\r\n"));
+        assertFalse(server.requests.contains("https://example.com/tracker.js"));
+        assertFalse(server.requests.contains("https://example.com/articles/images/a-2x.png"));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testFailedPagesAreNotArchived() throws Exception {
+        FakeServer server = new FakeServer(0);
+        server.add("https://example.com/file.pdf", "application/pdf", "PDF");
+
+        WebArchiveDownloader downloader = new WebArchiveDownloader(server.client());
+        downloader.downloadAll(Arrays.asList("https://example.com/missing", "https://example.com/file.pdf"), folder.getRoot(), (completed, total) -> {});
+
+        assertEquals(2, downloader.getFailedCount());
+        assertEquals(0, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void testEachPageIsDownloadedOnce() throws Exception {
+        FakeServer server = new FakeServer(0);
+        server.add("https://example.com/1", "text/html", "<p>1</p>");
+        server.add("https://example.com/2", "text/html", "<p>2</p>");
+        assertTrue(new File(folder.getRoot(), DownloadWebPageService.getWebPageArchiveFilename("https://example.com/2")).createNewFile());
+
+        List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+        WebArchiveDownloader downloader = new WebArchiveDownloader(server.client());
+        downloader.downloadAll(Arrays.asList("https://example.com/1", "https://example.com/2", "https://example.com/1", null, "mailto:test@example.com"),
+                folder.getRoot(), (completed, total) -> progress.add(total));
+
+        assertEquals(Collections.singletonList("https://example.com/1"), server.requests);
+        assertEquals(1, downloader.getDownloadedCount());
+        assertEquals(1, downloader.getSkippedCount());
+        assertEquals(Arrays.asList(2, 2), progress);
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() throws Exception {
+        FakeServer server = new FakeServer(20);
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            urls.add("https://example.com/" + i);
+            server.add("https://example.com/" + i, "text/html", "<p>" + i + "</p>");
+        }
+
+        WebArchiveDownloader downloader = new WebArchiveDownloader(server.client(), 3);
+        downloader.downloadAll(urls, folder.getRoot(), (completed, total) -> {});
+
+        assertEquals(12, downloader.getDownloadedCount());
+        assertTrue(server.maxRunning.get() > 1);
+        assertTrue(server.maxRunning.get() <= 3);
+    }
+
+    private static class FakeServer implements Interceptor {
+
+        private final long responseTimeMs;
+        private final Map<String, String[]> responses = new HashMap<>();
+        final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        FakeServer(long responseTimeMs) {
+            this.responseTimeMs = responseTimeMs;
+        }
+
+        void add(String url, String contentType, String body) {
+            responses.put(url, new String[] { contentType, body });
+        }
+
+        OkHttpClient client() {
+            return new OkHttpClient.Builder().addInterceptor(this).build();
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            String url = chain.request().url().toString();
+            requests.add(url);
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(responseTimeMs);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                running.decrementAndGet();
+            }
+
+            String[] response = responses.get(url);
+            return new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(response != null ? 200 : 404)
+                    .message(response != null ? "OK" : "Not Found")
+                    .body(ResponseBody.create(response != null ? response[1] : "", MediaType.get(response != null ? response[0] : "text/plain")))
+                    .build();
+        }
+    }
+}